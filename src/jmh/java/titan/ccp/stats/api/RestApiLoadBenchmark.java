@@ -0,0 +1,353 @@
+package titan.ccp.stats.api;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import titan.ccp.model.records.DayOfWeekActivePowerRecord;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+import titan.ccp.stats.api.util.Interval;
+
+/**
+ * Load benchmark of the {@link RestApiServer} running on localhost. The server is backed by
+ * in-memory repositories, seeded with synthetic statistics, such that no Cassandra cluster is
+ * required. A configurable number of concurrent clients requests all {@code /sensor/*} and
+ * {@code /interval/*} routes in closed loop. Afterwards, throughput and p50/p99/p999 latencies are
+ * reported per route and in total.
+ *
+ * <p>
+ * Parameters are passed as system properties, for example,
+ * {@code ./gradlew restApiBenchmark -Dbenchmark.concurrency=32}:
+ * </p>
+ * <ul>
+ * <li>{@code benchmark.sensors}: number of sensors with statistics (default 1000)</li>
+ * <li>{@code benchmark.intervals}: number of intervals per statistics type (default 12)</li>
+ * <li>{@code benchmark.concurrency}: number of concurrent clients (default 16)</li>
+ * <li>{@code benchmark.warmup.seconds}: duration of the warm-up phase (default 10)</li>
+ * <li>{@code benchmark.duration.seconds}: duration of the measurement phase (default 30)</li>
+ * </ul>
+ */
+public final class RestApiLoadBenchmark {
+
+  private static final String DAY_OF_WEEK = "day-of-week";
+  private static final String HOUR_OF_DAY = "hour-of-day";
+  private static final String HOUR_OF_WEEK = "hour-of-week";
+  private static final List<String> STATS_TYPES = List.of(DAY_OF_WEEK, HOUR_OF_DAY, HOUR_OF_WEEK);
+  private static final int DAYS_OF_WEEK = 7;
+  private static final int HOURS_OF_DAY = 24;
+  private static final Duration INTERVAL_ADVANCE = Duration.ofDays(30);
+  private static final Duration INTERVAL_SIZE = Duration.ofDays(365);
+  private static final Duration SERVER_STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+  private final int sensors = Integer.getInteger("benchmark.sensors", 1000);
+  private final int intervals = Integer.getInteger("benchmark.intervals", 12);
+  private final int concurrency = Integer.getInteger("benchmark.concurrency", 16);
+  private final Duration warmup = Duration.ofSeconds(Long.getLong("benchmark.warmup.seconds", 10));
+  private final Duration duration =
+      Duration.ofSeconds(Long.getLong("benchmark.duration.seconds", 30));
+
+  private final InMemoryStatsRepository<DayOfWeekActivePowerRecord> dayOfWeekRepository =
+      new InMemoryStatsRepository<>(DayOfWeekMapping.create());
+  private final InMemoryStatsRepository<HourOfDayActivePowerRecord> hourOfDayRepository =
+      new InMemoryStatsRepository<>(HourOfDayMapping.create());
+  private final InMemoryStatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository =
+      new InMemoryStatsRepository<>(HourOfWeekMapping.create());
+  private final InMemoryPercentilesRepository dayOfWeekPercentilesRepository =
+      new InMemoryPercentilesRepository();
+  private final InMemoryPercentilesRepository hourOfDayPercentilesRepository =
+      new InMemoryPercentilesRepository();
+  private final InMemoryPercentilesRepository hourOfWeekPercentilesRepository =
+      new InMemoryPercentilesRepository();
+  private final List<Interval> seededIntervals = new ArrayList<>();
+  private final HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .build();
+
+  private RestApiLoadBenchmark() {}
+
+  private void run() throws Exception { // NOPMD
+    this.seed();
+
+    final int port = findFreePort();
+    final RestApiServer server = new RestApiServer(
+        this.dayOfWeekRepository,
+        this.hourOfDayRepository,
+        this.hourOfWeekRepository,
+        this.dayOfWeekPercentilesRepository,
+        this.hourOfDayPercentilesRepository,
+        this.hourOfWeekPercentilesRepository,
+        port,
+        false);
+    server.start();
+    final String baseUrl = "http://localhost:" + port;
+    this.awaitServer(baseUrl);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(this.concurrency);
+    try {
+      System.out.println("Warm-up for " + this.warmup.toSeconds() + " s"); // NOPMD
+      this.runClients(executor, baseUrl, this.warmup);
+      System.out.println("Measure for " + this.duration.toSeconds() + " s"); // NOPMD
+      final List<Recorder> recorders = this.runClients(executor, baseUrl, this.duration);
+      this.report(recorders);
+    } finally {
+      executor.shutdownNow();
+      server.stop();
+    }
+  }
+
+  /**
+   * Fill the repositories with statistics for all sensors, intervals and time units. The latest
+   * interval contains the current time, such that it is returned for requests without interval.
+   */
+  private void seed() {
+    final Instant latestStart = Instant.now().truncatedTo(ChronoUnit.DAYS)
+        .minus(INTERVAL_SIZE)
+        .plus(INTERVAL_ADVANCE);
+    for (int i = this.intervals - 1; i >= 0; i--) {
+      final Instant start = latestStart.minus(INTERVAL_ADVANCE.multipliedBy(i));
+      this.seededIntervals.add(Interval.of(start, start.plus(INTERVAL_SIZE)));
+    }
+
+    final Random random = new Random(42); // NOPMD
+    for (int sensor = 0; sensor < this.sensors; sensor++) {
+      final String identifier = sensorIdentifier(sensor);
+      for (final Interval interval : this.seededIntervals) {
+        final long start = interval.getStart().toEpochMilli();
+        final long end = interval.getEnd().toEpochMilli();
+        for (int day = 1; day <= DAYS_OF_WEEK; day++) {
+          final double mean = 100 + random.nextDouble() * 1000;
+          this.dayOfWeekRepository.add(new DayOfWeekActivePowerRecord(
+              identifier, day, start, end, 1000L, mean, mean, mean / 2, mean * 2));
+          this.dayOfWeekPercentilesRepository.add(new Percentiles(
+              identifier, Map.of("dayOfWeek", day), start, end, mean, mean * 1.5, mean * 2));
+          for (int hour = 0; hour < HOURS_OF_DAY; hour++) {
+            this.hourOfWeekRepository.add(new HourOfWeekActivePowerRecord(
+                identifier, day, hour, start, end, 1000L, mean, mean, mean / 2, mean * 2));
+            this.hourOfWeekPercentilesRepository.add(new Percentiles(
+                identifier, Map.of("dayOfWeek", day, "hourOfDay", hour), start, end,
+                mean, mean * 1.5, mean * 2));
+          }
+        }
+        for (int hour = 0; hour < HOURS_OF_DAY; hour++) {
+          final double mean = 100 + random.nextDouble() * 1000;
+          this.hourOfDayRepository.add(new HourOfDayActivePowerRecord(
+              identifier, hour, start, end, 1000L, mean, mean, mean / 2, mean * 2));
+          this.hourOfDayPercentilesRepository.add(new Percentiles(
+              identifier, Map.of("hourOfDay", hour), start, end, mean, mean * 1.5, mean * 2));
+        }
+      }
+    }
+  }
+
+  private void awaitServer(final String baseUrl) throws InterruptedException {
+    final Instant deadline = Instant.now().plus(SERVER_STARTUP_TIMEOUT);
+    while (Instant.now().isBefore(deadline)) {
+      try {
+        this.httpClient.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/interval/" + DAY_OF_WEEK)).build(),
+            HttpResponse.BodyHandlers.discarding());
+        return;
+      } catch (final IOException e) {
+        Thread.sleep(100); // NOCS
+      }
+    }
+    throw new IllegalStateException("Server did not start within " + SERVER_STARTUP_TIMEOUT);
+  }
+
+  private List<Recorder> runClients(final ExecutorService executor, final String baseUrl,
+      final Duration runDuration) throws Exception { // NOPMD
+    final long deadline = System.nanoTime() + runDuration.toNanos();
+    final List<Future<Recorder>> futures = new ArrayList<>();
+    for (int i = 0; i < this.concurrency; i++) {
+      futures.add(executor.submit(() -> this.runClient(baseUrl, deadline)));
+    }
+    final List<Recorder> recorders = new ArrayList<>();
+    for (final Future<Recorder> future : futures) {
+      recorders.add(future.get());
+    }
+    return recorders;
+  }
+
+  private Recorder runClient(final String baseUrl, final long deadline) throws Exception { // NOPMD
+    final List<Route> routes = Route.all();
+    final Recorder recorder = new Recorder(routes.size());
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (System.nanoTime() < deadline) {
+      final int routeIndex = random.nextInt(routes.size());
+      final URI uri = URI.create(baseUrl + routes.get(routeIndex).path(this, random));
+      final HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+      final long start = System.nanoTime();
+      final HttpResponse<byte[]> response =
+          this.httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+      final long latency = System.nanoTime() - start;
+      recorder.record(routeIndex, latency, response.statusCode(), response.body().length);
+    }
+    return recorder;
+  }
+
+  private void report(final List<Recorder> recorders) {
+    final List<Route> routes = Route.all();
+    final double seconds = this.duration.toNanos() / 1_000_000_000.0;
+    System.out.println(String.format( // NOPMD
+        "%-40s %10s %10s %10s %10s %10s %8s %10s",
+        "route", "requests", "req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "errors", "bytes/req"));
+    final Recorder total = new Recorder(1);
+    for (int i = 0; i < routes.size(); i++) {
+      final Recorder route = new Recorder(1);
+      for (final Recorder recorder : recorders) {
+        route.addAll(0, recorder, i);
+        total.addAll(0, recorder, i);
+      }
+      System.out.println(route.format(routes.get(i).name, seconds)); // NOPMD
+    }
+    System.out.println(total.format("total", seconds)); // NOPMD
+  }
+
+  private String randomSensor(final Random random) {
+    return sensorIdentifier(random.nextInt(this.sensors));
+  }
+
+  private Interval randomInterval(final Random random) {
+    return this.seededIntervals.get(random.nextInt(this.seededIntervals.size()));
+  }
+
+  private static String sensorIdentifier(final int sensor) {
+    return "sensor-" + sensor;
+  }
+
+  private static int findFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  public static void main(final String[] args) throws Exception { // NOPMD
+    new RestApiLoadBenchmark().run();
+  }
+
+  /**
+   * A route of the REST API together with a way to create a random path for it.
+   */
+  private static final class Route {
+
+    private final String name;
+    private final PathFactory pathFactory;
+
+    private Route(final String name, final PathFactory pathFactory) {
+      this.name = name;
+      this.pathFactory = pathFactory;
+    }
+
+    private String path(final RestApiLoadBenchmark benchmark, final Random random) {
+      return this.pathFactory.create(benchmark, random);
+    }
+
+    private static List<Route> all() {
+      final List<Route> routes = new ArrayList<>();
+      for (final String type : STATS_TYPES) {
+        routes.add(new Route("/sensor/:sensorId/" + type,
+            (b, r) -> "/sensor/" + b.randomSensor(r) + '/' + type));
+        routes.add(new Route("/sensor/:sensorId/" + type + "?interval",
+            (b, r) -> "/sensor/" + b.randomSensor(r) + '/' + type
+                + intervalQuery(b.randomInterval(r))));
+        routes.add(new Route("/sensor/:sensorId/" + type + "/percentiles",
+            (b, r) -> "/sensor/" + b.randomSensor(r) + '/' + type + "/percentiles"));
+      }
+      for (final String type : STATS_TYPES) {
+        routes.add(new Route("/interval/" + type, (b, r) -> "/interval/" + type));
+      }
+      return routes;
+    }
+
+    private static String intervalQuery(final Interval interval) {
+      return "?intervalStart=" + interval.getStart() + "&intervalEnd=" + interval.getEnd();
+    }
+
+  }
+
+  /**
+   * Creates a path to be requested.
+   */
+  @FunctionalInterface
+  private interface PathFactory {
+    String create(RestApiLoadBenchmark benchmark, Random random);
+  }
+
+  /**
+   * Records latencies, errors and response sizes per route of a single client.
+   */
+  private static final class Recorder {
+
+    private final long[][] latencies;
+    private final int[] counts;
+    private final int[] errors;
+    private final long[] bytes;
+
+    private Recorder(final int routes) {
+      this.latencies = new long[routes][1024];
+      this.counts = new int[routes];
+      this.errors = new int[routes];
+      this.bytes = new long[routes];
+    }
+
+    private void record(final int route, final long latency, final int statusCode,
+        final int responseBytes) {
+      if (this.counts[route] == this.latencies[route].length) {
+        this.latencies[route] = Arrays.copyOf(this.latencies[route], this.counts[route] * 2);
+      }
+      this.latencies[route][this.counts[route]++] = latency;
+      this.bytes[route] += responseBytes;
+      if (statusCode != 200) { // NOCS
+        this.errors[route]++;
+      }
+    }
+
+    private void addAll(final int route, final Recorder other, final int otherRoute) {
+      for (int i = 0; i < other.counts[otherRoute]; i++) {
+        this.record(route, other.latencies[otherRoute][i], 200, 0); // NOCS
+      }
+      this.errors[route] += other.errors[otherRoute];
+      this.bytes[route] += other.bytes[otherRoute];
+    }
+
+    private String format(final String name, final double seconds) {
+      final int count = this.counts[0];
+      final long[] sorted = Arrays.copyOf(this.latencies[0], count);
+      Arrays.sort(sorted);
+      return String.format("%-40s %10d %10.0f %10.3f %10.3f %10.3f %8d %10.0f",
+          name,
+          count,
+          count / seconds,
+          percentile(sorted, 0.5),
+          percentile(sorted, 0.99),
+          percentile(sorted, 0.999),
+          this.errors[0],
+          count == 0 ? 0.0 : (double) this.bytes[0] / count);
+    }
+
+    private static double percentile(final long[] sorted, final double quantile) {
+      if (sorted.length == 0) {
+        return Double.NaN;
+      }
+      final int index = (int) Math.ceil(quantile * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+  }
+
+}
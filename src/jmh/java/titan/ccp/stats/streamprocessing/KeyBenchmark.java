@@ -0,0 +1,132 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the creation and (de)serialization of stats keys for different numbers of distinct
+ * sensors (key cardinalities).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyBenchmark {
+
+  private static final String TOPIC = "benchmark";
+  private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+  private static final long START_TIMESTAMP = 1_577_854_200_000L;
+  private static final long TIMESTAMP_STEP = 37 * 60 * 1000L; // Hit different hours
+
+  @Param({"1", "1000", "100000"})
+  public int cardinality;
+
+  private final HourOfWeekKeyFactory hourOfWeekKeyFactory = new HourOfWeekKeyFactory();
+  private final HourOfDayKeyFactory hourOfDayKeyFactory = new HourOfDayKeyFactory();
+  private final DayOfWeekKeyFactory dayOfWeekKeyFactory = new DayOfWeekKeyFactory();
+  private final Serializer<HourOfWeekKey> hourOfWeekSerializer =
+      HourOfWeekKeySerde.create().serializer();
+  private final Deserializer<HourOfWeekKey> hourOfWeekDeserializer =
+      HourOfWeekKeySerde.create().deserializer();
+  private final Serializer<HourOfDayKey> hourOfDaySerializer =
+      HourOfDayKeySerde.create().serializer();
+  private final Serializer<DayOfWeekKey> dayOfWeekSerializer =
+      DayOfWeekKeySerde.create().serializer();
+
+  private String[] sensorIds;
+  private HourOfWeekKey[] hourOfWeekKeys;
+  private byte[][] serializedHourOfWeekKeys;
+  private int index;
+  private long timestamp = START_TIMESTAMP;
+
+  @Setup
+  public void setup() {
+    this.sensorIds = new String[this.cardinality];
+    this.hourOfWeekKeys = new HourOfWeekKey[this.cardinality];
+    this.serializedHourOfWeekKeys = new byte[this.cardinality][];
+    for (int i = 0; i < this.cardinality; i++) {
+      this.sensorIds[i] = "sensor-" + i;
+      this.hourOfWeekKeys[i] = this.hourOfWeekKeyFactory.createKey(
+          this.sensorIds[i],
+          LocalDateTime.ofInstant(Instant.ofEpochMilli(START_TIMESTAMP + i * TIMESTAMP_STEP), ZONE));
+      this.serializedHourOfWeekKeys[i] =
+          this.hourOfWeekSerializer.serialize(TOPIC, this.hourOfWeekKeys[i]);
+    }
+  }
+
+  @Benchmark
+  public HourOfWeekKey createHourOfWeekKey() {
+    return this.hourOfWeekKeyFactory.createKey(this.nextSensorId(), this.nextDateTime());
+  }
+
+  @Benchmark
+  public HourOfDayKey createHourOfDayKey() {
+    return this.hourOfDayKeyFactory.createKey(this.nextSensorId(), this.nextDateTime());
+  }
+
+  @Benchmark
+  public DayOfWeekKey createDayOfWeekKey() {
+    return this.dayOfWeekKeyFactory.createKey(this.nextSensorId(), this.nextDateTime());
+  }
+
+  @Benchmark
+  public byte[] serializeHourOfWeekKey() {
+    return this.hourOfWeekSerializer.serialize(TOPIC, this.hourOfWeekKeys[this.nextIndex()]);
+  }
+
+  @Benchmark
+  public HourOfWeekKey deserializeHourOfWeekKey() {
+    return this.hourOfWeekDeserializer.deserialize(
+        TOPIC,
+        this.serializedHourOfWeekKeys[this.nextIndex()]);
+  }
+
+  @Benchmark
+  public byte[] serializeHourOfDayKey() {
+    return this.hourOfDaySerializer.serialize(
+        TOPIC,
+        this.hourOfDayKeyFactory.createKey(this.nextSensorId(), this.nextDateTime()));
+  }
+
+  @Benchmark
+  public byte[] serializeDayOfWeekKey() {
+    return this.dayOfWeekSerializer.serialize(
+        TOPIC,
+        this.dayOfWeekKeyFactory.createKey(this.nextSensorId(), this.nextDateTime()));
+  }
+
+  private int nextIndex() {
+    this.index = (this.index + 1) % this.cardinality;
+    return this.index;
+  }
+
+  private String nextSensorId() {
+    return this.sensorIds[this.nextIndex()];
+  }
+
+  /**
+   * Create the date time of the next record in the same way as the topology does.
+   */
+  private LocalDateTime nextDateTime() {
+    this.timestamp += TIMESTAMP_STEP;
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(this.timestamp), ZONE);
+  }
+
+}
@@ -0,0 +1,91 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the serdes for state store values and repartitioned values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerdeBenchmark {
+
+  private static final String TOPIC = "benchmark";
+
+  @Param({"0", "100", "100000"})
+  public int valuesPerWindow;
+
+  @Param({"false", "true"})
+  public boolean percentiles;
+
+  private Serializer<SummaryStatistics> statisticsSerializer;
+  private Deserializer<SummaryStatistics> statisticsDeserializer;
+  private Serializer<TimestampedActivePower> valueSerializer;
+  private Deserializer<TimestampedActivePower> valueDeserializer;
+  private SummaryStatistics statistics;
+  private byte[] serializedStatistics;
+  private TimestampedActivePower value;
+  private byte[] serializedValue;
+
+  @Setup
+  public void setup() {
+    final Serdes serdes = new MockedSchemaRegistrySerdes();
+    this.statisticsSerializer = serdes.summaryStatistics().serializer();
+    this.statisticsDeserializer = serdes.summaryStatistics().deserializer();
+    this.valueSerializer = serdes.timestampedActivePowerValues().serializer();
+    this.valueDeserializer = serdes.timestampedActivePowerValues().deserializer();
+
+    final Random random = new Random(42);
+    SummaryStatistics statistics = new SummaryStatistics(
+        Stats.of(),
+        -1,
+        this.percentiles ? new QuantileSketch(0.01, 1024) : null);
+    for (int i = 0; i < this.valuesPerWindow; i++) {
+      statistics = statistics.add(
+          new TimestampedActivePower(i * 1000L, 100 + random.nextDouble() * 1000));
+    }
+    this.statistics = statistics;
+    this.serializedStatistics = this.statisticsSerializer.serialize(TOPIC, this.statistics);
+    this.value = new TimestampedActivePower(1_577_854_200_000L, 42.5);
+    this.serializedValue = this.valueSerializer.serialize(TOPIC, this.value);
+  }
+
+  @Benchmark
+  public byte[] serializeSummaryStatistics() {
+    return this.statisticsSerializer.serialize(TOPIC, this.statistics);
+  }
+
+  @Benchmark
+  public SummaryStatistics deserializeSummaryStatistics() {
+    return this.statisticsDeserializer.deserialize(TOPIC, this.serializedStatistics);
+  }
+
+  @Benchmark
+  public byte[] serializeValue() {
+    return this.valueSerializer.serialize(TOPIC, this.value);
+  }
+
+  @Benchmark
+  public TimestampedActivePower deserializeValue() {
+    return this.valueDeserializer.deserialize(TOPIC, this.serializedValue);
+  }
+
+}
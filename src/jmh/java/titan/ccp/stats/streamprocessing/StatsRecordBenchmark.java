@@ -0,0 +1,73 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.TimeWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+
+/**
+ * Benchmarks creating statistics records for window updates with and without reusing record
+ * instances. Run with {@code -prof gc} to compare allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StatsRecordBenchmark {
+
+  private static final int NUMBER_OF_UPDATES = 1024;
+  private static final long WINDOW_SIZE_MS = Duration.ofDays(365).toMillis();
+  private static final long WINDOW_ADVANCE_MS = Duration.ofDays(30).toMillis();
+
+  private final HourOfWeekRecordFactory recordFactory = new HourOfWeekRecordFactory();
+  private Windowed<HourOfWeekKey>[] keys;
+  private Stats stats;
+  private HourOfWeekActivePowerRecord reusableRecord;
+  private int index;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    this.keys = new Windowed[NUMBER_OF_UPDATES];
+    for (int i = 0; i < NUMBER_OF_UPDATES; i++) {
+      final long start = (i % 13) * WINDOW_ADVANCE_MS; // NOCS
+      this.keys[i] = new Windowed<>(
+          new HourOfWeekKey(DayOfWeek.of(i % 7 + 1), i % 24, "sensor-" + i), // NOCS
+          new TimeWindow(start, start + WINDOW_SIZE_MS));
+    }
+    this.stats = Stats.of(100.0, 250.5, 320.25, 80.0);
+  }
+
+  @Benchmark
+  public HourOfWeekActivePowerRecord create() {
+    return this.recordFactory.create(this.nextKey(), this.stats);
+  }
+
+  @Benchmark
+  public HourOfWeekActivePowerRecord createReused() {
+    this.reusableRecord =
+        this.recordFactory.create(this.nextKey(), this.stats, this.reusableRecord);
+    return this.reusableRecord;
+  }
+
+  private Windowed<HourOfWeekKey> nextKey() {
+    this.index = (this.index + 1) % NUMBER_OF_UPDATES;
+    return this.keys[this.index];
+  }
+
+}
@@ -0,0 +1,73 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks adding values to {@link SummaryStatistics} and {@link QuantileSketch}es.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SummaryStatisticsBenchmark {
+
+  private static final int NUMBER_OF_VALUES = 1024;
+
+  @Param({"false", "true"})
+  public boolean percentiles;
+
+  private SummaryStatistics statistics;
+  private QuantileSketch sketch;
+  private TimestampedActivePower[] values;
+  private int index;
+
+  @Setup
+  public void setup() {
+    this.sketch = new QuantileSketch(0.01, 1024);
+    this.statistics = new SummaryStatistics(
+        Stats.of(),
+        -1,
+        this.percentiles ? new QuantileSketch(0.01, 1024) : null);
+    final Random random = new Random(42);
+    this.values = new TimestampedActivePower[NUMBER_OF_VALUES];
+    for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+      this.values[i] = new TimestampedActivePower(i * 1000L, 100 + random.nextDouble() * 1000);
+    }
+    // Fill statistics with some values, such that they are not empty
+    for (final TimestampedActivePower value : this.values) {
+      this.statistics = this.statistics.add(value);
+    }
+  }
+
+  @Benchmark
+  public SummaryStatistics add() {
+    this.statistics = this.statistics.add(this.nextValue());
+    return this.statistics;
+  }
+
+  @Benchmark
+  public QuantileSketch addToSketch() {
+    return this.sketch.add(this.nextValue().getValueInW());
+  }
+
+  private TimestampedActivePower nextValue() {
+    this.index = (this.index + 1) % NUMBER_OF_VALUES;
+    return this.values[this.index];
+  }
+
+}
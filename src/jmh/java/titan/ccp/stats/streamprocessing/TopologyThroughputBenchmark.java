@@ -0,0 +1,248 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import org.apache.avro.Schema;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import titan.ccp.model.records.ActivePowerRecord;
+import titan.ccp.model.records.AggregatedActivePowerRecord;
+
+/**
+ * Throughput benchmark of the entire statistics topology, as built by {@link KafkaStreamsBuilder},
+ * using a {@link TopologyTestDriver}. Synthetic records for a configurable number of sensors,
+ * sampling interval and time span are piped through the topology. Afterwards, the throughput, the
+ * number of output records per input record, the bytes written to repartition topics and the size
+ * of the state stores (estimated from the latest value per key in their changelog topics) are
+ * reported.
+ *
+ * <p>
+ * Parameters are passed as system properties, for example,
+ * {@code ./gradlew topologyBenchmark -Dbenchmark.sensors=1000}:
+ * </p>
+ * <ul>
+ * <li>{@code benchmark.sensors}: number of sensors in the active power topic (default 100)</li>
+ * <li>{@code benchmark.aggregated.sensors}: number of sensors in the aggregated active power topic
+ * (default 10)</li>
+ * <li>{@code benchmark.sampling.interval.ms}: time between two records of a sensor (default
+ * 10000)</li>
+ * <li>{@code benchmark.time.span.days}: time span of all records (default 2)</li>
+ * <li>{@code benchmark.percentiles}: whether to compute percentiles (default true)</li>
+ * <li>{@code benchmark.drain.interval}: number of input records after which produced records are
+ * drained (default 10000)</li>
+ * </ul>
+ */
+public final class TopologyThroughputBenchmark {
+
+  private static final String ACTIVE_POWER_TOPIC = "input";
+  private static final String AGGR_ACTIVE_POWER_TOPIC = "aggregation-feedback";
+  private static final String DAY_OF_WEEK_TOPIC = "day-of-week";
+  private static final String HOUR_OF_DAY_TOPIC = "hour-of-day";
+  private static final String HOUR_OF_WEEK_TOPIC = "hour-of-week";
+  private static final List<String> STATS_TOPICS =
+      List.of(DAY_OF_WEEK_TOPIC, HOUR_OF_DAY_TOPIC, HOUR_OF_WEEK_TOPIC);
+  private static final String APPLICATION_ID = "stats-benchmark";
+  private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+  private final int sensors = Integer.getInteger("benchmark.sensors", 100);
+  private final int aggregatedSensors = Integer.getInteger("benchmark.aggregated.sensors", 10);
+  private final long samplingIntervalMs = Long.getLong("benchmark.sampling.interval.ms", 10_000);
+  private final long timeSpanDays = Long.getLong("benchmark.time.span.days", 2);
+  private final boolean percentiles =
+      Boolean.parseBoolean(System.getProperty("benchmark.percentiles", "true"));
+  private final int drainInterval = Integer.getInteger("benchmark.drain.interval", 10_000);
+
+  private final Serdes serdes = new MockedSchemaRegistrySerdes();
+  private final Map<String, TestOutputTopic<byte[], byte[]>> producedTopics = new HashMap<>();
+  private final Map<String, Long> producedRecords = new TreeMap<>();
+  private final Map<String, Long> producedBytes = new TreeMap<>();
+  private final Map<String, Map<Bytes, Integer>> changelogValueSizes = new TreeMap<>();
+  private TopologyTestDriver testDriver;
+
+  private TopologyThroughputBenchmark() {}
+
+  private void run() {
+    final Topology topology = this.buildTopology();
+    final Properties properties = new Properties();
+    properties.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, APPLICATION_ID);
+    properties.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    this.testDriver = new TopologyTestDriver(topology, properties);
+
+    final TestInputTopic<String, ActivePowerRecord> activePowerTopic =
+        this.testDriver.createInputTopic(
+            ACTIVE_POWER_TOPIC,
+            this.serdes.string().serializer(),
+            this.serdes.activePowerRecordValues().serializer());
+    final TestInputTopic<String, AggregatedActivePowerRecord> aggrActivePowerTopic =
+        this.testDriver.createInputTopic(
+            AGGR_ACTIVE_POWER_TOPIC,
+            this.serdes.string().serializer(),
+            this.serdes.aggregatedActivePowerRecordValues().serializer());
+
+    final long end = START.plus(Duration.ofDays(this.timeSpanDays)).toEpochMilli();
+    final Random random = new Random(42); // NOPMD
+    long inputRecords = 0;
+    final long startNanos = System.nanoTime();
+    for (long timestamp = START.toEpochMilli(); timestamp < end;
+        timestamp += this.samplingIntervalMs) {
+      for (int i = 0; i < this.sensors; i++) {
+        final String identifier = "sensor-" + i;
+        final double value = 100 + random.nextDouble() * 1000;
+        activePowerTopic.pipeInput(new TestRecord<>(
+            identifier,
+            new ActivePowerRecord(identifier, timestamp, value),
+            Instant.ofEpochMilli(timestamp)));
+      }
+      for (int i = 0; i < this.aggregatedSensors; i++) {
+        final String identifier = "aggregated-sensor-" + i;
+        final double value = (100 + random.nextDouble() * 1000) * this.sensors;
+        aggrActivePowerTopic.pipeInput(new TestRecord<>(
+            identifier,
+            createAggregatedRecord(identifier, timestamp, value),
+            Instant.ofEpochMilli(timestamp)));
+      }
+      final long previousInputRecords = inputRecords;
+      inputRecords += this.sensors + this.aggregatedSensors;
+      if (inputRecords / this.drainInterval > previousInputRecords / this.drainInterval) {
+        this.drainProducedTopics();
+      }
+    }
+    this.drainProducedTopics();
+    final long elapsedNanos = System.nanoTime() - startNanos;
+    this.testDriver.close();
+
+    this.report(inputRecords, elapsedNanos);
+  }
+
+  private Topology buildTopology() {
+    final TopologyBuilder topologyBuilder = new TopologyBuilder(
+        this.serdes,
+        null, // Do not store to Cassandra
+        ACTIVE_POWER_TOPIC,
+        AGGR_ACTIVE_POWER_TOPIC);
+    final KafkaStreamsBuilder kafkaStreamsBuilder = new KafkaStreamsBuilder()
+        .activePowerTopic(ACTIVE_POWER_TOPIC)
+        .aggrActivePowerTopic(AGGR_ACTIVE_POWER_TOPIC)
+        .dayOfWeekTopic(DAY_OF_WEEK_TOPIC)
+        .hourOfDayTopic(HOUR_OF_DAY_TOPIC)
+        .hourOfWeekTopic(HOUR_OF_WEEK_TOPIC);
+    if (this.percentiles) {
+      kafkaStreamsBuilder.percentiles(0.01, 1024); // NOCS
+    }
+    kafkaStreamsBuilder.addStats(topologyBuilder);
+    return topologyBuilder.build();
+  }
+
+  /**
+   * Read all records produced so far (to output, repartition and changelog topics) such that they
+   * do not pile up in the {@link TopologyTestDriver}.
+   */
+  private void drainProducedTopics() {
+    for (final String topic : this.testDriver.producedTopicNames()) {
+      final TestOutputTopic<byte[], byte[]> outputTopic = this.producedTopics.computeIfAbsent(
+          topic,
+          t -> this.testDriver.createOutputTopic(
+              t,
+              new ByteArrayDeserializer(),
+              new ByteArrayDeserializer()));
+      final boolean isChangelog = topic.endsWith("-changelog");
+      for (final TestRecord<byte[], byte[]> record : outputTopic.readRecordsToList()) {
+        final int keySize = record.key() == null ? 0 : record.key().length;
+        final int valueSize = record.value() == null ? 0 : record.value().length;
+        this.producedRecords.merge(topic, 1L, Long::sum);
+        this.producedBytes.merge(topic, (long) keySize + valueSize, Long::sum);
+        if (isChangelog) {
+          final Map<Bytes, Integer> valueSizes =
+              this.changelogValueSizes.computeIfAbsent(topic, t -> new HashMap<>());
+          if (record.value() == null) {
+            valueSizes.remove(Bytes.wrap(record.key()));
+          } else {
+            valueSizes.put(Bytes.wrap(record.key()), keySize + valueSize);
+          }
+        }
+      }
+    }
+  }
+
+  private void report(final long inputRecords, final long elapsedNanos) {
+    final double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+    final List<String> lines = new ArrayList<>();
+    lines.add(String.format("Sensors: %d (+ %d aggregated), sampling interval: %d ms, span: %d days",
+        this.sensors, this.aggregatedSensors, this.samplingIntervalMs, this.timeSpanDays));
+    lines.add(String.format("Input records: %d in %.2f s (%.0f records/s)",
+        inputRecords, elapsedSeconds, inputRecords / elapsedSeconds));
+    for (final String topic : STATS_TOPICS) {
+      final long outputRecords = this.producedRecords.getOrDefault(topic, 0L);
+      lines.add(String.format("Output records of %s: %d (%.3f per input record)",
+          topic, outputRecords, (double) outputRecords / inputRecords));
+    }
+    this.producedBytes.forEach((topic, bytes) -> {
+      if (topic.endsWith("-repartition")) {
+        lines.add(String.format("Repartition topic %s: %.1f bytes per record",
+            topic, (double) bytes / this.producedRecords.get(topic)));
+      }
+    });
+    long totalStateBytes = 0;
+    for (final Map.Entry<String, Map<Bytes, Integer>> changelog : this.changelogValueSizes
+        .entrySet()) {
+      final long stateBytes =
+          changelog.getValue().values().stream().mapToLong(Integer::longValue).sum();
+      totalStateBytes += stateBytes;
+      lines.add(String.format("State store %s: %d entries, %d bytes (%d bytes written)",
+          changelog.getKey().replace(APPLICATION_ID + '-', "").replace("-changelog", ""),
+          changelog.getValue().size(),
+          stateBytes,
+          this.producedBytes.get(changelog.getKey())));
+    }
+    lines.add(String.format("Total state: %d bytes", totalStateBytes));
+    lines.forEach(System.out::println); // NOPMD
+  }
+
+  /**
+   * Create an {@link AggregatedActivePowerRecord} with the passed identifier, timestamp and sum.
+   * All other fields are set to defaults based on their type, such that this benchmark does not
+   * depend on the exact schema.
+   */
+  private static AggregatedActivePowerRecord createAggregatedRecord(final String identifier,
+      final long timestamp, final double sumInW) {
+    final AggregatedActivePowerRecord record = new AggregatedActivePowerRecord();
+    for (final Schema.Field field : record.getSchema().getFields()) {
+      switch (field.schema().getType()) {
+        case STRING:
+          record.put(field.pos(), identifier);
+          break;
+        case LONG:
+          record.put(field.pos(), 1L);
+          break;
+        case INT:
+          record.put(field.pos(), 1);
+          break;
+        case DOUBLE:
+          record.put(field.pos(), sumInW);
+          break;
+        default:
+          break;
+      }
+    }
+    record.put(record.getSchema().getField("timestamp").pos(), timestamp);
+    return record;
+  }
+
+  public static void main(final String[] args) {
+    new TopologyThroughputBenchmark().run();
+  }
+
+}
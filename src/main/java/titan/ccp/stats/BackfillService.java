@@ -0,0 +1,94 @@
+package titan.ccp.stats;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.configuration2.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.common.cassandra.SessionBuilder.ClusterSession;
+import titan.ccp.common.configuration.ServiceConfigurations;
+import titan.ccp.stats.backfill.ActivePowerFileReader;
+import titan.ccp.stats.backfill.BackfillEngine;
+import titan.ccp.stats.backfill.CassandraStatsSink;
+import titan.ccp.stats.streamprocessing.TopologyBuilder;
+
+/**
+ * Batch mode of the Stats microservice, which computes statistics from historical active power
+ * records in local files and stores them in Cassandra, instead of replaying these records via
+ * Kafka. Input files or directories are passed as arguments or configured by
+ * {@link ConfigurationKeys#BACKFILL_INPUT}.
+ */
+public class BackfillService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BackfillService.class);
+
+  private final Configuration config = ServiceConfigurations.createWithDefaults();
+
+  /**
+   * Compute and store the statistics of all records in the passed files or directories.
+   */
+  public void run(final List<String> inputs) throws IOException, InterruptedException {
+    final List<Path> files = findFiles(inputs.isEmpty()
+        ? StatsConfigurations.getList(this.config, ConfigurationKeys.BACKFILL_INPUT)
+        : inputs);
+    if (files.isEmpty()) {
+      throw new IllegalArgumentException("No input files found.");
+    }
+
+    final int configuredParallelism =
+        this.config.getInt(ConfigurationKeys.BACKFILL_PARALLELISM, -1);
+    final int parallelism = configuredParallelism > 0
+        ? configuredParallelism
+        : Runtime.getRuntime().availableProcessors();
+    final BackfillEngine engine = new BackfillEngine(
+        StatsConfigurations.getStatsDefinitions(this.config),
+        TopologyBuilder.DEFAULT_ZONE,
+        parallelism);
+    final double percentilesRelativeAccuracy =
+        StatsConfigurations.getPercentilesRelativeAccuracy(this.config);
+    final int percentilesMaxBins = this.config.getInt(ConfigurationKeys.STATS_PERCENTILES_MAX_BINS);
+    if (percentilesRelativeAccuracy > 0 && percentilesMaxBins > 0) {
+      engine.enablePercentiles(percentilesRelativeAccuracy, percentilesMaxBins);
+    }
+
+    LOGGER.info("Start backfill of {} files with parallelism {}.", files.size(), parallelism);
+    final ClusterSession clusterSession = StatsConfigurations.createCassandraSession(this.config);
+    try {
+      engine.run(files, new CassandraStatsSink(
+          clusterSession.getSession(),
+          StatsConfigurations.isPackedStorage(this.config)));
+    } finally {
+      clusterSession.getSession().getCluster().close();
+    }
+  }
+
+  private static List<Path> findFiles(final List<String> inputs) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    for (final String input : inputs) {
+      final Path path = Paths.get(input);
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> walk = Files.walk(path)) {
+          files.addAll(walk
+              .filter(Files::isRegularFile)
+              .filter(ActivePowerFileReader::isSupported)
+              .sorted()
+              .collect(Collectors.toList()));
+        }
+      } else {
+        files.add(path);
+      }
+    }
+    return files;
+  }
+
+  public static void main(final String[] args) throws IOException, InterruptedException {
+    new BackfillService().run(List.of(args));
+  }
+
+}
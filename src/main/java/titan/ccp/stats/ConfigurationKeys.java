@@ -9,6 +9,8 @@ public final class ConfigurationKeys {
 
   public static final String APPLICATION_VERSION = "application.version";
 
+  public static final String APPLICATION_ID_SUFFIX = "application.id.suffix";
+
   public static final String CASSANDRA_HOST = "cassandra.host";
 
   public static final String CASSANDRA_PORT = "cassandra.port";
@@ -17,12 +19,31 @@ public final class ConfigurationKeys {
 
   public static final String CASSANDRA_INIT_TIMEOUT_MS = "cassandra.init.timeout.ms";
 
+  public static final String NODE_ROLE = "node.role";
+
   public static final String WEBSERVER_ENABLE = "webserver.enable";
 
   public static final String WEBSERVER_PORT = "webserver.port";
 
   public static final String WEBSERVER_CORS = "webserver.cors";
 
+  public static final String WEBSERVER_THREADS_MAX = "webserver.threads.max";
+
+  public static final String WEBSERVER_THREADS_MIN = "webserver.threads.min";
+
+  public static final String WEBSERVER_RENDERING_ENABLE = "webserver.rendering.enable";
+
+  public static final String WEBSERVER_RENDERING_REFRESH_SECONDS =
+      "webserver.rendering.refresh.seconds";
+
+  public static final String WEBSERVER_RENDERING_MAX_ENTRIES = "webserver.rendering.max.entries";
+
+  public static final String WEBSERVER_LIVE_ENABLE = "webserver.live.enable";
+
+  public static final String WEBSERVER_LIVE_INTERVAL_MS = "webserver.live.interval.ms";
+
+  public static final String WEBSERVER_LIVE_MAX_SUBSCRIBERS = "webserver.live.max.subscribers";
+
   public static final String KAFKA_BOOTSTRAP_SERVERS = "kafka.bootstrap.servers";
 
   public static final String KAFKA_TOPIC_ACTIVE_POWER = "kafka.topic.activepower";
@@ -41,8 +62,130 @@ public final class ConfigurationKeys {
 
   public static final String CACHE_MAX_BYTES_BUFFERING = "cache.max.bytes.buffering";
 
+  public static final String CATCH_UP_ENABLE = "catchup.enable";
+
+  public static final String CATCH_UP_LAG_ENTER = "catchup.lag.enter";
+
+  public static final String CATCH_UP_LAG_EXIT = "catchup.lag.exit";
+
+  public static final String CATCH_UP_COMMIT_INTERVAL_MS = "catchup.commit.interval.ms";
+
+  public static final String CATCH_UP_CACHE_MAX_BYTES_BUFFERING =
+      "catchup.cache.max.bytes.buffering";
+
+  public static final String CATCH_UP_WRITE_PARALLELISM = "catchup.write.parallelism";
+
+  public static final String CATCH_UP_WRITE_BUFFER_MAX = "catchup.write.buffer.max";
+
+  public static final String KAFKA_STATE_DIR = "kafka.state.dir";
+
+  public static final String KAFKA_CHANGELOG_ADDITIONAL_RETENTION_HOURS =
+      "kafka.changelog.additional.retention.hours";
+
+  public static final String STATE_SEEDING_ENABLE = "state.seeding.enable";
+
   public static final String SCHEMA_REGISTRY_URL = "schema.registry.url";
 
+  public static final String STATS_ENABLED = "stats.enabled";
+
+  public static final String STATS_DAY_OF_WEEK_WINDOW_SIZE_DAYS =
+      "stats.dayofweek.window.size.days";
+
+  public static final String STATS_DAY_OF_WEEK_WINDOW_ADVANCE_DAYS =
+      "stats.dayofweek.window.advance.days";
+
+  public static final String STATS_DAY_OF_WEEK_WINDOW_GRACE_HOURS =
+      "stats.dayofweek.window.grace.hours";
+
+  public static final String STATS_DAY_OF_WEEK_WINDOW_RETENTION_DAYS =
+      "stats.dayofweek.window.retention.days";
+
+  public static final String STATS_DAY_OF_WEEK_DERIVED = "stats.dayofweek.derived";
+
+  public static final String STATS_HOUR_OF_DAY_WINDOW_SIZE_DAYS =
+      "stats.hourofday.window.size.days";
+
+  public static final String STATS_HOUR_OF_DAY_WINDOW_ADVANCE_DAYS =
+      "stats.hourofday.window.advance.days";
+
+  public static final String STATS_HOUR_OF_DAY_WINDOW_GRACE_HOURS =
+      "stats.hourofday.window.grace.hours";
+
+  public static final String STATS_HOUR_OF_DAY_WINDOW_RETENTION_DAYS =
+      "stats.hourofday.window.retention.days";
+
+  public static final String STATS_HOUR_OF_WEEK_WINDOW_SIZE_DAYS =
+      "stats.hourofweek.window.size.days";
+
+  public static final String STATS_HOUR_OF_WEEK_WINDOW_ADVANCE_DAYS =
+      "stats.hourofweek.window.advance.days";
+
+  public static final String STATS_HOUR_OF_WEEK_WINDOW_GRACE_HOURS =
+      "stats.hourofweek.window.grace.hours";
+
+  public static final String STATS_HOUR_OF_WEEK_WINDOW_RETENTION_DAYS =
+      "stats.hourofweek.window.retention.days";
+
+  public static final String STATS_STORAGE_POLICY = "stats.storage.policy";
+
+  public static final String STATS_STORAGE_PACKED = "stats.storage.packed";
+
+  public static final String STATS_TABLE_COMPACTION = "stats.table.compaction";
+
+  public static final String STATS_TABLE_TTL_DAYS = "stats.table.ttl.days";
+
+  public static final String STATS_RETENTION_ENABLE = "stats.retention.enable";
+
+  public static final String STATS_RETENTION_HORIZON_DAYS = "stats.retention.horizon.days";
+
+  public static final String STATS_RETENTION_INTERVAL_HOURS = "stats.retention.interval.hours";
+
+  public static final String STATS_SLICES_ENABLE = "stats.slices.enable";
+
+  public static final String STATS_SLICES_SIZE_DAYS = "stats.slices.size.days";
+
+  public static final String STATS_SLICES_MAX = "stats.slices.max";
+
+  public static final String STATS_HOT_KEYS_SENSORS = "stats.hotkeys.sensors";
+
+  public static final String STATS_HOT_KEYS_AGGREGATED = "stats.hotkeys.aggregated";
+
+  public static final String STATS_HOT_KEYS_SALTS = "stats.hotkeys.salts";
+
+  public static final String STATS_DECAYING_ENABLE = "stats.decaying.enable";
+
+  public static final String STATS_DECAYING_HALF_LIFE_DAYS = "stats.decaying.half.life.days";
+
+  public static final String STATS_PERCENTILES_ENABLE = "stats.percentiles.enable";
+
+  public static final String STATS_PERCENTILES_RELATIVE_ACCURACY =
+      "stats.percentiles.relative.accuracy";
+
+  public static final String STATS_PERCENTILES_MAX_BINS = "stats.percentiles.max.bins";
+
+  public static final String METRICS_ENABLE = "metrics.enable";
+
+  public static final String KAFKA_METRICS_RECORDING_LEVEL = "kafka.metrics.recording.level";
+
+  public static final String METRICS_LATENCY_LOG_INTERVAL_SECONDS =
+      "metrics.latency.log.interval.seconds";
+
+  public static final String JFR_ENABLE = "jfr.enable";
+
+  public static final String JFR_CONTROL_ENABLE = "jfr.control.enable";
+
+  public static final String JFR_CONFIGURATION = "jfr.configuration";
+
+  public static final String JFR_MAX_AGE_MINUTES = "jfr.max.age.minutes";
+
+  public static final String JFR_DUMP_DIRECTORY = "jfr.dump.directory";
+
+  public static final String PROGRESS_LAG_REFRESH_SECONDS = "progress.lag.refresh.seconds";
+
+  public static final String BACKFILL_INPUT = "backfill.input";
+
+  public static final String BACKFILL_PARALLELISM = "backfill.parallelism";
+
   private ConfigurationKeys() {}
 
 }
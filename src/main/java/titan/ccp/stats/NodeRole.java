@@ -0,0 +1,54 @@
+package titan.ccp.stats;
+
+import java.util.Locale;
+
+/**
+ * The role of a node of the Stats microservice, i.e., whether it processes statistics with Kafka
+ * Streams, serves the REST API for querying statistics or both.
+ */
+public enum NodeRole {
+
+  /**
+   * Run both the Kafka Streams topology and the REST API.
+   */
+  ALL(true, true),
+
+  /**
+   * Run only the Kafka Streams topology. The web server (if enabled) only serves operational
+   * endpoints such as metrics and progress.
+   */
+  PROCESSING(true, false),
+
+  /**
+   * Run only the REST API. The node does not join the Kafka Streams consumer group.
+   */
+  API(false, true);
+
+  private final boolean processing;
+  private final boolean api;
+
+  NodeRole(final boolean processing, final boolean api) {
+    this.processing = processing;
+    this.api = api;
+  }
+
+  public boolean isProcessing() {
+    return this.processing;
+  }
+
+  public boolean isApi() {
+    return this.api;
+  }
+
+  /**
+   * Returns the {@link NodeRole} of the passed case-insensitive name.
+   */
+  public static NodeRole fromName(final String name) {
+    try {
+      return NodeRole.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown node role '" + name + "'.", e);
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+package titan.ccp.stats;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.commons.configuration2.Configuration;
+import titan.ccp.common.cassandra.SessionBuilder;
+import titan.ccp.common.cassandra.SessionBuilder.ClusterSession;
+import titan.ccp.stats.streamprocessing.StatsDefinition;
+import titan.ccp.stats.streamprocessing.StatsStoragePolicy;
+import titan.ccp.stats.streamprocessing.StatsType;
+
+/**
+ * Helpers for reading configuration parameters shared by the {@link StatsService} and the
+ * {@link BackfillService}.
+ */
+final class StatsConfigurations {
+
+  private static final String LIST_SEPARATOR = ",";
+
+  private StatsConfigurations() {}
+
+  /**
+   * Create a Cassandra session as configured.
+   */
+  public static ClusterSession createCassandraSession(final Configuration config) {
+    return new SessionBuilder()
+        .contactPoint(config.getString(ConfigurationKeys.CASSANDRA_HOST))
+        .port(config.getInt(ConfigurationKeys.CASSANDRA_PORT))
+        .keyspace(config.getString(ConfigurationKeys.CASSANDRA_KEYSPACE))
+        .timeoutInMillis(config.getInt(ConfigurationKeys.CASSANDRA_INIT_TIMEOUT_MS))
+        .build();
+  }
+
+  /**
+   * Get the values of a comma-separated list parameter, omitting empty values.
+   */
+  public static List<String> getList(final Configuration config, final String key) {
+    return Arrays.stream(config.getString(key, "").split(LIST_SEPARATOR))
+        .map(String::trim)
+        .filter(value -> !value.isEmpty())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Get the configured {@link StatsStoragePolicy}. Seeding window state from Cassandra is rejected
+   * with any other policy than {@link StatsStoragePolicy#ALL_WINDOWS}, as Cassandra only holds
+   * stale statistics of non-current windows otherwise.
+   */
+  public static StatsStoragePolicy getStoragePolicy(final Configuration config) {
+    final StatsStoragePolicy storagePolicy =
+        StatsStoragePolicy.fromName(config.getString(ConfigurationKeys.STATS_STORAGE_POLICY));
+    if (storagePolicy != StatsStoragePolicy.ALL_WINDOWS
+        && config.getBoolean(ConfigurationKeys.STATE_SEEDING_ENABLE, false)) {
+      throw new IllegalArgumentException("Seeding state requires the storage policy "
+          + StatsStoragePolicy.ALL_WINDOWS.getName() + '.');
+    }
+    return storagePolicy;
+  }
+
+  /**
+   * Get the definitions of all enabled statistics or, if none are configured, all statistics with
+   * default windows. If day of week statistics are derived from hour of week statistics (see
+   * {@link #isDayOfWeekDerived(Configuration)}), they are not included. If statistics are stored
+   * per slice (see {@link #getSliceSize(Configuration)}), all statistics use tumbling windows of
+   * the slice size.
+   */
+  public static List<StatsDefinition> getStatsDefinitions(final Configuration config) {
+    final List<String> enabledStats = getList(config, ConfigurationKeys.STATS_ENABLED);
+    List<StatsDefinition> definitions = enabledStats.isEmpty()
+        ? StatsDefinition.allWithDefaults()
+        : enabledStats.stream()
+            .map(StatsType::fromName)
+            .map(type -> getStatsDefinition(config, type))
+            .collect(Collectors.toList());
+    if (isDayOfWeekDerived(config)) {
+      if (definitions.stream().noneMatch(d -> d.getType() == StatsType.HOUR_OF_WEEK)) {
+        throw new IllegalArgumentException(
+            "Deriving day of week statistics requires hour of week statistics to be enabled.");
+      }
+      definitions = definitions.stream()
+          .filter(d -> d.getType() != StatsType.DAY_OF_WEEK)
+          .collect(Collectors.toList());
+    }
+    final Duration sliceSize = getSliceSize(config);
+    if (sliceSize != null) {
+      definitions = definitions.stream()
+          .map(d -> new StatsDefinition(
+              d.getType(),
+              sliceSize,
+              sliceSize,
+              d.getGracePeriod(),
+              null))
+          .collect(Collectors.toList());
+    }
+    return definitions;
+  }
+
+  /**
+   * Get the configured window size of the passed {@link StatsType}. If statistics are stored per
+   * slice, this is the default range of statistics served by the REST API.
+   */
+  public static Duration getWindowSize(final Configuration config, final StatsType type) {
+    return getStatsDefinition(config, type).getWindowSize();
+  }
+
+  /**
+   * Get the size of the non-overlapping time slices, for which statistics are stored, or null if
+   * statistics are stored per (hopping) time window.
+   */
+  public static Duration getSliceSize(final Configuration config) {
+    if (config.getBoolean(ConfigurationKeys.STATS_SLICES_ENABLE, false)) {
+      return Duration.ofDays(config.getLong(ConfigurationKeys.STATS_SLICES_SIZE_DAYS));
+    }
+    return null;
+  }
+
+  /**
+   * Get whether day of week statistics are derived from hour of week statistics at query time
+   * instead of being computed by a separate stream processing pipeline.
+   */
+  public static boolean isDayOfWeekDerived(final Configuration config) {
+    return config.getBoolean(ConfigurationKeys.STATS_DAY_OF_WEEK_DERIVED, false);
+  }
+
+  /**
+   * Get whether statistics are stored in the packed layout with one Cassandra row per identifier
+   * and period instead of one row per time unit.
+   */
+  public static boolean isPackedStorage(final Configuration config) {
+    return config.getBoolean(ConfigurationKeys.STATS_STORAGE_PACKED, false);
+  }
+
+  /**
+   * Get the configured relative accuracy of percentiles or minus one if percentiles are disabled.
+   */
+  public static double getPercentilesRelativeAccuracy(final Configuration config) {
+    if (config.getBoolean(ConfigurationKeys.STATS_PERCENTILES_ENABLE, false)) {
+      return config.getDouble(ConfigurationKeys.STATS_PERCENTILES_RELATIVE_ACCURACY);
+    }
+    return -1;
+  }
+
+  private static StatsDefinition getStatsDefinition(final Configuration config,
+      final StatsType type) {
+    final String windowSizeKey;
+    final String windowAdvanceKey;
+    final String windowGraceKey;
+    final String windowRetentionKey;
+    switch (type) {
+      case DAY_OF_WEEK:
+        windowSizeKey = ConfigurationKeys.STATS_DAY_OF_WEEK_WINDOW_SIZE_DAYS;
+        windowAdvanceKey = ConfigurationKeys.STATS_DAY_OF_WEEK_WINDOW_ADVANCE_DAYS;
+        windowGraceKey = ConfigurationKeys.STATS_DAY_OF_WEEK_WINDOW_GRACE_HOURS;
+        windowRetentionKey = ConfigurationKeys.STATS_DAY_OF_WEEK_WINDOW_RETENTION_DAYS;
+        break;
+      case HOUR_OF_DAY:
+        windowSizeKey = ConfigurationKeys.STATS_HOUR_OF_DAY_WINDOW_SIZE_DAYS;
+        windowAdvanceKey = ConfigurationKeys.STATS_HOUR_OF_DAY_WINDOW_ADVANCE_DAYS;
+        windowGraceKey = ConfigurationKeys.STATS_HOUR_OF_DAY_WINDOW_GRACE_HOURS;
+        windowRetentionKey = ConfigurationKeys.STATS_HOUR_OF_DAY_WINDOW_RETENTION_DAYS;
+        break;
+      case HOUR_OF_WEEK:
+        windowSizeKey = ConfigurationKeys.STATS_HOUR_OF_WEEK_WINDOW_SIZE_DAYS;
+        windowAdvanceKey = ConfigurationKeys.STATS_HOUR_OF_WEEK_WINDOW_ADVANCE_DAYS;
+        windowGraceKey = ConfigurationKeys.STATS_HOUR_OF_WEEK_WINDOW_GRACE_HOURS;
+        windowRetentionKey = ConfigurationKeys.STATS_HOUR_OF_WEEK_WINDOW_RETENTION_DAYS;
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported statistics type " + type + '.');
+    }
+    final Long gracePeriodHours = getOptionalLong(config, windowGraceKey);
+    final Long retentionDays = getOptionalLong(config, windowRetentionKey);
+    return new StatsDefinition(
+        type,
+        Duration.ofDays(config.getLong(windowSizeKey, type.getDefaultWindowSize().toDays())),
+        Duration.ofDays(config.getLong(windowAdvanceKey, type.getDefaultWindowAdvance().toDays())),
+        gracePeriodHours == null ? null : Duration.ofHours(gracePeriodHours),
+        retentionDays == null ? null : Duration.ofDays(retentionDays));
+  }
+
+  /**
+   * Get the value of an optional long parameter or null if it is not set or empty.
+   */
+  public static Long getOptionalLong(final Configuration config, final String key) {
+    final String value = config.getString(key, "").trim();
+    return value.isEmpty() ? null : Long.valueOf(value);
+  }
+
+}
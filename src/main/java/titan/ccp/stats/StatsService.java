@@ -1,36 +1,176 @@
 package titan.ccp.stats;
 
+import com.datastax.driver.core.Session;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.kafka.streams.KafkaStreams;
-import titan.ccp.common.cassandra.SessionBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import titan.ccp.common.cassandra.SessionBuilder.ClusterSession;
 import titan.ccp.common.configuration.ServiceConfigurations;
 import titan.ccp.stats.api.RestApiServer;
+import titan.ccp.stats.api.StatsUpdateConsumer;
+import titan.ccp.stats.api.StatsUpdateListener;
+import titan.ccp.stats.jfr.RecordingController;
+import titan.ccp.stats.metrics.MetricsRegistry;
+import titan.ccp.stats.progress.StreamsProgress;
+import titan.ccp.stats.streamprocessing.CatchUpController;
 import titan.ccp.stats.streamprocessing.KafkaStreamsBuilder;
+import titan.ccp.stats.streamprocessing.StatsRetentionJob;
+import titan.ccp.stats.streamprocessing.StatsTableOptions;
+import titan.ccp.stats.streamprocessing.StatsType;
 
 /**
  * The Stats microservice.
  */
 public class StatsService {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatsService.class);
+
+  private static final int OPERATIONAL_WEBSERVER_THREADS = 4;
+
   private final Configuration config = ServiceConfigurations.createWithDefaults();
 
   /**
-   * Start the microservice.
+   * Start the microservice. Depending on the configured {@link NodeRole}, this starts the Kafka
+   * Streams topology, the REST API or both.
    */
   public void run() {
+    final NodeRole role = NodeRole.fromName(this.config.getString(ConfigurationKeys.NODE_ROLE));
+    final boolean webserverEnabled =
+        this.config.getBoolean(ConfigurationKeys.WEBSERVER_ENABLE, true);
+    if (role.isApi() && !webserverEnabled) {
+      throw new IllegalArgumentException("Node role " + role + " requires the web server.");
+    }
+    LOGGER.info("Start Stats microservice with role {}.", role);
+
+    final ClusterSession clusterSession = StatsConfigurations.createCassandraSession(this.config);
 
-    final ClusterSession clusterSession = new SessionBuilder()
-        .contactPoint(this.config.getString(ConfigurationKeys.CASSANDRA_HOST))
-        .port(this.config.getInt(ConfigurationKeys.CASSANDRA_PORT))
-        .keyspace(this.config.getString(ConfigurationKeys.CASSANDRA_KEYSPACE))
-        .timeoutInMillis(this.config.getInt(ConfigurationKeys.CASSANDRA_INIT_TIMEOUT_MS))
-        .build();
+    final MetricsRegistry metricsRegistry = this.createMetricsRegistry();
+    final RecordingController recordingController = new RecordingController(
+        this.config.getString(ConfigurationKeys.JFR_CONFIGURATION),
+        Duration.ofMinutes(this.config.getLong(ConfigurationKeys.JFR_MAX_AGE_MINUTES)),
+        Paths.get(this.config.getString(ConfigurationKeys.JFR_DUMP_DIRECTORY)));
+    if (this.config.getBoolean(ConfigurationKeys.JFR_ENABLE, false)) {
+      recordingController.start();
+    }
 
-    final KafkaStreams kafkaStreams = new KafkaStreamsBuilder()
+    final StreamsProgress streamsProgress;
+    if (role.isProcessing()) {
+      streamsProgress = this.startProcessing(clusterSession.getSession(), metricsRegistry);
+      this.maybeStartRetention(clusterSession.getSession(), metricsRegistry);
+    } else {
+      streamsProgress = null; // NOPMD
+    }
+
+    if (webserverEnabled) {
+      final RestApiServer apiServer = role.isApi()
+          ? new RestApiServer(
+              clusterSession.getSession(),
+              this.config.getInt(ConfigurationKeys.WEBSERVER_PORT),
+              this.config.getBoolean(ConfigurationKeys.WEBSERVER_CORS),
+              StatsConfigurations.isDayOfWeekDerived(this.config),
+              StatsConfigurations.isPackedStorage(this.config))
+          : new RestApiServer(
+              this.config.getInt(ConfigurationKeys.WEBSERVER_PORT),
+              this.config.getBoolean(ConfigurationKeys.WEBSERVER_CORS));
+      if (role.isApi()) {
+        apiServer.configureThreadPool(
+            this.config.getInt(ConfigurationKeys.WEBSERVER_THREADS_MAX),
+            this.config.getInt(ConfigurationKeys.WEBSERVER_THREADS_MIN));
+        this.maybeEnableSlices(apiServer);
+        if (this.config.getBoolean(ConfigurationKeys.WEBSERVER_RENDERING_ENABLE, false)) {
+          apiServer.enableRendering(
+              Duration.ofSeconds(
+                  this.config.getLong(ConfigurationKeys.WEBSERVER_RENDERING_REFRESH_SECONDS)),
+              this.config.getInt(ConfigurationKeys.WEBSERVER_RENDERING_MAX_ENTRIES));
+        }
+        if (this.config.getBoolean(ConfigurationKeys.WEBSERVER_LIVE_ENABLE, false)) {
+          apiServer.enableLiveStats(
+              Duration.ofMillis(this.config.getLong(ConfigurationKeys.WEBSERVER_LIVE_INTERVAL_MS)),
+              this.config.getInt(ConfigurationKeys.WEBSERVER_LIVE_MAX_SUBSCRIBERS));
+        }
+      } else {
+        // Only operational endpoints, keep threads free for stream processing
+        apiServer.configureThreadPool(OPERATIONAL_WEBSERVER_THREADS, 1);
+      }
+      if (metricsRegistry != null) {
+        apiServer.enableMetrics(metricsRegistry);
+      }
+      if (streamsProgress != null) {
+        apiServer.enableProgress(streamsProgress);
+      }
+      if (this.config.getBoolean(ConfigurationKeys.JFR_CONTROL_ENABLE, false)) {
+        apiServer.enableRecordingControl(recordingController);
+      }
+      apiServer.start();
+      final StatsUpdateListener updateListener = apiServer.getStatsUpdateListener();
+      if (updateListener != null) {
+        this.startStatsUpdates(updateListener);
+      }
+    }
+  }
+
+  /**
+   * Feed the passed listener with the updates from the statistics output topics.
+   */
+  private void startStatsUpdates(final StatsUpdateListener updateListener) {
+    new StatsUpdateConsumer(
+        this.config.getString(ConfigurationKeys.KAFKA_BOOTSTRAP_SERVERS),
+        this.config.getString(ConfigurationKeys.SCHEMA_REGISTRY_URL),
+        Map.of(
+            this.config.getString(ConfigurationKeys.KAFKA_TOPIC_DAY_OF_WEEK_POWER),
+            StatsType.DAY_OF_WEEK.getName(),
+            this.config.getString(ConfigurationKeys.KAFKA_TOPIC_HOUR_OF_DAY_POWER),
+            StatsType.HOUR_OF_DAY.getName(),
+            this.config.getString(ConfigurationKeys.KAFKA_TOPIC_HOUR_OF_WEEK_POWER),
+            StatsType.HOUR_OF_WEEK.getName()),
+        updateListener)
+        .start();
+  }
+
+  private void maybeEnableSlices(final RestApiServer apiServer) {
+    final Duration sliceSize = StatsConfigurations.getSliceSize(this.config);
+    if (sliceSize == null) {
+      return;
+    }
+    // Derived day of week statistics have the windows of the hour of week statistics
+    final StatsType dayOfWeekSource = StatsConfigurations.isDayOfWeekDerived(this.config)
+        ? StatsType.HOUR_OF_WEEK
+        : StatsType.DAY_OF_WEEK;
+    apiServer.enableSlices(
+        sliceSize,
+        this.config.getInt(ConfigurationKeys.STATS_SLICES_MAX),
+        StatsConfigurations.getWindowSize(this.config, dayOfWeekSource),
+        StatsConfigurations.getWindowSize(this.config, StatsType.HOUR_OF_DAY),
+        StatsConfigurations.getWindowSize(this.config, StatsType.HOUR_OF_WEEK));
+  }
+
+  /**
+   * Build and start the Kafka Streams topology.
+   */
+  private StreamsProgress startProcessing(final Session cassandraSession,
+      final MetricsRegistry metricsRegistry) {
+    final StreamsProgress streamsProgress = new StreamsProgress(Duration.ofSeconds(
+        this.config.getLong(ConfigurationKeys.PROGRESS_LAG_REFRESH_SECONDS)));
+    if (metricsRegistry != null) {
+      streamsProgress.enableMetrics(metricsRegistry);
+    }
+    final String stateDirectory = this.config.getString(ConfigurationKeys.KAFKA_STATE_DIR, "");
+    streamsProgress.enableStateSizes(stateDirectory.isEmpty()
+        ? Paths.get(System.getProperty("java.io.tmpdir"), "kafka-streams")
+        : Paths.get(stateDirectory));
+
+    final KafkaStreamsBuilder kafkaStreamsBuilder = new KafkaStreamsBuilder()
         .applicationName(this.config.getString(ConfigurationKeys.APPLICATION_NAME))
         .applicationVersion(this.config.getString(ConfigurationKeys.APPLICATION_VERSION))
-        .cassandraSession(clusterSession.getSession())
+        .applicationIdSuffix(this.config.getString(ConfigurationKeys.APPLICATION_ID_SUFFIX, null))
+        .cassandraSession(cassandraSession)
         .bootstrapServers(this.config.getString(ConfigurationKeys.KAFKA_BOOTSTRAP_SERVERS))
         .activePowerTopic(this.config.getString(ConfigurationKeys.KAFKA_TOPIC_ACTIVE_POWER))
         .aggrActivePowerTopic(
@@ -39,14 +179,136 @@ public class StatsService {
         .hourOfDayTopic(this.config.getString(ConfigurationKeys.KAFKA_TOPIC_HOUR_OF_DAY_POWER))
         .hourOfWeekTopic(this.config.getString(ConfigurationKeys.KAFKA_TOPIC_HOUR_OF_WEEK_POWER))
         .schemaRegistry(this.config.getString(ConfigurationKeys.SCHEMA_REGISTRY_URL))
-        .build();
+        .numThreads(this.config.getInt(ConfigurationKeys.NUM_THREADS))
+        .commitIntervalMs(this.config.getInt(ConfigurationKeys.COMMIT_INTERVAL_MS))
+        .cacheMaxBytesBuffering(this.config.getInt(ConfigurationKeys.CACHE_MAX_BYTES_BUFFERING))
+        .catchUpSettings(
+            this.config.getInt(ConfigurationKeys.CATCH_UP_COMMIT_INTERVAL_MS, -1),
+            this.config.getInt(ConfigurationKeys.CATCH_UP_CACHE_MAX_BYTES_BUFFERING, -1))
+        .catchUpWriteBatching(
+            this.getCatchUpSetting(ConfigurationKeys.CATCH_UP_WRITE_PARALLELISM),
+            this.getCatchUpSetting(ConfigurationKeys.CATCH_UP_WRITE_BUFFER_MAX))
+        .stateDirectory(stateDirectory)
+        .changelogAdditionalRetention(this.getChangelogAdditionalRetention())
+        .stateSeeding(this.config.getBoolean(ConfigurationKeys.STATE_SEEDING_ENABLE, false))
+        .stats(StatsConfigurations.getStatsDefinitions(this.config))
+        .storagePolicy(StatsConfigurations.getStoragePolicy(this.config))
+        .tableOptions(this.getTableOptions())
+        .packedStorage(StatsConfigurations.isPackedStorage(this.config))
+        .hotKeys(
+            Set.copyOf(StatsConfigurations.getList(
+                this.config, ConfigurationKeys.STATS_HOT_KEYS_SENSORS)),
+            this.config.getBoolean(ConfigurationKeys.STATS_HOT_KEYS_AGGREGATED, false),
+            this.config.getInt(ConfigurationKeys.STATS_HOT_KEYS_SALTS, -1))
+        .decayingHalfLife(this.getDecayingHalfLife())
+        .percentiles(
+            StatsConfigurations.getPercentilesRelativeAccuracy(this.config),
+            this.config.getInt(ConfigurationKeys.STATS_PERCENTILES_MAX_BINS))
+        .metricsRegistry(metricsRegistry)
+        .metricsRecordingLevel(
+            this.config.getString(ConfigurationKeys.KAFKA_METRICS_RECORDING_LEVEL, null))
+        .latencyLogInterval(this.getLatencyLogInterval())
+        .streamsProgress(streamsProgress);
+
+    if (this.config.getBoolean(ConfigurationKeys.CATCH_UP_ENABLE, false)) {
+      final CatchUpController catchUpController = new CatchUpController(
+          kafkaStreamsBuilder,
+          streamsProgress,
+          this.config.getLong(ConfigurationKeys.CATCH_UP_LAG_ENTER),
+          this.config.getLong(ConfigurationKeys.CATCH_UP_LAG_EXIT),
+          Duration.ofSeconds(this.config.getLong(ConfigurationKeys.PROGRESS_LAG_REFRESH_SECONDS)));
+      if (metricsRegistry != null) {
+        catchUpController.enableMetrics(metricsRegistry);
+      }
+      catchUpController.start();
+      if (metricsRegistry != null) {
+        metricsRegistry.registerKafkaMetrics(
+            "kafka",
+            () -> catchUpController.getKafkaStreams().metrics());
+      }
+      return streamsProgress;
+    }
+
+    final KafkaStreams kafkaStreams = kafkaStreamsBuilder.build();
+    if (metricsRegistry != null) {
+      metricsRegistry.registerKafkaMetrics("kafka", kafkaStreams::metrics);
+    }
     kafkaStreams.start();
+    return streamsProgress;
+  }
+
+  private StatsTableOptions getTableOptions() {
+    final Long timeToLiveDays = StatsConfigurations.getOptionalLong(
+        this.config,
+        ConfigurationKeys.STATS_TABLE_TTL_DAYS);
+    return new StatsTableOptions(
+        this.config.getString(ConfigurationKeys.STATS_TABLE_COMPACTION, null),
+        timeToLiveDays == null ? null : Duration.ofDays(timeToLiveDays));
+  }
+
+  /**
+   * Periodically remove superseded windows from Cassandra if enabled. Decaying statistics do not
+   * have windows.
+   */
+  private void maybeStartRetention(final Session cassandraSession,
+      final MetricsRegistry metricsRegistry) {
+    if (!this.config.getBoolean(ConfigurationKeys.STATS_RETENTION_ENABLE, false)
+        || this.getDecayingHalfLife() != null) {
+      return;
+    }
+    final StatsRetentionJob retentionJob = new StatsRetentionJob(
+        cassandraSession,
+        StatsConfigurations.getStatsDefinitions(this.config),
+        Duration.ofDays(this.config.getLong(ConfigurationKeys.STATS_RETENTION_HORIZON_DAYS)),
+        StatsConfigurations.isPackedStorage(this.config));
+    if (metricsRegistry != null) {
+      retentionJob.enableMetrics(metricsRegistry);
+    }
+    final long intervalMs = Duration
+        .ofHours(this.config.getLong(ConfigurationKeys.STATS_RETENTION_INTERVAL_HOURS))
+        .toMillis();
+    Executors.newSingleThreadScheduledExecutor().scheduleWithFixedDelay(
+        retentionJob,
+        intervalMs,
+        intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private Duration getChangelogAdditionalRetention() {
+    final Long hours = StatsConfigurations.getOptionalLong(
+        this.config,
+        ConfigurationKeys.KAFKA_CHANGELOG_ADDITIONAL_RETENTION_HOURS);
+    return hours == null ? null : Duration.ofHours(hours);
+  }
+
+  /**
+   * Get an integer setting, which only applies if the catch-up mode is enabled, or minus one.
+   */
+  private int getCatchUpSetting(final String key) {
+    if (this.config.getBoolean(ConfigurationKeys.CATCH_UP_ENABLE, false)) {
+      return this.config.getInt(key, -1);
+    }
+    return -1;
+  }
+
+  private Duration getLatencyLogInterval() {
+    final long seconds =
+        this.config.getLong(ConfigurationKeys.METRICS_LATENCY_LOG_INTERVAL_SECONDS, 0);
+    return seconds > 0 ? Duration.ofSeconds(seconds) : null;
+  }
+
+  private MetricsRegistry createMetricsRegistry() {
+    if (this.config.getBoolean(ConfigurationKeys.METRICS_ENABLE, false)) {
+      return new MetricsRegistry();
+    }
+    return null;
+  }
 
-    final RestApiServer apiServer = new RestApiServer(
-        clusterSession.getSession(),
-        this.config.getInt(ConfigurationKeys.WEBSERVER_PORT),
-        this.config.getBoolean(ConfigurationKeys.WEBSERVER_CORS));
-    apiServer.start();
+  private Duration getDecayingHalfLife() {
+    if (this.config.getBoolean(ConfigurationKeys.STATS_DECAYING_ENABLE, false)) {
+      return Duration.ofDays(this.config.getLong(ConfigurationKeys.STATS_DECAYING_HALF_LIFE_DAYS));
+    }
+    return null;
   }
 
   public static void main(final String[] args) {
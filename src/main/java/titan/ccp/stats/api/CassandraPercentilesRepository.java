@@ -0,0 +1,104 @@
+package titan.ccp.stats.api;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.api.util.Interval;
+import titan.ccp.stats.jfr.RepositoryQueryEvent;
+import titan.ccp.stats.util.PercentilesSchema;
+
+/**
+ * A {@link PercentilesRepository} that encapsulates a Cassandra database and queries to it.
+ */
+public class CassandraPercentilesRepository implements PercentilesRepository {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(CassandraPercentilesRepository.class);
+
+  private final Session cassandraSession;
+  private final TableRecordMapping<?> mapping;
+  private final List<String> timeUnitColumns;
+  private final String tableName;
+
+  /**
+   * Create a new {@link CassandraPercentilesRepository} for the statistics table of the passed
+   * {@link TableRecordMapping}, whose time unit is described by the passed columns.
+   */
+  public CassandraPercentilesRepository(final Session cassandraSession,
+      final TableRecordMapping<?> mapping,
+      final List<String> timeUnitColumns) {
+    this.cassandraSession = cassandraSession;
+    this.mapping = mapping;
+    this.timeUnitColumns = List.copyOf(timeUnitColumns);
+    this.tableName = PercentilesSchema.getTableName(mapping.getTableName());
+  }
+
+  @Override
+  public List<Percentiles> get(final String identifier, final Interval interval) {
+    final Statement statement = QueryBuilder // NOPMD no close()
+        .select()
+        .all()
+        .from(this.tableName)
+        .where(QueryBuilder.eq(this.mapping.getIdentifierColumn(), identifier))
+        .and(QueryBuilder.eq(this.mapping.getPeriodStartColumn(),
+            interval.getStart().toEpochMilli()))
+        .and(QueryBuilder.eq(this.mapping.getPeriodEndColumn(),
+            interval.getEnd().toEpochMilli()));
+
+    return this.executeQuery(statement)
+        .stream()
+        .map(this::map)
+        .collect(Collectors.toList());
+  }
+
+  private Percentiles map(final Row row) {
+    final Map<String, Integer> timeUnit = new LinkedHashMap<>();
+    for (final String column : this.timeUnitColumns) {
+      timeUnit.put(column, row.get(column, TypeCodec.cint()));
+    }
+    final List<String> columns = PercentilesSchema.COLUMNS;
+    return new Percentiles(
+        row.get(this.mapping.getIdentifierColumn(), TypeCodec.varchar()),
+        timeUnit,
+        row.get(this.mapping.getPeriodStartColumn(), TypeCodec.bigint()),
+        row.get(this.mapping.getPeriodEndColumn(), TypeCodec.bigint()),
+        row.get(columns.get(0), TypeCodec.cdouble()),
+        row.get(columns.get(1), TypeCodec.cdouble()),
+        row.get(columns.get(2), TypeCodec.cdouble())); // NOCS
+  }
+
+  /**
+   * Execute the given Cassandra statement and returns a list of all rows or an empty list if this
+   * query failed, for example, because percentiles are not computed.
+   */
+  private List<Row> executeQuery(final Statement statement) {
+    final RepositoryQueryEvent event = new RepositoryQueryEvent();
+    event.begin();
+    try {
+      final ResultSet resultSet = this.cassandraSession.execute(statement); // NOPMD no close()
+      final List<Row> rows = resultSet.all();
+      event.setRows(rows.size());
+      return rows;
+    } catch (final InvalidQueryException e) {
+      LOGGER.error("Cassandra query could not be executed.", e);
+      event.setFailed(true);
+      return List.of();
+    } finally {
+      if (event.shouldCommit()) {
+        event.setTable(this.tableName);
+        event.commit();
+      }
+    }
+  }
+
+}
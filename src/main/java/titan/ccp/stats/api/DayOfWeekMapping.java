@@ -2,10 +2,15 @@ package titan.ccp.stats.api;
 
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.TypeCodec;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import titan.ccp.model.records.DayOfWeekActivePowerRecord;
+import titan.ccp.stats.util.PackedStatsSchema;
 
 /**
- * Class providing a factory method for creating a {@link TableRecordMapping} for
+ * Class providing factory methods for creating {@link TableRecordMapping}s for
  * {@link DayOfWeekActivePowerRecord}s.
  */
 public final class DayOfWeekMapping {
@@ -34,8 +39,51 @@ public final class DayOfWeekMapping {
         row.get(MAX_COLUMN, TypeCodec.cdouble()));
   }
 
+  private static List<DayOfWeekActivePowerRecord> mapPacked(final Row row) {
+    final String identifier =
+        row.get(TableRecordMapping.DEFAULT_IDENTIFIER_COLUMN, TypeCodec.varchar());
+    final long periodStart =
+        row.get(TableRecordMapping.DEFAULT_PERIOD_START_COLUMN, TypeCodec.bigint());
+    final long periodEnd =
+        row.get(TableRecordMapping.DEFAULT_PERIOD_END_COLUMN, TypeCodec.bigint());
+    final Map<Integer, ByteBuffer> bins =
+        row.getMap(PackedStatsSchema.BINS_COLUMN, Integer.class, ByteBuffer.class);
+    final List<DayOfWeekActivePowerRecord> records = new ArrayList<>(bins.size());
+    for (final Map.Entry<Integer, ByteBuffer> bin : bins.entrySet()) {
+      records.add(new DayOfWeekActivePowerRecord(
+          identifier,
+          bin.getKey(),
+          periodStart,
+          periodEnd,
+          PackedStatsSchema.getCount(bin.getValue()),
+          PackedStatsSchema.getMean(bin.getValue()),
+          PackedStatsSchema.getPopulationVariance(bin.getValue()),
+          PackedStatsSchema.getMin(bin.getValue()),
+          PackedStatsSchema.getMax(bin.getValue())));
+    }
+    return records;
+  }
+
+  /**
+   * Returns the columns of the time unit, which together with the identifier and the period form
+   * the primary key.
+   */
+  public static List<String> getTimeUnitColumns() {
+    return List.of(DAY_OF_WEEK_COLUMN);
+  }
+
   public static TableRecordMapping<DayOfWeekActivePowerRecord> create() {
     return new TableRecordMapping<>(TABLE_NAME, DayOfWeekMapping::map);
   }
 
+  /**
+   * Create a {@link TableRecordMapping} for the table storing statistics in the packed layout (see
+   * {@link PackedStatsSchema}), which expands each row to the records of all its time units.
+   */
+  public static TableRecordMapping<DayOfWeekActivePowerRecord> createPacked() {
+    return TableRecordMapping.expanding(
+        PackedStatsSchema.getTableName(TABLE_NAME),
+        DayOfWeekMapping::mapPacked);
+  }
+
 }
@@ -0,0 +1,90 @@
+package titan.ccp.stats.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import titan.ccp.model.records.DayOfWeekActivePowerRecord;
+import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+import titan.ccp.stats.api.util.Interval;
+
+/**
+ * A {@link StatsRepository} for day of week statistics, which derives them at query time from the
+ * hour of week statistics of another {@link StatsRepository}. As the statistics of a day of week
+ * are exactly the statistics of the union of the 24 hours of this day, they are obtained by pooling
+ * the count, mean, variance, minimum and maximum of the corresponding hour of week statistics.
+ *
+ * <p>
+ * Day of week statistics can only be derived if they are computed with the same windows as the
+ * hour of week statistics.
+ * </p>
+ */
+public class DerivedDayOfWeekRepository implements StatsRepository<DayOfWeekActivePowerRecord> {
+
+  private final StatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository;
+
+  /**
+   * Create a new {@link DerivedDayOfWeekRepository}, which derives its statistics from the passed
+   * hour of week {@link StatsRepository}.
+   */
+  public DerivedDayOfWeekRepository(
+      final StatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository) {
+    this.hourOfWeekRepository = hourOfWeekRepository;
+  }
+
+  @Override
+  public Interval getCurrentInterval() {
+    return this.hourOfWeekRepository.getCurrentInterval();
+  }
+
+  @Override
+  public List<DayOfWeekActivePowerRecord> get(final String identifier, final Interval interval) {
+    final SortedMap<Integer, List<HourOfWeekActivePowerRecord>> recordsPerDay = new TreeMap<>();
+    for (final HourOfWeekActivePowerRecord record : this.hourOfWeekRepository.get(identifier,
+        interval)) {
+      recordsPerDay
+          .computeIfAbsent(record.getDayOfWeek(), d -> new ArrayList<>())
+          .add(record);
+    }
+    final List<DayOfWeekActivePowerRecord> dayOfWeekRecords = new ArrayList<>(recordsPerDay.size());
+    for (final Map.Entry<Integer, List<HourOfWeekActivePowerRecord>> entry : recordsPerDay
+        .entrySet()) {
+      dayOfWeekRecords.add(merge(entry.getValue()));
+    }
+    return dayOfWeekRecords;
+  }
+
+  @Override
+  public List<Interval> getIntervals() {
+    return this.hourOfWeekRepository.getIntervals();
+  }
+
+  /**
+   * Merge the statistics of the passed non-empty list of hour of week records, which all belong to
+   * the same sensor, day of week and period.
+   */
+  static DayOfWeekActivePowerRecord merge(final List<HourOfWeekActivePowerRecord> records) {
+    final PooledStats stats = new PooledStats();
+    for (final HourOfWeekActivePowerRecord record : records) {
+      stats.add(
+          record.getCount(),
+          record.getMean(),
+          record.getPopulationVariance(),
+          record.getMin(),
+          record.getMax());
+    }
+    final HourOfWeekActivePowerRecord first = records.get(0);
+    return new DayOfWeekActivePowerRecord(
+        first.getIdentifier(),
+        first.getDayOfWeek(),
+        first.getPeriodStart(),
+        first.getPeriodEnd(),
+        stats.getCount(),
+        stats.getMean(),
+        stats.getPopulationVariance(),
+        stats.getMin(),
+        stats.getMax());
+  }
+
+}
@@ -0,0 +1,44 @@
+package titan.ccp.stats.api;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import titan.ccp.stats.api.util.Interval;
+
+/**
+ * A {@link PercentilesRepository} that keeps all {@link Percentiles} in memory. It is intended as a
+ * stand-in for a database, for example, for tests or benchmarks of the REST API.
+ */
+public class InMemoryPercentilesRepository implements PercentilesRepository {
+
+  private final Map<String, Map<Interval, List<Percentiles>>> percentiles =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Add {@link Percentiles} to this repository.
+   */
+  public void add(final Percentiles percentiles) {
+    final Interval interval = Interval.of(
+        Instant.ofEpochMilli(percentiles.getPeriodStart()),
+        Instant.ofEpochMilli(percentiles.getPeriodEnd()));
+    this.percentiles
+        .computeIfAbsent(percentiles.getIdentifier(), i -> new ConcurrentHashMap<>())
+        .computeIfAbsent(interval, i -> new CopyOnWriteArrayList<>())
+        .add(percentiles);
+  }
+
+  @Override
+  public List<Percentiles> get(final String identifier, final Interval interval) {
+    final List<Percentiles> sensorPercentiles = this.percentiles
+        .getOrDefault(identifier, Map.of())
+        .get(interval);
+    if (sensorPercentiles == null) {
+      return List.of();
+    }
+    return Collections.unmodifiableList(sensorPercentiles);
+  }
+
+}
@@ -0,0 +1,100 @@
+package titan.ccp.stats.api;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.api.util.Interval;
+
+/**
+ * A {@link StatsRepository} that keeps all records in memory. It is intended as a stand-in for a
+ * database, for example, for tests or benchmarks of the REST API.
+ *
+ * <p>
+ * Records are indexed by the fields named by the identifier, period start and period end columns
+ * of a {@link TableRecordMapping}.
+ * </p>
+ *
+ * @param <T> type of records in this repository
+ */
+public class InMemoryStatsRepository<T extends SpecificRecord> implements StatsRepository<T> {
+
+  private static final Comparator<Interval> INTERVAL_COMPARATOR = Comparator
+      .comparing(Interval::getEnd)
+      .thenComparing(Interval::getStart);
+
+  private final Map<String, Map<Interval, List<T>>> records = new ConcurrentHashMap<>();
+  private final NavigableSet<Interval> intervals =
+      new ConcurrentSkipListSet<>(INTERVAL_COMPARATOR);
+  private final TableRecordMapping<T> mapping;
+  private final Clock clock;
+
+  /**
+   * Create a new {@link InMemoryStatsRepository}, which uses the system clock to determine the
+   * current interval.
+   */
+  public InMemoryStatsRepository(final TableRecordMapping<T> mapping) {
+    this(mapping, Clock.systemUTC());
+  }
+
+  /**
+   * Create a new {@link InMemoryStatsRepository}, which uses the passed {@link Clock} to determine
+   * the current interval.
+   */
+  public InMemoryStatsRepository(final TableRecordMapping<T> mapping, final Clock clock) {
+    this.mapping = mapping;
+    this.clock = clock;
+  }
+
+  /**
+   * Add a record to this repository.
+   */
+  public void add(final T record) {
+    final String identifier = this.getField(record, this.mapping.getIdentifierColumn()).toString();
+    final Interval interval = Interval.of(
+        Instant.ofEpochMilli((Long) this.getField(record, this.mapping.getPeriodStartColumn())),
+        Instant.ofEpochMilli((Long) this.getField(record, this.mapping.getPeriodEndColumn())));
+    this.records
+        .computeIfAbsent(identifier, i -> new ConcurrentHashMap<>())
+        .computeIfAbsent(interval, i -> new CopyOnWriteArrayList<>())
+        .add(record);
+    this.intervals.add(interval);
+  }
+
+  @Override
+  public Interval getCurrentInterval() {
+    final Instant now = this.clock.instant();
+    return this.intervals.stream()
+        .filter(interval -> !interval.getEnd().isBefore(now))
+        .findFirst()
+        .orElse(null);
+  }
+
+  @Override
+  public List<T> get(final String identifier, final Interval interval) {
+    final List<T> sensorRecords = this.records
+        .getOrDefault(identifier, Map.of())
+        .get(interval);
+    if (sensorRecords == null) {
+      return List.of();
+    }
+    return Collections.unmodifiableList(sensorRecords);
+  }
+
+  @Override
+  public List<Interval> getIntervals() {
+    return List.copyOf(this.intervals);
+  }
+
+  private Object getField(final T record, final String name) {
+    return record.get(record.getSchema().getField(name).pos());
+  }
+
+}
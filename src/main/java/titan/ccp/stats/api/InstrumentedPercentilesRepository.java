@@ -0,0 +1,41 @@
+package titan.ccp.stats.api;
+
+import java.util.List;
+import titan.ccp.stats.api.util.Interval;
+import titan.ccp.stats.metrics.Histogram;
+import titan.ccp.stats.metrics.MetricsRegistry;
+
+/**
+ * A {@link PercentilesRepository} that records the latency of queries to another
+ * {@link PercentilesRepository}.
+ */
+public class InstrumentedPercentilesRepository implements PercentilesRepository {
+
+  private final PercentilesRepository repository;
+  private final Histogram getLatency;
+
+  /**
+   * Create a new {@link InstrumentedPercentilesRepository}, which records latencies in the passed
+   * {@link MetricsRegistry}, labeled by the passed repository name.
+   */
+  public InstrumentedPercentilesRepository(final PercentilesRepository repository,
+      final MetricsRegistry metricsRegistry, final String name) {
+    this.repository = repository;
+    this.getLatency = metricsRegistry.durationHistogram(
+        InstrumentedStatsRepository.QUERY_LATENCY_METRIC,
+        InstrumentedStatsRepository.QUERY_LATENCY_HELP,
+        InstrumentedStatsRepository.REPOSITORY_LABEL, name,
+        InstrumentedStatsRepository.QUERY_LABEL, "percentiles");
+  }
+
+  @Override
+  public List<Percentiles> get(final String identifier, final Interval interval) {
+    final long start = System.nanoTime();
+    try {
+      return this.repository.get(identifier, interval);
+    } finally {
+      this.getLatency.recordNanosSince(start);
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package titan.ccp.stats.api;
+
+import java.util.List;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.api.util.Interval;
+import titan.ccp.stats.metrics.Histogram;
+import titan.ccp.stats.metrics.MetricsRegistry;
+
+/**
+ * A {@link StatsRepository} that records the latency of queries to another
+ * {@link StatsRepository}.
+ *
+ * @param <T> type of records in this repository
+ */
+public class InstrumentedStatsRepository<T extends SpecificRecord> implements StatsRepository<T> {
+
+  static final String QUERY_LATENCY_METRIC = "stats_repository_query_seconds";
+  static final String QUERY_LATENCY_HELP = "Latency of queries to the statistics repositories.";
+  static final String REPOSITORY_LABEL = "repository";
+  static final String QUERY_LABEL = "query";
+
+  private final StatsRepository<T> repository;
+  private final Histogram getLatency;
+  private final Histogram intervalsLatency;
+
+  /**
+   * Create a new {@link InstrumentedStatsRepository}, which records latencies in the passed
+   * {@link MetricsRegistry}, labeled by the passed repository name.
+   */
+  public InstrumentedStatsRepository(final StatsRepository<T> repository,
+      final MetricsRegistry metricsRegistry, final String name) {
+    this.repository = repository;
+    this.getLatency = metricsRegistry.durationHistogram(
+        QUERY_LATENCY_METRIC,
+        QUERY_LATENCY_HELP,
+        REPOSITORY_LABEL, name,
+        QUERY_LABEL, "get");
+    this.intervalsLatency = metricsRegistry.durationHistogram(
+        QUERY_LATENCY_METRIC,
+        QUERY_LATENCY_HELP,
+        REPOSITORY_LABEL, name,
+        QUERY_LABEL, "intervals");
+  }
+
+  @Override
+  public Interval getCurrentInterval() {
+    return this.repository.getCurrentInterval();
+  }
+
+  @Override
+  public List<T> get(final String identifier, final Interval interval) {
+    final long start = System.nanoTime();
+    try {
+      return this.repository.get(identifier, interval);
+    } finally {
+      this.getLatency.recordNanosSince(start);
+    }
+  }
+
+  @Override
+  public List<Interval> getIntervals() {
+    final long start = System.nanoTime();
+    try {
+      return this.repository.getIntervals();
+    } finally {
+      this.intervalsLatency.recordNanosSince(start);
+    }
+  }
+
+}
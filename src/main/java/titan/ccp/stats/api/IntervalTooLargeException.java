@@ -0,0 +1,14 @@
+package titan.ccp.stats.api;
+
+/**
+ * Thrown if statistics are requested for an interval, which is too large to be queried.
+ */
+public class IntervalTooLargeException extends IllegalArgumentException {
+
+  private static final long serialVersionUID = 1L;
+
+  public IntervalTooLargeException(final String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,232 @@
+package titan.ccp.stats.api;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.avro.specific.SpecificRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.metrics.Counter;
+import titan.ccp.stats.metrics.MetricsRegistry;
+
+/**
+ * Pushes statistics updates to clients subscribed to sensors via Server-Sent Events (see
+ * {@link LiveStatsSubscriber}). Updates are published once, for example, by a
+ * {@link StatsUpdateConsumer}, serialized to JSON once and handed to all subscribers of their
+ * sensor. Subscribers are flushed with a fixed interval, so that each subscriber receives at most
+ * one event per statistics and interval containing only the latest update of each record.
+ *
+ * <p>
+ * Writes to subscribers are non-blocking, so that all subscribers are flushed by a single thread.
+ * A subscriber whose previous write has not completed yet is skipped, so that slow clients only
+ * receive coarser updates but neither delay other subscribers nor accumulate a backlog. Subscribers
+ * without any completed write for {@value #STALL_TIMEOUT_MS} ms are closed. The number of
+ * subscribers is limited, so that new subscriptions beyond the limit are rejected.
+ * </p>
+ */
+public class LiveStatsPublisher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LiveStatsPublisher.class);
+
+  private static final long KEEP_ALIVE_MS = 15_000;
+  private static final long STALL_TIMEOUT_MS = 30_000;
+
+  private final Map<String, List<String>> timeUnitFields;
+  private final Function<Object, String> jsonSerializer;
+  private final Duration flushInterval;
+  private final int maxSubscribers;
+  private final AtomicInteger reservedSubscriptions = new AtomicInteger();
+  private final Map<String, Set<LiveStatsSubscriber>> subscribersBySensor =
+      new ConcurrentHashMap<>();
+  private final Set<LiveStatsSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private Counter events;
+
+  /**
+   * Create a new {@link LiveStatsPublisher}.
+   *
+   * @param timeUnitFields Names of the time unit fields of the records per statistics name (e.g.,
+   *        {@code hourOfDay} for {@code hour-of-day}), which identify a record of a sensor and
+   *        period.
+   * @param jsonSerializer Serializer of records to JSON, which should be the same as for the other
+   *        responses.
+   * @param flushInterval Interval at which collected updates are sent to each subscriber.
+   * @param maxSubscribers Maximal number of subscribers.
+   */
+  public LiveStatsPublisher(final Map<String, List<String>> timeUnitFields,
+      final Function<Object, String> jsonSerializer, final Duration flushInterval,
+      final int maxSubscribers) {
+    this.timeUnitFields = Map.copyOf(timeUnitFields);
+    this.jsonSerializer = jsonSerializer;
+    this.flushInterval = flushInterval;
+    this.maxSubscribers = maxSubscribers;
+  }
+
+  /**
+   * Export the number of subscribers and sent events in the passed {@link MetricsRegistry}.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry) {
+    metricsRegistry.gauge(
+        "stats_live_subscribers",
+        "Number of clients subscribed to live statistics.",
+        this.subscribers::size);
+    this.events = metricsRegistry.counter(
+        "stats_live_events_total",
+        "Number of live statistics events sent to subscribers.");
+  }
+
+  /**
+   * Start flushing subscribers.
+   */
+  public void start() {
+    final long intervalMs = this.flushInterval.toMillis();
+    this.scheduler.scheduleAtFixedRate(this::flushAll, intervalMs, intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop flushing and close all subscribers.
+   */
+  public void stop() {
+    this.scheduler.shutdown();
+    this.subscribers.forEach(LiveStatsSubscriber::close);
+  }
+
+  /**
+   * Returns whether the passed statistics can be published.
+   */
+  public boolean isPublished(final String stat) {
+    return this.timeUnitFields.containsKey(stat);
+  }
+
+  /**
+   * Returns the names of all statistics that can be published.
+   */
+  public Set<String> getPublishedStats() {
+    return this.timeUnitFields.keySet();
+  }
+
+  /**
+   * Publish an updated record of the passed statistics and sensor to all its subscribers. Records
+   * of statistics that are not published are ignored.
+   */
+  public void publish(final String stat, final String sensorId, final SpecificRecord record) {
+    final Set<LiveStatsSubscriber> sensorSubscribers = this.subscribersBySensor.get(sensorId);
+    if (sensorSubscribers == null || sensorSubscribers.isEmpty() || !this.isPublished(stat)) {
+      return;
+    }
+    final List<Object> recordKey = this.getRecordKey(stat, sensorId, record);
+    String json = null;
+    for (final LiveStatsSubscriber subscriber : sensorSubscribers) {
+      if (subscriber.isSubscribed(stat)) {
+        if (json == null) {
+          json = this.jsonSerializer.apply(record);
+        }
+        subscriber.offer(stat, recordKey, json);
+      }
+    }
+  }
+
+  /**
+   * Reserve a subscription, which has to be either used by {@link #subscribe(LiveStatsSubscriber)}
+   * or released by {@link #releaseSubscription()}. Returns false if the maximal number of
+   * subscribers is reached.
+   */
+  boolean reserveSubscription() {
+    final int reserved = this.reservedSubscriptions.incrementAndGet();
+    if (reserved > this.maxSubscribers) {
+      this.reservedSubscriptions.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Release a reserved subscription, which is not used.
+   */
+  void releaseSubscription() {
+    this.reservedSubscriptions.decrementAndGet();
+  }
+
+  /**
+   * Add a new subscriber using a reserved subscription (see {@link #reserveSubscription()}). The
+   * subscriber must already be started.
+   */
+  void subscribe(final LiveStatsSubscriber subscriber) {
+    this.subscribers.add(subscriber);
+    for (final String sensorId : subscriber.getSensorIds()) {
+      this.subscribersBySensor
+          .computeIfAbsent(sensorId, id -> ConcurrentHashMap.newKeySet())
+          .add(subscriber);
+    }
+  }
+
+  private void unsubscribe(final LiveStatsSubscriber subscriber) {
+    if (!this.subscribers.remove(subscriber)) {
+      return;
+    }
+    this.reservedSubscriptions.decrementAndGet();
+    for (final String sensorId : subscriber.getSensorIds()) {
+      this.subscribersBySensor.computeIfPresent(sensorId, (id, sensorSubscribers) -> {
+        sensorSubscribers.remove(subscriber);
+        return sensorSubscribers.isEmpty() ? null : sensorSubscribers;
+      });
+    }
+  }
+
+  /**
+   * Flush all subscribers and remove closed ones.
+   */
+  void flushAll() {
+    for (final LiveStatsSubscriber subscriber : this.subscribers) {
+      if (subscriber.isClosed()) {
+        this.unsubscribe(subscriber);
+      } else {
+        this.flush(subscriber);
+      }
+    }
+  }
+
+  private void flush(final LiveStatsSubscriber subscriber) {
+    try {
+      final int written = subscriber.flush(KEEP_ALIVE_MS, STALL_TIMEOUT_MS);
+      if (this.events != null) {
+        this.events.add(written);
+      }
+    } catch (final IOException e) {
+      LOGGER.debug("Live statistics subscriber disconnected or stalled.", e);
+      this.unsubscribe(subscriber);
+    }
+  }
+
+  /**
+   * Returns the values identifying a record of the passed statistics, that is, all values except
+   * the statistics.
+   */
+  private List<Object> getRecordKey(final String stat, final String sensorId,
+      final SpecificRecord record) {
+    final List<String> fields = this.timeUnitFields.get(stat);
+    final List<Object> key = new ArrayList<>(fields.size() + 3); // NOCS
+    key.add(sensorId);
+    key.add(getField(record, TableRecordMapping.DEFAULT_PERIOD_START_COLUMN));
+    key.add(getField(record, TableRecordMapping.DEFAULT_PERIOD_END_COLUMN));
+    for (final String field : fields) {
+      key.add(getField(record, field));
+    }
+    return key;
+  }
+
+  private static Object getField(final SpecificRecord record, final String name) {
+    return record.get(record.getSchema().getField(name).pos());
+  }
+
+}
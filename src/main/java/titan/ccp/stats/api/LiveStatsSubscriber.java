@@ -0,0 +1,178 @@
+package titan.ccp.stats.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * A client subscribed to live statistics of a set of sensors via Server-Sent Events on an
+ * asynchronous servlet response. Updates are not written when offered, but collected until the
+ * next flush, keeping only the latest update per statistics record, i.e., per sensor, period and
+ * time unit. A flush writes one event per statistics, named like the statistics, whose data is a
+ * JSON array of all collected records.
+ *
+ * <p>
+ * Writes are non-blocking (see {@link WriteListener}), so that flushes never wait for the client.
+ * If the previous write has not completed yet, a flush writes nothing and updates continue to be
+ * coalesced. If no write completes within a stall timeout, the subscriber is closed.
+ * </p>
+ */
+class LiveStatsSubscriber {
+
+  private static final byte[] KEEP_ALIVE = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+  private final AsyncContext asyncContext;
+  private final Set<String> sensorIds;
+  private final Set<String> stats;
+  // Pending JSON records per statistics and record key, guarded by this
+  private final Map<String, Map<List<Object>, String>> pending = new LinkedHashMap<>();
+  private volatile boolean closed; // NOPMD
+  // Only accessed by the thread starting and the thread flushing this subscriber
+  private ServletOutputStream output;
+  private long lastWriteMs = System.currentTimeMillis();
+  private long lastReadyMs = System.currentTimeMillis();
+
+  /**
+   * Create a new {@link LiveStatsSubscriber} writing to the response of the passed
+   * {@link AsyncContext}, which must be committed as event stream before {@link #start()}.
+   */
+  LiveStatsSubscriber(final AsyncContext asyncContext, final Set<String> sensorIds,
+      final Set<String> stats) {
+    this.asyncContext = asyncContext;
+    this.sensorIds = Set.copyOf(sensorIds);
+    this.stats = Set.copyOf(stats);
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onComplete(final AsyncEvent event) {
+        LiveStatsSubscriber.this.closed = true;
+      }
+
+      @Override
+      public void onTimeout(final AsyncEvent event) {
+        LiveStatsSubscriber.this.closed = true;
+      }
+
+      @Override
+      public void onError(final AsyncEvent event) {
+        LiveStatsSubscriber.this.closed = true;
+      }
+
+      @Override
+      public void onStartAsync(final AsyncEvent event) {
+        // Nothing to do
+      }
+    });
+  }
+
+  /**
+   * Switch the response to non-blocking writes. Must be called after the response is committed and
+   * before this subscriber is flushed for the first time.
+   */
+  public void start() throws IOException {
+    this.output = this.asyncContext.getResponse().getOutputStream();
+    this.output.setWriteListener(new WriteListener() {
+      @Override
+      public void onWritePossible() {
+        // Writes are only started by flushes, which check whether the previous one completed
+      }
+
+      @Override
+      public void onError(final Throwable throwable) {
+        LiveStatsSubscriber.this.close();
+      }
+    });
+  }
+
+  public Set<String> getSensorIds() {
+    return this.sensorIds;
+  }
+
+  public boolean isSubscribed(final String stat) {
+    return this.stats.contains(stat);
+  }
+
+  public boolean isClosed() {
+    return this.closed;
+  }
+
+  /**
+   * Collect a JSON serialized record of the passed statistics, replacing a pending record with the
+   * same key.
+   */
+  public synchronized void offer(final String stat, final List<Object> recordKey,
+      final String json) {
+    this.pending.computeIfAbsent(stat, s -> new LinkedHashMap<>()).put(recordKey, json);
+  }
+
+  /**
+   * Write all pending records or, if there are none and nothing was written for the passed
+   * keep-alive time, a comment to keep the connection alive. If the previous write has not
+   * completed yet, nothing is written. Must only be called by one thread at a time. Returns the
+   * number of written events.
+   *
+   * @throws IOException if writing to the client fails or no write completed for the passed stall
+   *         timeout, in which case this subscriber is closed
+   */
+  public int flush(final long keepAliveMs, final long stallTimeoutMs) throws IOException {
+    final long now = System.currentTimeMillis();
+    try {
+      if (!this.output.isReady()) {
+        if (now - this.lastReadyMs >= stallTimeoutMs) {
+          throw new IOException("No write completed for " + stallTimeoutMs + " ms.");
+        }
+        return 0;
+      }
+      this.lastReadyMs = now;
+      final Map<String, Map<List<Object>, String>> events;
+      synchronized (this) {
+        events = this.pending.isEmpty() ? Map.of() : new LinkedHashMap<>(this.pending);
+        this.pending.clear();
+      }
+      if (events.isEmpty() && now - this.lastWriteMs < keepAliveMs) {
+        return 0;
+      }
+      // Written at once, as the output has to be ready before each write
+      this.output.write(events.isEmpty() ? KEEP_ALIVE : toEvents(events));
+      if (this.output.isReady()) {
+        this.output.flush();
+      }
+      this.lastWriteMs = now;
+      return events.size();
+    } catch (final IOException | IllegalStateException e) {
+      this.close();
+      throw e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+  }
+
+  /**
+   * End the response to this subscriber.
+   */
+  public void close() {
+    if (!this.closed) {
+      this.closed = true;
+      try {
+        this.asyncContext.complete();
+      } catch (final IllegalStateException e) { // NOPMD already completed by the container
+      }
+    }
+  }
+
+  private static byte[] toEvents(final Map<String, Map<List<Object>, String>> events) {
+    final StringBuilder builder = new StringBuilder();
+    for (final Map.Entry<String, Map<List<Object>, String>> event : events.entrySet()) {
+      builder.append("event: ").append(event.getKey())
+          .append("\ndata: [").append(String.join(",", event.getValue().values()))
+          .append("]\n\n");
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,61 @@
+package titan.ccp.stats.api;
+
+import java.util.Map;
+
+/**
+ * Approximated percentiles of a sensor for a time unit (e.g., an hour of the day) within a period.
+ */
+public class Percentiles {
+
+  private final String identifier;
+  private final Map<String, Integer> timeUnit;
+  private final long periodStart;
+  private final long periodEnd;
+  private final double p50;
+  private final double p95;
+  private final double p99;
+
+  /**
+   * Create new {@link Percentiles}.
+   */
+  public Percentiles(final String identifier, final Map<String, Integer> timeUnit, // NOPMD
+      final long periodStart, final long periodEnd,
+      final double p50, final double p95, final double p99) {
+    this.identifier = identifier;
+    this.timeUnit = timeUnit;
+    this.periodStart = periodStart;
+    this.periodEnd = periodEnd;
+    this.p50 = p50;
+    this.p95 = p95;
+    this.p99 = p99;
+  }
+
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public Map<String, Integer> getTimeUnit() {
+    return this.timeUnit;
+  }
+
+  public long getPeriodStart() {
+    return this.periodStart;
+  }
+
+  public long getPeriodEnd() {
+    return this.periodEnd;
+  }
+
+  public double getP50() {
+    return this.p50;
+  }
+
+  public double getP95() {
+    return this.p95;
+  }
+
+  public double getP99() {
+    return this.p99;
+  }
+
+}
@@ -0,0 +1,16 @@
+package titan.ccp.stats.api;
+
+import java.util.List;
+import titan.ccp.stats.api.util.Interval;
+
+/**
+ * A proxy to encapsulate the storage of approximated {@link Percentiles} and queries to it.
+ */
+public interface PercentilesRepository {
+
+  /**
+   * Returns the percentiles for a given sensor identifier and interval.
+   */
+  List<Percentiles> get(String identifier, Interval interval);
+
+}
@@ -0,0 +1,64 @@
+package titan.ccp.stats.api;
+
+/**
+ * Accumulator pooling the count, mean, population variance, minimum and maximum of several
+ * statistics of disjoint sets of values into the statistics of the union of these sets. The pooled
+ * statistics are exact (up to floating point precision), i.e., they are equal to the statistics
+ * computed directly from all values.
+ */
+final class PooledStats {
+
+  private long count;
+  private double mean = Double.NaN;
+  private double sumOfSquaresOfDeltas;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  /**
+   * Add the statistics of another set of values.
+   */
+  public void add(final long count, final double mean, final double populationVariance,
+      final double min, final double max) {
+    if (count <= 0) {
+      return;
+    }
+    if (this.count == 0) {
+      this.count = count;
+      this.mean = mean;
+      this.sumOfSquaresOfDeltas = populationVariance * count;
+      this.min = min;
+      this.max = max;
+      return;
+    }
+    // Parallel variant of Welford's algorithm (Chan et al.)
+    final long totalCount = this.count + count;
+    final double delta = mean - this.mean;
+    this.mean += delta * count / totalCount;
+    this.sumOfSquaresOfDeltas +=
+        populationVariance * count + delta * delta * this.count * count / totalCount;
+    this.count = totalCount;
+    this.min = Math.min(this.min, min);
+    this.max = Math.max(this.max, max);
+  }
+
+  public long getCount() {
+    return this.count;
+  }
+
+  public double getMean() {
+    return this.mean;
+  }
+
+  public double getPopulationVariance() {
+    return this.count == 0 ? Double.NaN : this.sumOfSquaresOfDeltas / this.count;
+  }
+
+  public double getMin() {
+    return this.min;
+  }
+
+  public double getMax() {
+    return this.max;
+  }
+
+}
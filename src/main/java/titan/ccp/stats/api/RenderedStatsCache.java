@@ -0,0 +1,257 @@
+package titan.ccp.stats.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.api.util.Interval;
+import titan.ccp.stats.metrics.Counter;
+import titan.ccp.stats.metrics.MetricsRegistry;
+
+/**
+ * Holds pre-rendered responses of a {@link StatsRepository} per sensor identifier and interval, so
+ * that serving a request only requires a lookup and copying bytes. Each {@link RenderedStats}
+ * contains the gzip-compressed JSON and the Avro binary encoding of the statistics.
+ *
+ * <p>
+ * Entries are only rendered in the background. If an entry is requested that is not rendered yet
+ * or that is invalidated, its rendering is scheduled and no rendering is returned, so that callers
+ * serve the request from the repository as usual. Entries of a sensor are invalidated when an
+ * update of its statistics is reported via {@link #invalidate(String)}, for example, by a
+ * {@link StatsUpdateConsumer}. Hence, invalidated renderings are never served, also not if they
+ * were still being rendered when the update was reported. As a fallback for missed updates, an
+ * entry requested after the refresh interval has passed is re-rendered in the background while its
+ * previous rendering is still served. Beyond the maximal number of entries, the least recently
+ * requested ones are evicted.
+ * </p>
+ *
+ * @param <T> type of records in the repository
+ */
+public class RenderedStatsCache<T extends SpecificRecord> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RenderedStatsCache.class);
+
+  private static final String REQUESTS_METRIC = "stats_rendered_requests_total";
+  private static final String REQUESTS_HELP =
+      "Requests to pre-rendered responses by whether a valid rendering was available.";
+
+  private final StatsRepository<T> repository;
+  private final Function<Object, String> jsonSerializer;
+  private final long refreshIntervalMs;
+  private final Executor refreshExecutor;
+  private final Map<Map.Entry<String, Interval>, RenderedStats> entries;
+  private final Set<Map.Entry<String, Interval>> rendering = ConcurrentHashMap.newKeySet();
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<String, Long> invalidations = new ConcurrentHashMap<>();
+  private Counter hits;
+  private Counter misses;
+
+  /**
+   * Create a new {@link RenderedStatsCache}.
+   *
+   * @param repository Repository to query the statistics from.
+   * @param jsonSerializer Serializer of the list of records to JSON, which should be the same as
+   *        for responses that are not pre-rendered.
+   * @param refreshInterval Minimal age of an entry before it is re-rendered even if it is not
+   *        invalidated.
+   * @param maxEntries Maximal number of entries.
+   * @param refreshExecutor Executor for rendering entries in the background.
+   */
+  public RenderedStatsCache(final StatsRepository<T> repository,
+      final Function<Object, String> jsonSerializer, final Duration refreshInterval,
+      final int maxEntries, final Executor refreshExecutor) {
+    this.repository = repository;
+    this.jsonSerializer = jsonSerializer;
+    this.refreshIntervalMs = refreshInterval.toMillis();
+    this.refreshExecutor = refreshExecutor;
+    this.entries = Collections.synchronizedMap(
+        new LinkedHashMap<Map.Entry<String, Interval>, RenderedStats>(16, 0.75f, true) { // NOCS
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(
+              final Map.Entry<Map.Entry<String, Interval>, RenderedStats> eldest) {
+            return this.size() > maxEntries;
+          }
+        });
+  }
+
+  /**
+   * Count requests to validly rendered and to not yet rendered or invalidated entries in the passed
+   * {@link MetricsRegistry}, labeled by the passed repository name.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry, final String name) {
+    this.hits = metricsRegistry.counter(
+        REQUESTS_METRIC, REQUESTS_HELP, "repository", name, "result", "hit");
+    this.misses = metricsRegistry.counter(
+        REQUESTS_METRIC, REQUESTS_HELP, "repository", name, "result", "miss");
+  }
+
+  /**
+   * Returns the rendered statistics for a given sensor identifier and the current interval of the
+   * repository or null if no interval is known so far or no valid rendering is available yet.
+   */
+  public RenderedStats get(final String identifier) {
+    final Interval currentInterval = this.repository.getCurrentInterval();
+    if (currentInterval == null) {
+      return null;
+    }
+    return this.get(identifier, currentInterval);
+  }
+
+  /**
+   * Returns the rendered statistics for a given sensor identifier and interval or null if no valid
+   * rendering is available yet. In this case, the entry is rendered in the background.
+   */
+  public RenderedStats get(final String identifier, final Interval interval) {
+    final Map.Entry<String, Interval> key = Map.entry(identifier, interval);
+    final RenderedStats cached = this.entries.get(key);
+    if (cached == null
+        || cached.sequence < this.invalidations.getOrDefault(identifier, Long.MIN_VALUE)) {
+      increment(this.misses);
+      this.scheduleRendering(key);
+      return null;
+    }
+    increment(this.hits);
+    if (System.currentTimeMillis() - cached.renderedAtMs >= this.refreshIntervalMs) {
+      this.scheduleRendering(key);
+    }
+    return cached;
+  }
+
+  /**
+   * Invalidate all entries of the passed sensor identifier, including those currently being
+   * rendered. Must be called after the updated statistics are written to the repository.
+   */
+  public void invalidate(final String identifier) {
+    this.invalidations.put(identifier, this.sequence.incrementAndGet());
+  }
+
+  private void scheduleRendering(final Map.Entry<String, Interval> key) {
+    if (!this.rendering.add(key)) {
+      return;
+    }
+    try {
+      this.refreshExecutor.execute(() -> {
+        try {
+          this.entries.put(key, this.render(key));
+        } catch (final RuntimeException e) { // NOPMD keep serving the previous rendering
+          LOGGER.warn("Rendering statistics of {} failed.", key, e);
+        } finally {
+          this.rendering.remove(key);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      this.rendering.remove(key);
+      LOGGER.debug("Rendering statistics of {} was rejected.", key, e);
+    }
+  }
+
+  private RenderedStats render(final Map.Entry<String, Interval> key) {
+    // Taken before querying, so that invalidations during the query are not missed
+    final long renderedSequence = this.sequence.get();
+    final long renderedAtMs = System.currentTimeMillis();
+    final List<T> records = this.repository.get(key.getKey(), key.getValue());
+    return new RenderedStats(
+        gzip(this.jsonSerializer.apply(records)),
+        encodeAvro(records),
+        renderedAtMs,
+        renderedSequence);
+  }
+
+  private static void increment(final Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  private static byte[] gzip(final String json) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Writer writer =
+        new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+      writer.write(json);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encodes the passed records as Avro array of the records' schema.
+   */
+  private static <T extends SpecificRecord> byte[] encodeAvro(final List<T> records) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(bytes, null);
+    try {
+      encoder.writeArrayStart();
+      encoder.setItemCount(records.size());
+      if (!records.isEmpty()) {
+        final DatumWriter<T> writer = new SpecificDatumWriter<>(records.get(0).getSchema());
+        for (final T record : records) {
+          encoder.startItem();
+          writer.write(record, encoder);
+        }
+      }
+      encoder.writeArrayEnd();
+      encoder.flush();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Pre-rendered statistics of a sensor identifier and interval. The returned arrays are shared
+   * and must not be modified.
+   */
+  public static final class RenderedStats {
+
+    private final byte[] gzipJson;
+    private final byte[] avroBinary;
+    private final long renderedAtMs;
+    private final long sequence;
+
+    private RenderedStats(final byte[] gzipJson, final byte[] avroBinary,
+        final long renderedAtMs, final long sequence) {
+      this.gzipJson = gzipJson;
+      this.avroBinary = avroBinary;
+      this.renderedAtMs = renderedAtMs;
+      this.sequence = sequence;
+    }
+
+    public byte[] getGzipJson() {
+      return this.gzipJson; // NOPMD shared for zero-copy serving
+    }
+
+    public byte[] getAvroBinary() {
+      return this.avroBinary; // NOPMD shared for zero-copy serving
+    }
+
+    public long getRenderedAtMs() {
+      return this.renderedAtMs;
+    }
+
+  }
+
+}
@@ -3,16 +3,41 @@ package titan.ccp.stats.api;
 import com.datastax.driver.core.Session;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletResponse;
+import jdk.jfr.EventType;
+import org.apache.avro.specific.SpecificRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+import spark.Route;
 import spark.Service;
 import titan.ccp.model.records.DayOfWeekActivePowerRecord;
 import titan.ccp.model.records.HourOfDayActivePowerRecord;
 import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+import titan.ccp.stats.api.RenderedStatsCache.RenderedStats;
 import titan.ccp.stats.api.util.InstantSerializer;
 import titan.ccp.stats.api.util.Interval;
 import titan.ccp.stats.api.util.IntervalSerializer;
+import titan.ccp.stats.jfr.RecordingController;
+import titan.ccp.stats.jfr.RestRequestEvent;
+import titan.ccp.stats.metrics.MetricsRegistry;
+import titan.ccp.stats.progress.StreamsProgress;
 
 /**
  * Contains a web server for accessing the stats via a REST interface.
@@ -22,27 +47,293 @@ public class RestApiServer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RestApiServer.class);
 
+  private static final String DAY_OF_WEEK = "day-of-week";
+  private static final String HOUR_OF_DAY = "hour-of-day";
+  private static final String HOUR_OF_WEEK = "hour-of-week";
+  private static final int THREAD_IDLE_TIMEOUT_MS = 30_000;
+  private static final int SLICE_QUERY_THREADS = 16;
+  private static final String METRICS_PATH = "/metrics";
+  private static final String LIVE_PATH = "/live";
+  private static final String REQUEST_START_ATTRIBUTE = "requestStartNanos";
+  private static final String REQUEST_ROUTE_ATTRIBUTE = "requestRoute";
+  private static final String REQUEST_EVENT_ATTRIBUTE = "requestEvent";
+  private static final String RECORDING_RUNNING_FIELD = "running";
+  private static final String AVRO_CONTENT_TYPE = "application/avro";
+  private static final String GZIP_ENCODING = "gzip";
+  private static final EventType REST_REQUEST_EVENT_TYPE =
+      EventType.getEventType(RestRequestEvent.class);
+
   private final Gson gson =
       new GsonBuilder().registerTypeAdapter(Interval.class, new IntervalSerializer())
           .registerTypeAdapter(Instant.class, new InstantSerializer()).create();
-  private final StatsRepository<DayOfWeekActivePowerRecord> dayOfWeekRepository;
-  private final StatsRepository<HourOfDayActivePowerRecord> hourOfDayRepository;
-  private final StatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository;
+  private StatsRepository<DayOfWeekActivePowerRecord> dayOfWeekRepository;
+  private StatsRepository<HourOfDayActivePowerRecord> hourOfDayRepository;
+  private StatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository;
+  private PercentilesRepository dayOfWeekPercentilesRepository;
+  private PercentilesRepository hourOfDayPercentilesRepository;
+  private PercentilesRepository hourOfWeekPercentilesRepository;
   private final Service webService;
   private final boolean enableCors; // NOPMD
+  private MetricsRegistry metricsRegistry; // NOPMD
+  private RecordingController recordingController; // NOPMD
+  private StreamsProgress streamsProgress; // NOPMD
+  private ExecutorService sliceQueryExecutor; // NOPMD
+  private Duration renderRefreshInterval; // NOPMD
+  private int renderMaxEntries; // NOPMD
+  private ExecutorService renderExecutor; // NOPMD
+  private RenderedStatsCache<DayOfWeekActivePowerRecord> dayOfWeekRendered; // NOPMD
+  private RenderedStatsCache<HourOfDayActivePowerRecord> hourOfDayRendered; // NOPMD
+  private RenderedStatsCache<HourOfWeekActivePowerRecord> hourOfWeekRendered; // NOPMD
+  private LiveStatsPublisher liveStatsPublisher; // NOPMD
+  private boolean dayOfWeekDerived; // NOPMD
 
   /**
-   * Creates a new API server using the passed parameters.
+   * Creates a new API server using the passed parameters, which queries the statistics from
+   * Cassandra.
    */
   public RestApiServer(final Session cassandraSession, final int port, final boolean enableCors) {
-    this.dayOfWeekRepository = new StatsRepository<>(cassandraSession, DayOfWeekMapping.create());
-    this.hourOfDayRepository = new StatsRepository<>(cassandraSession, HourOfDayMapping.create());
-    this.hourOfWeekRepository = new StatsRepository<>(cassandraSession, HourOfWeekMapping.create());
+    this(cassandraSession, port, enableCors, false);
+  }
+
+  /**
+   * Creates a new API server using the passed parameters, which queries the statistics from
+   * Cassandra. If {@code deriveDayOfWeek} is true, day of week statistics are not queried from
+   * their own table, but derived from the hour of week statistics (see
+   * {@link DerivedDayOfWeekRepository}). In this case, no day of week percentiles are served.
+   */
+  public RestApiServer(final Session cassandraSession, final int port, final boolean enableCors,
+      final boolean deriveDayOfWeek) {
+    this(cassandraSession, port, enableCors, deriveDayOfWeek, false);
+  }
+
+  /**
+   * Creates a new API server using the passed parameters, which queries the statistics from
+   * Cassandra. If {@code packedLayout} is true, statistics are queried from the tables of the
+   * packed layout with one row per identifier and period, whereas percentiles are always queried
+   * with one row per time unit. See {@link #RestApiServer(Session, int, boolean, boolean)} for
+   * {@code deriveDayOfWeek}.
+   */
+  public RestApiServer(final Session cassandraSession, final int port, final boolean enableCors,
+      final boolean deriveDayOfWeek, final boolean packedLayout) {
+    this(
+        cassandraSession,
+        new CassandraStatsRepository<>(
+            cassandraSession,
+            packedLayout ? HourOfWeekMapping.createPacked() : HourOfWeekMapping.create()),
+        port,
+        enableCors,
+        deriveDayOfWeek,
+        packedLayout);
+  }
+
+  private RestApiServer(final Session cassandraSession,
+      final StatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository,
+      final int port, final boolean enableCors, final boolean deriveDayOfWeek,
+      final boolean packedLayout) {
+    this(
+        deriveDayOfWeek
+            ? new DerivedDayOfWeekRepository(hourOfWeekRepository)
+            : new CassandraStatsRepository<>(
+                cassandraSession,
+                packedLayout ? DayOfWeekMapping.createPacked() : DayOfWeekMapping.create()),
+        new CassandraStatsRepository<>(
+            cassandraSession,
+            packedLayout ? HourOfDayMapping.createPacked() : HourOfDayMapping.create()),
+        hourOfWeekRepository,
+        deriveDayOfWeek
+            ? (identifier, interval) -> List.of()
+            : new CassandraPercentilesRepository(cassandraSession,
+                DayOfWeekMapping.create(), DayOfWeekMapping.getTimeUnitColumns()),
+        new CassandraPercentilesRepository(cassandraSession,
+            HourOfDayMapping.create(), HourOfDayMapping.getTimeUnitColumns()),
+        new CassandraPercentilesRepository(cassandraSession,
+            HourOfWeekMapping.create(), HourOfWeekMapping.getTimeUnitColumns()),
+        port,
+        enableCors);
+    this.dayOfWeekDerived = deriveDayOfWeek;
+  }
+
+  /**
+   * Creates a new API server, which does not serve statistics but only operational endpoints such
+   * as metrics and progress (if enabled).
+   */
+  public RestApiServer(final int port, final boolean enableCors) {
+    this(null, null, null, null, null, null, port, enableCors);
+  }
+
+  /**
+   * Creates a new API server, which queries the statistics from the passed repositories.
+   */
+  public RestApiServer( // NOPMD many repositories
+      final StatsRepository<DayOfWeekActivePowerRecord> dayOfWeekRepository,
+      final StatsRepository<HourOfDayActivePowerRecord> hourOfDayRepository,
+      final StatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository,
+      final PercentilesRepository dayOfWeekPercentilesRepository,
+      final PercentilesRepository hourOfDayPercentilesRepository,
+      final PercentilesRepository hourOfWeekPercentilesRepository,
+      final int port,
+      final boolean enableCors) {
+    this.dayOfWeekRepository = dayOfWeekRepository;
+    this.hourOfDayRepository = hourOfDayRepository;
+    this.hourOfWeekRepository = hourOfWeekRepository;
+    this.dayOfWeekPercentilesRepository = dayOfWeekPercentilesRepository;
+    this.hourOfDayPercentilesRepository = hourOfDayPercentilesRepository;
+    this.hourOfWeekPercentilesRepository = hourOfWeekPercentilesRepository;
     LOGGER.info("Instantiate API server.");
     this.webService = Service.ignite().port(port);
     this.enableCors = enableCors;
   }
 
+  /**
+   * Query statistics, which are stored per non-overlapping time slice of the passed size, for
+   * arbitrary intervals by merging the slices covering them (see {@link SlicedStatsRepository}).
+   * Without a requested interval, the statistics of the passed range ending with the current slice
+   * are returned. Requests for intervals covering more than the passed maximal number of slices
+   * are rejected. Must be called before {@link #enableMetrics(MetricsRegistry)}.
+   */
+  public void enableSlices(final Duration sliceSize, final int maxSlices,
+      final Duration dayOfWeekRange, final Duration hourOfDayRange,
+      final Duration hourOfWeekRange) {
+    if (!this.servesStats()) {
+      return;
+    }
+    this.sliceQueryExecutor = Executors.newFixedThreadPool(SLICE_QUERY_THREADS);
+    this.dayOfWeekRepository = new SlicedStatsRepository<>(
+        this.dayOfWeekRepository,
+        DayOfWeekMapping.create(),
+        DayOfWeekMapping.getTimeUnitColumns(),
+        sliceSize,
+        dayOfWeekRange,
+        maxSlices,
+        this.sliceQueryExecutor);
+    this.hourOfDayRepository = new SlicedStatsRepository<>(
+        this.hourOfDayRepository,
+        HourOfDayMapping.create(),
+        HourOfDayMapping.getTimeUnitColumns(),
+        sliceSize,
+        hourOfDayRange,
+        maxSlices,
+        this.sliceQueryExecutor);
+    this.hourOfWeekRepository = new SlicedStatsRepository<>(
+        this.hourOfWeekRepository,
+        HourOfWeekMapping.create(),
+        HourOfWeekMapping.getTimeUnitColumns(),
+        sliceSize,
+        hourOfWeekRange,
+        maxSlices,
+        this.sliceQueryExecutor);
+  }
+
+  /**
+   * Record the latency of all requests and repository queries in the passed
+   * {@link MetricsRegistry} and export it at {@code /metrics}. Must be called before
+   * {@link #start()}.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+    if (!this.servesStats()) {
+      return;
+    }
+    this.dayOfWeekRepository = new InstrumentedStatsRepository<>(
+        this.dayOfWeekRepository, metricsRegistry, DAY_OF_WEEK);
+    this.hourOfDayRepository = new InstrumentedStatsRepository<>(
+        this.hourOfDayRepository, metricsRegistry, HOUR_OF_DAY);
+    this.hourOfWeekRepository = new InstrumentedStatsRepository<>(
+        this.hourOfWeekRepository, metricsRegistry, HOUR_OF_WEEK);
+    this.dayOfWeekPercentilesRepository = new InstrumentedPercentilesRepository(
+        this.dayOfWeekPercentilesRepository, metricsRegistry, DAY_OF_WEEK);
+    this.hourOfDayPercentilesRepository = new InstrumentedPercentilesRepository(
+        this.hourOfDayPercentilesRepository, metricsRegistry, HOUR_OF_DAY);
+    this.hourOfWeekPercentilesRepository = new InstrumentedPercentilesRepository(
+        this.hourOfWeekPercentilesRepository, metricsRegistry, HOUR_OF_WEEK);
+  }
+
+  /**
+   * Serve statistics of sensors from pre-rendered responses (see {@link RenderedStatsCache}), which
+   * are invalidated when updates are passed to {@link #getStatsUpdateListener()} and re-rendered
+   * when requested after the passed refresh interval. Clients accepting gzip
+   * receive the compressed JSON and clients accepting {@code application/avro} receive an Avro
+   * array of the records, both without any serialization per request. Other clients are served as
+   * before. Must be called before {@link #start()}.
+   */
+  public void enableRendering(final Duration refreshInterval, final int maxEntriesPerStats) {
+    this.renderRefreshInterval = refreshInterval;
+    this.renderMaxEntries = maxEntriesPerStats;
+  }
+
+  /**
+   * Push statistics updates of sensors to clients via Server-Sent Events at {@code /live}. Clients
+   * select sensors and, optionally, statistics by the comma-separated query parameters
+   * {@code sensors} and {@code stats}. Updates are collected per client and sent at most once per
+   * passed interval (see {@link LiveStatsPublisher}). Subscriptions beyond the passed maximal
+   * number of subscribers are rejected with status 503. Updates are passed to
+   * {@link #getStatsUpdateListener()}. Derived day of week statistics are not published, as they
+   * are not computed by the stream processing. Must be called before {@link #start()}.
+   */
+  public void enableLiveStats(final Duration flushInterval, final int maxSubscribers) {
+    if (!this.servesStats()) {
+      return;
+    }
+    final Map<String, List<String>> timeUnitFields = new LinkedHashMap<>();
+    if (!this.dayOfWeekDerived) {
+      timeUnitFields.put(DAY_OF_WEEK, DayOfWeekMapping.getTimeUnitColumns());
+    }
+    timeUnitFields.put(HOUR_OF_DAY, HourOfDayMapping.getTimeUnitColumns());
+    timeUnitFields.put(HOUR_OF_WEEK, HourOfWeekMapping.getTimeUnitColumns());
+    this.liveStatsPublisher = new LiveStatsPublisher(
+        timeUnitFields,
+        this.gson::toJson,
+        flushInterval,
+        maxSubscribers);
+  }
+
+  /**
+   * Returns a listener, which has to be fed with updated statistics records, for example, by a
+   * {@link StatsUpdateConsumer}, to publish live statistics and invalidate pre-rendered responses.
+   * Returns null if neither is enabled. Must be called after {@link #start()}.
+   */
+  public StatsUpdateListener getStatsUpdateListener() {
+    if (this.dayOfWeekRendered == null && this.liveStatsPublisher == null) {
+      return null;
+    }
+    return (stat, sensorId, record) -> {
+      if (this.dayOfWeekRendered != null) {
+        // Invalidate all statistics, as they all are updated by the same measurements and day of
+        // week statistics may be derived from hour of week statistics
+        this.dayOfWeekRendered.invalidate(sensorId);
+        this.hourOfDayRendered.invalidate(sensorId);
+        this.hourOfWeekRendered.invalidate(sensorId);
+      }
+      if (this.liveStatsPublisher != null) {
+        this.liveStatsPublisher.publish(stat, sensorId, record);
+      }
+    };
+  }
+
+  /**
+   * Use a thread pool with the passed maximal and minimal number of threads for handling requests.
+   * Must be called before {@link #start()}.
+   */
+  public void configureThreadPool(final int maxThreads, final int minThreads) {
+    this.webService.threadPool(maxThreads, minThreads, THREAD_IDLE_TIMEOUT_MS);
+  }
+
+  /**
+   * Allow to start and stop a flight recording with the passed {@link RecordingController} via
+   * {@code POST /jfr/start} and {@code POST /jfr/stop}. Must be called before {@link #start()}.
+   */
+  public void enableRecordingControl(final RecordingController recordingController) {
+    this.recordingController = recordingController;
+  }
+
+  /**
+   * Report the processing progress tracked by the passed {@link StreamsProgress} at
+   * {@code /progress}. Must be called before {@link #start()}.
+   */
+  public void enableProgress(final StreamsProgress streamsProgress) {
+    this.streamsProgress = streamsProgress;
+  }
+
   /**
    * Start the web server by setting up the API routes.
    */
@@ -52,6 +343,32 @@ public class RestApiServer {
     }
 
     this.instantiateRoutes();
+
+    this.instantiateRequestInstrumentation();
+
+    if (this.metricsRegistry != null) {
+      this.instantiateMetrics();
+    }
+
+    if (this.recordingController != null) {
+      this.instantiateRecordingControl();
+    }
+  }
+
+  /**
+   * Stop the web server.
+   */
+  public void stop() {
+    this.webService.stop();
+    if (this.sliceQueryExecutor != null) {
+      this.sliceQueryExecutor.shutdown();
+    }
+    if (this.renderExecutor != null) {
+      this.renderExecutor.shutdown();
+    }
+    if (this.liveStatsPublisher != null) {
+      this.liveStatsPublisher.stop();
+    }
   }
 
   private void enableCors() {
@@ -75,62 +392,326 @@ public class RestApiServer {
     });
   }
 
+  private boolean servesStats() {
+    return this.dayOfWeekRepository != null;
+  }
+
   private void instantiateRoutes() {
+    if (this.servesStats()) {
+      this.instantiateStatsRoutes();
+    }
+
+    if (this.streamsProgress != null) {
+      this.getJson("/progress", (request, response) -> {
+        return this.streamsProgress.getStatus();
+      });
+    }
+
+    this.webService.exception(IntervalTooLargeException.class, (exception, request, response) -> {
+      response.status(400); // NOCS
+      response.body(exception.getMessage());
+    });
+
+    this.webService.after((request, response) -> {
+      response.type("application/json");
+    });
+  }
+
+  private void instantiateStatsRoutes() {
     LOGGER.info("Instantiate API routes.");
 
-    this.webService.get("/sensor/:sensorId/day-of-week", (request, response) -> {
-      final String sensorId = request.params("sensorId"); // NOCS
-      final String intervalStartParam = request.queryParams("intervalStart"); // NOCS
-      final String intervalEndParam = request.queryParams("intervalEnd"); // NOCS
-      if (intervalStartParam == null || intervalEndParam == null) {
-        return this.dayOfWeekRepository.get(sensorId);
-      } else {
-        final Interval interval = Interval.of(Instant.parse(intervalStartParam),
-            Instant.parse(intervalEndParam));
-        return this.dayOfWeekRepository.get(sensorId, interval);
-      }
-    }, this.gson::toJson);
+    if (this.renderRefreshInterval != null) {
+      this.renderExecutor = Executors.newSingleThreadExecutor();
+      this.dayOfWeekRendered = this.createRenderedCache(this.dayOfWeekRepository, DAY_OF_WEEK);
+      this.hourOfDayRendered = this.createRenderedCache(this.hourOfDayRepository, HOUR_OF_DAY);
+      this.hourOfWeekRendered = this.createRenderedCache(this.hourOfWeekRepository, HOUR_OF_WEEK);
+    }
 
-    this.webService.get("/sensor/:sensorId/hour-of-day", (request, response) -> {
-      final String sensorId = request.params("sensorId"); // NOCS
-      final String intervalStartParam = request.queryParams("intervalStart"); // NOCS
-      final String intervalEndParam = request.queryParams("intervalEnd"); // NOCS
-      if (intervalStartParam == null || intervalEndParam == null) {
-        return this.hourOfDayRepository.get(sensorId);
-      } else {
-        final Interval interval = Interval.of(Instant.parse(intervalStartParam),
-            Instant.parse(intervalEndParam));
-        return this.hourOfDayRepository.get(sensorId, interval);
-      }
-    }, this.gson::toJson);
+    this.getJson("/sensor/:sensorId/day-of-week", (request, response) -> {
+      return this.getStats(request, response, this.dayOfWeekRepository, this.dayOfWeekRendered);
+    });
 
-    this.webService.get("/sensor/:sensorId/hour-of-week", (request, response) -> {
-      final String sensorId = request.params("sensorId"); // NOCS
-      final String intervalStartParam = request.queryParams("intervalStart"); // NOCS
-      final String intervalEndParam = request.queryParams("intervalEnd"); // NOCS
-      if (intervalStartParam == null || intervalEndParam == null) {
-        return this.hourOfWeekRepository.get(sensorId);
-      } else {
-        final Interval interval = Interval.of(Instant.parse(intervalStartParam),
-            Instant.parse(intervalEndParam));
-        return this.hourOfWeekRepository.get(sensorId, interval);
-      }
-    }, this.gson::toJson);
+    this.getJson("/sensor/:sensorId/hour-of-day", (request, response) -> {
+      return this.getStats(request, response, this.hourOfDayRepository, this.hourOfDayRendered);
+    });
+
+    this.getJson("/sensor/:sensorId/hour-of-week", (request, response) -> {
+      return this.getStats(
+          request,
+          response,
+          this.hourOfWeekRepository,
+          this.hourOfWeekRendered);
+    });
+
+    if (this.liveStatsPublisher != null) {
+      this.instantiateLiveStats();
+    }
 
-    this.webService.get("/interval/day-of-week", (request, response) -> {
+    this.getJson("/sensor/:sensorId/day-of-week/percentiles", (request, response) -> {
+      return this.getPercentiles(
+          request,
+          this.dayOfWeekRepository,
+          this.dayOfWeekPercentilesRepository);
+    });
+
+    this.getJson("/sensor/:sensorId/hour-of-day/percentiles", (request, response) -> {
+      return this.getPercentiles(
+          request,
+          this.hourOfDayRepository,
+          this.hourOfDayPercentilesRepository);
+    });
+
+    this.getJson("/sensor/:sensorId/hour-of-week/percentiles", (request, response) -> {
+      return this.getPercentiles(
+          request,
+          this.hourOfWeekRepository,
+          this.hourOfWeekPercentilesRepository);
+    });
+
+    this.getJson("/interval/day-of-week", (request, response) -> {
       return this.dayOfWeekRepository.getIntervals();
-    }, this.gson::toJson);
+    });
 
-    this.webService.get("/interval/hour-of-day", (request, response) -> {
+    this.getJson("/interval/hour-of-day", (request, response) -> {
       return this.hourOfDayRepository.getIntervals();
-    }, this.gson::toJson);
+    });
 
-    this.webService.get("/interval/hour-of-week", (request, response) -> {
+    this.getJson("/interval/hour-of-week", (request, response) -> {
       return this.hourOfWeekRepository.getIntervals();
+    });
+  }
+
+  /**
+   * Add a GET route, whose result is serialized to JSON. The route's path is stored as request
+   * attribute as it is not available in after filters.
+   */
+  private void getJson(final String path, final Route route) {
+    this.webService.get(path, (request, response) -> {
+      request.attribute(REQUEST_ROUTE_ATTRIBUTE, path);
+      return route.handle(request, response);
     }, this.gson::toJson);
+  }
+
+  /**
+   * Record the latency of requests as metrics (if enabled) and as JDK Flight Recorder events (if a
+   * recording with these events is running).
+   */
+  private void instantiateRequestInstrumentation() {
+    this.webService.before((request, response) -> {
+      if (this.metricsRegistry != null) {
+        request.attribute(REQUEST_START_ATTRIBUTE, System.nanoTime());
+      }
+      if (REST_REQUEST_EVENT_TYPE.isEnabled()) {
+        final RestRequestEvent event = new RestRequestEvent();
+        event.begin();
+        request.attribute(REQUEST_EVENT_ATTRIBUTE, event);
+      }
+    });
 
     this.webService.after((request, response) -> {
-      response.type("application/json");
+      final String route = Objects.requireNonNullElse(
+          request.attribute(REQUEST_ROUTE_ATTRIBUTE),
+          "other");
+      final Long start = request.attribute(REQUEST_START_ATTRIBUTE);
+      if (start != null) {
+        this.metricsRegistry.durationHistogram(
+            "stats_http_request_seconds",
+            "Latency of HTTP requests to the REST API.",
+            "method", request.requestMethod(),
+            "route", route)
+            .recordNanosSince(start);
+      }
+      final RestRequestEvent event = request.attribute(REQUEST_EVENT_ATTRIBUTE);
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.setMethod(request.requestMethod());
+          event.setRoute(route);
+          event.setStatus(response.status());
+          event.commit();
+        }
+      }
     });
   }
+
+  private void instantiateLiveStats() {
+    LOGGER.info("Instantiate live statistics route.");
+
+    if (this.metricsRegistry != null) {
+      this.liveStatsPublisher.enableMetrics(this.metricsRegistry);
+    }
+    this.liveStatsPublisher.start();
+
+    this.webService.get(LIVE_PATH, (request, response) -> {
+      request.attribute(REQUEST_ROUTE_ATTRIBUTE, LIVE_PATH);
+      final Set<String> sensorIds = splitQueryParam(request.queryParams("sensors"));
+      final Set<String> stats = request.queryParams("stats") == null
+          ? this.liveStatsPublisher.getPublishedStats()
+          : splitQueryParam(request.queryParams("stats"));
+      if (sensorIds.isEmpty() || !stats.stream().allMatch(this.liveStatsPublisher::isPublished)) {
+        this.webService.halt(400, "Sensors and known statistics must be passed."); // NOCS
+      }
+
+      if (!this.liveStatsPublisher.reserveSubscription()) {
+        this.webService.halt(503, "Maximal number of live statistics subscribers reached."); // NOCS
+      }
+
+      LiveStatsSubscriber subscriber = null; // NOPMD closed if subscribing fails
+      try {
+        // Commit the response as event stream and keep it open beyond this request's thread
+        final HttpServletResponse rawResponse = response.raw();
+        rawResponse.setStatus(200); // NOCS
+        rawResponse.setContentType("text/event-stream");
+        rawResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        rawResponse.setHeader("Cache-Control", "no-cache");
+        final AsyncContext asyncContext = request.raw().startAsync();
+        // No timeout, as the publisher closes subscribers whose writes stall
+        asyncContext.setTimeout(0);
+        subscriber = new LiveStatsSubscriber(asyncContext, sensorIds, stats);
+        rawResponse.flushBuffer();
+        subscriber.start();
+        this.liveStatsPublisher.subscribe(subscriber);
+      } catch (final IOException | RuntimeException e) {
+        if (subscriber != null) {
+          subscriber.close();
+        }
+        this.liveStatsPublisher.releaseSubscription();
+        throw e;
+      }
+      return "";
+    });
+  }
+
+  private static Set<String> splitQueryParam(final String value) {
+    if (value == null) {
+      return Set.of();
+    }
+    return Arrays.stream(value.split(","))
+        .map(String::trim)
+        .filter(s -> !s.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
+  private void instantiateMetrics() {
+    LOGGER.info("Instantiate metrics route.");
+
+    this.webService.get(METRICS_PATH, (request, response) -> {
+      request.attribute(REQUEST_ROUTE_ATTRIBUTE, METRICS_PATH);
+      return this.metricsRegistry.scrape();
+    });
+
+    this.webService.after(METRICS_PATH, (request, response) -> {
+      response.type(this.metricsRegistry.getContentType());
+    });
+  }
+
+  private void instantiateRecordingControl() {
+    LOGGER.info("Instantiate flight recording routes.");
+
+    this.webService.post("/jfr/start", (request, response) -> {
+      this.recordingController.start();
+      return Map.of(RECORDING_RUNNING_FIELD, this.recordingController.isRunning());
+    }, this.gson::toJson);
+
+    this.webService.post("/jfr/stop", (request, response) -> {
+      final Path file = this.recordingController.stop();
+      final Map<String, Object> result = new LinkedHashMap<>();
+      result.put(RECORDING_RUNNING_FIELD, this.recordingController.isRunning());
+      result.put("file", file == null ? null : file.toString());
+      return result;
+    }, this.gson::toJson);
+  }
+
+  private <T extends SpecificRecord> RenderedStatsCache<T> createRenderedCache(
+      final StatsRepository<T> repository, final String name) {
+    final RenderedStatsCache<T> cache = new RenderedStatsCache<>(
+        repository,
+        this.gson::toJson,
+        this.renderRefreshInterval,
+        this.renderMaxEntries,
+        this.renderExecutor);
+    if (this.metricsRegistry != null) {
+      cache.enableMetrics(this.metricsRegistry, name);
+    }
+    return cache;
+  }
+
+  /**
+   * Get the statistics for the sensor and, if passed, the interval of a request. If pre-rendered
+   * responses are available in a representation the client accepts, their bytes are written
+   * directly to the committed response and an empty body is returned.
+   */
+  private <T extends SpecificRecord> Object getStats(
+      final Request request,
+      final Response response,
+      final StatsRepository<T> repository,
+      final RenderedStatsCache<T> renderedCache) throws IOException {
+    final String sensorId = request.params("sensorId"); // NOCS
+    final String intervalStartParam = request.queryParams("intervalStart"); // NOCS
+    final String intervalEndParam = request.queryParams("intervalEnd"); // NOCS
+    final Interval interval = intervalStartParam == null || intervalEndParam == null
+        ? null
+        : Interval.of(Instant.parse(intervalStartParam), Instant.parse(intervalEndParam));
+
+    if (renderedCache != null) {
+      final String accept = request.headers("Accept");
+      final String acceptEncoding = request.headers("Accept-Encoding");
+      final boolean avro = accept != null && accept.contains(AVRO_CONTENT_TYPE);
+      if (avro || acceptEncoding != null && acceptEncoding.contains(GZIP_ENCODING)) {
+        final RenderedStats rendered = interval == null
+            ? renderedCache.get(sensorId)
+            : renderedCache.get(sensorId, interval);
+        if (rendered != null) {
+          response.header("Vary", "Accept, Accept-Encoding");
+          if (avro) {
+            response.type(AVRO_CONTENT_TYPE);
+            return writeRendered(response, rendered.getAvroBinary());
+          } else {
+            response.type("application/json");
+            response.header("Content-Encoding", GZIP_ENCODING);
+            return writeRendered(response, rendered.getGzipJson());
+          }
+        }
+      }
+    }
+
+    return interval == null ? repository.get(sensorId) : repository.get(sensorId, interval);
+  }
+
+  /**
+   * Write the passed bytes as body and commit the response. Spark does not write bodies of
+   * committed responses, so that the bytes are neither transformed nor compressed again.
+   */
+  private static String writeRendered(final Response response, final byte[] body)
+      throws IOException {
+    final HttpServletResponse rawResponse = response.raw();
+    rawResponse.setContentLength(body.length);
+    rawResponse.getOutputStream().write(body);
+    rawResponse.flushBuffer();
+    return "";
+  }
+
+  /**
+   * Get the percentiles for the sensor and, if passed, the interval of a request. If no interval is
+   * passed, the current interval of the corresponding statistics is used.
+   */
+  private List<Percentiles> getPercentiles(
+      final Request request,
+      final StatsRepository<?> statsRepository,
+      final PercentilesRepository percentilesRepository) {
+    final String sensorId = request.params("sensorId"); // NOCS
+    final String intervalStartParam = request.queryParams("intervalStart"); // NOCS
+    final String intervalEndParam = request.queryParams("intervalEnd"); // NOCS
+    final Interval interval;
+    if (intervalStartParam == null || intervalEndParam == null) {
+      interval = statsRepository.getCurrentInterval();
+    } else {
+      interval = Interval.of(Instant.parse(intervalStartParam), Instant.parse(intervalEndParam));
+    }
+    if (interval == null) {
+      return List.of();
+    }
+    return percentilesRepository.get(sensorId, interval);
+  }
+
 }
@@ -0,0 +1,197 @@
+package titan.ccp.stats.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.api.util.Interval;
+
+/**
+ * A {@link StatsRepository} for statistics, which are stored per non-overlapping time slice (i.e.,
+ * computed with tumbling windows aligned to the epoch). Statistics for an arbitrary interval are
+ * obtained by querying all slices covering this interval in parallel and pooling their statistics
+ * per time unit.
+ *
+ * <p>
+ * As the statistics of a slice cannot be split, a requested interval is extended to the
+ * boundaries of the slices covering it. The returned records' periods are the extended intervals.
+ * Without explicitly requested interval, statistics are returned for the configured default range
+ * ending with the current slice.
+ * </p>
+ *
+ * <p>
+ * As each slice is queried separately, the number of slices per request is limited. Requests for
+ * intervals covering more slices fail with an {@link IntervalTooLargeException}.
+ * </p>
+ *
+ * @param <T> type of records in this repository
+ */
+public class SlicedStatsRepository<T extends SpecificRecord> implements StatsRepository<T> {
+
+  private static final String COUNT_FIELD = "count";
+  private static final String MEAN_FIELD = "mean";
+  private static final String POPULATION_VARIANCE_FIELD = "populationVariance";
+  private static final String MIN_FIELD = "min";
+  private static final String MAX_FIELD = "max";
+
+  private final StatsRepository<T> sliceRepository;
+  private final TableRecordMapping<T> mapping;
+  private final List<String> timeUnitColumns;
+  private final long sliceSizeMs;
+  private final Duration defaultRange;
+  private final int maxSlices;
+  private final Executor executor;
+
+  /**
+   * Create a new {@link SlicedStatsRepository}.
+   *
+   * @param sliceRepository Repository of the statistics per slice.
+   * @param mapping Mapping of the statistics records.
+   * @param timeUnitColumns Columns of the time unit of the statistics records.
+   * @param sliceSize Size of the slices.
+   * @param defaultRange Range of statistics if no interval is requested.
+   * @param maxSlices Maximal number of slices queried for a request.
+   * @param executor Executor for querying slices in parallel.
+   */
+  public SlicedStatsRepository( // NOPMD many components
+      final StatsRepository<T> sliceRepository,
+      final TableRecordMapping<T> mapping,
+      final List<String> timeUnitColumns,
+      final Duration sliceSize,
+      final Duration defaultRange,
+      final int maxSlices,
+      final Executor executor) {
+    if (sliceSize.isNegative() || sliceSize.isZero()) {
+      throw new IllegalArgumentException("Slice size must be positive.");
+    }
+    if (defaultRange.toMillis() > sliceSize.toMillis() * maxSlices) {
+      throw new IllegalArgumentException("Default range must not exceed the maximal slices.");
+    }
+    this.sliceRepository = sliceRepository;
+    this.mapping = mapping;
+    this.timeUnitColumns = List.copyOf(timeUnitColumns);
+    this.sliceSizeMs = sliceSize.toMillis();
+    this.defaultRange = defaultRange;
+    this.maxSlices = maxSlices;
+    this.executor = executor;
+  }
+
+  @Override
+  public Interval getCurrentInterval() {
+    final Interval currentSlice = this.sliceRepository.getCurrentInterval();
+    if (currentSlice == null) {
+      return null;
+    }
+    return Interval.of(currentSlice.getEnd().minus(this.defaultRange), currentSlice.getEnd());
+  }
+
+  /**
+   * Returns the pooled statistics of all slices covering the passed interval.
+   *
+   * @throws IntervalTooLargeException if the interval covers more than the maximal number of
+   *         slices
+   */
+  @Override
+  public List<T> get(final String identifier, final Interval interval) {
+    final List<CompletableFuture<List<T>>> sliceQueries = this.getSlices(interval).stream()
+        .map(slice -> CompletableFuture.supplyAsync(
+            () -> this.sliceRepository.get(identifier, slice),
+            this.executor))
+        .collect(Collectors.toList());
+
+    // Keep the order of time units as returned for the slices
+    final Map<List<Object>, List<T>> recordsPerTimeUnit = new LinkedHashMap<>();
+    for (final CompletableFuture<List<T>> sliceQuery : sliceQueries) {
+      for (final T record : sliceQuery.join()) {
+        recordsPerTimeUnit
+            .computeIfAbsent(this.getTimeUnit(record), t -> new ArrayList<>())
+            .add(record);
+      }
+    }
+    final Interval covered = this.extendToSlices(interval);
+    return recordsPerTimeUnit.values().stream()
+        .map(records -> this.merge(records, covered))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the intervals of all stored slices.
+   */
+  @Override
+  public List<Interval> getIntervals() {
+    return this.sliceRepository.getIntervals();
+  }
+
+  private Interval extendToSlices(final Interval interval) {
+    final long start = Math.floorDiv(interval.getStart().toEpochMilli(), this.sliceSizeMs)
+        * this.sliceSizeMs;
+    final long end = Math.floorDiv(interval.getEnd().toEpochMilli() - 1, this.sliceSizeMs)
+        * this.sliceSizeMs + this.sliceSizeMs;
+    return Interval.of(Instant.ofEpochMilli(start), Instant.ofEpochMilli(Math.max(start, end)));
+  }
+
+  private List<Interval> getSlices(final Interval interval) {
+    final Interval covered = this.extendToSlices(interval);
+    final long numSlices =
+        (covered.getEnd().toEpochMilli() - covered.getStart().toEpochMilli()) / this.sliceSizeMs;
+    if (numSlices > this.maxSlices) {
+      throw new IntervalTooLargeException("Interval covers " + numSlices
+          + " slices, but at most " + this.maxSlices + " are allowed.");
+    }
+    final List<Interval> slices = new ArrayList<>((int) numSlices);
+    for (long start = covered.getStart().toEpochMilli(); start < covered.getEnd()
+        .toEpochMilli(); start += this.sliceSizeMs) {
+      slices.add(Interval.of(
+          Instant.ofEpochMilli(start),
+          Instant.ofEpochMilli(start + this.sliceSizeMs)));
+    }
+    return slices;
+  }
+
+  private List<Object> getTimeUnit(final T record) {
+    final List<Object> timeUnit = new ArrayList<>(this.timeUnitColumns.size());
+    for (final String column : this.timeUnitColumns) {
+      timeUnit.add(getField(record, column));
+    }
+    return timeUnit;
+  }
+
+  private T merge(final List<T> records, final Interval covered) {
+    final PooledStats stats = new PooledStats();
+    for (final T record : records) {
+      stats.add(
+          (Long) getField(record, COUNT_FIELD),
+          (Double) getField(record, MEAN_FIELD),
+          (Double) getField(record, POPULATION_VARIANCE_FIELD),
+          (Double) getField(record, MIN_FIELD),
+          (Double) getField(record, MAX_FIELD));
+    }
+    final T first = records.get(0);
+    final T merged = SpecificData.get().deepCopy(first.getSchema(), first);
+    putField(merged, this.mapping.getPeriodStartColumn(), covered.getStart().toEpochMilli());
+    putField(merged, this.mapping.getPeriodEndColumn(), covered.getEnd().toEpochMilli());
+    putField(merged, COUNT_FIELD, stats.getCount());
+    putField(merged, MEAN_FIELD, stats.getMean());
+    putField(merged, POPULATION_VARIANCE_FIELD, stats.getPopulationVariance());
+    putField(merged, MIN_FIELD, stats.getMin());
+    putField(merged, MAX_FIELD, stats.getMax());
+    return merged;
+  }
+
+  private static Object getField(final SpecificRecord record, final String name) {
+    return record.get(record.getSchema().getField(name).pos());
+  }
+
+  private static void putField(final SpecificRecord record, final String name,
+      final Object value) {
+    record.put(record.getSchema().getField(name).pos(), value);
+  }
+
+}
@@ -0,0 +1,116 @@
+package titan.ccp.stats.api;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.common.kafka.avro.SchemaRegistryAvroSerdeFactory;
+
+/**
+ * Consumes the output topics of the statistics and passes each record to a
+ * {@link StatsUpdateListener}, for example, to publish it as live statistics or to invalidate
+ * pre-rendered responses. As records are written to the topics only after they are written to
+ * Cassandra, the listener is notified after updates have reached the repositories, except for
+ * writes buffered while catching up (see {@code catchup.write.parallelism}). Every instance
+ * consumes all partitions starting at their end without joining a consumer group, so that each API
+ * instance is notified about updates of all sensors. Partitions added after the start are not
+ * consumed.
+ */
+public class StatsUpdateConsumer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatsUpdateConsumer.class);
+
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+  private final KafkaConsumer<String, SpecificRecord> consumer;
+  private final Map<String, String> statsByTopic;
+  private final StatsUpdateListener listener;
+  private final Thread thread = new Thread(this::run, "stats-update-consumer");
+  private volatile boolean running = true; // NOPMD
+
+  /**
+   * Create a new {@link StatsUpdateConsumer}.
+   *
+   * @param bootstrapServers Kafka bootstrap servers.
+   * @param schemaRegistryUrl URL of the schema registry of the records' Avro schemas.
+   * @param statsByTopic Name of the statistics (e.g., {@code hour-of-day}) per output topic.
+   * @param listener Listener to pass the records to.
+   */
+  public StatsUpdateConsumer(final String bootstrapServers, final String schemaRegistryUrl,
+      final Map<String, String> statsByTopic, final StatsUpdateListener listener) {
+    final Properties properties = new Properties();
+    properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+    final Serde<SpecificRecord> valueSerde =
+        new SchemaRegistryAvroSerdeFactory(schemaRegistryUrl).forValues();
+    this.consumer =
+        new KafkaConsumer<>(properties, new StringDeserializer(), valueSerde.deserializer());
+    this.statsByTopic = Map.copyOf(statsByTopic);
+    this.listener = listener;
+  }
+
+  /**
+   * Start consuming in a separate thread.
+   */
+  public void start() {
+    this.thread.start();
+  }
+
+  /**
+   * Stop consuming and wait for the consuming thread to terminate.
+   */
+  public void stop() throws InterruptedException {
+    this.running = false;
+    this.consumer.wakeup();
+    this.thread.join();
+  }
+
+  private void run() {
+    try {
+      final List<TopicPartition> partitions = new ArrayList<>();
+      for (final String topic : this.statsByTopic.keySet()) {
+        final List<PartitionInfo> partitionInfos = this.consumer.partitionsFor(topic);
+        if (partitionInfos != null) {
+          for (final PartitionInfo partitionInfo : partitionInfos) {
+            partitions.add(new TopicPartition(topic, partitionInfo.partition()));
+          }
+        }
+      }
+      LOGGER.info("Consume {} partitions of statistics topics {} for statistics updates.",
+          partitions.size(), this.statsByTopic.keySet());
+      this.consumer.assign(partitions);
+      this.consumer.seekToEnd(partitions);
+      while (this.running) {
+        for (final ConsumerRecord<String, SpecificRecord> record : this.consumer.poll(
+            POLL_TIMEOUT)) {
+          if (record.key() != null && record.value() != null) {
+            this.listener.onUpdate(
+                this.statsByTopic.get(record.topic()),
+                record.key(),
+                record.value());
+          }
+        }
+      }
+    } catch (final WakeupException e) {
+      LOGGER.info("Stopped consuming statistics updates.");
+    } catch (final RuntimeException e) { // NOPMD log failure of background thread
+      LOGGER.error("Consuming statistics updates failed.", e);
+    } finally {
+      this.consumer.close();
+    }
+  }
+
+}
@@ -0,0 +1,17 @@
+package titan.ccp.stats.api;
+
+import org.apache.avro.specific.SpecificRecord;
+
+/**
+ * Listener for updated statistics records of sensors, which are already written to the
+ * repositories.
+ */
+@FunctionalInterface
+public interface StatsUpdateListener {
+
+  /**
+   * Handle an updated record of the passed statistics (e.g., {@code hour-of-day}) and sensor.
+   */
+  void onUpdate(String stat, String sensorId, SpecificRecord record);
+
+}
@@ -1,11 +1,14 @@
 package titan.ccp.stats.api;
 
 import com.datastax.driver.core.Row;
+import java.util.List;
 import java.util.function.Function;
 import org.apache.avro.specific.SpecificRecord;
 
 /**
- * Represents the mapping of Cassandra table rows to Avro records.
+ * Represents the mapping of Cassandra table rows to Avro records. Usually, each row is mapped to
+ * one record. Mappings created with {@link #expanding(String, Function)} map each row to several
+ * records, e.g., for tables storing statistics in the packed layout.
  *
  * @param <T> The Avro record to be mapped from a Cassandra table.
  */
@@ -20,6 +23,7 @@ public class TableRecordMapping<T extends SpecificRecord> {
   private final String periodStartColumn;
   private final String periodEndColumn;
   private final Function<Row, T> mapper;
+  private final Function<Row, List<T>> rowMapper;
 
   /**
    * Create a new {@link TableRecordMapping}.
@@ -30,11 +34,28 @@ public class TableRecordMapping<T extends SpecificRecord> {
       final String periodStartColumn,
       final String periodEndColumn,
       final Function<Row, T> mapper) {
+    this(
+        tableName,
+        identifierColumn,
+        periodStartColumn,
+        periodEndColumn,
+        mapper,
+        row -> List.of(mapper.apply(row)));
+  }
+
+  private TableRecordMapping(
+      final String tableName,
+      final String identifierColumn,
+      final String periodStartColumn,
+      final String periodEndColumn,
+      final Function<Row, T> mapper,
+      final Function<Row, List<T>> rowMapper) {
     this.tableName = tableName;
     this.identifierColumn = identifierColumn;
     this.periodStartColumn = periodStartColumn;
     this.periodEndColumn = periodEndColumn;
     this.mapper = mapper;
+    this.rowMapper = rowMapper;
   }
 
   /**
@@ -66,10 +87,36 @@ public class TableRecordMapping<T extends SpecificRecord> {
     return this.periodEndColumn;
   }
 
+  /**
+   * Returns the mapper of a row to a single record or null if rows are mapped to several records
+   * (see {@link #getRowMapper()}).
+   */
   public Function<Row, T> getMapper() {
     return this.mapper;
   }
 
+  /**
+   * Returns the mapper of a row to all records it contains.
+   */
+  public Function<Row, List<T>> getRowMapper() {
+    return this.rowMapper;
+  }
+
+  /**
+   * Create a new {@link TableRecordMapping} with default values for the 'identifier', 'periodStart'
+   * and 'periodEnd' column names, which maps each row to several records.
+   */
+  public static <T extends SpecificRecord> TableRecordMapping<T> expanding(final String tableName,
+      final Function<Row, List<T>> rowMapper) {
+    return new TableRecordMapping<>(
+        tableName,
+        DEFAULT_IDENTIFIER_COLUMN,
+        DEFAULT_PERIOD_START_COLUMN,
+        DEFAULT_PERIOD_END_COLUMN,
+        null,
+        rowMapper);
+  }
+
 
 
 }
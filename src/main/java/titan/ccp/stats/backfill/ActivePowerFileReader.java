@@ -0,0 +1,105 @@
+package titan.ccp.stats.backfill;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.specific.SpecificDatumReader;
+import titan.ccp.model.records.ActivePowerRecord;
+
+/**
+ * Reads historical {@link ActivePowerRecord}s from local files. Supported are Avro container files
+ * ({@code .avro}) of {@link ActivePowerRecord}s and CSV files ({@code .csv}) with the columns
+ * identifier, timestamp (epoch milliseconds) and value in W, optionally preceded by a header line.
+ */
+public final class ActivePowerFileReader {
+
+  private static final String CSV_EXTENSION = ".csv";
+  private static final String AVRO_EXTENSION = ".avro";
+  private static final char CSV_SEPARATOR = ',';
+
+  private ActivePowerFileReader() {}
+
+  /**
+   * Returns whether the passed file has a supported file type.
+   */
+  public static boolean isSupported(final Path file) {
+    final String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    return fileName.endsWith(CSV_EXTENSION) || fileName.endsWith(AVRO_EXTENSION);
+  }
+
+  /**
+   * Pass all records of the passed file to the passed consumer.
+   */
+  public static void read(final Path file, final Consumer<ActivePowerRecord> consumer)
+      throws IOException {
+    final String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (fileName.endsWith(CSV_EXTENSION)) {
+      readCsv(file, consumer);
+    } else if (fileName.endsWith(AVRO_EXTENSION)) {
+      readAvro(file, consumer);
+    } else {
+      throw new IllegalArgumentException("Unsupported file type of " + file + '.');
+    }
+  }
+
+  private static void readCsv(final Path file, final Consumer<ActivePowerRecord> consumer)
+      throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      long lineNumber = 0;
+      String line = reader.readLine();
+      while (line != null) {
+        lineNumber++;
+        if (!line.isBlank()) {
+          final ActivePowerRecord record = parseCsvLine(line);
+          if (record != null) {
+            consumer.accept(record);
+          } else if (lineNumber > 1) {
+            throw new IOException("Invalid line " + lineNumber + " in " + file + ": " + line);
+          }
+        }
+        line = reader.readLine();
+      }
+    }
+  }
+
+  /**
+   * Parse a CSV line or return null if it is not a valid record (e.g., a header line).
+   */
+  private static ActivePowerRecord parseCsvLine(final String line) {
+    final int firstSeparator = line.indexOf(CSV_SEPARATOR);
+    final int secondSeparator = line.indexOf(CSV_SEPARATOR, firstSeparator + 1);
+    if (firstSeparator < 0 || secondSeparator < 0) {
+      return null;
+    }
+    try {
+      return new ActivePowerRecord(
+          line.substring(0, firstSeparator).trim(),
+          Long.parseLong(line.substring(firstSeparator + 1, secondSeparator).trim()),
+          Double.parseDouble(line.substring(secondSeparator + 1).trim()));
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static void readAvro(final Path file, final Consumer<ActivePowerRecord> consumer)
+      throws IOException {
+    final DatumReader<ActivePowerRecord> datumReader =
+        new SpecificDatumReader<>(ActivePowerRecord.class);
+    try (DataFileReader<ActivePowerRecord> fileReader =
+        new DataFileReader<>(file.toFile(), datumReader)) {
+      ActivePowerRecord record = null;
+      while (fileReader.hasNext()) {
+        // Reuse record instances, consumers must not keep references
+        record = fileReader.next(record);
+        consumer.accept(record);
+      }
+    }
+  }
+
+}
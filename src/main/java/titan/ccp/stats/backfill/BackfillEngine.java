@@ -0,0 +1,219 @@
+package titan.ccp.stats.backfill;
+
+import com.google.common.math.StatsAccumulator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Window;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.model.records.ActivePowerRecord;
+import titan.ccp.stats.streamprocessing.QuantileSketch;
+import titan.ccp.stats.streamprocessing.StatsComponents;
+import titan.ccp.stats.streamprocessing.StatsDefinition;
+
+/**
+ * Computes time window based statistics from historical {@link ActivePowerRecord}s in batch mode,
+ * using the same time windows, keys and records as the stream processing.
+ *
+ * <p>
+ * Records are first aggregated per key and time slice, where slices are aligned such that no
+ * window boundary splits a slice. Afterwards, the statistics of each window are merged from its
+ * slices. Files are read in parallel and windows are computed in parallel per key, both in a
+ * {@link ForkJoinPool}.
+ * </p>
+ */
+public class BackfillEngine {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BackfillEngine.class);
+
+  private final List<StatsDefinition> statsDefinitions;
+  private final ZoneId zone;
+  private final int parallelism;
+  private Supplier<QuantileSketch> sketchFactory = () -> null; // NOPMD
+
+  /**
+   * Create a new {@link BackfillEngine}.
+   *
+   * @param statsDefinitions The statistics to compute.
+   * @param zone The time zone in which timestamps are assigned to time units.
+   * @param parallelism The number of threads to use.
+   */
+  public BackfillEngine(final List<StatsDefinition> statsDefinitions, final ZoneId zone,
+      final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be greater 0.");
+    }
+    this.statsDefinitions = List.copyOf(statsDefinitions);
+    this.zone = zone;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Enable approximated percentiles, computed with {@link QuantileSketch}es of the passed relative
+   * accuracy and maximal number of bins.
+   */
+  public void enablePercentiles(final double relativeAccuracy, final int maxBins) {
+    // Check parameters eagerly instead of on the first record
+    new QuantileSketch(relativeAccuracy, maxBins);
+    this.sketchFactory = () -> new QuantileSketch(relativeAccuracy, maxBins);
+  }
+
+  /**
+   * Compute the statistics of all records in the passed files and write them to the passed
+   * {@link StatsSink}.
+   *
+   * @return The number of written statistics records.
+   */
+  public long run(final List<Path> files, final StatsSink sink)
+      throws IOException, InterruptedException {
+    final List<SliceAggregation<?, ?>> aggregations = this.statsDefinitions.stream()
+        .map(statsDefinition -> createAggregation(
+            StatsComponents.forType(statsDefinition.getType()),
+            statsDefinition.toTimeWindows(),
+            this.sketchFactory))
+        .collect(Collectors.toList());
+    for (final SliceAggregation<?, ?> aggregation : aggregations) {
+      sink.register(aggregation.components.getRecordDatabaseAdapter());
+    }
+
+    final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+    try {
+      final LongAdder readRecords = new LongAdder();
+      final long readStart = System.nanoTime();
+      pool.submit(() -> files.parallelStream()
+          .forEach(file -> this.readFile(file, aggregations, readRecords)))
+          .get();
+      LOGGER.info("Read {} records from {} files in {} ms.",
+          readRecords.sum(), files.size(), (System.nanoTime() - readStart) / 1_000_000); // NOCS
+
+      final LongAdder writtenRecords = new LongAdder();
+      final long writeStart = System.nanoTime();
+      for (final SliceAggregation<?, ?> aggregation : aggregations) {
+        pool.submit(() -> aggregation.writeWindows(sink, writtenRecords)).get();
+      }
+      LOGGER.info("Wrote {} statistics records in {} ms.",
+          writtenRecords.sum(), (System.nanoTime() - writeStart) / 1_000_000); // NOCS
+      return writtenRecords.sum();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause(); // NOPMD
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause(); // NOPMD
+      }
+      throw new IllegalStateException("Backfill failed.", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void readFile(final Path file, final List<SliceAggregation<?, ?>> aggregations,
+      final LongAdder readRecords) {
+    try {
+      ActivePowerFileReader.read(file, record -> {
+        final long timestamp = record.getTimestamp();
+        final LocalDateTime dateTime =
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), this.zone);
+        for (final SliceAggregation<?, ?> aggregation : aggregations) {
+          aggregation.add(record.getIdentifier(), dateTime, timestamp, record.getValueInW());
+        }
+        readRecords.increment();
+      });
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    LOGGER.debug("Read file {}.", file);
+  }
+
+  private static <K, R extends SpecificRecord> SliceAggregation<K, R> createAggregation(
+      final StatsComponents<K, R> components,
+      final TimeWindows timeWindows,
+      final Supplier<QuantileSketch> sketchFactory) {
+    return new SliceAggregation<>(components, timeWindows, sketchFactory);
+  }
+
+  /**
+   * Aggregation of the slices of a single statistics type.
+   */
+  private static final class SliceAggregation<K, R extends SpecificRecord> {
+
+    private final StatsComponents<K, R> components;
+    private final TimeWindows timeWindows;
+    private final long sliceMs;
+    private final Supplier<QuantileSketch> sketchFactory;
+    private final ConcurrentMap<K, ConcurrentNavigableMap<Long, SliceStatistics>> slices =
+        new ConcurrentHashMap<>();
+
+    private SliceAggregation(final StatsComponents<K, R> components,
+        final TimeWindows timeWindows, final Supplier<QuantileSketch> sketchFactory) {
+      this.components = components;
+      this.timeWindows = timeWindows;
+      // Window starts are multiples of the advance, window ends are starts plus the size
+      this.sliceMs = gcd(timeWindows.size(), timeWindows.advanceMs);
+      this.sketchFactory = sketchFactory;
+    }
+
+    private void add(final String sensorId, final LocalDateTime dateTime, final long timestamp,
+        final double valueInW) {
+      final K key = this.components.getKeyFactory().createKey(sensorId, dateTime);
+      final long sliceStart = timestamp - Math.floorMod(timestamp, this.sliceMs);
+      this.slices
+          .computeIfAbsent(key, k -> new ConcurrentSkipListMap<>())
+          .computeIfAbsent(sliceStart, s -> new SliceStatistics(this.sketchFactory.get()))
+          .add(valueInW);
+    }
+
+    private void writeWindows(final StatsSink sink, final LongAdder writtenRecords) {
+      this.slices.entrySet().parallelStream().forEach(
+          entry -> this.writeWindows(entry.getKey(), entry.getValue(), sink, writtenRecords));
+    }
+
+    private void writeWindows(final K key, final NavigableMap<Long, SliceStatistics> keySlices,
+        final StatsSink sink, final LongAdder writtenRecords) {
+      final NavigableMap<Long, Window> windows = new TreeMap<>();
+      for (final long sliceStart : keySlices.keySet()) {
+        windows.putAll(this.timeWindows.windowsFor(sliceStart));
+      }
+      for (final Map.Entry<Long, Window> window : windows.entrySet()) {
+        final StatsAccumulator statsAccumulator = new StatsAccumulator();
+        final QuantileSketch sketch = this.sketchFactory.get();
+        for (final SliceStatistics slice : keySlices
+            .subMap(window.getValue().start(), window.getValue().end())
+            .values()) {
+          slice.mergeInto(statsAccumulator, sketch);
+        }
+        final R record = this.components.getRecordFactory().create(
+            new Windowed<>(key, window.getValue()),
+            statsAccumulator.snapshot());
+        sink.write(this.components.getRecordDatabaseAdapter(), record, sketch);
+        writtenRecords.increment();
+      }
+    }
+
+    private static long gcd(final long a, final long b) {
+      return b == 0 ? a : gcd(b, a % b);
+    }
+
+  }
+
+}
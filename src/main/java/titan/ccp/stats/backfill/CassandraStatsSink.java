@@ -0,0 +1,47 @@
+package titan.ccp.stats.backfill;
+
+import com.datastax.driver.core.Session;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.streamprocessing.CassandraStatsStorage;
+import titan.ccp.stats.streamprocessing.QuantileSketch;
+import titan.ccp.stats.streamprocessing.RecordDatabaseAdapter;
+
+/**
+ * {@link StatsSink} writing to Cassandra the same way as the stream processing does.
+ */
+public class CassandraStatsSink implements StatsSink {
+
+  private final CassandraStatsStorage statsStorage;
+
+  public CassandraStatsSink(final Session cassandraSession) {
+    this(cassandraSession, false);
+  }
+
+  /**
+   * Create a new {@link CassandraStatsSink}, which stores statistics in the packed layout if
+   * {@code packedLayout} is true.
+   */
+  public CassandraStatsSink(final Session cassandraSession, final boolean packedLayout) {
+    this.statsStorage = new CassandraStatsStorage(cassandraSession);
+    if (packedLayout) {
+      this.statsStorage.enablePackedLayout();
+    }
+  }
+
+  @Override
+  public void register(final RecordDatabaseAdapter<?> recordDatabaseAdapter) {
+    this.statsStorage.register(recordDatabaseAdapter);
+  }
+
+  @Override
+  public <R extends SpecificRecord> void write(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R record,
+      final QuantileSketch sketch) {
+    this.statsStorage.writeStats(record);
+    if (sketch != null) {
+      this.statsStorage.writePercentiles(recordDatabaseAdapter, record, sketch);
+    }
+  }
+
+}
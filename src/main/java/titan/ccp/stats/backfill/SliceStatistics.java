@@ -0,0 +1,42 @@
+package titan.ccp.stats.backfill;
+
+import com.google.common.math.StatsAccumulator;
+import titan.ccp.stats.streamprocessing.QuantileSketch;
+
+/**
+ * Statistics of the values of a key within a time slice. Slices are the largest time intervals,
+ * which are not split by any window boundary, so that the statistics of a window can be merged
+ * from the statistics of its slices.
+ */
+final class SliceStatistics {
+
+  private final StatsAccumulator stats = new StatsAccumulator();
+  private final QuantileSketch sketch;
+
+  /**
+   * Create new {@link SliceStatistics} with a {@link QuantileSketch}, which may be null if no
+   * percentiles should be computed.
+   */
+  SliceStatistics(final QuantileSketch sketch) {
+    this.sketch = sketch;
+  }
+
+  synchronized void add(final double value) {
+    this.stats.add(value);
+    if (this.sketch != null) {
+      this.sketch.add(value);
+    }
+  }
+
+  /**
+   * Merge these slice statistics into the passed accumulator and sketch, which may be null.
+   */
+  synchronized void mergeInto(final StatsAccumulator statsAccumulator,
+      final QuantileSketch sketchAccumulator) {
+    statsAccumulator.addAll(this.stats.snapshot());
+    if (sketchAccumulator != null && this.sketch != null) {
+      sketchAccumulator.merge(this.sketch);
+    }
+  }
+
+}
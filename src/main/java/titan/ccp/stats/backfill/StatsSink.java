@@ -0,0 +1,27 @@
+package titan.ccp.stats.backfill;
+
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.streamprocessing.QuantileSketch;
+import titan.ccp.stats.streamprocessing.RecordDatabaseAdapter;
+
+/**
+ * Destination of the statistics records computed by the {@link BackfillEngine}. Implementations
+ * have to be thread-safe.
+ */
+public interface StatsSink {
+
+  /**
+   * Register the record type of the passed {@link RecordDatabaseAdapter} before records of that
+   * type are written.
+   */
+  void register(RecordDatabaseAdapter<?> recordDatabaseAdapter);
+
+  /**
+   * Write a statistics record and, if not null, the percentiles of its {@link QuantileSketch}.
+   */
+  <R extends SpecificRecord> void write(
+      RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      R record,
+      QuantileSketch sketch);
+
+}
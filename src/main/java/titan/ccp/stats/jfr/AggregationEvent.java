@@ -0,0 +1,48 @@
+package titan.ccp.stats.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic event summarizing the window aggregation updates of a statistics since the previous
+ * event. It is emitted by {@link AggregationRecorder}.
+ */
+@Name(AggregationEvent.NAME)
+@Label("Window Aggregation")
+@Description("Window aggregation updates of a statistics since the previous event")
+@Category({"Titan CCP", "Stats"})
+@Period("10 s")
+@StackTrace(false)
+public class AggregationEvent extends Event {
+
+  public static final String NAME = "titan.ccp.stats.Aggregation";
+
+  @Label("Statistics")
+  private String stat;
+
+  @Label("Updates")
+  @Description("Number of records aggregated")
+  private long updates;
+
+  @Label("Distinct Keys")
+  @Description("Number of distinct statistics keys updated")
+  private long distinctKeys;
+
+  public void setStat(final String stat) {
+    this.stat = stat;
+  }
+
+  public void setUpdates(final long updates) {
+    this.updates = updates;
+  }
+
+  public void setDistinctKeys(final long distinctKeys) {
+    this.distinctKeys = distinctKeys;
+  }
+
+}
@@ -0,0 +1,67 @@
+package titan.ccp.stats.jfr;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Records window aggregation updates of a single statistics, which are periodically emitted as
+ * {@link AggregationEvent}s. If no recording with this event is running, recording an update is
+ * a single check of a flag.
+ */
+public final class AggregationRecorder {
+
+  private static final EventType EVENT_TYPE = EventType.getEventType(AggregationEvent.class);
+  private static final List<AggregationRecorder> RECORDERS = new CopyOnWriteArrayList<>();
+
+  static {
+    FlightRecorder.addPeriodicEvent(AggregationEvent.class, AggregationRecorder::emitAll);
+  }
+
+  private final String stat;
+  private final LongAdder updates = new LongAdder();
+  private final Set<Object> keys = ConcurrentHashMap.newKeySet();
+
+  private AggregationRecorder(final String stat) {
+    this.stat = stat;
+  }
+
+  /**
+   * Record an update of the passed key.
+   */
+  public void record(final Object key) {
+    if (EVENT_TYPE.isEnabled()) {
+      this.updates.increment();
+      this.keys.add(key);
+    }
+  }
+
+  private void emit() {
+    final AggregationEvent event = new AggregationEvent();
+    event.setStat(this.stat);
+    event.setUpdates(this.updates.sumThenReset());
+    event.setDistinctKeys(this.keys.size());
+    this.keys.clear();
+    event.commit();
+  }
+
+  /**
+   * Create a new {@link AggregationRecorder} for the statistics of the passed name.
+   */
+  public static AggregationRecorder create(final String stat) {
+    final AggregationRecorder recorder = new AggregationRecorder(stat);
+    RECORDERS.add(recorder);
+    return recorder;
+  }
+
+  private static void emitAll() {
+    for (final AggregationRecorder recorder : RECORDERS) {
+      recorder.emit();
+    }
+  }
+
+}
@@ -0,0 +1,44 @@
+package titan.ccp.stats.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for a write of statistics to Cassandra.
+ */
+@Name(CassandraWriteEvent.NAME)
+@Label("Cassandra Write")
+@Description("Write of a statistics record to Cassandra")
+@Category({"Titan CCP", "Stats"})
+@StackTrace(false)
+public class CassandraWriteEvent extends Event {
+
+  public static final String NAME = "titan.ccp.stats.CassandraWrite";
+
+  @Label("Statistics")
+  private String stat;
+
+  @Label("Table")
+  private String table;
+
+  @Label("Records")
+  @Description("Number of records written")
+  private int records;
+
+  public void setStat(final String stat) {
+    this.stat = stat;
+  }
+
+  public void setTable(final String table) {
+    this.table = table;
+  }
+
+  public void setRecords(final int records) {
+    this.records = records;
+  }
+
+}
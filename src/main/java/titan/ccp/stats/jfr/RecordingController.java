@@ -0,0 +1,107 @@
+package titan.ccp.stats.jfr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts and stops a continuous JDK Flight Recorder recording at runtime, which includes the
+ * custom events of this service. Recordings can also be controlled externally, for example, with
+ * {@code jcmd <pid> JFR.start}, as the custom events are enabled by default.
+ */
+public class RecordingController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecordingController.class);
+
+  private static final String RECORDING_NAME = "titan-ccp-stats";
+  private static final List<String> EVENT_NAMES = List.of(
+      AggregationEvent.NAME,
+      CassandraWriteEvent.NAME,
+      RepositoryQueryEvent.NAME,
+      RestRequestEvent.NAME);
+
+  private final String configurationName;
+  private final Duration maxAge;
+  private final Path dumpDirectory;
+  private Recording recording;
+
+  /**
+   * Create a new {@link RecordingController}.
+   *
+   * @param configurationName name of the JFR configuration for JDK events, e.g., "default" or
+   *        "profile"
+   * @param maxAge maximal age of the data kept by the recording
+   * @param dumpDirectory directory to which recordings are dumped
+   */
+  public RecordingController(final String configurationName, final Duration maxAge,
+      final Path dumpDirectory) {
+    this.configurationName = configurationName;
+    this.maxAge = maxAge;
+    this.dumpDirectory = dumpDirectory;
+  }
+
+  /**
+   * Start the recording if not already running.
+   */
+  public synchronized void start() {
+    if (this.isRunning()) {
+      return;
+    }
+    final Recording newRecording = new Recording(this.loadConfiguration());
+    newRecording.setName(RECORDING_NAME);
+    newRecording.setToDisk(true);
+    newRecording.setMaxAge(this.maxAge);
+    for (final String eventName : EVENT_NAMES) {
+      newRecording.enable(eventName);
+    }
+    newRecording.start();
+    this.recording = newRecording;
+    LOGGER.info("Started flight recording.");
+  }
+
+  /**
+   * Stop the recording if running and dump it to a file in the dump directory.
+   *
+   * @return the path of the dumped recording or null if no recording was running
+   */
+  public synchronized Path stop() {
+    if (!this.isRunning()) {
+      return null;
+    }
+    final Path file = this.dumpDirectory.resolve(
+        RECORDING_NAME + '-' + Instant.now().toEpochMilli() + ".jfr");
+    try {
+      this.recording.dump(file);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      this.recording.close();
+      this.recording = null; // NOPMD
+    }
+    LOGGER.info("Stopped flight recording and dumped it to {}.", file);
+    return file;
+  }
+
+  public synchronized boolean isRunning() {
+    return this.recording != null && this.recording.getState() == RecordingState.RUNNING;
+  }
+
+  private Configuration loadConfiguration() {
+    try {
+      return Configuration.getConfiguration(this.configurationName);
+    } catch (final IOException | ParseException e) {
+      throw new IllegalArgumentException(
+          "Flight recorder configuration " + this.configurationName + " cannot be loaded.", e);
+    }
+  }
+
+}
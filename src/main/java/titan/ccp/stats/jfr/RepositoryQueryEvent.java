@@ -0,0 +1,44 @@
+package titan.ccp.stats.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for a query of a repository to Cassandra.
+ */
+@Name(RepositoryQueryEvent.NAME)
+@Label("Repository Query")
+@Description("Query of a statistics repository to Cassandra")
+@Category({"Titan CCP", "Stats"})
+@StackTrace(false)
+public class RepositoryQueryEvent extends Event {
+
+  public static final String NAME = "titan.ccp.stats.RepositoryQuery";
+
+  @Label("Table")
+  private String table;
+
+  @Label("Rows")
+  @Description("Number of rows returned")
+  private int rows;
+
+  @Label("Failed")
+  private boolean failed;
+
+  public void setTable(final String table) {
+    this.table = table;
+  }
+
+  public void setRows(final int rows) {
+    this.rows = rows;
+  }
+
+  public void setFailed(final boolean failed) {
+    this.failed = failed;
+  }
+
+}
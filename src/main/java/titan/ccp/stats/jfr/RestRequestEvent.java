@@ -0,0 +1,43 @@
+package titan.ccp.stats.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the handling of a request to the REST API.
+ */
+@Name(RestRequestEvent.NAME)
+@Label("REST Request")
+@Description("Handling of a request to the REST API")
+@Category({"Titan CCP", "Stats"})
+@StackTrace(false)
+public class RestRequestEvent extends Event {
+
+  public static final String NAME = "titan.ccp.stats.RestRequest";
+
+  @Label("Method")
+  private String method;
+
+  @Label("Route")
+  private String route;
+
+  @Label("Status")
+  private int status;
+
+  public void setMethod(final String method) {
+    this.method = method;
+  }
+
+  public void setRoute(final String route) {
+    this.route = route;
+  }
+
+  public void setStatus(final int status) {
+    this.status = status;
+  }
+
+}
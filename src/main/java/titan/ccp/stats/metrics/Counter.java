@@ -0,0 +1,38 @@
+package titan.ccp.stats.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing counter. Updates are lock-free and scale with contention, such that a
+ * counter can be updated on the hot path by multiple threads.
+ */
+public final class Counter implements PrometheusMetric {
+
+  private final LongAdder value = new LongAdder();
+
+  Counter() {}
+
+  public void increment() {
+    this.value.increment();
+  }
+
+  /**
+   * Increment this counter by the passed non-negative amount.
+   */
+  public void add(final long amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("Counters can only be increased.");
+    }
+    this.value.add(amount);
+  }
+
+  public long get() {
+    return this.value.sum();
+  }
+
+  @Override
+  public void write(final String name, final String labels, final StringBuilder out) {
+    PrometheusFormat.writeSample(out, name, labels, this.get());
+  }
+
+}
@@ -0,0 +1,142 @@
+package titan.ccp.stats.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of long values with fixed bucket bounds. Recording a value is lock-free: it performs
+ * a binary search for the bucket and increments a {@link LongAdder}, such that a histogram can be
+ * updated on the hot path by multiple threads.
+ *
+ * <p>
+ * Values are recorded in an integral unit (e.g., nanoseconds) and exported in the base unit (e.g.,
+ * seconds) by multiplying them with a scale factor.
+ * </p>
+ */
+public final class Histogram implements PrometheusMetric {
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+
+  private static final long[] DURATION_BOUNDS_NANOS = {
+      10_000, 25_000, 50_000, // NOCS
+      100_000, 250_000, 500_000, // NOCS
+      1_000_000, 2_500_000, 5_000_000, // NOCS
+      10_000_000, 25_000_000, 50_000_000, // NOCS
+      100_000_000, 250_000_000, 500_000_000, // NOCS
+      1_000_000_000, 2_500_000_000L, 5_000_000_000L, // NOCS
+      10_000_000_000L, // NOCS
+  };
+
+  private static final long[] EVENT_TIME_BOUNDS_MILLIS = {
+      10, 25, 50, // NOCS
+      100, 250, 500, // NOCS
+      1_000, 2_500, 5_000, // NOCS
+      10_000, 30_000, // NOCS
+      60_000, 300_000, 900_000, // NOCS
+      3_600_000, 21_600_000, 86_400_000, // NOCS
+  };
+
+  private final long[] upperBounds;
+  private final double scale;
+  private final LongAdder[] buckets;
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * Create a new {@link Histogram} with the passed inclusive, strictly increasing upper bounds of
+   * its buckets. An additional bucket holds all values greater than the last bound.
+   */
+  Histogram(final long[] upperBounds, final double scale) {
+    for (int i = 1; i < upperBounds.length; i++) {
+      if (upperBounds[i] <= upperBounds[i - 1]) {
+        throw new IllegalArgumentException("Bucket bounds must be strictly increasing.");
+      }
+    }
+    this.upperBounds = upperBounds.clone();
+    this.scale = scale;
+    this.buckets = new LongAdder[upperBounds.length + 1];
+    for (int i = 0; i < this.buckets.length; i++) {
+      this.buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record a value.
+   */
+  public void record(final long value) {
+    final int index = Arrays.binarySearch(this.upperBounds, value);
+    this.buckets[index >= 0 ? index : -index - 1].increment();
+    this.sum.add(value);
+  }
+
+  /**
+   * Record the duration since the passed start time, as obtained by {@link System#nanoTime()}.
+   * Only meaningful for histograms created by {@link #durations()}.
+   */
+  public void recordNanosSince(final long startNanos) {
+    this.record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns a {@link HistogramSnapshot} of the values recorded so far, in the exported unit.
+   */
+  public HistogramSnapshot snapshot() {
+    final double[] scaledBounds = new double[this.upperBounds.length];
+    for (int i = 0; i < scaledBounds.length; i++) {
+      scaledBounds[i] = this.upperBounds[i] * this.scale;
+    }
+    final long[] counts = new long[this.buckets.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = this.buckets[i].sum();
+    }
+    return new HistogramSnapshot(scaledBounds, counts);
+  }
+
+  /**
+   * Returns the number of recorded values.
+   */
+  public long getCount() {
+    long count = 0;
+    for (final LongAdder bucket : this.buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public void write(final String name, final String labels, final StringBuilder out) {
+    final String labelPrefix = labels.isEmpty() ? "" : labels + ',';
+    long cumulativeCount = 0;
+    for (int i = 0; i < this.buckets.length; i++) {
+      cumulativeCount += this.buckets[i].sum();
+      final String bound = i < this.upperBounds.length
+          ? PrometheusFormat.formatValue(this.upperBounds[i] * this.scale)
+          : "+Inf";
+      PrometheusFormat.writeSample(
+          out,
+          name + "_bucket",
+          labelPrefix + "le=\"" + bound + '"',
+          cumulativeCount);
+    }
+    PrometheusFormat.writeSample(out, name + "_sum", labels, this.sum.sum() * this.scale);
+    PrometheusFormat.writeSample(out, name + "_count", labels, cumulativeCount);
+  }
+
+  /**
+   * Create a histogram for durations recorded in nanoseconds and exported in seconds, with buckets
+   * from 10 microseconds to 10 seconds.
+   */
+  static Histogram durations() {
+    return new Histogram(DURATION_BOUNDS_NANOS, 1 / NANOS_PER_SECOND);
+  }
+
+  /**
+   * Create a histogram for event time latencies recorded in milliseconds and exported in seconds,
+   * with buckets from 10 milliseconds to one day.
+   */
+  static Histogram eventTimeLatencies() {
+    return new Histogram(EVENT_TIME_BOUNDS_MILLIS, 1 / MILLIS_PER_SECOND);
+  }
+
+}
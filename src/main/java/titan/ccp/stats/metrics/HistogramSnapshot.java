@@ -0,0 +1,61 @@
+package titan.ccp.stats.metrics;
+
+/**
+ * An immutable snapshot of the bucket counts of a {@link Histogram}, which allows to estimate
+ * quantiles, for example, for logging.
+ */
+public final class HistogramSnapshot {
+
+  private final double[] upperBounds;
+  private final long[] counts;
+
+  HistogramSnapshot(final double[] upperBounds, final long[] counts) {
+    this.upperBounds = upperBounds;
+    this.counts = counts;
+  }
+
+  /**
+   * Returns the number of values recorded in this snapshot.
+   */
+  public long getCount() {
+    long count = 0;
+    for (final long bucketCount : this.counts) {
+      count += bucketCount;
+    }
+    return count;
+  }
+
+  /**
+   * Returns a snapshot of the values recorded since the passed, earlier snapshot of the same
+   * {@link Histogram}.
+   */
+  public HistogramSnapshot minus(final HistogramSnapshot earlier) {
+    final long[] difference = new long[this.counts.length];
+    for (int i = 0; i < difference.length; i++) {
+      difference[i] = this.counts[i] - earlier.counts[i];
+    }
+    return new HistogramSnapshot(this.upperBounds, difference);
+  }
+
+  /**
+   * Returns an upper bound for the passed quantile, i.e., the upper bound of the bucket containing
+   * the quantile. Returns positive infinity if the quantile is greater than the largest bound and
+   * NaN if no values are recorded.
+   */
+  public double quantile(final double quantile) {
+    final long count = this.getCount();
+    if (count == 0) {
+      return Double.NaN;
+    }
+    final long rank = (long) Math.ceil(quantile * count);
+    long cumulativeCount = 0;
+    for (int i = 0; i < this.upperBounds.length; i++) {
+      cumulativeCount += this.counts[i];
+      if (cumulativeCount >= rank) {
+        return this.upperBounds[i];
+      }
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+}
@@ -0,0 +1,197 @@
+package titan.ccp.stats.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+
+/**
+ * A registry of metrics, which can be exported in the Prometheus text exposition format.
+ *
+ * <p>
+ * Metrics are identified by their name and labels, which are passed as key-value pairs. Requesting
+ * a metric that is already registered returns the existing one. Callers on the hot path should
+ * nevertheless keep a reference to their metrics instead of looking them up for each update.
+ * </p>
+ */
+public class MetricsRegistry {
+
+  private static final String COUNTER_TYPE = "counter";
+  private static final String GAUGE_TYPE = "gauge";
+  private static final String HISTOGRAM_TYPE = "histogram";
+
+  private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+  private final List<KafkaMetricsSource> kafkaMetricsSources = new CopyOnWriteArrayList<>();
+
+  /**
+   * Get or create a {@link Counter} with the passed name, help text and label key-value pairs.
+   */
+  public Counter counter(final String name, final String help, final String... labels) {
+    return this.getOrCreate(name, help, COUNTER_TYPE, labels, l -> new Counter(), Counter.class);
+  }
+
+  /**
+   * Get or create a {@link Histogram} for durations with the passed name, help text and label
+   * key-value pairs. Durations are recorded in nanoseconds and exported in seconds.
+   */
+  public Histogram durationHistogram(final String name, final String help,
+      final String... labels) {
+    return this.getOrCreate(
+        name,
+        help,
+        HISTOGRAM_TYPE,
+        labels,
+        l -> Histogram.durations(),
+        Histogram.class);
+  }
+
+  /**
+   * Get or create a {@link Histogram} for event time latencies, i.e., the difference between the
+   * wall clock time and the timestamp of a record, with the passed name, help text and label
+   * key-value pairs. Latencies are recorded in milliseconds and exported in seconds.
+   */
+  public Histogram eventTimeLatencyHistogram(final String name, final String help,
+      final String... labels) {
+    return this.getOrCreate(
+        name,
+        help,
+        HISTOGRAM_TYPE,
+        labels,
+        l -> Histogram.eventTimeLatencies(),
+        Histogram.class);
+  }
+
+  /**
+   * Register a gauge with the passed name, help text and label key-value pairs, whose value is
+   * obtained from the passed supplier on each export. A previously registered gauge with the same
+   * name and labels is replaced.
+   */
+  public void gauge(final String name, final String help, final DoubleSupplier supplier,
+      final String... labels) {
+    final PrometheusMetric gauge = (metricName, metricLabels, out) -> PrometheusFormat
+        .writeSample(out, metricName, metricLabels, supplier.getAsDouble());
+    this.getFamily(name, help, GAUGE_TYPE).metrics
+        .put(PrometheusFormat.formatLabels(labels), gauge);
+  }
+
+  /**
+   * Register a source of Kafka client metrics such as {@code KafkaStreams::metrics}. On each
+   * export, all numeric metrics are exported as gauges, named by the passed prefix, the metric's
+   * group and its name. Tags are exported as labels.
+   */
+  public void registerKafkaMetrics(final String prefix,
+      final Supplier<Map<MetricName, ? extends Metric>> metrics) {
+    this.kafkaMetricsSources.add(new KafkaMetricsSource(prefix, metrics));
+  }
+
+  /**
+   * Export all metrics in the Prometheus text exposition format.
+   */
+  public String scrape() {
+    final StringBuilder out = new StringBuilder();
+    for (final Map.Entry<String, Family> entry : this.families.entrySet()) {
+      final Family family = entry.getValue();
+      PrometheusFormat.writeHeader(out, entry.getKey(), family.help, family.type);
+      new TreeMap<>(family.metrics).forEach((labels, metric) -> {
+        metric.write(entry.getKey(), labels, out);
+      });
+    }
+    for (final KafkaMetricsSource source : this.kafkaMetricsSources) {
+      source.write(out);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Returns the content type of the output of {@link #scrape()}.
+   */
+  public String getContentType() {
+    return PrometheusFormat.CONTENT_TYPE;
+  }
+
+  private <T extends PrometheusMetric> T getOrCreate(final String name, final String help,
+      final String type, final String[] labels, final Function<String, T> factory,
+      final Class<T> metricClass) {
+    final PrometheusMetric metric = this.getFamily(name, help, type).metrics
+        .computeIfAbsent(PrometheusFormat.formatLabels(labels), factory);
+    return metricClass.cast(metric);
+  }
+
+  private Family getFamily(final String name, final String help, final String type) {
+    final Family family = this.families.computeIfAbsent(
+        PrometheusFormat.sanitizeName(name),
+        n -> new Family(help, type));
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException(
+          "Metric " + name + " is already registered as " + family.type + '.');
+    }
+    return family;
+  }
+
+  /**
+   * All metrics with the same name, distinguished by their labels.
+   */
+  private static final class Family {
+
+    private final String help;
+    private final String type;
+    private final Map<String, PrometheusMetric> metrics = new ConcurrentHashMap<>();
+
+    private Family(final String help, final String type) {
+      this.help = help;
+      this.type = type;
+    }
+
+  }
+
+  /**
+   * A source of Kafka client metrics, which are read on each export.
+   */
+  private static final class KafkaMetricsSource {
+
+    private final String prefix;
+    private final Supplier<Map<MetricName, ? extends Metric>> metrics;
+
+    private KafkaMetricsSource(final String prefix,
+        final Supplier<Map<MetricName, ? extends Metric>> metrics) {
+      this.prefix = prefix;
+      this.metrics = metrics;
+    }
+
+    private void write(final StringBuilder out) {
+      // Group metrics with the same name but different tags
+      final Map<String, List<String>> samples = new TreeMap<>();
+      final Map<String, String> helps = new TreeMap<>();
+      for (final Map.Entry<MetricName, ? extends Metric> entry : this.metrics.get().entrySet()) {
+        final Object value = entry.getValue().metricValue();
+        if (!(value instanceof Number)) {
+          continue;
+        }
+        final MetricName metricName = entry.getKey();
+        final String name = PrometheusFormat.sanitizeName(
+            this.prefix + '_' + metricName.group() + '_' + metricName.name());
+        final String labels = PrometheusFormat.formatLabels(metricName.tags().entrySet().stream()
+            .flatMap(tag -> List.of(tag.getKey(), tag.getValue()).stream())
+            .toArray(String[]::new));
+        final StringBuilder sample = new StringBuilder();
+        PrometheusFormat.writeSample(sample, name, labels, ((Number) value).doubleValue());
+        samples.computeIfAbsent(name, n -> new ArrayList<>()).add(sample.toString());
+        helps.putIfAbsent(name, metricName.description());
+      }
+      samples.forEach((name, lines) -> {
+        PrometheusFormat.writeHeader(out, name, helps.get(name), GAUGE_TYPE);
+        lines.forEach(out::append);
+      });
+    }
+
+  }
+
+}
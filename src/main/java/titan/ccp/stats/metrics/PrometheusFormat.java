@@ -0,0 +1,87 @@
+package titan.ccp.stats.metrics;
+
+/**
+ * Helper methods for writing the Prometheus text exposition format.
+ */
+final class PrometheusFormat {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private PrometheusFormat() {}
+
+  /**
+   * Replace all characters not allowed in metric and label names by underscores.
+   */
+  public static String sanitizeName(final String name) {
+    final StringBuilder builder = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      final boolean valid = c >= 'a' && c <= 'z'
+          || c >= 'A' && c <= 'Z'
+          || c == '_'
+          || c == ':'
+          || i > 0 && c >= '0' && c <= '9';
+      builder.append(valid ? c : '_');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Render the passed label key-value pairs as a comma-separated list of {@code key="value"}.
+   */
+  public static String formatLabels(final String... keyValuePairs) {
+    if (keyValuePairs.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be passed as key-value pairs.");
+    }
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < keyValuePairs.length; i += 2) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder
+          .append(sanitizeName(keyValuePairs[i]))
+          .append("=\"")
+          .append(escapeLabelValue(keyValuePairs[i + 1]))
+          .append('"');
+    }
+    return builder.toString();
+  }
+
+  public static String formatValue(final double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (value == Double.POSITIVE_INFINITY) {
+      return "+Inf";
+    } else if (value == Double.NEGATIVE_INFINITY) {
+      return "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) { // NOCS
+      return Long.toString((long) value);
+    } else {
+      return Double.toString(value);
+    }
+  }
+
+  public static void writeHeader(final StringBuilder out, final String name, final String help,
+      final String type) {
+    out.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  public static void writeSample(final StringBuilder out, final String name, final String labels,
+      final double value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(formatValue(value)).append('\n');
+  }
+
+  private static String escapeLabelValue(final String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String escapeHelp(final String help) {
+    return help.replace("\\", "\\\\").replace("\n", "\\n");
+  }
+
+}
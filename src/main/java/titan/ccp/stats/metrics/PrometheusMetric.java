@@ -0,0 +1,14 @@
+package titan.ccp.stats.metrics;
+
+/**
+ * A metric that can be written in the Prometheus text exposition format.
+ */
+interface PrometheusMetric {
+
+  /**
+   * Append the samples of this metric with the passed name and labels (rendered as
+   * {@code key="value"} pairs separated by commas, possibly empty) to the passed builder.
+   */
+  void write(String name, String labels, StringBuilder out);
+
+}
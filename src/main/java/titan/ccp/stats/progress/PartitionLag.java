@@ -0,0 +1,47 @@
+package titan.ccp.stats.progress;
+
+/**
+ * The consumer lag of a single topic partition, i.e., the difference between the end offset of the
+ * partition and the offset committed by the Kafka Streams application.
+ */
+public class PartitionLag {
+
+  private final String topic;
+  private final int partition;
+  private final long endOffset;
+  private final long committedOffset;
+  private final long lag;
+
+  /**
+   * Create a new {@link PartitionLag}. The committed offset is -1 if no offset is committed so far.
+   */
+  public PartitionLag(final String topic, final int partition, final long endOffset,
+      final long committedOffset, final long lag) {
+    this.topic = topic;
+    this.partition = partition;
+    this.endOffset = endOffset;
+    this.committedOffset = committedOffset;
+    this.lag = lag;
+  }
+
+  public String getTopic() {
+    return this.topic;
+  }
+
+  public int getPartition() {
+    return this.partition;
+  }
+
+  public long getEndOffset() {
+    return this.endOffset;
+  }
+
+  public long getCommittedOffset() {
+    return this.committedOffset;
+  }
+
+  public long getLag() {
+    return this.lag;
+  }
+
+}
@@ -0,0 +1,77 @@
+package titan.ccp.stats.progress;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The restoration progress of a single partition of a state store.
+ */
+public class RestoreProgress {
+
+  private final String store;
+  private final String topic;
+  private final int partition;
+  private final long totalRecords;
+  private final long startMillis;
+  private final AtomicLong restoredRecords = new AtomicLong();
+  private volatile long durationMillis = -1;
+
+  /**
+   * Create a new {@link RestoreProgress} for a restoration that started now.
+   */
+  public RestoreProgress(final String store, final String topic, final int partition,
+      final long totalRecords) {
+    this.store = store;
+    this.topic = topic;
+    this.partition = partition;
+    this.totalRecords = totalRecords;
+    this.startMillis = System.currentTimeMillis();
+  }
+
+  public String getStore() {
+    return this.store;
+  }
+
+  public String getTopic() {
+    return this.topic;
+  }
+
+  public int getPartition() {
+    return this.partition;
+  }
+
+  public long getTotalRecords() {
+    return this.totalRecords;
+  }
+
+  public long getRestoredRecords() {
+    return this.restoredRecords.get();
+  }
+
+  /**
+   * Returns the number of records, which remain to be restored.
+   */
+  public long getRemainingRecords() {
+    return this.isDone() ? 0 : Math.max(0, this.totalRecords - this.restoredRecords.get());
+  }
+
+  public boolean isDone() {
+    return this.durationMillis >= 0;
+  }
+
+  /**
+   * Returns the duration of the restoration in milliseconds or -1 if it is still in progress.
+   */
+  public long getDurationMillis() {
+    return this.durationMillis;
+  }
+
+  void addRestoredRecords(final long records) {
+    this.restoredRecords.addAndGet(records);
+  }
+
+  void finish(final long totalRestored) {
+    this.restoredRecords.set(totalRestored);
+    this.durationMillis = System.currentTimeMillis() - this.startMillis;
+  }
+
+}
@@ -0,0 +1,484 @@
+package titan.ccp.stats.progress;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.apache.kafka.streams.processor.ThreadMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.metrics.MetricsRegistry;
+
+/**
+ * Tracks the processing progress of the statistics {@link KafkaStreams} application: the consumer
+ * lag of its input topics, the event time watermark per statistics, the restoration of state
+ * stores, the time it took to resume processing after a start or rebalancing, the state of the
+ * stream threads and, optionally, the size of local state stores on disk.
+ *
+ * <p>
+ * The consumer lag is periodically computed in the background from the end offsets of the input
+ * topics and the offsets committed by the application, which both are obtained with Kafka's
+ * {@link Admin} API. State store sizes are computed along with the consumer lag. All other
+ * information is obtained from the {@link KafkaStreams} client when requested.
+ * </p>
+ */
+public class StreamsProgress {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StreamsProgress.class);
+
+  private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(10);
+  private static final String STATE_LABEL = "state";
+  private static final String ROCKSDB_DIRECTORY = "rocksdb";
+
+  private final Duration lagRefreshInterval;
+  private final Map<String, LongSupplier> watermarks = new ConcurrentHashMap<>();
+  private final Map<String, RestoreProgress> restorations = new ConcurrentHashMap<>();
+  private final Set<String> threadStates = ConcurrentHashMap.newKeySet();
+  private final Set<String> stateStores = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private volatile KafkaStreams kafkaStreams;
+  private Admin admin;
+  private String applicationId;
+  private List<String> inputTopics;
+  private MetricsRegistry metricsRegistry;
+  private volatile List<PartitionLag> lags = List.of();
+  private volatile Instant lagsUpdated;
+  private Path stateDirectory;
+  private volatile Map<String, Long> stateStoreSizes = Map.of();
+  private volatile long suspendedSince = System.currentTimeMillis(); // NOPMD
+  private volatile long lastResumeMillis = -1; // NOPMD
+
+  /**
+   * Create a new {@link StreamsProgress}, which refreshes the consumer lag with the passed
+   * interval.
+   */
+  public StreamsProgress(final Duration lagRefreshInterval) {
+    this.lagRefreshInterval = lagRefreshInterval;
+  }
+
+  /**
+   * Register the event time watermark of a statistics, i.e., the maximal timestamp of all records
+   * aggregated so far.
+   */
+  public void addWatermark(final String stat, final LongSupplier watermark) {
+    this.watermarks.put(stat, watermark);
+    if (this.metricsRegistry != null) {
+      this.registerWatermarkMetric(stat, watermark);
+    }
+  }
+
+  /**
+   * Export progress information as metrics in the passed {@link MetricsRegistry}. Must be called
+   * before binding.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+    this.watermarks.forEach(this::registerWatermarkMetric);
+    metricsRegistry.gauge(
+        "stats_consumer_lag_total",
+        "Sum of the consumer lag of all input topic partitions.",
+        this::getTotalLag);
+    metricsRegistry.gauge(
+        "stats_restore_remaining_records",
+        "Number of records that remain to be restored to state stores.",
+        () -> this.restorations.values().stream()
+            .mapToLong(RestoreProgress::getRemainingRecords)
+            .sum());
+    metricsRegistry.gauge(
+        "stats_last_resume_seconds",
+        "Duration from start or rebalancing until processing was resumed the last time.",
+        () -> this.lastResumeMillis < 0 ? Double.NaN : this.lastResumeMillis / 1000.0); // NOCS
+    for (final KafkaStreams.State state : KafkaStreams.State.values()) {
+      metricsRegistry.gauge(
+          "stats_streams_state",
+          "Whether the Kafka Streams client is in the labeled state.",
+          () -> this.kafkaStreams != null && this.kafkaStreams.state() == state ? 1 : 0,
+          STATE_LABEL, state.name());
+    }
+  }
+
+  /**
+   * Report the size on disk of the application's local state stores in the passed Kafka Streams
+   * state directory (state.dir), summed up over all tasks. Must be called before binding.
+   */
+  public void enableStateSizes(final Path stateDirectory) {
+    this.stateDirectory = stateDirectory;
+  }
+
+  /**
+   * Start tracking the passed {@link KafkaStreams} application with the passed application ID and
+   * input topics. Must be called before the {@link KafkaStreams} client is started. Can be called
+   * again for a new client of the same application, which replaces the previous one.
+   */
+  public synchronized void bind(final KafkaStreams kafkaStreams, final String applicationId,
+      final String bootstrapServers, final Collection<String> inputTopics) {
+    this.kafkaStreams = kafkaStreams;
+    kafkaStreams.setGlobalStateRestoreListener(new RestoreListener());
+    this.suspendedSince = System.currentTimeMillis();
+    kafkaStreams.setStateListener(this::onStateChange);
+    if (this.admin != null) {
+      return;
+    }
+    this.applicationId = applicationId;
+    this.inputTopics = List.copyOf(inputTopics);
+    this.admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+    this.executor.scheduleWithFixedDelay(
+        this::refreshLags,
+        0,
+        this.lagRefreshInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the most recently computed consumer lag of all input topic partitions.
+   */
+  public List<PartitionLag> getLags() {
+    return this.lags;
+  }
+
+  /**
+   * Returns the sum of the most recently computed consumer lag of all input topic partitions.
+   */
+  public long getTotalLag() {
+    return this.lags.stream().mapToLong(PartitionLag::getLag).sum();
+  }
+
+  /**
+   * Returns when the consumer lag was computed the last time or null if it has not been computed
+   * yet.
+   */
+  public Instant getLagsUpdated() {
+    return this.lagsUpdated;
+  }
+
+  /**
+   * Returns a summary of the current progress, suitable for serialization to JSON.
+   */
+  public Map<String, Object> getStatus() {
+    final Map<String, Object> status = new LinkedHashMap<>();
+    status.put(STATE_LABEL, this.kafkaStreams == null ? null : this.kafkaStreams.state().name());
+    status.put("threads", this.getThreadStates());
+    status.put("lastResumeMillis", this.lastResumeMillis < 0 ? null : this.lastResumeMillis);
+
+    final Map<String, Object> lag = new LinkedHashMap<>();
+    final List<PartitionLag> currentLags = this.lags;
+    lag.put("total", currentLags.stream().mapToLong(PartitionLag::getLag).sum());
+    lag.put("updated", this.lagsUpdated);
+    lag.put("partitions", currentLags);
+    status.put("lag", lag);
+
+    final Map<String, Instant> watermarkInstants = new LinkedHashMap<>();
+    this.watermarks.forEach((stat, watermark) -> {
+      final long timestamp = watermark.getAsLong();
+      watermarkInstants.put(
+          stat,
+          timestamp == Long.MIN_VALUE ? null : Instant.ofEpochMilli(timestamp));
+    });
+    status.put("watermarks", watermarkInstants);
+    status.put("stateStores", this.stateStoreSizes);
+
+    status.put("restoration", this.restorations.values().stream()
+        .sorted(Comparator.comparing(RestoreProgress::getStore)
+            .thenComparing(RestoreProgress::getPartition))
+        .map(restoration -> {
+          final Map<String, Object> progress = new LinkedHashMap<>();
+          progress.put("store", restoration.getStore());
+          progress.put("partition", restoration.getPartition());
+          progress.put("totalRecords", restoration.getTotalRecords());
+          progress.put("restoredRecords", restoration.getRestoredRecords());
+          progress.put("done", restoration.isDone());
+          progress.put("durationMillis", restoration.getDurationMillis());
+          return progress;
+        })
+        .collect(Collectors.toList()));
+    return status;
+  }
+
+  /**
+   * Stop tracking the progress and release all resources.
+   */
+  public void close() {
+    this.executor.shutdownNow();
+    if (this.admin != null) {
+      this.admin.close(ADMIN_TIMEOUT);
+    }
+  }
+
+  private void onStateChange(final KafkaStreams.State newState, final KafkaStreams.State oldState) {
+    if (newState == KafkaStreams.State.RUNNING) {
+      this.lastResumeMillis = System.currentTimeMillis() - this.suspendedSince;
+      LOGGER.info("Resumed processing after {} ms.", this.lastResumeMillis);
+    } else if (oldState == KafkaStreams.State.RUNNING) {
+      this.suspendedSince = System.currentTimeMillis();
+    }
+  }
+
+  private Map<String, String> getThreadStates() {
+    if (this.kafkaStreams == null) {
+      return Map.of();
+    }
+    final Map<String, String> states = new LinkedHashMap<>();
+    for (final ThreadMetadata thread : this.kafkaStreams.localThreadsMetadata()) {
+      states.put(thread.threadName(), thread.threadState());
+    }
+    return states;
+  }
+
+  private void refreshLags() {
+    try {
+      this.lags = this.computeLags();
+      this.lagsUpdated = Instant.now();
+      if (this.metricsRegistry != null) {
+        this.registerLagMetrics();
+      }
+    } catch (final ExecutionException | TimeoutException e) {
+      LOGGER.warn("Consumer lag could not be computed.", e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (this.stateDirectory != null) {
+      this.refreshStateStoreSizes();
+    }
+  }
+
+  private void refreshStateStoreSizes() {
+    try {
+      this.stateStoreSizes = this.computeStateStoreSizes();
+      if (this.metricsRegistry != null) {
+        this.registerStateStoreMetrics();
+      }
+    } catch (final IOException | UncheckedIOException e) {
+      // Stores might be deleted concurrently, e.g., by the state directory cleaner
+      LOGGER.warn("State store sizes could not be computed.", e);
+    }
+  }
+
+  /**
+   * Sums up the sizes of all stores of all tasks. Persistent key-value stores are located in
+   * {@code <state.dir>/<application.id>/<task>/rocksdb/<store>}, whereas segmented window stores
+   * are located in {@code <state.dir>/<application.id>/<task>/<store>}.
+   */
+  private Map<String, Long> computeStateStoreSizes() throws IOException {
+    final Path applicationDirectory = this.stateDirectory.resolve(this.applicationId);
+    if (!Files.isDirectory(applicationDirectory)) {
+      return Map.of();
+    }
+    final Map<String, Long> sizes = new TreeMap<>();
+    for (final Path taskDirectory : listDirectories(applicationDirectory)) {
+      for (final Path storeDirectory : listDirectories(taskDirectory)) {
+        if (ROCKSDB_DIRECTORY.equals(storeDirectory.getFileName().toString())) {
+          for (final Path rocksDbStoreDirectory : listDirectories(storeDirectory)) {
+            sizes.merge(
+                rocksDbStoreDirectory.getFileName().toString(),
+                computeSize(rocksDbStoreDirectory),
+                Long::sum);
+          }
+        } else {
+          sizes.merge(
+              storeDirectory.getFileName().toString(),
+              computeSize(storeDirectory),
+              Long::sum);
+        }
+      }
+    }
+    return sizes;
+  }
+
+  private static List<Path> listDirectories(final Path directory) throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.filter(Files::isDirectory).collect(Collectors.toList());
+    }
+  }
+
+  private static long computeSize(final Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .mapToLong(path -> {
+            try {
+              return Files.size(path);
+            } catch (final IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          })
+          .sum();
+    }
+  }
+
+  private void registerStateStoreMetrics() {
+    for (final String store : this.stateStoreSizes.keySet()) {
+      if (this.stateStores.add(store)) {
+        this.metricsRegistry.gauge(
+            "stats_state_store_bytes",
+            "Size on disk of a local state store summed up over all tasks.",
+            () -> this.stateStoreSizes.getOrDefault(store, 0L),
+            "store", store);
+      }
+    }
+  }
+
+  private List<PartitionLag> computeLags()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    final long timeoutMs = ADMIN_TIMEOUT.toMillis();
+    final Map<TopicPartition, OffsetAndMetadata> committedOffsets = this.admin
+        .listConsumerGroupOffsets(this.applicationId)
+        .partitionsToOffsetAndMetadata()
+        .get(timeoutMs, TimeUnit.MILLISECONDS);
+    final List<TopicPartition> partitions = new ArrayList<>();
+    for (final TopicDescription topic : this.admin.describeTopics(this.inputTopics).all()
+        .get(timeoutMs, TimeUnit.MILLISECONDS).values()) {
+      topic.partitions().forEach(p -> {
+        partitions.add(new TopicPartition(topic.name(), p.partition()));
+      });
+    }
+    final Map<TopicPartition, ListOffsetsResultInfo> endOffsets = this.listOffsets(
+        partitions,
+        OffsetSpec.latest());
+    // Without a committed offset, the application will start from the earliest offset
+    final Map<TopicPartition, ListOffsetsResultInfo> startOffsets = this.listOffsets(
+        partitions.stream()
+            .filter(p -> committedOffsets.get(p) == null)
+            .collect(Collectors.toList()),
+        OffsetSpec.earliest());
+
+    final List<PartitionLag> partitionLags = new ArrayList<>(partitions.size());
+    for (final TopicPartition partition : partitions) {
+      final long endOffset = endOffsets.get(partition).offset();
+      final OffsetAndMetadata committed = committedOffsets.get(partition);
+      final long committedOffset = committed == null ? -1 : committed.offset();
+      final long position = committed == null
+          ? startOffsets.get(partition).offset()
+          : committedOffset;
+      partitionLags.add(new PartitionLag(
+          partition.topic(),
+          partition.partition(),
+          endOffset,
+          committedOffset,
+          Math.max(0, endOffset - position)));
+    }
+    partitionLags.sort(Comparator.comparing(PartitionLag::getTopic)
+        .thenComparing(PartitionLag::getPartition));
+    return partitionLags;
+  }
+
+  private Map<TopicPartition, ListOffsetsResultInfo> listOffsets(
+      final List<TopicPartition> partitions, final OffsetSpec offsetSpec)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    if (partitions.isEmpty()) {
+      return Map.of();
+    }
+    return this.admin
+        .listOffsets(partitions.stream().collect(Collectors.toMap(p -> p, p -> offsetSpec)))
+        .all()
+        .get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void registerLagMetrics() {
+    for (final PartitionLag partitionLag : this.lags) {
+      final String topic = partitionLag.getTopic();
+      final int partition = partitionLag.getPartition();
+      this.metricsRegistry.gauge(
+          "stats_consumer_lag",
+          "Consumer lag of an input topic partition.",
+          () -> this.lags.stream()
+              .filter(l -> l.getTopic().equals(topic) && l.getPartition() == partition)
+              .mapToLong(PartitionLag::getLag)
+              .findAny()
+              .orElse(0),
+          "topic", topic,
+          "partition", Integer.toString(partition));
+    }
+    for (final String threadState : this.getThreadStates().values()) {
+      if (this.threadStates.add(threadState)) {
+        this.metricsRegistry.gauge(
+            "stats_stream_threads",
+            "Number of local stream threads in the labeled state.",
+            () -> this.getThreadStates().values().stream().filter(threadState::equals).count(),
+            STATE_LABEL, threadState);
+      }
+    }
+  }
+
+  private void registerWatermarkMetric(final String stat, final LongSupplier watermark) {
+    this.metricsRegistry.gauge(
+        "stats_event_time_watermark_seconds",
+        "Maximal timestamp of all records aggregated by a statistics.",
+        () -> {
+          final long timestamp = watermark.getAsLong();
+          return timestamp == Long.MIN_VALUE ? Double.NaN : timestamp / 1000.0; // NOCS
+        },
+        "stat", stat);
+  }
+
+  /**
+   * Tracks the restoration of state stores.
+   */
+  private final class RestoreListener implements StateRestoreListener {
+
+    @Override
+    public void onRestoreStart(final TopicPartition topicPartition, final String storeName,
+        final long startingOffset, final long endingOffset) {
+      StreamsProgress.this.restorations.put(
+          storeName + '-' + topicPartition.partition(),
+          new RestoreProgress(
+              storeName,
+              topicPartition.topic(),
+              topicPartition.partition(),
+              endingOffset - startingOffset));
+      LOGGER.info("Start restoring {} records of store {} from {}.",
+          endingOffset - startingOffset, storeName, topicPartition);
+    }
+
+    @Override
+    public void onBatchRestored(final TopicPartition topicPartition, final String storeName,
+        final long batchEndOffset, final long numRestored) {
+      final RestoreProgress progress = StreamsProgress.this.restorations.get(
+          storeName + '-' + topicPartition.partition());
+      if (progress != null) {
+        progress.addRestoredRecords(numRestored);
+      }
+    }
+
+    @Override
+    public void onRestoreEnd(final TopicPartition topicPartition, final String storeName,
+        final long totalRestored) {
+      final RestoreProgress progress = StreamsProgress.this.restorations.get(
+          storeName + '-' + topicPartition.partition());
+      if (progress != null) {
+        progress.finish(totalRestored);
+        LOGGER.info("Restored {} records of store {} from {} in {} ms.",
+            totalRestored, storeName, topicPartition, progress.getDurationMillis());
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,220 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.google.common.math.Stats;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.common.avro.cassandra.AvroDataAdapter;
+import titan.ccp.common.cassandra.CassandraWriter;
+import titan.ccp.common.cassandra.PredefinedTableNameMappers;
+import titan.ccp.stats.util.PackedStatsSchema;
+import titan.ccp.stats.util.PercentilesSchema;
+
+/**
+ * {@link StatsStorage} storing statistics records and their percentiles in Cassandra. Statistics
+ * are stored either with one row per time unit or, if enabled, in the packed layout with one row
+ * per identifier and period (see {@link PackedStatsTableWriter}). If {@link StatsTableOptions} are
+ * set, they are applied to each table once it exists, i.e., on registration for percentiles tables
+ * and after the first write for statistics tables.
+ */
+public class CassandraStatsStorage implements StatsStorage {
+
+  private static final int STATS_BYTES = Long.BYTES + 4 * Double.BYTES; // NOCS
+  private static final String COUNT_COLUMN = "count";
+  private static final String MEAN_COLUMN = "mean";
+  private static final String POPULATION_VARIANCE_COLUMN = "populationVariance";
+  private static final String MIN_COLUMN = "min";
+  private static final String MAX_COLUMN = "max";
+
+  private final Session session;
+  private final CassandraWriter<SpecificRecord> cassandraWriter;
+  private final CassandraKeySelector cassandraKeySelector;
+  private final PercentilesTableWriter percentilesWriter;
+  private final Map<Class<?>, PreparedStatement> loadStatements = new ConcurrentHashMap<>();
+  private final Set<Class<?>> configuredTables = ConcurrentHashMap.newKeySet();
+  private final Map<Class<?>, RecordDatabaseAdapter<?>> adapters = new ConcurrentHashMap<>();
+  private final Set<Class<?>> registeredTypes = ConcurrentHashMap.newKeySet();
+  private PackedStatsTableWriter packedWriter;
+  private StatsTableOptions tableOptions = StatsTableOptions.DEFAULT;
+
+  /**
+   * Create a new {@link CassandraStatsStorage} using the passed Cassandra {@link Session}.
+   */
+  public CassandraStatsStorage(final Session cassandraSession) {
+    this.session = cassandraSession;
+    this.cassandraKeySelector = new CassandraKeySelector();
+    this.cassandraWriter = CassandraWriter
+        .builder(cassandraSession, new AvroDataAdapter())
+        .tableNameMapper(PredefinedTableNameMappers.SIMPLE_CLASS_NAME)
+        .primaryKeySelectionStrategy(this.cassandraKeySelector)
+        .build();
+    this.percentilesWriter = new PercentilesTableWriter(cassandraSession);
+  }
+
+  /**
+   * Set the options of the statistics and percentiles tables. Must be called before registering
+   * record types.
+   */
+  public void setTableOptions(final StatsTableOptions tableOptions) {
+    this.tableOptions = tableOptions;
+  }
+
+  /**
+   * Store statistics in the packed layout instead of one row per time unit. Must be called before
+   * registering record types.
+   */
+  public void enablePackedLayout() {
+    if (this.packedWriter == null) {
+      this.packedWriter = new PackedStatsTableWriter(this.session);
+    }
+  }
+
+  /**
+   * Register a record type, creating its tables if required. Registering a record type again, for
+   * example, when building another topology with this storage, has no effect.
+   */
+  @Override
+  public void register(final RecordDatabaseAdapter<?> recordDatabaseAdapter) {
+    if (!this.registeredTypes.add(recordDatabaseAdapter.getClazz())) {
+      return;
+    }
+    this.cassandraKeySelector.addRecordDatabaseAdapter(recordDatabaseAdapter);
+    this.percentilesWriter.register(recordDatabaseAdapter);
+    this.applyTableOptions(
+        PercentilesSchema.getTableName(recordDatabaseAdapter.getClazz().getSimpleName()));
+    if (this.packedWriter != null) {
+      this.packedWriter.register(recordDatabaseAdapter);
+      this.adapters.put(recordDatabaseAdapter.getClazz(), recordDatabaseAdapter);
+      this.applyTableOptions(PackedStatsTableWriter.getTableName(recordDatabaseAdapter));
+    }
+  }
+
+  @Override
+  public void writeStats(final SpecificRecord record) {
+    if (this.packedWriter != null) {
+      this.writePacked(record);
+      return;
+    }
+    // The statement is built from the record's current field values, so the record may be reused
+    this.cassandraWriter.write(record);
+    // The table is created with the first write
+    if (!this.tableOptions.isDefault() && this.configuredTables.add(record.getClass())) {
+      this.applyTableOptions(record.getClass().getSimpleName());
+    }
+  }
+
+  @Override
+  public <R extends SpecificRecord> Stats loadStats(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R keyRecord) {
+    if (this.packedWriter != null) {
+      final ByteBuffer bin = this.packedWriter.load(recordDatabaseAdapter, keyRecord);
+      return bin == null
+          ? null
+          : toStats(
+              PackedStatsSchema.getCount(bin),
+              PackedStatsSchema.getMean(bin),
+              PackedStatsSchema.getPopulationVariance(bin),
+              PackedStatsSchema.getMin(bin),
+              PackedStatsSchema.getMax(bin));
+    }
+    PreparedStatement statement = this.loadStatements.get(recordDatabaseAdapter.getClazz());
+    if (statement == null) {
+      try {
+        statement = this.prepareLoad(recordDatabaseAdapter);
+      } catch (final InvalidQueryException e) {
+        // Table is created with the first write, hence nothing is stored yet
+        return null;
+      }
+      this.loadStatements.put(recordDatabaseAdapter.getClazz(), statement);
+    }
+    final List<Object> values = new ArrayList<>();
+    for (final String column : getPrimaryKeyColumns(recordDatabaseAdapter)) {
+      final Object value =
+          keyRecord.get(keyRecord.getSchema().getField(column).pos());
+      values.add(value instanceof CharSequence ? value.toString() : value);
+    }
+    final Row row = this.session.execute(statement.bind(values.toArray())).one();
+    if (row == null) {
+      return null;
+    }
+    return toStats(
+        row.getLong(COUNT_COLUMN),
+        row.getDouble(MEAN_COLUMN),
+        row.getDouble(POPULATION_VARIANCE_COLUMN),
+        row.getDouble(MIN_COLUMN),
+        row.getDouble(MAX_COLUMN));
+  }
+
+  @Override
+  public <R extends SpecificRecord> void writePercentiles(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R record,
+      final QuantileSketch sketch) {
+    this.percentilesWriter.write(recordDatabaseAdapter, record, sketch);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <R extends SpecificRecord> void writePacked(final R record) {
+    final RecordDatabaseAdapter<R> adapter =
+        (RecordDatabaseAdapter<R>) this.adapters.get(record.getClass());
+    if (adapter == null) {
+      throw new IllegalArgumentException(
+          "Record type " + record.getClass().getSimpleName() + " is not registered.");
+    }
+    this.packedWriter.write(adapter, record);
+  }
+
+  private static Stats toStats(final long count, final double mean,
+      final double populationVariance, final double min, final double max) {
+    // Guava's Stats cannot be created from its moments, but only from its serialized form
+    return Stats.fromByteArray(ByteBuffer.allocate(STATS_BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putLong(count)
+        .putDouble(mean)
+        .putDouble(populationVariance * count)
+        .putDouble(min)
+        .putDouble(max)
+        .array());
+  }
+
+  private void applyTableOptions(final String tableName) {
+    final String statement = this.tableOptions.toAlterStatement(tableName);
+    if (statement != null) {
+      this.session.execute(statement);
+    }
+  }
+
+  private PreparedStatement prepareLoad(final RecordDatabaseAdapter<?> recordDatabaseAdapter) {
+    Select.Where select = QueryBuilder
+        .select(COUNT_COLUMN, MEAN_COLUMN, POPULATION_VARIANCE_COLUMN, MIN_COLUMN, MAX_COLUMN)
+        .from(recordDatabaseAdapter.getClazz().getSimpleName())
+        .where();
+    for (final String column : getPrimaryKeyColumns(recordDatabaseAdapter)) {
+      select = select.and(QueryBuilder.eq(column, QueryBuilder.bindMarker()));
+    }
+    return this.session.prepare(select);
+  }
+
+  private static List<String> getPrimaryKeyColumns(
+      final RecordDatabaseAdapter<?> recordDatabaseAdapter) {
+    final List<String> columns = new ArrayList<>();
+    columns.add(recordDatabaseAdapter.getIdentifierField());
+    columns.add(recordDatabaseAdapter.getPeriodStartField());
+    columns.add(recordDatabaseAdapter.getPeriodEndField());
+    columns.addAll(recordDatabaseAdapter.getTimeUnitFields());
+    return columns;
+  }
+
+}
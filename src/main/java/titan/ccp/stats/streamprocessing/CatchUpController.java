@@ -0,0 +1,158 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.streams.KafkaStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.metrics.Counter;
+import titan.ccp.stats.metrics.MetricsRegistry;
+import titan.ccp.stats.progress.StreamsProgress;
+
+/**
+ * Runs the statistics {@link KafkaStreams} application and switches between normal, low-latency
+ * settings and settings for catching up with a large consumer lag (see
+ * {@link KafkaStreamsBuilder#catchUpSettings(int, int)}). As Kafka Streams settings cannot be
+ * changed at runtime, switching closes the running instance and starts a new one with the other
+ * settings, which continues from the committed offsets and the local state.
+ *
+ * <p>
+ * The catch-up mode is entered when the total consumer lag reported by the {@link StreamsProgress}
+ * reaches the enter threshold and left when it falls to the exit threshold. To avoid switching back
+ * and forth, the exit threshold has to be smaller than the enter threshold and the mode is only
+ * switched on a lag computed after the last switch while the application is running.
+ * </p>
+ */
+public class CatchUpController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatchUpController.class);
+
+  private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(1);
+
+  private final KafkaStreamsBuilder kafkaStreamsBuilder;
+  private final StreamsProgress streamsProgress;
+  private final long enterLag;
+  private final long exitLag;
+  private final Duration checkInterval;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private volatile KafkaStreams kafkaStreams;
+  private volatile boolean catchingUp;
+  private Instant lastSwitch;
+  private Counter switches;
+
+  /**
+   * Create a new {@link CatchUpController}.
+   *
+   * @param kafkaStreamsBuilder Builder of the {@link KafkaStreams} instances, which has to be
+   *        configured with the same {@link StreamsProgress}.
+   * @param streamsProgress Progress tracking providing the consumer lag.
+   * @param enterLag Total consumer lag for entering the catch-up mode.
+   * @param exitLag Total consumer lag for leaving the catch-up mode.
+   * @param checkInterval Interval for checking the consumer lag.
+   */
+  public CatchUpController(final KafkaStreamsBuilder kafkaStreamsBuilder,
+      final StreamsProgress streamsProgress, final long enterLag, final long exitLag,
+      final Duration checkInterval) {
+    if (exitLag < 0 || exitLag >= enterLag) {
+      throw new IllegalArgumentException(
+          "Exit lag must be non-negative and smaller than enter lag.");
+    }
+    this.kafkaStreamsBuilder = kafkaStreamsBuilder;
+    this.streamsProgress = streamsProgress;
+    this.enterLag = enterLag;
+    this.exitLag = exitLag;
+    this.checkInterval = checkInterval;
+  }
+
+  /**
+   * Export the current mode and the number of switches in the passed {@link MetricsRegistry}.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry) {
+    metricsRegistry.gauge(
+        "stats_catch_up_mode",
+        "Whether the application runs with the settings for catching up with a large lag.",
+        () -> this.catchingUp ? 1 : 0);
+    this.switches = metricsRegistry.counter(
+        "stats_catch_up_switches_total",
+        "Number of switches between the normal and the catch-up settings.");
+  }
+
+  /**
+   * Start the application with the normal settings and start checking the consumer lag.
+   */
+  public void start() {
+    this.lastSwitch = Instant.now();
+    this.kafkaStreams = this.kafkaStreamsBuilder.build(false);
+    this.kafkaStreams.start();
+    this.executor.scheduleWithFixedDelay(
+        this::check,
+        this.checkInterval.toMillis(),
+        this.checkInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the currently running {@link KafkaStreams} instance.
+   */
+  public KafkaStreams getKafkaStreams() {
+    return this.kafkaStreams;
+  }
+
+  public boolean isCatchingUp() {
+    return this.catchingUp;
+  }
+
+  /**
+   * Stop checking the consumer lag and close the running application.
+   */
+  public void close() {
+    this.executor.shutdownNow();
+    if (this.kafkaStreams != null) {
+      this.kafkaStreams.close(CLOSE_TIMEOUT);
+    }
+  }
+
+  private void check() {
+    try {
+      if (this.kafkaStreams.state() != KafkaStreams.State.RUNNING) {
+        return;
+      }
+      final Instant lagsUpdated = this.streamsProgress.getLagsUpdated();
+      if (lagsUpdated == null || !lagsUpdated.isAfter(this.lastSwitch)) {
+        return;
+      }
+      final long lag = this.streamsProgress.getTotalLag();
+      if (isSwitchRequired(this.catchingUp, lag, this.enterLag, this.exitLag)) {
+        this.switchMode(!this.catchingUp, lag);
+      }
+    } catch (final RuntimeException e) { // NOPMD keep checking
+      LOGGER.error("Checking the consumer lag for catching up failed.", e);
+    }
+  }
+
+  /**
+   * Returns whether the mode has to be switched at the passed consumer lag, i.e., whether the lag
+   * reached the enter lag in normal mode or fell to the exit lag in catch-up mode.
+   */
+  static boolean isSwitchRequired(final boolean catchingUp, final long lag, final long enterLag,
+      final long exitLag) {
+    return catchingUp ? lag <= exitLag : lag >= enterLag;
+  }
+
+  private void switchMode(final boolean catchUp, final long lag) {
+    LOGGER.info("{} catch-up mode at a consumer lag of {} records.",
+        catchUp ? "Enter" : "Leave", lag);
+    this.kafkaStreams.close(CLOSE_TIMEOUT);
+    this.catchingUp = catchUp;
+    this.kafkaStreams = this.kafkaStreamsBuilder.build(catchUp);
+    this.kafkaStreams.start();
+    this.lastSwitch = Instant.now();
+    if (this.switches != null) {
+      this.switches.increment();
+    }
+  }
+
+}
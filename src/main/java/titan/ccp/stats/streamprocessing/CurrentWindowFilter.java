@@ -0,0 +1,100 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+/**
+ * Filters updates of time window based statistics for the {@link StatsStoragePolicy#CURRENT_WINDOW}
+ * policy. Updates of the most complete window of a record are forwarded immediately. The latest
+ * update of any other window is kept in a state store and only forwarded when the window closes,
+ * unless the window receives an update as most complete window in the meantime.
+ *
+ * @param <K> Type of the key.
+ */
+public class CurrentWindowFilter<K> implements
+    Transformer<Windowed<K>, SummaryStatistics, KeyValue<Windowed<K>, SummaryStatistics>> {
+
+  private final String storeName;
+  private final long advanceMs;
+  private final long gracePeriodMs;
+  private ProcessorContext context;
+  private KeyValueStore<Windowed<K>, SummaryStatistics> store;
+
+  /**
+   * Create a new {@link CurrentWindowFilter}.
+   *
+   * @param storeName Name of the state store for pending updates.
+   * @param timeWindows Windows of the statistics.
+   */
+  public CurrentWindowFilter(final String storeName, final TimeWindows timeWindows) {
+    this.storeName = storeName;
+    this.advanceMs = timeWindows.advanceMs;
+    this.gracePeriodMs = timeWindows.gracePeriodMs();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void init(final ProcessorContext context) {
+    this.context = context;
+    this.store = (KeyValueStore<Windowed<K>, SummaryStatistics>) context
+        .getStateStore(this.storeName);
+    context.schedule(
+        Duration.ofMillis(this.advanceMs),
+        PunctuationType.STREAM_TIME,
+        this::forwardClosed);
+  }
+
+  @Override
+  public KeyValue<Windowed<K>, SummaryStatistics> transform(final Windowed<K> key,
+      final SummaryStatistics value) {
+    if (isMostComplete(key, value, this.advanceMs)) {
+      // Reading is cheaper than writing a tombstone to the store and its changelog
+      if (this.store.get(key) != null) {
+        this.store.delete(key);
+      }
+      return KeyValue.pair(key, value);
+    }
+    this.store.put(key, value);
+    return null;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  private void forwardClosed(final long streamTime) {
+    final List<KeyValue<Windowed<K>, SummaryStatistics>> closed = new ArrayList<>();
+    try (KeyValueIterator<Windowed<K>, SummaryStatistics> iterator = this.store.all()) {
+      while (iterator.hasNext()) {
+        final KeyValue<Windowed<K>, SummaryStatistics> entry = iterator.next();
+        if (entry.key.window().end() + this.gracePeriodMs <= streamTime) {
+          closed.add(entry);
+        }
+      }
+    }
+    for (final KeyValue<Windowed<K>, SummaryStatistics> entry : closed) {
+      this.context.forward(entry.key, entry.value);
+      this.store.delete(entry.key);
+    }
+  }
+
+  /**
+   * Returns whether the passed update belongs to the most complete window of its latest record,
+   * i.e., the earliest window containing this record.
+   */
+  public static boolean isMostComplete(final Windowed<?> key, final SummaryStatistics value,
+      final long advanceMs) {
+    return value.getTimestamp() >= key.window().end() - advanceMs;
+  }
+
+}
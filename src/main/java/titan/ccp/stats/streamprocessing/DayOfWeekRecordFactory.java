@@ -25,4 +25,36 @@ public class DayOfWeekRecordFactory
         stats.max());
   }
 
+  @Override
+  public DayOfWeekActivePowerRecord createKey(final Windowed<DayOfWeekKey> windowed) {
+    return new DayOfWeekActivePowerRecord(
+        windowed.key().getSensorId(),
+        windowed.key().getDayOfWeek().getValue(),
+        windowed.window().start(),
+        windowed.window().end(),
+        0L,
+        0.0,
+        0.0,
+        0.0,
+        0.0);
+  }
+
+  @Override
+  public DayOfWeekActivePowerRecord create(final Windowed<DayOfWeekKey> windowed,
+      final Stats stats, final DayOfWeekActivePowerRecord reuse) {
+    if (reuse == null) {
+      return this.create(windowed, stats);
+    }
+    reuse.setIdentifier(windowed.key().getSensorId());
+    reuse.setDayOfWeek(windowed.key().getDayOfWeek().getValue());
+    reuse.setPeriodStart(windowed.window().start());
+    reuse.setPeriodEnd(windowed.window().end());
+    reuse.setCount(stats.count());
+    reuse.setMean(stats.mean());
+    reuse.setPopulationVariance(stats.populationVariance());
+    reuse.setMin(stats.min());
+    reuse.setMax(stats.max());
+    return reuse;
+  }
+
 }
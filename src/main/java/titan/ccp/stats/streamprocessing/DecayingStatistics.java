@@ -0,0 +1,165 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import titan.ccp.stats.util.StatsFactory;
+
+/**
+ * Exponentially time-decayed summary statistics. Instead of computing statistics per time window,
+ * each value is weighted by <code>2^(-age / halfLife)</code>, such that only a single accumulator
+ * has to be kept per key. Min and max are relaxed towards the mean with the same decay, such that
+ * old extreme values are forgotten over time.
+ */
+public final class DecayingStatistics {
+
+  /**
+   * Number of bytes of the serialized form of a {@link DecayingStatistics}.
+   */
+  public static final int BYTES = 5 * Double.BYTES + Long.BYTES; // NOCS
+
+  private final double weight;
+  private final double mean;
+  private final double sumOfSquaresOfDeltas;
+  private final double min;
+  private final double max;
+  private final long timestamp;
+
+  /**
+   * Create new, empty {@link DecayingStatistics}.
+   */
+  public DecayingStatistics() {
+    this(0.0, 0.0, 0.0, Double.NaN, Double.NaN, -1);
+  }
+
+  /**
+   * Create new {@link DecayingStatistics} from its components.
+   */
+  public DecayingStatistics(final double weight, final double mean,
+      final double sumOfSquaresOfDeltas, final double min, final double max,
+      final long timestamp) {
+    this.weight = weight;
+    this.mean = mean;
+    this.sumOfSquaresOfDeltas = sumOfSquaresOfDeltas;
+    this.min = min;
+    this.max = max;
+    this.timestamp = timestamp;
+  }
+
+  public double getWeight() {
+    return this.weight;
+  }
+
+  public double getMean() {
+    return this.mean;
+  }
+
+  public double getPopulationVariance() {
+    return this.weight > 0 ? this.sumOfSquaresOfDeltas / this.weight : Double.NaN;
+  }
+
+  public double getMin() {
+    return this.min;
+  }
+
+  public double getMax() {
+    return this.max;
+  }
+
+  public long getTimestamp() {
+    return this.timestamp;
+  }
+
+  /**
+   * Add a {@link TimestampedActivePower} to these {@link DecayingStatistics} by creating a new
+   * instance. All previous values are decayed according to the time passed since the last value.
+   * Values older than the last value are decayed according to their own age instead.
+   */
+  public DecayingStatistics add(final TimestampedActivePower value, final Duration halfLife) {
+    final double x = value.getValueInW();
+    if (this.weight <= 0) {
+      return new DecayingStatistics(1.0, x, 0.0, x, x, value.getTimestamp());
+    }
+
+    final long age = value.getTimestamp() - this.timestamp;
+    final double decay;
+    final double valueWeight;
+    final long timestamp;
+    if (age >= 0) {
+      decay = decayFactor(age, halfLife);
+      valueWeight = 1.0;
+      timestamp = value.getTimestamp();
+    } else {
+      decay = 1.0;
+      valueWeight = decayFactor(-age, halfLife);
+      timestamp = this.timestamp;
+    }
+
+    final double weight = this.weight * decay + valueWeight;
+    final double delta = x - this.mean;
+    final double mean = this.mean + valueWeight * delta / weight;
+    final double sumOfSquaresOfDeltas =
+        this.sumOfSquaresOfDeltas * decay + valueWeight * delta * (x - mean);
+    final double min = Math.min(x, mean + (this.min - mean) * decay);
+    final double max = Math.max(x, mean + (this.max - mean) * decay);
+    return new DecayingStatistics(weight, mean, sumOfSquaresOfDeltas, min, max, timestamp);
+  }
+
+  /**
+   * Get these statistics as {@link Stats}. As {@link Stats} require an integral count, the count is
+   * the decayed weight rounded to the nearest integer (but at least one).
+   */
+  public Stats toStats() {
+    final long count = Math.max(1, Math.round(this.weight));
+    return StatsFactory.create(count, this.mean, this.getPopulationVariance(), this.min, this.max);
+  }
+
+  public SummaryStatistics toSummaryStatistics() {
+    return new SummaryStatistics(this.toStats(), this.timestamp);
+  }
+
+  /**
+   * Serializes these {@link DecayingStatistics} to a byte array of fixed length {@link #BYTES}.
+   */
+  public byte[] toByteArray() {
+    return ByteBuffer.allocate(BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putDouble(this.weight)
+        .putDouble(this.mean)
+        .putDouble(this.sumOfSquaresOfDeltas)
+        .putDouble(this.min)
+        .putDouble(this.max)
+        .putLong(this.timestamp)
+        .array();
+  }
+
+  @Override
+  public String toString() {
+    return "DecayingStatistics{weight=" + this.weight + ", mean=" + this.mean + ", min=" + this.min
+        + ", max=" + this.max + ", timestamp=" + this.timestamp + '}';
+  }
+
+  /**
+   * Deserializes {@link DecayingStatistics} from a byte array created with {@link #toByteArray()}.
+   */
+  public static DecayingStatistics fromByteArray(final byte[] bytes) {
+    if (bytes.length != BYTES) {
+      throw new IllegalArgumentException(
+          "Expected " + BYTES + " bytes, but got " + bytes.length + '.');
+    }
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    return new DecayingStatistics(
+        buffer.getDouble(),
+        buffer.getDouble(),
+        buffer.getDouble(),
+        buffer.getDouble(),
+        buffer.getDouble(),
+        buffer.getLong());
+  }
+
+  private static double decayFactor(final long age, final Duration halfLife) {
+    return Math.pow(2, -(double) age / halfLife.toMillis());
+  }
+
+}
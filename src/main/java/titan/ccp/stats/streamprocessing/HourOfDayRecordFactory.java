@@ -25,4 +25,36 @@ public class HourOfDayRecordFactory
         stats.max());
   }
 
+  @Override
+  public HourOfDayActivePowerRecord createKey(final Windowed<HourOfDayKey> windowed) {
+    return new HourOfDayActivePowerRecord(
+        windowed.key().getSensorId(),
+        windowed.key().getHourOfDay(),
+        windowed.window().start(),
+        windowed.window().end(),
+        0L,
+        0.0,
+        0.0,
+        0.0,
+        0.0);
+  }
+
+  @Override
+  public HourOfDayActivePowerRecord create(final Windowed<HourOfDayKey> windowed,
+      final Stats stats, final HourOfDayActivePowerRecord reuse) {
+    if (reuse == null) {
+      return this.create(windowed, stats);
+    }
+    reuse.setIdentifier(windowed.key().getSensorId());
+    reuse.setHourOfDay(windowed.key().getHourOfDay());
+    reuse.setPeriodStart(windowed.window().start());
+    reuse.setPeriodEnd(windowed.window().end());
+    reuse.setCount(stats.count());
+    reuse.setMean(stats.mean());
+    reuse.setPopulationVariance(stats.populationVariance());
+    reuse.setMin(stats.min());
+    reuse.setMax(stats.max());
+    return reuse;
+  }
+
 }
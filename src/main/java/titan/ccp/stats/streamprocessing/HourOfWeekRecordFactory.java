@@ -26,4 +26,38 @@ public class HourOfWeekRecordFactory
         stats.max());
   }
 
+  @Override
+  public HourOfWeekActivePowerRecord createKey(final Windowed<HourOfWeekKey> windowed) {
+    return new HourOfWeekActivePowerRecord(
+        windowed.key().getSensorId(),
+        windowed.key().getDayOfWeek().getValue(),
+        windowed.key().getHourOfDay(),
+        windowed.window().start(),
+        windowed.window().end(),
+        0L,
+        0.0,
+        0.0,
+        0.0,
+        0.0);
+  }
+
+  @Override
+  public HourOfWeekActivePowerRecord create(final Windowed<HourOfWeekKey> windowed,
+      final Stats stats, final HourOfWeekActivePowerRecord reuse) {
+    if (reuse == null) {
+      return this.create(windowed, stats);
+    }
+    reuse.setIdentifier(windowed.key().getSensorId());
+    reuse.setDayOfWeek(windowed.key().getDayOfWeek().getValue());
+    reuse.setHourOfDay(windowed.key().getHourOfDay());
+    reuse.setPeriodStart(windowed.window().start());
+    reuse.setPeriodEnd(windowed.window().end());
+    reuse.setCount(stats.count());
+    reuse.setMean(stats.mean());
+    reuse.setPopulationVariance(stats.populationVariance());
+    reuse.setMin(stats.min());
+    reuse.setMax(stats.max());
+    return reuse;
+  }
+
 }
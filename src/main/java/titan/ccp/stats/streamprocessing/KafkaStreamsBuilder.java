@@ -2,17 +2,21 @@ package titan.ccp.stats.streamprocessing;
 
 import com.datastax.driver.core.Session;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.TimeWindows;
 import titan.ccp.common.kafka.streams.PropertiesBuilder;
-import titan.ccp.model.records.DayOfWeekActivePowerRecord;
-import titan.ccp.model.records.HourOfDayActivePowerRecord;
-import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+import titan.ccp.stats.metrics.MetricsRegistry;
+import titan.ccp.stats.progress.StreamsProgress;
 
 /**
  * Builder for the statistics {@link KafkaStreams} configuration.
@@ -32,6 +36,31 @@ public class KafkaStreamsBuilder { // NOPMD Builder class
   private int numThreads = -1; // NOPMD
   private int commitIntervalMs = -1; // NOPMD
   private int cacheMaxBytesBuff = -1; // NOPMD
+  private int catchUpCommitIntervalMs = -1; // NOPMD
+  private int catchUpCacheMaxBytesBuff = -1; // NOPMD
+  private int catchUpWriteParallelism = -1; // NOPMD
+  private int catchUpMaxBufferedWrites = -1; // NOPMD
+  private StatsWriteBatching writeBatching; // NOPMD
+  private Duration decayingHalfLife; // NOPMD
+  private double percentilesRelativeAccuracy = -1; // NOPMD
+  private int percentilesMaxBins = -1; // NOPMD
+  private MetricsRegistry metricsRegistry; // NOPMD
+  private String metricsRecordingLevel; // NOPMD
+  private Duration latencyLogInterval; // NOPMD
+  private StreamsProgress streamsProgress; // NOPMD
+  private List<StatsDefinition> statsDefinitions = StatsDefinition.allWithDefaults(); // NOPMD
+  private String applicationIdSuffix; // NOPMD
+  private Set<String> hotSensorIds = Set.of(); // NOPMD
+  private boolean aggregatedSensorsHot; // NOPMD
+  private int hotKeySalts = -1; // NOPMD
+  private boolean stateSeeding; // NOPMD
+  private String stateDirectory; // NOPMD
+  private long changelogAdditionalRetentionMs = -1; // NOPMD
+  private StatsStoragePolicy storagePolicy = StatsStoragePolicy.ALL_WINDOWS; // NOPMD
+  private StatsTableOptions tableOptions = StatsTableOptions.DEFAULT; // NOPMD
+  private boolean packedStorage; // NOPMD
+  private StatsStorage statsStorage; // NOPMD
+  private final Map<String, StatMetrics> statMetrics = new HashMap<>();
 
   /**
    * Sets the application name of the kafka streams application. Used for the ID.
@@ -63,6 +92,16 @@ public class KafkaStreamsBuilder { // NOPMD Builder class
     return this;
   }
 
+  /**
+   * Sets a suffix appended to the application ID. This allows to run different subsets of the
+   * statistics (see {@link #stats(List)}) in separate consumer groups, which scale independently.
+   * Can be null or empty for no suffix.
+   */
+  public KafkaStreamsBuilder applicationIdSuffix(final String applicationIdSuffix) {
+    this.applicationIdSuffix = applicationIdSuffix;
+    return this;
+  }
+
   public KafkaStreamsBuilder bootstrapServers(final String bootstrapServers) {
     this.bootstrapServers = bootstrapServers;
     return this;
@@ -141,64 +180,414 @@ public class KafkaStreamsBuilder { // NOPMD Builder class
     return this;
   }
 
+  /**
+   * Sets the commit interval and the cache size (see {@link #commitIntervalMs(int)} and
+   * {@link #cacheMaxBytesBuffering(int)}) of Kafka Streams instances built for catching up with a
+   * large consumer lag (see {@link #build(boolean)}). Large values let caches absorb intermediate
+   * updates of the same window, so that fewer updates are written to Cassandra and the output
+   * topics. Each can be minus one for using the normal setting.
+   */
+  public KafkaStreamsBuilder catchUpSettings(final int commitIntervalMs,
+      final int cacheMaxBytesBuffering) {
+    if (commitIntervalMs < -1 || cacheMaxBytesBuffering < -1) {
+      throw new IllegalArgumentException(
+          "Catch-up commit interval and cache max bytes buffering must be greater or equal -1.");
+    }
+    this.catchUpCommitIntervalMs = commitIntervalMs;
+    this.catchUpCacheMaxBytesBuff = cacheMaxBytesBuffering;
+    return this;
+  }
+
+  /**
+   * Enables batched Cassandra writes for Kafka Streams instances built for catching up (see
+   * {@link #build(boolean)}). Each task buffers its writes until it commits, coalescing updates of
+   * the same statistics record, and then executes them with the passed parallelism (see
+   * {@link StatsWriteBuffer}). At most the passed number of writes are buffered per task. Both can
+   * be minus one for writing synchronously also while catching up.
+   */
+  public KafkaStreamsBuilder catchUpWriteBatching(final int parallelism,
+      final int maxBufferedWrites) {
+    if (parallelism < -1 || parallelism == 0 || maxBufferedWrites < -1 || maxBufferedWrites == 0) {
+      throw new IllegalArgumentException(
+          "Catch-up write parallelism and maximal buffered writes must be greater 0 or -1.");
+    }
+    this.catchUpWriteParallelism = parallelism;
+    this.catchUpMaxBufferedWrites = maxBufferedWrites;
+    return this;
+  }
+
+  /**
+   * Sets the half-life for exponentially time-decayed statistics. If set, statistics are computed
+   * with a single decaying accumulator per key instead of per time window. Can be null for using
+   * time windows.
+   */
+  public KafkaStreamsBuilder decayingHalfLife(final Duration decayingHalfLife) {
+    if (decayingHalfLife != null && (decayingHalfLife.isNegative() || decayingHalfLife.isZero())) {
+      throw new IllegalArgumentException("Half-life must be positive.");
+    }
+    this.decayingHalfLife = decayingHalfLife;
+    return this;
+  }
+
+  /**
+   * Enables approximated percentiles for time window based statistics, which are computed with
+   * sketches of the passed relative accuracy and maximal number of bins. Can be minus one for both
+   * parameters for disabling percentiles.
+   */
+  public KafkaStreamsBuilder percentiles(final double relativeAccuracy, final int maxBins) {
+    this.percentilesRelativeAccuracy = relativeAccuracy;
+    this.percentilesMaxBins = maxBins;
+    return this;
+  }
+
+  /**
+   * Sets the {@link MetricsRegistry} in which metrics of the statistics calculations are recorded.
+   * Can be null for not recording these metrics.
+   */
+  public KafkaStreamsBuilder metricsRegistry(final MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+    return this;
+  }
+
+  /**
+   * Sets the Kafka Streams property for the level of built-in metrics to record
+   * (metrics.recording.level), for example, DEBUG for also recording record cache and state store
+   * metrics. Can be null for using the default.
+   */
+  public KafkaStreamsBuilder metricsRecordingLevel(final String metricsRecordingLevel) {
+    this.metricsRecordingLevel = metricsRecordingLevel;
+    return this;
+  }
+
+  /**
+   * Sets the interval with which event time latencies of the statistics calculations are logged.
+   * Can be null for not logging latencies.
+   */
+  public KafkaStreamsBuilder latencyLogInterval(final Duration latencyLogInterval) {
+    this.latencyLogInterval = latencyLogInterval;
+    return this;
+  }
+
+  /**
+   * Sets the {@link StreamsProgress} which tracks the progress of the built {@link KafkaStreams}
+   * instance. Can be null for not tracking the progress.
+   */
+  public KafkaStreamsBuilder streamsProgress(final StreamsProgress streamsProgress) {
+    this.streamsProgress = streamsProgress;
+    return this;
+  }
+
+  /**
+   * Sets the statistics to be computed. Defaults to all {@link StatsType}s with their default
+   * windows.
+   */
+  public KafkaStreamsBuilder stats(final List<StatsDefinition> statsDefinitions) {
+    if (statsDefinitions.isEmpty()) {
+      throw new IllegalArgumentException("At least one statistics must be defined.");
+    }
+    final long distinctTypes =
+        statsDefinitions.stream().map(StatsDefinition::getType).distinct().count();
+    if (distinctTypes < statsDefinitions.size()) {
+      throw new IllegalArgumentException("Each statistics type can only be defined once.");
+    }
+    this.statsDefinitions = List.copyOf(statsDefinitions);
+    return this;
+  }
+
+  /**
+   * Enables splitting of hot keys for time window based statistics. Records of the passed hot
+   * sensors and, if requested, of all aggregated sensors are distributed across the passed number
+   * of salts, aggregated in parallel and merged afterwards. Salts can be minus one for disabling
+   * hot key splitting.
+   */
+  public KafkaStreamsBuilder hotKeys(final Set<String> hotSensorIds,
+      final boolean aggregatedSensorsHot, final int salts) {
+    if (salts < -1 || salts == 0) {
+      throw new IllegalArgumentException("Number of salts must be greater 0 or -1.");
+    }
+    this.hotSensorIds = Set.copyOf(hotSensorIds);
+    this.aggregatedSensorsHot = aggregatedSensorsHot;
+    this.hotKeySalts = salts;
+    return this;
+  }
+
+  /**
+   * Sets the {@link StatsStoragePolicy}, which determines the updates of time window based
+   * statistics written to Cassandra. Defaults to {@link StatsStoragePolicy#ALL_WINDOWS}.
+   */
+  public KafkaStreamsBuilder storagePolicy(final StatsStoragePolicy storagePolicy) {
+    this.storagePolicy = Objects.requireNonNull(storagePolicy);
+    return this;
+  }
+
+  /**
+   * Sets the options of the Cassandra tables storing statistics and percentiles. Defaults to
+   * {@link StatsTableOptions#DEFAULT}.
+   */
+  public KafkaStreamsBuilder tableOptions(final StatsTableOptions tableOptions) {
+    this.tableOptions = Objects.requireNonNull(tableOptions);
+    return this;
+  }
+
+  /**
+   * Sets whether statistics are stored in Cassandra in the packed layout with one row per
+   * identifier and period instead of one row per time unit (see {@link PackedStatsTableWriter}).
+   */
+  public KafkaStreamsBuilder packedStorage(final boolean packedStorage) {
+    this.packedStorage = packedStorage;
+    return this;
+  }
+
+  /**
+   * Sets whether the window state of statistics is seeded from the statistics stored in Cassandra
+   * instead of being restored from changelog topics. This speeds up resuming the processing after
+   * a failover, but percentiles of seeded windows only cover subsequently processed records.
+   */
+  public KafkaStreamsBuilder stateSeeding(final boolean stateSeeding) {
+    this.stateSeeding = stateSeeding;
+    return this;
+  }
+
+  /**
+   * Sets the Kafka Streams property for the directory of local state stores (state.dir). If this
+   * directory is kept across restarts, only the tail of changelog topics after the last checkpoint
+   * is restored. Can be null or empty for using the default.
+   */
+  public KafkaStreamsBuilder stateDirectory(final String stateDirectory) {
+    this.stateDirectory = stateDirectory;
+    return this;
+  }
+
+  /**
+   * Sets the Kafka Streams property for the time window changelogs are retained in addition to the
+   * retention of their window stores (windowstore.changelog.additional.retention.ms). Can be null
+   * for using the default of one day.
+   */
+  public KafkaStreamsBuilder changelogAdditionalRetention(
+      final Duration changelogAdditionalRetention) {
+    this.changelogAdditionalRetentionMs = changelogAdditionalRetention == null
+        ? -1
+        : changelogAdditionalRetention.toMillis();
+    return this;
+  }
+
   /**
    * Builds the {@link KafkaStreams} instance.
    */
   public KafkaStreams build() {
-    return new KafkaStreams(this.buildTopology(), this.buildProperties());
+    return this.build(false);
   }
 
-  private Topology buildTopology() {
+  /**
+   * Builds a {@link KafkaStreams} instance either with the normal settings or with the settings for
+   * catching up with a large consumer lag (see {@link #catchUpSettings(int, int)}). This builder
+   * can be used for building several instances one after another, but only one of them may be
+   * running at a time. Each instance gets its own topology, as Kafka Streams adapts the state
+   * stores of a topology to its properties, for example, by disabling caching. Metrics, progress
+   * tracking, the statistics storage and write batching are shared by all instances.
+   */
+  public KafkaStreams build(final boolean catchUp) {
+    final Topology topology = this.buildTopology();
+    if (this.writeBatching != null) {
+      this.writeBatching.setEnabled(catchUp);
+    }
+    final KafkaStreams kafkaStreams =
+        new KafkaStreams(topology, this.buildProperties(catchUp));
+    if (this.streamsProgress != null) {
+      this.streamsProgress.bind(
+          kafkaStreams,
+          this.getApplicationId(),
+          this.bootstrapServers,
+          List.of(this.activePowerTopic, this.aggrActivePowerTopic));
+    }
+    return kafkaStreams;
+  }
+
+  /**
+   * Build a new {@link Topology}. Components with effects beyond the topology, i.e., the
+   * statistics storage, the {@link StatMetrics} including watermarks and flight recorders, and the
+   * write batching, are created for the first topology and reused by all subsequent ones.
+   */
+  Topology buildTopology() {
     Objects.requireNonNull(this.activePowerTopic,
         "Kafka topic for active power records has not been set.");
     Objects.requireNonNull(this.aggrActivePowerTopic,
         "Kafka topic for aggregated active power records has not been set.");
-    Objects.requireNonNull(this.dayOfWeekTopic,
-        "Kafka topic for day of week active power records has not been set.");
-    Objects.requireNonNull(this.hourOfDayTopic,
-        "Kafka topic for hour of day active power records has not been set.");
-    Objects.requireNonNull(this.hourOfWeekTopic,
-        "Kafka topic for hour of week active power records has not been set.");
-    Objects.requireNonNull(this.cassandraSession, "Cassandra session has not been set.");
+    if (this.statsStorage == null) {
+      Objects.requireNonNull(this.cassandraSession, "Cassandra session has not been set.");
+      this.statsStorage = new CassandraStatsStorage(this.cassandraSession);
+    }
+    if (this.writeBatching == null
+        && this.catchUpWriteParallelism > 0 && this.catchUpMaxBufferedWrites > 0) {
+      this.writeBatching =
+          new StatsWriteBatching(this.catchUpWriteParallelism, this.catchUpMaxBufferedWrites);
+    }
     // TODO log parameters
     final TopologyBuilder topologyBuilder = new TopologyBuilder(
         new Serdes(this.schemaRegistryUrl),
-        this.cassandraSession,
         this.activePowerTopic,
-        this.aggrActivePowerTopic);
-    topologyBuilder.addStat(
-        new DayOfWeekKeyFactory(),
-        DayOfWeekKeySerde.create(),
-        new DayOfWeekRecordFactory(),
-        new RecordDatabaseAdapter<>(DayOfWeekActivePowerRecord.class, "dayOfWeek"), // NOCS
-        TimeWindows.of(Duration.ofDays(365)).advanceBy(Duration.ofDays(30)), // NOCS
-        this.dayOfWeekTopic);
-    topologyBuilder.addStat(
-        new HourOfDayKeyFactory(),
-        HourOfDayKeySerde.create(),
-        new HourOfDayRecordFactory(),
-        new RecordDatabaseAdapter<>(HourOfDayActivePowerRecord.class, "hourOfDay"), // NOCS
-        TimeWindows.of(Duration.ofDays(30)).advanceBy(Duration.ofDays(1)), // NOCS
-        this.hourOfDayTopic);
-    topologyBuilder.addStat(
-        new HourOfWeekKeyFactory(),
-        HourOfWeekKeySerde.create(),
-        new HourOfWeekRecordFactory(),
-        new RecordDatabaseAdapter<>(
-            HourOfWeekActivePowerRecord.class,
-            List.of("dayOfWeek", "hourOfDay")), // NOCS
-        TimeWindows.of(Duration.ofDays(365)).advanceBy(Duration.ofDays(30)), // NOCS
-        this.hourOfWeekTopic);
+        this.aggrActivePowerTopic,
+        this.statsStorage);
+    topologyBuilder.shareStatMetrics(this.statMetrics);
+    if (this.stateSeeding) {
+      topologyBuilder.enableStateSeeding();
+    }
+    if (this.writeBatching != null) {
+      topologyBuilder.enableWriteBatching(this.writeBatching);
+    }
+    this.addStats(topologyBuilder);
     return topologyBuilder.build();
   }
 
-  private Properties buildProperties() {
+  /**
+   * Sets the {@link StatsStorage} used instead of storing statistics in Cassandra, for example, for
+   * tests.
+   */
+  KafkaStreamsBuilder statsStorage(final StatsStorage statsStorage) {
+    this.statsStorage = statsStorage;
+    return this;
+  }
+
+  /**
+   * Add all configured statistics calculation steps to the passed {@link TopologyBuilder}. This
+   * allows to build the same statistics, for example, for benchmarks with a different
+   * {@link Serdes} configuration and without Cassandra.
+   */
+  void addStats(final TopologyBuilder topologyBuilder) {
+    if (this.metricsRegistry != null) {
+      topologyBuilder.enableMetrics(this.metricsRegistry);
+    }
+    topologyBuilder.enableLatencyLogging(this.latencyLogInterval);
+    if (this.streamsProgress != null) {
+      topologyBuilder.trackProgress(this.streamsProgress);
+    }
+    if (this.percentilesRelativeAccuracy > 0 && this.percentilesMaxBins > 0) {
+      topologyBuilder.enablePercentiles(this.percentilesRelativeAccuracy, this.percentilesMaxBins);
+    }
+    topologyBuilder.setStoragePolicy(this.storagePolicy);
+    topologyBuilder.setTableOptions(this.tableOptions);
+    if (this.packedStorage) {
+      topologyBuilder.enablePackedStorage();
+    }
+    if (this.decayingHalfLife == null && this.hotKeySalts > 1
+        && (this.aggregatedSensorsHot || !this.hotSensorIds.isEmpty())) {
+      topologyBuilder.enableHotKeySplitting(
+          this.hotSensorIds,
+          this.aggregatedSensorsHot,
+          this.hotKeySalts);
+    }
+    for (final StatsDefinition statsDefinition : this.statsDefinitions) {
+      this.addStat(topologyBuilder, statsDefinition);
+    }
+  }
+
+  private void addStat(
+      final TopologyBuilder topologyBuilder,
+      final StatsDefinition statsDefinition) {
+    this.addStat(
+        topologyBuilder,
+        StatsComponents.forType(statsDefinition.getType()),
+        statsDefinition.toTimeWindows(),
+        statsDefinition.getRetention(),
+        this.getStatsTopic(statsDefinition.getType()));
+  }
+
+  private <K, R extends SpecificRecord> void addStat(
+      final TopologyBuilder topologyBuilder,
+      final StatsComponents<K, R> components,
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final String statsTopic) {
+    this.addStat(
+        topologyBuilder,
+        components.getKeyFactory(),
+        components.getKeySerde(),
+        components.getRecordFactory(),
+        components.getRecordDatabaseAdapter(),
+        timeWindows,
+        retention,
+        statsTopic);
+  }
+
+  private String getStatsTopic(final StatsType type) {
+    switch (type) {
+      case DAY_OF_WEEK:
+        return Objects.requireNonNull(this.dayOfWeekTopic,
+            "Kafka topic for day of week active power records has not been set.");
+      case HOUR_OF_DAY:
+        return Objects.requireNonNull(this.hourOfDayTopic,
+            "Kafka topic for hour of day active power records has not been set.");
+      case HOUR_OF_WEEK:
+        return Objects.requireNonNull(this.hourOfWeekTopic,
+            "Kafka topic for hour of week active power records has not been set.");
+      default:
+        throw new IllegalArgumentException("Unsupported statistics type " + type + '.');
+    }
+  }
+
+  /**
+   * Add a statistics calculation step either based on time windows or, if a half-life is set,
+   * based on exponential time decay.
+   */
+  private <K, R extends SpecificRecord> void addStat( // NOPMD
+      final TopologyBuilder topologyBuilder,
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final String statsTopic) {
+    if (this.decayingHalfLife == null) {
+      topologyBuilder.addStat(
+          keyFactory,
+          keySerde,
+          statsRecordFactory,
+          recordDatabaseAdapter,
+          timeWindows,
+          retention,
+          statsTopic);
+    } else {
+      topologyBuilder.addDecayingStat(
+          keyFactory,
+          keySerde,
+          statsRecordFactory,
+          recordDatabaseAdapter,
+          this.decayingHalfLife,
+          statsTopic);
+    }
+  }
+
+  private String getApplicationId() {
+    final String applicationId = this.applicationName + '-' + this.applicationVersion;
+    if (this.applicationIdSuffix == null || this.applicationIdSuffix.isEmpty()) {
+      return applicationId;
+    }
+    return applicationId + '-' + this.applicationIdSuffix;
+  }
+
+  /**
+   * Build the Kafka Streams properties either with the normal settings or with the settings for
+   * catching up.
+   */
+  Properties buildProperties(final boolean catchUp) {
+    final int commitInterval = catchUp && this.catchUpCommitIntervalMs >= 0
+        ? this.catchUpCommitIntervalMs
+        : this.commitIntervalMs;
+    final int cacheMaxBytes = catchUp && this.catchUpCacheMaxBytesBuff >= 0
+        ? this.catchUpCacheMaxBytesBuff
+        : this.cacheMaxBytesBuff;
     return PropertiesBuilder
         .bootstrapServers(this.bootstrapServers)
-        .applicationId(this.applicationName + '-' + this.applicationVersion)
+        .applicationId(this.getApplicationId())
         .set(StreamsConfig.NUM_STREAM_THREADS_CONFIG, this.numThreads, p -> p > 0)
-        .set(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, this.commitIntervalMs, p -> p >= 0)
-        .set(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, this.cacheMaxBytesBuff, p -> p >= 0)
+        .set(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, commitInterval, p -> p >= 0)
+        .set(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, cacheMaxBytes, p -> p >= 0)
+        .set(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG, this.metricsRecordingLevel,
+            Objects::nonNull)
+        .set(StreamsConfig.STATE_DIR_CONFIG, this.stateDirectory, d -> d != null && !d.isEmpty())
+        .set(StreamsConfig.WINDOW_STORE_CHANGE_LOG_ADDITIONAL_RETENTION_MS_CONFIG,
+            this.changelogAdditionalRetentionMs, r -> r >= 0)
         .build();
   }
 
@@ -0,0 +1,141 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.util.PackedStatsSchema;
+
+/**
+ * Writes statistics records to Cassandra in the packed layout (see {@link PackedStatsSchema}) and
+ * loads stored statistics from it. Each record is written as a single entry of the bins map of
+ * its identifier and period, so that writing does not require reading the other bins. For each
+ * record type, registered by its {@link RecordDatabaseAdapter}, a separate table is created.
+ */
+public class PackedStatsTableWriter {
+
+  private static final String COUNT_FIELD = "count";
+  private static final String MEAN_FIELD = "mean";
+  private static final String POPULATION_VARIANCE_FIELD = "populationVariance";
+  private static final String MIN_FIELD = "min";
+  private static final String MAX_FIELD = "max";
+
+  private final Session session;
+  private final Map<Class<?>, PreparedStatement> updateStatements = new ConcurrentHashMap<>();
+  private final Map<Class<?>, PreparedStatement> loadStatements = new ConcurrentHashMap<>();
+
+  public PackedStatsTableWriter(final Session session) {
+    this.session = session;
+  }
+
+  /**
+   * Create the table for the record type of the passed {@link RecordDatabaseAdapter} if it does not
+   * exist yet and prepare the corresponding statements.
+   */
+  public void register(final RecordDatabaseAdapter<?> adapter) {
+    final String tableName = getTableName(adapter);
+    this.session.execute(SchemaBuilder.createTable(tableName)
+        .ifNotExists()
+        .addPartitionKey(adapter.getIdentifierField(), DataType.text())
+        .addPartitionKey(adapter.getPeriodStartField(), DataType.bigint())
+        .addPartitionKey(adapter.getPeriodEndField(), DataType.bigint())
+        .addColumn(PackedStatsSchema.BINS_COLUMN, DataType.map(DataType.cint(), DataType.blob())));
+
+    this.updateStatements.put(adapter.getClazz(), this.session.prepare(QueryBuilder
+        .update(tableName)
+        .with(QueryBuilder.put(
+            PackedStatsSchema.BINS_COLUMN,
+            QueryBuilder.bindMarker(),
+            QueryBuilder.bindMarker()))
+        .where(QueryBuilder.eq(adapter.getIdentifierField(), QueryBuilder.bindMarker()))
+        .and(QueryBuilder.eq(adapter.getPeriodStartField(), QueryBuilder.bindMarker()))
+        .and(QueryBuilder.eq(adapter.getPeriodEndField(), QueryBuilder.bindMarker()))));
+
+    final Select.Where load = QueryBuilder
+        .select(PackedStatsSchema.BINS_COLUMN)
+        .from(tableName)
+        .where(QueryBuilder.eq(adapter.getIdentifierField(), QueryBuilder.bindMarker()))
+        .and(QueryBuilder.eq(adapter.getPeriodStartField(), QueryBuilder.bindMarker()))
+        .and(QueryBuilder.eq(adapter.getPeriodEndField(), QueryBuilder.bindMarker()));
+    this.loadStatements.put(adapter.getClazz(), this.session.prepare(load));
+  }
+
+  /**
+   * Write the passed statistics record as entry of the bins map of its identifier and period.
+   */
+  public <R extends SpecificRecord> void write(final RecordDatabaseAdapter<R> adapter,
+      final R record) {
+    final ByteBuffer bin = PackedStatsSchema.encode(
+        (Long) getField(record, COUNT_FIELD),
+        (Double) getField(record, MEAN_FIELD),
+        (Double) getField(record, POPULATION_VARIANCE_FIELD),
+        (Double) getField(record, MIN_FIELD),
+        (Double) getField(record, MAX_FIELD));
+    this.session.execute(getStatement(this.updateStatements, adapter).bind(
+        getBinKey(adapter, record),
+        bin,
+        getField(record, adapter.getIdentifierField()).toString(),
+        getField(record, adapter.getPeriodStartField()),
+        getField(record, adapter.getPeriodEndField())));
+  }
+
+  /**
+   * Load the stored bin having the same identifier, period and time unit as the passed record or
+   * null if no statistics are stored for this bin. See {@link PackedStatsSchema} for decoding the
+   * bin.
+   */
+  public <R extends SpecificRecord> ByteBuffer load(final RecordDatabaseAdapter<R> adapter,
+      final R keyRecord) {
+    final Row row = this.session.execute(getStatement(this.loadStatements, adapter).bind(
+        getField(keyRecord, adapter.getIdentifierField()).toString(),
+        getField(keyRecord, adapter.getPeriodStartField()),
+        getField(keyRecord, adapter.getPeriodEndField())))
+        .one();
+    if (row == null) {
+      return null;
+    }
+    return row.getMap(PackedStatsSchema.BINS_COLUMN, Integer.class, ByteBuffer.class)
+        .get(getBinKey(adapter, keyRecord));
+  }
+
+  /**
+   * Returns the name of the packed table of the passed record type.
+   */
+  public static String getTableName(final RecordDatabaseAdapter<?> adapter) {
+    return PackedStatsSchema.getTableName(adapter.getClazz().getSimpleName());
+  }
+
+  private static int getBinKey(final RecordDatabaseAdapter<?> adapter,
+      final SpecificRecord record) {
+    final Collection<String> timeUnitFields = adapter.getTimeUnitFields();
+    final int[] timeUnits = new int[timeUnitFields.size()];
+    int index = 0;
+    for (final String timeUnitField : timeUnitFields) {
+      timeUnits[index++] = (Integer) getField(record, timeUnitField);
+    }
+    return PackedStatsSchema.getBinKey(timeUnits);
+  }
+
+  private static PreparedStatement getStatement(final Map<Class<?>, PreparedStatement> statements,
+      final RecordDatabaseAdapter<?> adapter) {
+    final PreparedStatement statement = statements.get(adapter.getClazz());
+    if (statement == null) {
+      throw new IllegalArgumentException(
+          "Record type " + adapter.getClazz().getSimpleName() + " is not registered.");
+    }
+    return statement;
+  }
+
+  private static Object getField(final SpecificRecord record, final String name) {
+    return record.get(record.getSchema().getField(name).pos());
+  }
+
+}
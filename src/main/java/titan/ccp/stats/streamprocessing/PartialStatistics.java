@@ -0,0 +1,84 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.StatsAccumulator;
+import java.util.Arrays;
+
+/**
+ * Partial {@link SummaryStatistics} of a key, which has been split into several salted sub-keys
+ * (see {@link SaltedKey}). Holds the most recent statistics of each salt, which are merged to the
+ * statistics of the original key.
+ */
+public final class PartialStatistics {
+
+  private final SummaryStatistics[] partials;
+
+  /**
+   * Create new {@link PartialStatistics} from the passed statistics per salt. Salts without
+   * statistics so far are represented by null.
+   */
+  public PartialStatistics(final SummaryStatistics... partials) { // NOPMD array is stored
+    this.partials = partials;
+  }
+
+  public int getSalts() {
+    return this.partials.length;
+  }
+
+  /**
+   * Get the statistics of the passed salt or null if there are no statistics for it so far.
+   */
+  public SummaryStatistics get(final int salt) {
+    return this.partials[salt];
+  }
+
+  /**
+   * Update these {@link PartialStatistics} with all statistics contained in the passed ones by
+   * creating a new instance.
+   */
+  public PartialStatistics update(final PartialStatistics updates) {
+    final SummaryStatistics[] updatedPartials =
+        Arrays.copyOf(this.partials, Math.max(this.partials.length, updates.partials.length));
+    for (int salt = 0; salt < updates.partials.length; salt++) {
+      if (updates.partials[salt] != null) {
+        updatedPartials[salt] = updates.partials[salt];
+      }
+    }
+    return new PartialStatistics(updatedPartials);
+  }
+
+  /**
+   * Merge the statistics of all salts. The merged statistics are associated with the passed
+   * timestamp, which is usually the one of the most recent update.
+   */
+  public SummaryStatistics merge(final long timestamp) {
+    final StatsAccumulator statsAccumulator = new StatsAccumulator();
+    QuantileSketch sketch = null;
+    for (final SummaryStatistics partial : this.partials) {
+      if (partial == null) {
+        continue;
+      }
+      statsAccumulator.addAll(partial.getStats());
+      if (partial.getSketch() != null) {
+        if (sketch == null) {
+          sketch = new QuantileSketch(
+              partial.getSketch().getRelativeAccuracy(),
+              partial.getSketch().getMaxBins());
+        }
+        sketch.merge(partial.getSketch());
+      }
+    }
+    return new SummaryStatistics(statsAccumulator.snapshot(), timestamp, sketch);
+  }
+
+  /**
+   * Create {@link PartialStatistics} for the passed number of salts, which only contain the passed
+   * statistics of a single salt.
+   */
+  public static PartialStatistics of(final int salt, final int salts,
+      final SummaryStatistics statistics) {
+    final SummaryStatistics[] partials = new SummaryStatistics[salts];
+    partials[salt] = statistics;
+    return new PartialStatistics(partials);
+  }
+
+}
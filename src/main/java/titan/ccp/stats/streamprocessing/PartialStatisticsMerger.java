@@ -0,0 +1,91 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+/**
+ * Second stage of the aggregation of split hot keys. Keeps the most recent
+ * {@link PartialStatistics} of all salts per window in a state store and forwards the merged
+ * {@link SummaryStatistics} on each update. Partial statistics of windows, which cannot receive
+ * updates anymore, are periodically removed from the state store.
+ *
+ * @param <K> Type of the original key.
+ */
+public class PartialStatisticsMerger<K> implements
+    Transformer<Windowed<K>, PartialStatistics, KeyValue<Windowed<K>, SummaryStatistics>> {
+
+  private final String storeName;
+  private final Duration cleanupInterval;
+  private final long retentionMs;
+  private KeyValueStore<Windowed<K>, PartialStatistics> store;
+
+  /**
+   * Create a new {@link PartialStatisticsMerger}.
+   *
+   * @param storeName Name of the state store for the partial statistics.
+   * @param cleanupInterval Interval in stream time for removing outdated partial statistics.
+   * @param retentionMs Time after a window's end, after which its partial statistics are removed.
+   */
+  public PartialStatisticsMerger(final String storeName, final Duration cleanupInterval,
+      final long retentionMs) {
+    this.storeName = storeName;
+    this.cleanupInterval = cleanupInterval;
+    this.retentionMs = retentionMs;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void init(final ProcessorContext context) {
+    this.store = (KeyValueStore<Windowed<K>, PartialStatistics>) context
+        .getStateStore(this.storeName);
+    context.schedule(this.cleanupInterval, PunctuationType.STREAM_TIME, this::removeOutdated);
+  }
+
+  @Override
+  public KeyValue<Windowed<K>, SummaryStatistics> transform(final Windowed<K> key,
+      final PartialStatistics value) {
+    final PartialStatistics stored = this.store.get(key);
+    final PartialStatistics updated = stored == null ? value : stored.update(value);
+    this.store.put(key, updated);
+    return KeyValue.pair(key, updated.merge(getLatestTimestamp(value)));
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  private void removeOutdated(final long streamTime) {
+    final List<Windowed<K>> outdatedKeys = new ArrayList<>();
+    try (KeyValueIterator<Windowed<K>, PartialStatistics> iterator = this.store.all()) {
+      while (iterator.hasNext()) {
+        final Windowed<K> key = iterator.next().key;
+        if (key.window().end() + this.retentionMs < streamTime) {
+          outdatedKeys.add(key);
+        }
+      }
+    }
+    for (final Windowed<K> key : outdatedKeys) {
+      this.store.delete(key);
+    }
+  }
+
+  private static long getLatestTimestamp(final PartialStatistics value) {
+    long timestamp = -1;
+    for (int salt = 0; salt < value.getSalts(); salt++) {
+      if (value.get(salt) != null) {
+        timestamp = Math.max(timestamp, value.get(salt).getTimestamp());
+      }
+    }
+    return timestamp;
+  }
+
+}
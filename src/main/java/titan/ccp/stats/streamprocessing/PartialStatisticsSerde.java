@@ -0,0 +1,44 @@
+package titan.ccp.stats.streamprocessing;
+
+import titan.ccp.common.kafka.simpleserdes.BufferSerde;
+import titan.ccp.common.kafka.simpleserdes.ReadBuffer;
+import titan.ccp.common.kafka.simpleserdes.WriteBuffer;
+
+/**
+ * Simple serde ({@link BufferSerde}) for {@link PartialStatistics}. Only salts with statistics are
+ * serialized.
+ */
+public class PartialStatisticsSerde implements BufferSerde<PartialStatistics> {
+
+  private final SummaryStatisticsSerde summaryStatisticsSerde = new SummaryStatisticsSerde();
+
+  @Override
+  public void serialize(final WriteBuffer buffer, final PartialStatistics data) {
+    int present = 0;
+    for (int salt = 0; salt < data.getSalts(); salt++) {
+      if (data.get(salt) != null) {
+        present++;
+      }
+    }
+    buffer.putInt(data.getSalts());
+    buffer.putInt(present);
+    for (int salt = 0; salt < data.getSalts(); salt++) {
+      if (data.get(salt) != null) {
+        buffer.putInt(salt);
+        this.summaryStatisticsSerde.serialize(buffer, data.get(salt));
+      }
+    }
+  }
+
+  @Override
+  public PartialStatistics deserialize(final ReadBuffer buffer) {
+    final SummaryStatistics[] partials = new SummaryStatistics[buffer.getInt()];
+    final int present = buffer.getInt();
+    for (int i = 0; i < present; i++) {
+      final int salt = buffer.getInt();
+      partials[salt] = this.summaryStatisticsSerde.deserialize(buffer);
+    }
+    return new PartialStatistics(partials);
+  }
+
+}
@@ -0,0 +1,99 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.Insert;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.schemabuilder.Create;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.avro.specific.SpecificRecord;
+import titan.ccp.stats.util.PercentilesSchema;
+
+/**
+ * Writes approximated percentiles of {@link QuantileSketch}es to Cassandra. For each record type,
+ * registered by its {@link RecordDatabaseAdapter}, a separate table is created, which has the same
+ * primary key as the table of the corresponding statistics records.
+ */
+public class PercentilesTableWriter {
+
+  private final Session session;
+  private final Map<Class<?>, PreparedStatement> insertStatements = new ConcurrentHashMap<>();
+
+  public PercentilesTableWriter(final Session session) {
+    this.session = session;
+  }
+
+  /**
+   * Create the table for the record type of the passed {@link RecordDatabaseAdapter} if it does not
+   * exist yet and prepare the corresponding insert statement.
+   */
+  public void register(final RecordDatabaseAdapter<?> adapter) {
+    final String tableName =
+        PercentilesSchema.getTableName(adapter.getClazz().getSimpleName());
+
+    Create create = SchemaBuilder.createTable(tableName)
+        .ifNotExists()
+        .addPartitionKey(adapter.getIdentifierField(), DataType.text())
+        .addPartitionKey(adapter.getPeriodStartField(), DataType.bigint())
+        .addPartitionKey(adapter.getPeriodEndField(), DataType.bigint());
+    for (final String timeUnitField : adapter.getTimeUnitFields()) {
+      create = create.addClusteringColumn(timeUnitField, DataType.cint());
+    }
+    for (final String column : PercentilesSchema.COLUMNS) {
+      create = create.addColumn(column, DataType.cdouble());
+    }
+    this.session.execute(create);
+
+    final Insert insert = QueryBuilder.insertInto(tableName);
+    for (final String column : this.getColumns(adapter)) {
+      insert.value(column, QueryBuilder.bindMarker());
+    }
+    this.insertStatements.put(adapter.getClazz(), this.session.prepare(insert));
+  }
+
+  /**
+   * Write the percentiles of the passed {@link QuantileSketch} for the passed statistics record.
+   */
+  public <R extends SpecificRecord> void write(
+      final RecordDatabaseAdapter<R> adapter,
+      final R record,
+      final QuantileSketch sketch) {
+    final PreparedStatement statement = this.insertStatements.get(adapter.getClazz());
+    if (statement == null) {
+      throw new IllegalArgumentException(
+          "Record type " + adapter.getClazz().getSimpleName() + " is not registered.");
+    }
+
+    final List<Object> values = new ArrayList<>();
+    values.add(getField(record, adapter.getIdentifierField()).toString());
+    values.add(getField(record, adapter.getPeriodStartField()));
+    values.add(getField(record, adapter.getPeriodEndField()));
+    for (final String timeUnitField : adapter.getTimeUnitFields()) {
+      values.add(getField(record, timeUnitField));
+    }
+    for (final double quantile : PercentilesSchema.QUANTILES) {
+      values.add(sketch.quantile(quantile));
+    }
+    this.session.execute(statement.bind(values.toArray()));
+  }
+
+  private List<String> getColumns(final RecordDatabaseAdapter<?> adapter) {
+    final List<String> columns = new ArrayList<>();
+    columns.add(adapter.getIdentifierField());
+    columns.add(adapter.getPeriodStartField());
+    columns.add(adapter.getPeriodEndField());
+    columns.addAll(adapter.getTimeUnitFields());
+    columns.addAll(PercentilesSchema.COLUMNS);
+    return columns;
+  }
+
+  private static Object getField(final SpecificRecord record, final String fieldName) {
+    return record.get(record.getSchema().getField(fieldName).pos());
+  }
+
+}
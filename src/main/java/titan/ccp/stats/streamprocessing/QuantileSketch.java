@@ -0,0 +1,296 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Bounded-memory, mergeable sketch for approximating quantiles. Values are counted in
+ * logarithmically sized bins, such that each quantile is approximated with a relative error of at
+ * most the configured relative accuracy. Positive and negative values are counted in separate bins,
+ * indexed by their magnitude. If more than the configured maximum number of bins would be required
+ * for either, the bins of the lowest values are collapsed, i.e., the bins of the smallest positive
+ * values and of the negative values with the largest magnitude. This only affects the accuracy of
+ * the lowest quantiles of the positive and the negative values, respectively.
+ *
+ * <p>
+ * In contrast to {@link SummaryStatistics}, a {@link QuantileSketch} is mutable as copying it for
+ * each added value would be too expensive.
+ * </p>
+ */
+public final class QuantileSketch {
+
+  private static final double ZERO_THRESHOLD = 1e-9;
+  private static final int VAR_INT_MAX_BYTES = 5;
+  private static final int VAR_LONG_MAX_BYTES = 10;
+  private static final int SEVEN_BITS = 7;
+  private static final int LOWER_SEVEN_BITS = 0x7F;
+  private static final int CONTINUATION_BIT = 0x80;
+
+  private final double relativeAccuracy;
+  private final int maxBins;
+  private final double gamma;
+  private final double logGamma;
+  private final Bins positiveBins;
+  private final Bins negativeBins;
+  private long zeroCount;
+  private long count;
+
+  /**
+   * Create a new, empty {@link QuantileSketch}.
+   *
+   * @param relativeAccuracy Maximal relative error of approximated quantiles (between 0 and 1).
+   * @param maxBins Maximal number of bins for positive and negative values each.
+   */
+  public QuantileSketch(final double relativeAccuracy, final int maxBins) {
+    if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+      throw new IllegalArgumentException("Relative accuracy must be between 0 and 1.");
+    }
+    if (maxBins <= 0) {
+      throw new IllegalArgumentException("Maximal number of bins must be greater 0.");
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.maxBins = maxBins;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(this.gamma);
+    this.positiveBins = new Bins(maxBins, false);
+    this.negativeBins = new Bins(maxBins, true);
+  }
+
+  public double getRelativeAccuracy() {
+    return this.relativeAccuracy;
+  }
+
+  public int getMaxBins() {
+    return this.maxBins;
+  }
+
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Add a value to this sketch.
+   *
+   * @return This sketch to allow for method chaining.
+   */
+  public QuantileSketch add(final double value) {
+    if (value > ZERO_THRESHOLD) {
+      this.positiveBins.add(this.index(value), 1);
+    } else if (value < -ZERO_THRESHOLD) {
+      this.negativeBins.add(this.index(-value), 1);
+    } else {
+      this.zeroCount++;
+    }
+    this.count++;
+    return this;
+  }
+
+  /**
+   * Merge another sketch into this one. Both sketches must have the same relative accuracy.
+   *
+   * @return This sketch to allow for method chaining.
+   */
+  public QuantileSketch merge(final QuantileSketch other) {
+    if (Double.compare(this.relativeAccuracy, other.relativeAccuracy) != 0) {
+      throw new IllegalArgumentException("Sketches with different accuracy cannot be merged.");
+    }
+    this.positiveBins.addAll(other.positiveBins);
+    this.negativeBins.addAll(other.negativeBins);
+    this.zeroCount += other.zeroCount;
+    this.count += other.count;
+    return this;
+  }
+
+  /**
+   * Get an approximation of the quantile {@code q} (between 0 and 1) of all added values or
+   * {@link Double#NaN} if no values have been added so far.
+   */
+  public double quantile(final double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+    }
+    if (this.count == 0) {
+      return Double.NaN;
+    }
+    final long rank = (long) (q * (this.count - 1));
+    long seen = 0;
+    final long[] negativeCounts = this.negativeBins.counts;
+    for (int i = negativeCounts.length - 1; i >= 0; i--) {
+      seen += negativeCounts[i];
+      if (seen > rank) {
+        return -this.value(this.negativeBins.offset + i);
+      }
+    }
+    seen += this.zeroCount;
+    if (seen > rank) {
+      return 0.0;
+    }
+    final long[] positiveCounts = this.positiveBins.counts;
+    for (int i = 0; i < positiveCounts.length; i++) {
+      seen += positiveCounts[i];
+      if (seen > rank) {
+        return this.value(this.positiveBins.offset + i);
+      }
+    }
+    return this.value(this.positiveBins.offset + positiveCounts.length - 1);
+  }
+
+  /**
+   * Serializes this {@link QuantileSketch} to a compact byte array using variable-length encoding
+   * for the bin counts.
+   */
+  public byte[] toByteArray() {
+    final ByteBuffer buffer = ByteBuffer
+        .allocate(Double.BYTES + VAR_INT_MAX_BYTES + VAR_LONG_MAX_BYTES
+            + this.positiveBins.maxSerializedSize()
+            + this.negativeBins.maxSerializedSize())
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putDouble(this.relativeAccuracy);
+    putVarLong(buffer, this.maxBins);
+    putVarLong(buffer, this.zeroCount);
+    this.positiveBins.serialize(buffer);
+    this.negativeBins.serialize(buffer);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  @Override
+  public String toString() {
+    return "QuantileSketch{count=" + this.count + ", p50=" + this.quantile(0.5) // NOCS
+        + ", p99=" + this.quantile(0.99) + '}'; // NOCS
+  }
+
+  private int index(final double absoluteValue) {
+    return (int) Math.ceil(Math.log(absoluteValue) / this.logGamma);
+  }
+
+  private double value(final int index) {
+    return 2 * Math.pow(this.gamma, index) / (this.gamma + 1);
+  }
+
+  /**
+   * Deserializes a {@link QuantileSketch} from a byte array created with {@link #toByteArray()}.
+   */
+  public static QuantileSketch fromByteArray(final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    final double relativeAccuracy = buffer.getDouble();
+    final int maxBins = (int) getVarLong(buffer);
+    final QuantileSketch sketch = new QuantileSketch(relativeAccuracy, maxBins);
+    sketch.zeroCount = getVarLong(buffer);
+    sketch.positiveBins.deserialize(buffer);
+    sketch.negativeBins.deserialize(buffer);
+    sketch.count = sketch.zeroCount + sketch.positiveBins.total() + sketch.negativeBins.total();
+    return sketch;
+  }
+
+  private static void putVarLong(final ByteBuffer buffer, final long value) {
+    long remaining = value;
+    while ((remaining & ~LOWER_SEVEN_BITS) != 0) {
+      buffer.put((byte) (remaining & LOWER_SEVEN_BITS | CONTINUATION_BIT));
+      remaining >>>= SEVEN_BITS;
+    }
+    buffer.put((byte) remaining);
+  }
+
+  private static long getVarLong(final ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte current;
+    do {
+      current = buffer.get();
+      value |= (long) (current & LOWER_SEVEN_BITS) << shift;
+      shift += SEVEN_BITS;
+    } while ((current & CONTINUATION_BIT) != 0);
+    return value;
+  }
+
+  /**
+   * Contiguous range of bin counts, starting at bin index {@code offset}. If more than the maximal
+   * number of bins would be required, either the lowest or the highest bin indices are collapsed.
+   */
+  private static final class Bins {
+
+    private final int maxBins;
+    private final boolean collapseHighest;
+    private long[] counts = new long[0];
+    private int offset;
+
+    private Bins(final int maxBins, final boolean collapseHighest) {
+      this.maxBins = maxBins;
+      this.collapseHighest = collapseHighest;
+    }
+
+    private void add(final int index, final long binCount) {
+      if (this.counts.length == 0) {
+        this.offset = index;
+        this.counts = new long[] {binCount};
+        return;
+      }
+      final int top = this.offset + this.counts.length - 1;
+      final int lowest = Math.min(this.offset, index);
+      final int highest = Math.max(top, index);
+      final int newOffset;
+      final int newTop;
+      if (this.collapseHighest) {
+        newOffset = lowest;
+        newTop = Math.min(highest, lowest + this.maxBins - 1);
+      } else {
+        newOffset = Math.max(lowest, highest - this.maxBins + 1);
+        newTop = highest;
+      }
+      if (newOffset != this.offset || newTop != top) {
+        final long[] newCounts = new long[newTop - newOffset + 1];
+        for (int i = 0; i < this.counts.length; i++) {
+          newCounts[clamp(this.offset + i, newOffset, newTop) - newOffset] += this.counts[i];
+        }
+        this.counts = newCounts;
+        this.offset = newOffset;
+      }
+      this.counts[clamp(index, newOffset, newTop) - newOffset] += binCount;
+    }
+
+    private static int clamp(final int index, final int lowest, final int highest) {
+      return Math.min(Math.max(index, lowest), highest);
+    }
+
+    private void addAll(final Bins other) {
+      for (int i = 0; i < other.counts.length; i++) {
+        if (other.counts[i] > 0) {
+          this.add(other.offset + i, other.counts[i]);
+        }
+      }
+    }
+
+    private long total() {
+      long total = 0;
+      for (final long binCount : this.counts) {
+        total += binCount;
+      }
+      return total;
+    }
+
+    private int maxSerializedSize() {
+      return 2 * VAR_INT_MAX_BYTES + this.counts.length * VAR_LONG_MAX_BYTES;
+    }
+
+    private void serialize(final ByteBuffer buffer) {
+      // Zig-zag encoding for the offset as it may be negative
+      putVarLong(buffer, Integer.toUnsignedLong(this.offset << 1 ^ this.offset >> 31)); // NOCS
+      putVarLong(buffer, this.counts.length);
+      for (final long binCount : this.counts) {
+        putVarLong(buffer, binCount);
+      }
+    }
+
+    private void deserialize(final ByteBuffer buffer) {
+      final int zigZagOffset = (int) getVarLong(buffer);
+      this.offset = zigZagOffset >>> 1 ^ -(zigZagOffset & 1);
+      this.counts = new long[(int) getVarLong(buffer)];
+      for (int i = 0; i < this.counts.length; i++) {
+        this.counts[i] = getVarLong(buffer);
+      }
+    }
+
+  }
+
+}
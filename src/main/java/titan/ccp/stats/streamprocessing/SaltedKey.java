@@ -0,0 +1,63 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.Objects;
+
+/**
+ * A key extended by a salt, which allows to distribute records of a single hot key across several
+ * sub-keys and, hence, partitions.
+ *
+ * @param <K> Type of the original key.
+ */
+public class SaltedKey<K> {
+
+  private static final long FIBONACCI_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  private final K key;
+  private final int salt;
+
+  public SaltedKey(final K key, final int salt) {
+    this.key = key;
+    this.salt = salt;
+  }
+
+  public K getKey() {
+    return this.key;
+  }
+
+  public int getSalt() {
+    return this.salt;
+  }
+
+  @Override
+  public String toString() {
+    return this.key + "#" + this.salt;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.key, this.salt);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof SaltedKey) {
+      final SaltedKey<?> other = (SaltedKey<?>) obj;
+      return Objects.equals(this.key, other.key) && this.salt == other.salt;
+    }
+    return false;
+  }
+
+  /**
+   * Derive a salt between zero (inclusive) and {@code salts} (exclusive) from a record's
+   * timestamp. Timestamps are hashed, so that records with regular intervals are still spread
+   * evenly and the salt is deterministic when reprocessing records.
+   */
+  public static int salt(final long timestamp, final int salts) {
+    final int hash = (int) ((timestamp * FIBONACCI_HASH_MULTIPLIER) >>> Integer.SIZE);
+    return Math.floorMod(hash, salts);
+  }
+
+}
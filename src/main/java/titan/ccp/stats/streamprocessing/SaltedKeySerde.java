@@ -0,0 +1,40 @@
+package titan.ccp.stats.streamprocessing;
+
+import org.apache.kafka.common.serialization.Serde;
+import titan.ccp.common.kafka.simpleserdes.BufferSerde;
+import titan.ccp.common.kafka.simpleserdes.ReadBuffer;
+import titan.ccp.common.kafka.simpleserdes.SimpleSerdes;
+import titan.ccp.common.kafka.simpleserdes.WriteBuffer;
+
+/**
+ * {@link BufferSerde} for a {@link SaltedKey}, which uses a {@link Serde} for the original key. Use
+ * the {@link #create(Serde)} method to create a new Kafka {@link Serde}.
+ *
+ * @param <K> Type of the original key.
+ */
+public class SaltedKeySerde<K> implements BufferSerde<SaltedKey<K>> {
+
+  private final Serde<K> keySerde;
+
+  public SaltedKeySerde(final Serde<K> keySerde) {
+    this.keySerde = keySerde;
+  }
+
+  @Override
+  public void serialize(final WriteBuffer buffer, final SaltedKey<K> data) {
+    buffer.putInt(data.getSalt());
+    buffer.putBytes(this.keySerde.serializer().serialize(null, data.getKey()));
+  }
+
+  @Override
+  public SaltedKey<K> deserialize(final ReadBuffer buffer) {
+    final int salt = buffer.getInt();
+    final K key = this.keySerde.deserializer().deserialize(null, buffer.getBytes());
+    return new SaltedKey<>(key, salt);
+  }
+
+  public static <K> Serde<SaltedKey<K>> create(final Serde<K> keySerde) {
+    return SimpleSerdes.create(new SaltedKeySerde<>(keySerde));
+  }
+
+}
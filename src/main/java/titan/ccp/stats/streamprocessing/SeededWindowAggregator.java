@@ -0,0 +1,114 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.TimeWindow;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.state.WindowStore;
+
+/**
+ * Time window based aggregation of {@link SummaryStatistics}, equivalent to a windowed
+ * {@code aggregate} of the Kafka Streams DSL, whose window store is not backed by a changelog
+ * topic. Instead, the state of a window, which is not present in the window store (e.g., after a
+ * failover), is seeded from the statistics stored in Cassandra.
+ *
+ * <p>
+ * Seeded windows do not contain a {@link QuantileSketch} of the values aggregated before the
+ * seed, so that their percentiles only cover subsequently aggregated values.
+ * </p>
+ *
+ * @param <K> Type of the key.
+ * @param <R> Type of the statistics record.
+ */
+public class SeededWindowAggregator<K, R extends SpecificRecord> implements
+    Transformer<K, TimestampedActivePower, Iterable<KeyValue<Windowed<K>, SummaryStatistics>>> {
+
+  private final String storeName;
+  private final TimeWindows timeWindows;
+  private final Supplier<SummaryStatistics> initializer;
+  private final StatsRecordFactory<K, R> statsRecordFactory;
+  private final RecordDatabaseAdapter<R> recordDatabaseAdapter;
+  private final StatsStorage statsStorage;
+  private final StatMetrics metrics;
+  private WindowStore<K, SummaryStatistics> store;
+  private long observedStreamTime = -1;
+
+  /**
+   * Create a new {@link SeededWindowAggregator}.
+   */
+  public SeededWindowAggregator( // NOPMD many components
+      final String storeName,
+      final TimeWindows timeWindows,
+      final Supplier<SummaryStatistics> initializer,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final StatsStorage statsStorage,
+      final StatMetrics metrics) {
+    this.storeName = storeName;
+    this.timeWindows = timeWindows;
+    this.initializer = initializer;
+    this.statsRecordFactory = statsRecordFactory;
+    this.recordDatabaseAdapter = recordDatabaseAdapter;
+    this.statsStorage = statsStorage;
+    this.metrics = metrics;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void init(final ProcessorContext context) {
+    this.store = (WindowStore<K, SummaryStatistics>) context.getStateStore(this.storeName);
+  }
+
+  @Override
+  public Iterable<KeyValue<Windowed<K>, SummaryStatistics>> transform(final K key,
+      final TimestampedActivePower value) {
+    final long timestamp = value.getTimestamp();
+    this.observedStreamTime = Math.max(this.observedStreamTime, timestamp);
+    // Same semantics as the DSL: Drop records for windows, which are already closed
+    final long closeTime = this.observedStreamTime - this.timeWindows.gracePeriodMs();
+    final Map<Long, TimeWindow> windows = this.timeWindows.windowsFor(timestamp);
+    final List<KeyValue<Windowed<K>, SummaryStatistics>> results = new ArrayList<>(windows.size());
+    for (final TimeWindow window : windows.values()) {
+      if (window.end() <= closeTime) {
+        continue;
+      }
+      SummaryStatistics stats = this.store.fetch(key, window.start());
+      if (stats == null) {
+        stats = this.seed(key, window);
+      }
+      this.metrics.recordAggregation(key, timestamp);
+      final SummaryStatistics updated = stats.add(value);
+      this.store.put(key, updated, window.start());
+      results.add(KeyValue.pair(new Windowed<>(key, window), updated));
+    }
+    if (results.isEmpty()) {
+      this.metrics.getLateRecords().increment();
+    }
+    return results;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  private SummaryStatistics seed(final K key, final TimeWindow window) {
+    final SummaryStatistics initial = this.initializer.get();
+    final R keyRecord = this.statsRecordFactory.createKey(new Windowed<>(key, window));
+    final Stats stored = this.metrics.timeSeed(
+        () -> this.statsStorage.loadStats(this.recordDatabaseAdapter, keyRecord));
+    if (stored == null) {
+      return initial;
+    }
+    return new SummaryStatistics(stored, initial.getTimestamp(), initial.getSketch());
+  }
+
+}
@@ -33,6 +33,15 @@ class Serdes {
     return this.avroSerdeFactory.forValues();
   }
 
+  /**
+   * Lean serde for active power values on internal topics, which does not use the schema registry.
+   */
+  public Serde<TimestampedActivePower> timestampedActivePowerValues() {
+    return GenericSerde.from(
+        TimestampedActivePower::toByteArray,
+        TimestampedActivePower::fromByteArray);
+  }
+
   public Serde<Stats> stats() {
     return GenericSerde.from(Stats::toByteArray, Stats::fromByteArray);
   }
@@ -41,5 +50,13 @@ class Serdes {
     return SimpleSerdes.create(new SummaryStatisticsSerde());
   }
 
+  public Serde<PartialStatistics> partialStatistics() {
+    return SimpleSerdes.create(new PartialStatisticsSerde());
+  }
+
+  public Serde<DecayingStatistics> decayingStatistics() {
+    return GenericSerde.from(DecayingStatistics::toByteArray, DecayingStatistics::fromByteArray);
+  }
+
 
 }
@@ -0,0 +1,258 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.jfr.AggregationRecorder;
+import titan.ccp.stats.jfr.CassandraWriteEvent;
+import titan.ccp.stats.metrics.Counter;
+import titan.ccp.stats.metrics.Histogram;
+import titan.ccp.stats.metrics.HistogramSnapshot;
+import titan.ccp.stats.metrics.MetricsRegistry;
+
+/**
+ * Metrics of a single statistics calculation step, labeled by the name of the statistics.
+ *
+ * <p>
+ * Event time latencies, i.e., the wall clock time minus the timestamp of the most recent record
+ * contributing to a result, are recorded for three stages: after repartitioning (when a record is
+ * aggregated), when a result is forwarded to the output topic, and when it is written to
+ * Cassandra. If a log interval is set, these latencies are also logged periodically.
+ * </p>
+ *
+ * <p>
+ * Aggregation updates and Cassandra writes are additionally reported as JDK Flight Recorder
+ * events.
+ * </p>
+ */
+final class StatMetrics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatMetrics.class);
+
+  private static final double P50 = 0.5;
+  private static final double P99 = 0.99;
+
+  private static final String STAT_LABEL = "stat";
+  private static final String TABLE_LABEL = "table";
+  private static final String STATS_TABLE = "stats";
+  private static final String PERCENTILES_TABLE = "percentiles";
+  private static final String CASSANDRA_WRITE_METRIC = "stats_cassandra_write_seconds";
+  private static final String CASSANDRA_WRITE_HELP = "Latency of writes to Cassandra.";
+  private static final String STAGE_LABEL = "stage";
+  private static final String EVENT_TIME_LATENCY_METRIC = "stats_event_time_latency_seconds";
+  private static final String EVENT_TIME_LATENCY_HELP =
+      "Wall clock time minus the timestamp of the most recent record contributing to a result.";
+
+  private final String stat;
+  private final long logIntervalMs;
+  private final AtomicLong nextLogTime;
+
+  private final Counter inputRecords;
+  private final Counter outputRecords;
+  private final Counter lateRecords;
+  private final Histogram statsWriteLatency;
+  private final Histogram percentilesWriteLatency;
+  private final Histogram repartitionLatency;
+  private final Histogram outputLatency;
+  private final Histogram storageLatency;
+  private final Counter seededWindows;
+  private final Histogram seedLatency;
+  private final AggregationRecorder aggregationRecorder;
+  private final LongAccumulator watermark = new LongAccumulator(Math::max, Long.MIN_VALUE);
+  private HistogramSnapshot lastRepartitionLatency;
+  private HistogramSnapshot lastOutputLatency;
+  private HistogramSnapshot lastStorageLatency;
+
+  /**
+   * Create new {@link StatMetrics} for the passed statistics, whose latencies are logged with the
+   * passed interval. The interval can be null for not logging latencies.
+   */
+  StatMetrics(final MetricsRegistry metricsRegistry, final String stat,
+      final Duration logInterval) {
+    this.stat = stat;
+    this.logIntervalMs = logInterval == null ? 0 : logInterval.toMillis();
+    this.nextLogTime = new AtomicLong(System.currentTimeMillis() + this.logIntervalMs);
+    this.inputRecords = metricsRegistry.counter(
+        "stats_input_records_total",
+        "Number of active power records processed by a statistics calculation.",
+        STAT_LABEL, stat);
+    this.outputRecords = metricsRegistry.counter(
+        "stats_output_records_total",
+        "Number of statistics records forwarded to the output topic.",
+        STAT_LABEL, stat);
+    this.lateRecords = metricsRegistry.counter(
+        "stats_late_records_total",
+        "Number of records dropped by the seeded aggregation as all their windows were closed.",
+        STAT_LABEL, stat);
+    this.statsWriteLatency = metricsRegistry.durationHistogram(
+        CASSANDRA_WRITE_METRIC,
+        CASSANDRA_WRITE_HELP,
+        STAT_LABEL, stat,
+        TABLE_LABEL, STATS_TABLE);
+    this.percentilesWriteLatency = metricsRegistry.durationHistogram(
+        CASSANDRA_WRITE_METRIC,
+        CASSANDRA_WRITE_HELP,
+        STAT_LABEL, stat,
+        TABLE_LABEL, PERCENTILES_TABLE);
+    this.repartitionLatency = metricsRegistry.eventTimeLatencyHistogram(
+        EVENT_TIME_LATENCY_METRIC,
+        EVENT_TIME_LATENCY_HELP,
+        STAT_LABEL, stat,
+        STAGE_LABEL, "repartition");
+    this.outputLatency = metricsRegistry.eventTimeLatencyHistogram(
+        EVENT_TIME_LATENCY_METRIC,
+        EVENT_TIME_LATENCY_HELP,
+        STAT_LABEL, stat,
+        STAGE_LABEL, "output");
+    this.storageLatency = metricsRegistry.eventTimeLatencyHistogram(
+        EVENT_TIME_LATENCY_METRIC,
+        EVENT_TIME_LATENCY_HELP,
+        STAT_LABEL, stat,
+        STAGE_LABEL, "storage");
+    this.seededWindows = metricsRegistry.counter(
+        "stats_seeded_windows_total",
+        "Number of windows whose state was seeded from statistics stored in Cassandra.",
+        STAT_LABEL, stat);
+    this.seedLatency = metricsRegistry.durationHistogram(
+        "stats_seed_seconds",
+        "Latency of loading stored statistics from Cassandra for seeding window state.",
+        STAT_LABEL, stat);
+    this.lastRepartitionLatency = this.repartitionLatency.snapshot();
+    this.lastOutputLatency = this.outputLatency.snapshot();
+    this.lastStorageLatency = this.storageLatency.snapshot();
+    this.aggregationRecorder = AggregationRecorder.create(stat);
+  }
+
+  public String getStat() {
+    return this.stat;
+  }
+
+  public Counter getInputRecords() {
+    return this.inputRecords;
+  }
+
+  public Counter getOutputRecords() {
+    return this.outputRecords;
+  }
+
+  public Counter getLateRecords() {
+    return this.lateRecords;
+  }
+
+  /**
+   * Record the aggregation of a record with the passed timestamp for the passed key. This records
+   * the event time latency after repartitioning and advances the watermark.
+   */
+  public void recordAggregation(final Object key, final long timestamp) {
+    recordEventTimeLatency(this.repartitionLatency, timestamp);
+    this.watermark.accumulate(timestamp);
+    this.aggregationRecorder.record(key);
+  }
+
+  /**
+   * Returns the maximal timestamp of all records aggregated so far or {@link Long#MIN_VALUE} if no
+   * record has been aggregated.
+   */
+  public long getWatermark() {
+    return this.watermark.get();
+  }
+
+  /**
+   * Execute and time the passed write of a statistics record to Cassandra.
+   */
+  public void timeStatsWrite(final Runnable write) {
+    this.timeWrite(write, this.statsWriteLatency, STATS_TABLE);
+  }
+
+  /**
+   * Execute and time the passed write of percentiles to Cassandra.
+   */
+  public void timePercentilesWrite(final Runnable write) {
+    this.timeWrite(write, this.percentilesWriteLatency, PERCENTILES_TABLE);
+  }
+
+  /**
+   * Execute and time the passed load of stored statistics for seeding a window. Counts the window
+   * as seeded if the load returns a non-null result.
+   */
+  public <T> T timeSeed(final Supplier<T> load) {
+    final long start = System.nanoTime();
+    final T result = load.get();
+    this.seedLatency.recordNanosSince(start);
+    if (result != null) {
+      this.seededWindows.increment();
+    }
+    return result;
+  }
+
+  /**
+   * Record the event time latency of a result with the passed timestamp when it is forwarded to
+   * the output topic. Also logs latencies if the log interval has elapsed.
+   */
+  public void recordOutputLatency(final long timestamp) {
+    final long now = recordEventTimeLatency(this.outputLatency, timestamp);
+    this.maybeLogLatencies(now);
+  }
+
+  /**
+   * Record the event time latency of a result with the passed timestamp after it has been written
+   * to Cassandra.
+   */
+  public void recordStorageLatency(final long timestamp) {
+    recordEventTimeLatency(this.storageLatency, timestamp);
+  }
+
+  private void timeWrite(final Runnable write, final Histogram latency, final String table) {
+    final CassandraWriteEvent event = new CassandraWriteEvent();
+    event.begin();
+    final long start = System.nanoTime();
+    write.run();
+    latency.recordNanosSince(start);
+    if (event.shouldCommit()) {
+      event.setStat(this.stat);
+      event.setTable(table);
+      event.setRecords(1);
+      event.commit();
+    }
+  }
+
+  private void maybeLogLatencies(final long now) {
+    final long nextLogTime = this.nextLogTime.get();
+    if (this.logIntervalMs <= 0 || now < nextLogTime
+        || !this.nextLogTime.compareAndSet(nextLogTime, now + this.logIntervalMs)) {
+      return;
+    }
+    // Only one thread gets here per interval
+    final HistogramSnapshot repartition = this.repartitionLatency.snapshot();
+    final HistogramSnapshot output = this.outputLatency.snapshot();
+    final HistogramSnapshot storage = this.storageLatency.snapshot();
+    LOGGER.info(
+        "Event time latency of {} (p50/p99 in s): repartition {}, output {}, storage {}",
+        this.stat,
+        formatQuantiles(repartition.minus(this.lastRepartitionLatency)),
+        formatQuantiles(output.minus(this.lastOutputLatency)),
+        formatQuantiles(storage.minus(this.lastStorageLatency)));
+    this.lastRepartitionLatency = repartition;
+    this.lastOutputLatency = output;
+    this.lastStorageLatency = storage;
+  }
+
+  private static long recordEventTimeLatency(final Histogram histogram, final long timestamp) {
+    final long now = System.currentTimeMillis();
+    // Timestamps in the future are not considered as negative latency
+    histogram.record(Math.max(0, now - timestamp));
+    return now;
+  }
+
+  private static String formatQuantiles(final HistogramSnapshot snapshot) {
+    if (snapshot.getCount() == 0) {
+      return "-";
+    }
+    return snapshot.quantile(P50) + "/" + snapshot.quantile(P99)
+        + " (" + snapshot.getCount() + " records)";
+  }
+
+}
@@ -0,0 +1,82 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.List;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.serialization.Serde;
+import titan.ccp.model.records.DayOfWeekActivePowerRecord;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+
+/**
+ * The components required to compute and store a {@link StatsType}, i.e., how to create keys from
+ * sensor ids and timestamps, how to serialize these keys, how to create records from statistics
+ * and how to store these records.
+ *
+ * @param <K> Type of the key.
+ * @param <R> Type of the statistics record.
+ */
+public final class StatsComponents<K, R extends SpecificRecord> {
+
+  private final StatsKeyFactory<K> keyFactory;
+  private final Serde<K> keySerde;
+  private final StatsRecordFactory<K, R> recordFactory;
+  private final RecordDatabaseAdapter<R> recordDatabaseAdapter;
+
+  private StatsComponents(
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatsRecordFactory<K, R> recordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter) {
+    this.keyFactory = keyFactory;
+    this.keySerde = keySerde;
+    this.recordFactory = recordFactory;
+    this.recordDatabaseAdapter = recordDatabaseAdapter;
+  }
+
+  public StatsKeyFactory<K> getKeyFactory() {
+    return this.keyFactory;
+  }
+
+  public Serde<K> getKeySerde() {
+    return this.keySerde;
+  }
+
+  public StatsRecordFactory<K, R> getRecordFactory() {
+    return this.recordFactory;
+  }
+
+  public RecordDatabaseAdapter<R> getRecordDatabaseAdapter() {
+    return this.recordDatabaseAdapter;
+  }
+
+  /**
+   * Create the {@link StatsComponents} of the passed {@link StatsType}.
+   */
+  public static StatsComponents<?, ?> forType(final StatsType type) {
+    switch (type) {
+      case DAY_OF_WEEK:
+        return new StatsComponents<>(
+            new DayOfWeekKeyFactory(),
+            DayOfWeekKeySerde.create(),
+            new DayOfWeekRecordFactory(),
+            new RecordDatabaseAdapter<>(DayOfWeekActivePowerRecord.class, "dayOfWeek")); // NOCS
+      case HOUR_OF_DAY:
+        return new StatsComponents<>(
+            new HourOfDayKeyFactory(),
+            HourOfDayKeySerde.create(),
+            new HourOfDayRecordFactory(),
+            new RecordDatabaseAdapter<>(HourOfDayActivePowerRecord.class, "hourOfDay")); // NOCS
+      case HOUR_OF_WEEK:
+        return new StatsComponents<>(
+            new HourOfWeekKeyFactory(),
+            HourOfWeekKeySerde.create(),
+            new HourOfWeekRecordFactory(),
+            new RecordDatabaseAdapter<>(
+                HourOfWeekActivePowerRecord.class,
+                List.of("dayOfWeek", "hourOfDay"))); // NOCS
+      default:
+        throw new IllegalArgumentException("Unsupported statistics type " + type + '.');
+    }
+  }
+
+}
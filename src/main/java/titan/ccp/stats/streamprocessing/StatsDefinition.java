@@ -0,0 +1,116 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.apache.kafka.streams.kstream.TimeWindows;
+
+/**
+ * Definition of a statistics to be computed, consisting of its {@link StatsType}, the size and
+ * advance of its hopping time windows and, optionally, the grace period of these windows and the
+ * retention of their state store.
+ */
+public final class StatsDefinition {
+
+  private final StatsType type;
+  private final Duration windowSize;
+  private final Duration windowAdvance;
+  private final Duration gracePeriod;
+  private final Duration retention;
+
+  /**
+   * Create a new {@link StatsDefinition} with Kafka Streams' default grace period and retention.
+   * The window advance must be positive and must not exceed the window size.
+   */
+  public StatsDefinition(final StatsType type, final Duration windowSize,
+      final Duration windowAdvance) {
+    this(type, windowSize, windowAdvance, null, null);
+  }
+
+  /**
+   * Create a new {@link StatsDefinition}. The window advance must be positive and must not exceed
+   * the window size. The grace period can be null for Kafka Streams' default. The retention can be
+   * null for retaining windows for their size plus grace period, which is also the minimum.
+   */
+  public StatsDefinition(final StatsType type, final Duration windowSize,
+      final Duration windowAdvance, final Duration gracePeriod, final Duration retention) {
+    this.type = Objects.requireNonNull(type);
+    this.windowSize = Objects.requireNonNull(windowSize);
+    this.windowAdvance = Objects.requireNonNull(windowAdvance);
+    this.gracePeriod = gracePeriod;
+    this.retention = retention;
+    // Check parameters eagerly instead of when building the topology
+    final TimeWindows timeWindows = this.toTimeWindows();
+    if (retention != null
+        && retention.toMillis() < timeWindows.size() + timeWindows.gracePeriodMs()) {
+      throw new IllegalArgumentException(
+          "Retention must not be smaller than window size plus grace period.");
+    }
+  }
+
+  public StatsType getType() {
+    return this.type;
+  }
+
+  public Duration getWindowSize() {
+    return this.windowSize;
+  }
+
+  public Duration getWindowAdvance() {
+    return this.windowAdvance;
+  }
+
+  /**
+   * Returns the configured grace period or null if Kafka Streams' default is used.
+   */
+  public Duration getGracePeriod() {
+    return this.gracePeriod;
+  }
+
+  /**
+   * Returns the retention of the windows' state store, i.e., the configured retention or the
+   * window size plus grace period.
+   */
+  public Duration getRetention() {
+    if (this.retention != null) {
+      return this.retention;
+    }
+    final TimeWindows timeWindows = this.toTimeWindows();
+    return Duration.ofMillis(timeWindows.size() + timeWindows.gracePeriodMs());
+  }
+
+  /**
+   * Returns the time windows of this definition.
+   */
+  public TimeWindows toTimeWindows() {
+    final TimeWindows timeWindows = TimeWindows.of(this.windowSize).advanceBy(this.windowAdvance);
+    return this.gracePeriod == null ? timeWindows : timeWindows.grace(this.gracePeriod);
+  }
+
+  @Override
+  public String toString() {
+    return this.type.getName() + "(size=" + this.windowSize + ", advance=" + this.windowAdvance
+        + ", grace=" + Duration.ofMillis(this.toTimeWindows().gracePeriodMs())
+        + ", retention=" + this.getRetention() + ')';
+  }
+
+  /**
+   * Create a {@link StatsDefinition} for the passed {@link StatsType} with its default window
+   * size and advance.
+   */
+  public static StatsDefinition withDefaults(final StatsType type) {
+    return new StatsDefinition(type, type.getDefaultWindowSize(), type.getDefaultWindowAdvance());
+  }
+
+  /**
+   * Create {@link StatsDefinition}s with default windows for all {@link StatsType}s.
+   */
+  public static List<StatsDefinition> allWithDefaults() {
+    return Arrays.stream(StatsType.values())
+        .map(StatsDefinition::withDefaults)
+        .collect(Collectors.toList());
+  }
+
+}
@@ -14,9 +14,24 @@ import org.apache.kafka.streams.kstream.Windowed;
  * @param <K> Key type of the {@link Windowed}
  * @param <R> Avro record type
  */
-@FunctionalInterface
 public interface StatsRecordFactory<K, R extends SpecificRecord> {
 
   R create(Windowed<K> windowed, Stats stats);
 
+  /**
+   * Create a stats Avro record, which only holds the key and window of the passed
+   * {@link Windowed}, for example, for looking up stored statistics. No statistics are computed,
+   * instead all statistics fields are zero.
+   */
+  R createKey(Windowed<K> windowed);
+
+  /**
+   * Create a stats Avro record as {@link #create(Windowed, Stats)} does, but reuse the passed
+   * record instance if supported. The passed record can be null. Must only be used if the
+   * passed record is not referenced anymore.
+   */
+  default R create(final Windowed<K> windowed, final Stats stats, final R reuse) {
+    return this.create(windowed, stats);
+  }
+
 }
@@ -0,0 +1,114 @@
+package titan.ccp.stats.streamprocessing;
+
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+/**
+ * Final stage of a statistics, which creates the statistics record of an update once and routes
+ * it to Cassandra and the output topic. All updates passed to this stage are written to Cassandra
+ * (if a {@link StatsStorage} is passed), whereas only updates of the most complete
+ * window are forwarded to the output topic.
+ *
+ * <p>
+ * The created record instance is reused for the next update. This is safe as
+ * {@link StatsStorage} implementations must not reference a record after writing it and the
+ * output topic (which is the direct successor of this stage) serializes the record synchronously
+ * when it is forwarded, i.e., before the next update is processed. A {@link StatsWriteBuffer}
+ * copies records when buffering them.
+ * </p>
+ *
+ * @param <K> Type of the key.
+ * @param <R> Type of the statistics record.
+ */
+public class StatsRecordSink<K, R extends SpecificRecord> implements
+    Transformer<Windowed<K>, SummaryStatistics, KeyValue<String, R>> {
+
+  private final StatsKeyFactory<K> keyFactory;
+  private final StatsRecordFactory<K, R> statsRecordFactory;
+  private final RecordDatabaseAdapter<R> recordDatabaseAdapter;
+  private final StatsStorage statsStorage;
+  private final String writeBufferName;
+  private final long exposedAdvanceMs;
+  private final StatMetrics metrics;
+  private StatsWriteBuffer writeBuffer;
+  private R reusableRecord;
+
+  /**
+   * Create a new {@link StatsRecordSink}.
+   *
+   * @param keyFactory Factory of the statistics keys.
+   * @param statsRecordFactory Factory of the statistics records.
+   * @param recordDatabaseAdapter Adapter of the statistics records.
+   * @param statsStorage Storage to write records to or null for not storing records.
+   * @param writeBufferName Name of the {@link StatsWriteBuffer} for batching writes to the
+   *        storage or null for writing directly.
+   * @param exposedAdvanceMs Advance of the time windows for forwarding only updates of the most
+   *        complete window or a negative value for forwarding all updates.
+   * @param metrics Metrics of the statistics.
+   */
+  public StatsRecordSink( // NOPMD many components
+      final StatsKeyFactory<K> keyFactory,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final StatsStorage statsStorage,
+      final String writeBufferName,
+      final long exposedAdvanceMs,
+      final StatMetrics metrics) {
+    this.keyFactory = keyFactory;
+    this.statsRecordFactory = statsRecordFactory;
+    this.recordDatabaseAdapter = recordDatabaseAdapter;
+    this.statsStorage = statsStorage;
+    this.writeBufferName = writeBufferName;
+    this.exposedAdvanceMs = exposedAdvanceMs;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void init(final ProcessorContext context) {
+    if (this.writeBufferName != null) {
+      this.writeBuffer = (StatsWriteBuffer) context.getStateStore(this.writeBufferName);
+    }
+  }
+
+  @Override
+  public KeyValue<String, R> transform(final Windowed<K> key, final SummaryStatistics value) {
+    final boolean exposed = this.exposedAdvanceMs < 0
+        || CurrentWindowFilter.isMostComplete(key, value, this.exposedAdvanceMs);
+    if (!exposed && this.statsStorage == null) {
+      return null;
+    }
+
+    final R record = this.statsRecordFactory.create(key, value.getStats(), this.reusableRecord);
+    this.reusableRecord = record;
+
+    if (this.writeBuffer != null && this.writeBuffer.isBatching()) {
+      this.writeBuffer.write(this.recordDatabaseAdapter, record, value.getSketch());
+      this.metrics.recordStorageLatency(value.getTimestamp());
+    } else if (this.statsStorage != null) {
+      this.metrics.timeStatsWrite(() -> this.statsStorage.writeStats(record));
+      if (value.getSketch() != null) {
+        this.metrics.timePercentilesWrite(() -> this.statsStorage.writePercentiles(
+            this.recordDatabaseAdapter,
+            record,
+            value.getSketch()));
+      }
+      this.metrics.recordStorageLatency(value.getTimestamp());
+    }
+
+    if (!exposed) {
+      return null;
+    }
+    this.metrics.getOutputRecords().increment();
+    this.metrics.recordOutputLatency(value.getTimestamp());
+    return KeyValue.pair(this.keyFactory.getSensorId(key.key()), record);
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+}
@@ -0,0 +1,152 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import java.time.Duration;
+import java.util.List;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import titan.ccp.stats.metrics.Counter;
+import titan.ccp.stats.metrics.MetricsRegistry;
+import titan.ccp.stats.util.PercentilesSchema;
+
+/**
+ * Removes superseded windows of time window based statistics and their percentiles from Cassandra.
+ * Of all hopping windows ending before a retention horizon, only the canonical windows are kept.
+ * These are every n-th window, where n is the number of window advances fitting into the window
+ * size, so that they cover the entire history with minimal overlap. All windows ending after the
+ * horizon as well as windows of other sizes, for example, from previous configurations, are kept.
+ *
+ * <p>
+ * As each window is a Cassandra partition, removing a window creates a single partition tombstone,
+ * which is purged by compaction after the table's {@code gc_grace_seconds}.
+ * </p>
+ */
+public class StatsRetentionJob implements Runnable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatsRetentionJob.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  private final Session session;
+  private final List<StatsDefinition> statsDefinitions;
+  private final Duration horizon;
+  private final boolean packedLayout;
+  private Counter removedWindows;
+
+  /**
+   * Create a new {@link StatsRetentionJob}.
+   *
+   * @param session Cassandra session for the keyspace of the statistics.
+   * @param statsDefinitions Definitions of the statistics to clean up.
+   * @param horizon Age of the end of windows up to which all windows are kept.
+   * @param packedLayout Whether statistics are stored in the packed layout (see
+   *        {@link PackedStatsTableWriter}).
+   */
+  public StatsRetentionJob(final Session session, final List<StatsDefinition> statsDefinitions,
+      final Duration horizon, final boolean packedLayout) {
+    this.session = session;
+    this.statsDefinitions = List.copyOf(statsDefinitions);
+    this.horizon = horizon;
+    this.packedLayout = packedLayout;
+  }
+
+  /**
+   * Export the number of removed windows in the passed {@link MetricsRegistry}.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry) {
+    this.removedWindows = metricsRegistry.counter(
+        "stats_retention_removed_windows_total",
+        "Number of superseded windows removed from Cassandra.");
+  }
+
+  @Override
+  public void run() {
+    final long horizonEnd = System.currentTimeMillis() - this.horizon.toMillis();
+    for (final StatsDefinition statsDefinition : this.statsDefinitions) {
+      try {
+        final long removed = this.cleanUp(statsDefinition, horizonEnd);
+        LOGGER.info("Removed {} superseded windows of {}.", removed, statsDefinition);
+      } catch (final RuntimeException e) { // NOPMD continue with other statistics
+        LOGGER.error("Removing superseded windows of {} failed.", statsDefinition, e);
+      }
+    }
+  }
+
+  private long cleanUp(final StatsDefinition statsDefinition, final long horizonEnd) {
+    final RecordDatabaseAdapter<?> adapter =
+        StatsComponents.forType(statsDefinition.getType()).getRecordDatabaseAdapter();
+    final String tableName = this.packedLayout
+        ? PackedStatsTableWriter.getTableName(adapter)
+        : adapter.getClazz().getSimpleName();
+    final PreparedStatement deleteStats = this.prepareDelete(adapter, tableName);
+    if (deleteStats == null) {
+      return 0;
+    }
+    final PreparedStatement deletePercentiles = this.prepareDelete(
+        adapter,
+        PercentilesSchema.getTableName(adapter.getClazz().getSimpleName()));
+
+    final TimeWindows timeWindows = statsDefinition.toTimeWindows();
+    final Statement select = QueryBuilder // NOPMD no close()
+        .select(
+            adapter.getIdentifierField(),
+            adapter.getPeriodStartField(),
+            adapter.getPeriodEndField())
+        .distinct()
+        .from(tableName)
+        .setFetchSize(FETCH_SIZE);
+    long removed = 0;
+    for (final Row row : this.session.execute(select)) {
+      final long start = row.getLong(adapter.getPeriodStartField());
+      final long end = row.getLong(adapter.getPeriodEndField());
+      if (end > horizonEnd || isCanonical(start, end, timeWindows.size(), timeWindows.advanceMs)) {
+        continue;
+      }
+      final String identifier = row.getString(adapter.getIdentifierField());
+      this.session.execute(deleteStats.bind(identifier, start, end));
+      if (deletePercentiles != null) {
+        this.session.execute(deletePercentiles.bind(identifier, start, end));
+      }
+      removed++;
+    }
+    if (this.removedWindows != null) {
+      this.removedWindows.add(removed);
+    }
+    return removed;
+  }
+
+  private PreparedStatement prepareDelete(final RecordDatabaseAdapter<?> adapter,
+      final String tableName) {
+    try {
+      return this.session.prepare(QueryBuilder.delete()
+          .from(tableName)
+          .where(QueryBuilder.eq(adapter.getIdentifierField(), QueryBuilder.bindMarker()))
+          .and(QueryBuilder.eq(adapter.getPeriodStartField(), QueryBuilder.bindMarker()))
+          .and(QueryBuilder.eq(adapter.getPeriodEndField(), QueryBuilder.bindMarker())));
+    } catch (final InvalidQueryException e) {
+      // Table is created with the first write, hence nothing is stored yet
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether a window with the passed start and end is kept beyond the retention horizon.
+   * This is the case for every n-th hopping window of the passed size and advance, with n being the
+   * number of advances fitting into the size, and for all windows of a different size or alignment.
+   */
+  public static boolean isCanonical(final long start, final long end, final long sizeMs,
+      final long advanceMs) {
+    if (end - start != sizeMs || Math.floorMod(start, advanceMs) != 0) {
+      return true;
+    }
+    final long windowsPerSize = Math.max(1, sizeMs / advanceMs);
+    return Math.floorMod(Math.floorDiv(start, advanceMs), windowsPerSize) == 0;
+  }
+
+}
@@ -0,0 +1,39 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import org.apache.avro.specific.SpecificRecord;
+
+/**
+ * Storage of statistics records and their percentiles, from which stored statistics can be loaded
+ * again. Record types have to be registered by their {@link RecordDatabaseAdapter} before records
+ * of that type can be stored.
+ */
+public interface StatsStorage {
+
+  /**
+   * Register the record type of the passed {@link RecordDatabaseAdapter}.
+   */
+  void register(RecordDatabaseAdapter<?> recordDatabaseAdapter);
+
+  /**
+   * Write the passed statistics record. The record is completely written or serialized when this
+   * method returns, so that the caller may modify it afterwards.
+   */
+  void writeStats(SpecificRecord record);
+
+  /**
+   * Load the stored {@link Stats} having the same primary key (i.e., identifier, period and time
+   * unit) as the passed record or null if no statistics are stored for this key. Only the key
+   * fields of the passed record are read (see {@link StatsRecordFactory#createKey}).
+   */
+  <R extends SpecificRecord> Stats loadStats(RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      R keyRecord);
+
+  /**
+   * Write the percentiles of the passed {@link QuantileSketch} for the passed statistics record.
+   * As for {@link #writeStats(SpecificRecord)}, the record is not referenced after returning.
+   */
+  <R extends SpecificRecord> void writePercentiles(RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      R record, QuantileSketch sketch);
+
+}
@@ -0,0 +1,48 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.Locale;
+
+/**
+ * Policies determining which updates of time window based statistics are written to Cassandra.
+ */
+public enum StatsStoragePolicy {
+
+  /**
+   * Write every update of every window.
+   */
+  ALL_WINDOWS("all-windows"),
+
+  /**
+   * Write only updates of the most complete window of a record, i.e., the window served by the
+   * REST API as current window, and a final update of each other window when it closes.
+   */
+  CURRENT_WINDOW("current-window");
+
+  private final String name;
+
+  StatsStoragePolicy(final String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the name of this policy as used in configurations, e.g., {@code current-window}.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the {@link StatsStoragePolicy} of the passed case-insensitive name, e.g.,
+   * {@code current-window}.
+   */
+  public static StatsStoragePolicy fromName(final String name) {
+    final String normalizedName = name.trim().toLowerCase(Locale.ROOT);
+    for (final StatsStoragePolicy policy : values()) {
+      if (policy.name.equals(normalizedName)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException("Unknown storage policy '" + name + "'.");
+  }
+
+}
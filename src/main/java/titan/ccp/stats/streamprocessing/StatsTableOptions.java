@@ -0,0 +1,71 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Options of the Cassandra tables storing statistics and percentiles, namely their compaction
+ * strategy and their default time to live. Options are applied to existing tables with
+ * {@code ALTER TABLE}, so they can be changed at any time and hold for all writers of a table.
+ */
+public final class StatsTableOptions {
+
+  /**
+   * Options keeping Cassandra's defaults.
+   */
+  public static final StatsTableOptions DEFAULT = new StatsTableOptions(null, null);
+
+  private final String compaction;
+  private final Duration defaultTimeToLive;
+
+  /**
+   * Create new {@link StatsTableOptions}.
+   *
+   * @param compaction Compaction options as CQL map literal, e.g.,
+   *        {@code {'class': 'TimeWindowCompactionStrategy', 'compaction_window_unit': 'DAYS',
+   *        'compaction_window_size': '30'}}, or null or empty for keeping the current compaction.
+   * @param defaultTimeToLive Time to live of written rows or null for keeping the current time to
+   *        live. Zero disables expiration.
+   */
+  public StatsTableOptions(final String compaction, final Duration defaultTimeToLive) {
+    if (defaultTimeToLive != null
+        && (defaultTimeToLive.isNegative() || defaultTimeToLive.getSeconds() > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("Time to live must be non-negative and fit in seconds.");
+    }
+    this.compaction = compaction == null || compaction.isBlank() ? null : compaction.trim();
+    this.defaultTimeToLive = defaultTimeToLive;
+  }
+
+  /**
+   * Returns whether these options keep all tables as they are.
+   */
+  public boolean isDefault() {
+    return this.compaction == null && this.defaultTimeToLive == null;
+  }
+
+  /**
+   * Returns the CQL statement applying these options to the passed table or null if there is
+   * nothing to apply.
+   */
+  public String toAlterStatement(final String tableName) {
+    final List<String> options = new ArrayList<>(2);
+    if (this.compaction != null) {
+      options.add("compaction = " + this.compaction);
+    }
+    if (this.defaultTimeToLive != null) {
+      options.add("default_time_to_live = " + this.defaultTimeToLive.getSeconds());
+    }
+    if (options.isEmpty()) {
+      return null;
+    }
+    return "ALTER TABLE " + tableName + " WITH " + String.join(" AND ", options);
+  }
+
+  @Override
+  public String toString() {
+    return "StatsTableOptions(compaction=" + this.compaction
+        + ", defaultTimeToLive=" + this.defaultTimeToLive + ')';
+  }
+
+}
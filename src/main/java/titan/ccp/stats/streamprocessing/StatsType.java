@@ -0,0 +1,57 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The types of statistics, which can be computed by the Stats microservice. Each type corresponds
+ * to a time unit (e.g., hour of day) to which active power records are assigned.
+ */
+public enum StatsType {
+
+  DAY_OF_WEEK("day-of-week", Duration.ofDays(365), Duration.ofDays(30)), // NOCS
+
+  HOUR_OF_DAY("hour-of-day", Duration.ofDays(30), Duration.ofDays(1)), // NOCS
+
+  HOUR_OF_WEEK("hour-of-week", Duration.ofDays(365), Duration.ofDays(30)); // NOCS
+
+  private final String name;
+  private final Duration defaultWindowSize;
+  private final Duration defaultWindowAdvance;
+
+  StatsType(final String name, final Duration defaultWindowSize,
+      final Duration defaultWindowAdvance) {
+    this.name = name;
+    this.defaultWindowSize = defaultWindowSize;
+    this.defaultWindowAdvance = defaultWindowAdvance;
+  }
+
+  /**
+   * Returns the name of this type as used in configurations, e.g., {@code hour-of-day}.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  public Duration getDefaultWindowSize() {
+    return this.defaultWindowSize;
+  }
+
+  public Duration getDefaultWindowAdvance() {
+    return this.defaultWindowAdvance;
+  }
+
+  /**
+   * Returns the {@link StatsType} of the passed case-insensitive name, e.g., {@code hour-of-day}.
+   */
+  public static StatsType fromName(final String name) {
+    final String normalizedName = name.trim().toLowerCase(Locale.ROOT);
+    for (final StatsType type : values()) {
+      if (type.name.equals(normalizedName)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown statistics type '" + name + "'.");
+  }
+
+}
@@ -0,0 +1,90 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Switchable batching of statistics writes, shared by the {@link StatsWriteBuffer}s of all tasks.
+ * While enabled, each task buffers its writes until it commits and then executes them in parallel
+ * on a shared pool of threads. While disabled, writes are executed synchronously one by one.
+ */
+public class StatsWriteBatching {
+
+  private final ExecutorService executor;
+  private final int maxBufferedWrites;
+  private volatile boolean enabled; // NOPMD
+
+  /**
+   * Create a new {@link StatsWriteBatching}, which is initially disabled.
+   *
+   * @param parallelism Number of writes executed in parallel.
+   * @param maxBufferedWrites Maximal number of writes buffered per task before they are executed
+   *        even if the task does not commit yet.
+   */
+  public StatsWriteBatching(final int parallelism, final int maxBufferedWrites) {
+    if (parallelism <= 0 || maxBufferedWrites <= 0) {
+      throw new IllegalArgumentException(
+          "Parallelism and maximal buffered writes must be positive.");
+    }
+    final AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+      final Thread thread = new Thread(runnable, "stats-writer-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.maxBufferedWrites = maxBufferedWrites;
+  }
+
+  /**
+   * Enable or disable batching. Must only be changed while no Kafka Streams instance is running,
+   * so that no writes remain buffered after disabling.
+   */
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public int getMaxBufferedWrites() {
+    return this.maxBufferedWrites;
+  }
+
+  /**
+   * Execute the passed writes in parallel and wait until all of them are completed.
+   *
+   * @throws RuntimeException the failure of the first failed write, after all writes are completed
+   */
+  public void executeAll(final Collection<Runnable> writes) {
+    final List<Future<?>> futures = new ArrayList<>(writes.size());
+    for (final Runnable write : writes) {
+      futures.add(this.executor.submit(write));
+    }
+    RuntimeException failure = null;
+    for (final Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (final ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException
+              ? (RuntimeException) e.getCause()
+              : new IllegalStateException("Writing statistics failed.", e.getCause());
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while writing statistics.", e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+}
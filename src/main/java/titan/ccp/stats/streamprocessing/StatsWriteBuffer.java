@@ -0,0 +1,203 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+
+/**
+ * State store of a task, which buffers the task's writes of statistics records and their
+ * percentiles to a {@link StatsStorage} while the {@link StatsWriteBatching} is enabled. Buffered
+ * writes of the same statistics record (i.e., having the same primary key) are coalesced, so that
+ * only the latest is executed. The buffer is written in parallel when it is flushed, which Kafka
+ * Streams does when the task commits and before it commits the task's offsets. Hence, no writes
+ * are lost in case of a failure. The store is neither persistent nor backed by a changelog.
+ *
+ * <p>
+ * Records and sketches are copied when buffered, so that callers may modify them afterwards.
+ * </p>
+ */
+public class StatsWriteBuffer implements StateStore {
+
+  private final String name;
+  private final StatsStorage statsStorage;
+  private final StatsWriteBatching batching;
+  private final Map<List<Object>, Runnable> pending = new LinkedHashMap<>();
+  private boolean open;
+
+  /**
+   * Create a new {@link StatsWriteBuffer}.
+   */
+  public StatsWriteBuffer(final String name, final StatsStorage statsStorage,
+      final StatsWriteBatching batching) {
+    this.name = name;
+    this.statsStorage = statsStorage;
+    this.batching = batching;
+  }
+
+  /**
+   * Returns whether writes are currently buffered. Otherwise, callers should write to the
+   * {@link StatsStorage} directly.
+   */
+  public boolean isBatching() {
+    return this.batching.isEnabled();
+  }
+
+  /**
+   * Buffer a write of the passed statistics record and, if not null, the percentiles of the passed
+   * {@link QuantileSketch}, replacing a buffered write of the same record. If the maximal number of
+   * buffered writes is reached, the buffer is flushed.
+   */
+  public <R extends SpecificRecord> void write(final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R record, final QuantileSketch sketch) {
+    final R recordCopy = SpecificData.get().deepCopy(record.getSchema(), record);
+    final QuantileSketch sketchCopy =
+        sketch == null ? null : QuantileSketch.fromByteArray(sketch.toByteArray());
+    this.pending.put(getPrimaryKey(recordDatabaseAdapter, recordCopy), () -> {
+      this.statsStorage.writeStats(recordCopy);
+      if (sketchCopy != null) {
+        this.statsStorage.writePercentiles(recordDatabaseAdapter, recordCopy, sketchCopy);
+      }
+    });
+    if (this.pending.size() >= this.batching.getMaxBufferedWrites()) {
+      this.flush();
+    }
+  }
+
+  /**
+   * Returns the number of currently buffered writes.
+   */
+  public int size() {
+    return this.pending.size();
+  }
+
+  @Override
+  public String name() {
+    return this.name;
+  }
+
+  @Override
+  public void init(final ProcessorContext context, final StateStore root) {
+    context.register(root, (key, value) -> {
+      // Nothing to restore
+    });
+    this.open = true;
+  }
+
+  /**
+   * Execute all buffered writes in parallel and wait until they are completed.
+   */
+  @Override
+  public void flush() {
+    if (this.pending.isEmpty()) {
+      return;
+    }
+    final List<Runnable> writes = new ArrayList<>(this.pending.values());
+    this.pending.clear();
+    this.batching.executeAll(writes);
+  }
+
+  @Override
+  public void close() {
+    this.open = false;
+    this.flush();
+  }
+
+  @Override
+  public boolean persistent() {
+    return false;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return this.open;
+  }
+
+  /**
+   * Create a {@link StoreBuilder} for {@link StatsWriteBuffer}s with the passed name.
+   */
+  public static StoreBuilder<StatsWriteBuffer> builder(final String name,
+      final StatsStorage statsStorage, final StatsWriteBatching batching) {
+    return new Builder(name, statsStorage, batching);
+  }
+
+  private static <R extends SpecificRecord> List<Object> getPrimaryKey(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter, final R record) {
+    final List<Object> primaryKey = new ArrayList<>();
+    primaryKey.add(getField(record, recordDatabaseAdapter.getIdentifierField()).toString());
+    for (final String timeUnitField : recordDatabaseAdapter.getTimeUnitFields()) {
+      primaryKey.add(getField(record, timeUnitField));
+    }
+    primaryKey.add(getField(record, recordDatabaseAdapter.getPeriodStartField()));
+    primaryKey.add(getField(record, recordDatabaseAdapter.getPeriodEndField()));
+    return primaryKey;
+  }
+
+  private static Object getField(final SpecificRecord record, final String field) {
+    return record.get(record.getSchema().getField(field).pos());
+  }
+
+  /**
+   * {@link StoreBuilder} for {@link StatsWriteBuffer}s, which never have a cache or a changelog.
+   */
+  private static final class Builder implements StoreBuilder<StatsWriteBuffer> {
+
+    private final String name;
+    private final StatsStorage statsStorage;
+    private final StatsWriteBatching batching;
+
+    private Builder(final String name, final StatsStorage statsStorage,
+        final StatsWriteBatching batching) {
+      this.name = name;
+      this.statsStorage = statsStorage;
+      this.batching = batching;
+    }
+
+    @Override
+    public StoreBuilder<StatsWriteBuffer> withCachingEnabled() {
+      throw new UnsupportedOperationException("Write buffers cannot be cached.");
+    }
+
+    @Override
+    public StoreBuilder<StatsWriteBuffer> withCachingDisabled() {
+      return this;
+    }
+
+    @Override
+    public StoreBuilder<StatsWriteBuffer> withLoggingEnabled(final Map<String, String> config) {
+      throw new UnsupportedOperationException("Write buffers cannot be logged.");
+    }
+
+    @Override
+    public StoreBuilder<StatsWriteBuffer> withLoggingDisabled() {
+      return this;
+    }
+
+    @Override
+    public StatsWriteBuffer build() {
+      return new StatsWriteBuffer(this.name, this.statsStorage, this.batching);
+    }
+
+    @Override
+    public Map<String, String> logConfig() {
+      return Map.of();
+    }
+
+    @Override
+    public boolean loggingEnabled() {
+      return false;
+    }
+
+    @Override
+    public String name() {
+      return this.name;
+    }
+
+  }
+
+}
@@ -6,6 +6,7 @@ import titan.ccp.model.records.ActivePowerRecord;
 
 /**
  * Class representing summary statistics associated with a timestamp indicating its creation.
+ * Optionally, summary statistics contain a {@link QuantileSketch} for approximating percentiles.
  */
 public class SummaryStatistics { // TODO maybe rename class
 
@@ -13,14 +14,24 @@ public class SummaryStatistics { // TODO maybe rename class
 
   private final long timestamp;
 
+  private final QuantileSketch sketch;
+
   public SummaryStatistics() {
-    this.stats = Stats.of();
-    this.timestamp = -1;
+    this(Stats.of(), -1);
   }
 
   public SummaryStatistics(final Stats stats, final long timestamp) {
+    this(stats, timestamp, null);
+  }
+
+  /**
+   * Create new {@link SummaryStatistics} with a {@link QuantileSketch}, which may be null if no
+   * percentiles should be computed.
+   */
+  public SummaryStatistics(final Stats stats, final long timestamp, final QuantileSketch sketch) {
     this.stats = stats;
     this.timestamp = timestamp;
+    this.sketch = sketch;
   }
 
   public Stats getStats() {
@@ -31,16 +42,35 @@ public class SummaryStatistics { // TODO maybe rename class
     return this.timestamp;
   }
 
+  /**
+   * Get the {@link QuantileSketch} of these statistics or null if no percentiles are computed.
+   */
+  public QuantileSketch getSketch() {
+    return this.sketch;
+  }
+
   /**
    * Add an {@link ActivePowerRecord} to these {@link SummaryStatistics} by creating a new instance.
    */
   public SummaryStatistics add(final ActivePowerRecord record) {
+    return this.add(record.getTimestamp(), record.getValueInW());
+  }
+
+  /**
+   * Add a {@link TimestampedActivePower} to these {@link SummaryStatistics} by creating a new
+   * instance. The {@link QuantileSketch} is not copied, but updated in place.
+   */
+  public SummaryStatistics add(final TimestampedActivePower value) {
+    return this.add(value.getTimestamp(), value.getValueInW());
+  }
+
+  private SummaryStatistics add(final long timestamp, final double valueInW) {
     final StatsAccumulator statsAccumulator = new StatsAccumulator();
     statsAccumulator.addAll(this.stats);
-    statsAccumulator.add(record.getValueInW());
+    statsAccumulator.add(valueInW);
     final Stats stats = statsAccumulator.snapshot();
-    final long timestamp = record.getTimestamp();
-    return new SummaryStatistics(stats, timestamp);
+    final QuantileSketch sketch = this.sketch == null ? null : this.sketch.add(valueInW);
+    return new SummaryStatistics(stats, timestamp, sketch);
   }
 
 }
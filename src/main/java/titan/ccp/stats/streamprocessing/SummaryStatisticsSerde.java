@@ -1,26 +1,44 @@
 package titan.ccp.stats.streamprocessing;
 
 import com.google.common.math.Stats;
+import java.nio.BufferUnderflowException;
 import titan.ccp.common.kafka.simpleserdes.BufferSerde;
 import titan.ccp.common.kafka.simpleserdes.ReadBuffer;
 import titan.ccp.common.kafka.simpleserdes.WriteBuffer;
 
 /**
- * Simple serde ({@link BufferSerde}) for {@link SummaryStatistics}.
+ * Simple serde ({@link BufferSerde}) for {@link SummaryStatistics}. Statistics serialized before
+ * percentiles were introduced, i.e., without a trailing sketch, can still be deserialized.
  */
 public class SummaryStatisticsSerde implements BufferSerde<SummaryStatistics> {
 
+  private static final byte[] NO_SKETCH = new byte[0];
+
   @Override
   public void serialize(final WriteBuffer buffer, final SummaryStatistics data) {
     buffer.putBytes(data.getStats().toByteArray());
     buffer.putLong(data.getTimestamp());
+    final QuantileSketch sketch = data.getSketch();
+    buffer.putBytes(sketch == null ? NO_SKETCH : sketch.toByteArray());
   }
 
   @Override
   public SummaryStatistics deserialize(final ReadBuffer buffer) {
     final Stats stats = Stats.fromByteArray(buffer.getBytes());
     final long timestamp = buffer.getLong();
-    return new SummaryStatistics(stats, timestamp);
+    final byte[] sketchBytes = readSketchBytes(buffer);
+    final QuantileSketch sketch =
+        sketchBytes.length == 0 ? null : QuantileSketch.fromByteArray(sketchBytes);
+    return new SummaryStatistics(stats, timestamp, sketch);
+  }
+
+  private static byte[] readSketchBytes(final ReadBuffer buffer) {
+    try {
+      return buffer.getBytes();
+    } catch (final BufferUnderflowException e) {
+      // Serialized in the format without sketch, which ends after the timestamp
+      return NO_SKETCH;
+    }
   }
 
 }
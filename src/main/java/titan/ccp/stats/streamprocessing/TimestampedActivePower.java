@@ -0,0 +1,92 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import titan.ccp.model.records.ActivePowerRecord;
+
+/**
+ * Lean representation of an {@link ActivePowerRecord} for internal topics, consisting only of the
+ * timestamp and the measured value. The sensor identifier is not included as it is already part of
+ * the key when records are repartitioned.
+ */
+public final class TimestampedActivePower {
+
+  /**
+   * Number of bytes of the serialized form of a {@link TimestampedActivePower}.
+   */
+  public static final int BYTES = Long.BYTES + Double.BYTES;
+
+  private final long timestamp;
+  private final double valueInW;
+
+  public TimestampedActivePower(final long timestamp, final double valueInW) {
+    this.timestamp = timestamp;
+    this.valueInW = valueInW;
+  }
+
+  public long getTimestamp() {
+    return this.timestamp;
+  }
+
+  public double getValueInW() {
+    return this.valueInW;
+  }
+
+  /**
+   * Serializes this {@link TimestampedActivePower} to a byte array of fixed length
+   * {@link #BYTES}.
+   */
+  public byte[] toByteArray() {
+    return ByteBuffer.allocate(BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putLong(this.timestamp)
+        .putDouble(this.valueInW)
+        .array();
+  }
+
+  @Override
+  public String toString() {
+    return this.timestamp + ";" + this.valueInW;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.timestamp, this.valueInW);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof TimestampedActivePower) {
+      final TimestampedActivePower other = (TimestampedActivePower) obj;
+      return this.timestamp == other.timestamp
+          && Double.compare(this.valueInW, other.valueInW) == 0;
+    }
+    return false;
+  }
+
+  /**
+   * Creates a new {@link TimestampedActivePower} from the timestamp and the value of an
+   * {@link ActivePowerRecord}.
+   */
+  public static TimestampedActivePower of(final ActivePowerRecord record) {
+    return new TimestampedActivePower(record.getTimestamp(), record.getValueInW());
+  }
+
+  /**
+   * Deserializes a {@link TimestampedActivePower} from a byte array created with
+   * {@link #toByteArray()}.
+   */
+  public static TimestampedActivePower fromByteArray(final byte[] bytes) {
+    if (bytes.length != BYTES) {
+      throw new IllegalArgumentException(
+          "Expected " + BYTES + " bytes, but got " + bytes.length + '.');
+    }
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    return new TimestampedActivePower(buffer.getLong(), buffer.getDouble());
+  }
+
+}
@@ -1,25 +1,36 @@
 package titan.ccp.stats.streamprocessing;
 
 import com.datastax.driver.core.Session;
+import com.google.common.math.Stats;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import org.apache.avro.specific.SpecificRecord;
 import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.Consumed;
 import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KGroupedStream;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Predicate;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Repartitioned;
 import org.apache.kafka.streams.kstream.TimeWindows;
 import org.apache.kafka.streams.kstream.Windowed;
-import titan.ccp.common.avro.cassandra.AvroDataAdapter;
-import titan.ccp.common.cassandra.CassandraWriter;
-import titan.ccp.common.cassandra.PredefinedTableNameMappers;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
 import titan.ccp.model.records.ActivePowerRecord;
+import titan.ccp.stats.metrics.MetricsRegistry;
+import titan.ccp.stats.progress.StreamsProgress;
 
 /**
  * Builds Kafka Stream Topology for the Stats microservice.
@@ -29,55 +40,226 @@ public class TopologyBuilder {
   // private static final Logger LOGGER =
   // LoggerFactory.getLogger(TopologyBuilder.class);
 
-  private final ZoneId zone = ZoneId.of("Europe/Paris"); // TODO as parameter
+  /**
+   * The time zone in which timestamps are assigned to time units such as the hour of the day.
+   */
+  public static final ZoneId DEFAULT_ZONE = ZoneId.of("Europe/Paris");
+
+  private static final String PARTIAL_STATISTICS_STORE_PREFIX = "partial-statistics-";
+  private static final String SEEDED_STATISTICS_STORE_PREFIX = "seeded-statistics-";
+  private static final String PENDING_STATISTICS_STORE_PREFIX = "pending-statistics-";
+  private static final String WRITE_BUFFER_STORE_PREFIX = "write-buffer-";
+  private static final String PARTIAL_STATISTICS_REPARTITION_PREFIX = "partial-stats-";
+
+  private final ZoneId zone = DEFAULT_ZONE; // TODO as parameter
   private final Serdes serdes;
 
   private final StreamsBuilder builder = new StreamsBuilder();
+  private final KStream<String, ActivePowerRecord> activePowerStream;
+  private final KStream<String, ActivePowerRecord> aggrActivePowerStream;
   private final KStream<String, ActivePowerRecord> inputStream;
-  private final CassandraWriter<SpecificRecord> cassandraWriter;
-  private final CassandraKeySelector cassandraKeySelector;
+  private final StatsStorage statsStorage;
+  private boolean percentilesEnabled; // NOPMD
+  private double percentilesRelativeAccuracy; // NOPMD
+  private int percentilesMaxBins; // NOPMD
+  private MetricsRegistry metricsRegistry = new MetricsRegistry(); // NOPMD
+  private Duration latencyLogInterval; // NOPMD
+  private StreamsProgress streamsProgress; // NOPMD
+  private KStream<String, ActivePowerRecord> hotInputStream; // NOPMD
+  private KStream<String, ActivePowerRecord> coldInputStream; // NOPMD
+  private int hotKeySalts; // NOPMD
+  private boolean stateSeedingEnabled; // NOPMD
+  private StatsStoragePolicy storagePolicy = StatsStoragePolicy.ALL_WINDOWS;
+  private StatsWriteBatching writeBatching; // NOPMD
+  private Map<String, StatMetrics> statMetrics = new HashMap<>(); // NOPMD
 
   /**
-   * Create a new {@link TopologyBuilder}.
+   * Create a new {@link TopologyBuilder}, which stores statistics in Cassandra if a Cassandra
+   * {@link Session} is passed.
    */
   public TopologyBuilder(
       final Serdes serdes,
       final Session cassandraSession,
       final String activePowerTopic,
       final String aggregatedActivePowerTopic) {
+    this(
+        serdes,
+        activePowerTopic,
+        aggregatedActivePowerTopic,
+        cassandraSession == null ? null : new CassandraStatsStorage(cassandraSession)); // NOPMD
+  }
+
+  /**
+   * Create a new {@link TopologyBuilder}, which stores statistics in the passed
+   * {@link StatsStorage} or does not store statistics if it is null.
+   */
+  public TopologyBuilder(
+      final Serdes serdes,
+      final String activePowerTopic,
+      final String aggregatedActivePowerTopic,
+      final StatsStorage statsStorage) {
 
     this.serdes = serdes;
 
-    // 1. Cassandra Writer
-    this.cassandraKeySelector = new CassandraKeySelector();
-    if (cassandraSession == null) {
-      this.cassandraWriter = null; // NOPMD
+    // 1. Statistics storage
+    this.statsStorage = statsStorage;
+
+    // 2. Build Streams
+    this.activePowerStream = this.buildActivePowerStream(activePowerTopic);
+    this.aggrActivePowerStream = this.buildAggrActivePowerStream(aggregatedActivePowerTopic);
+    this.inputStream = this.activePowerStream.merge(this.aggrActivePowerStream);
+  }
+
+  /**
+   * Enable approximated percentiles for all subsequently added time window based statistics. For
+   * each window, a {@link QuantileSketch} with the passed relative accuracy and maximal number of
+   * bins is maintained alongside the {@link SummaryStatistics}.
+   */
+  public void enablePercentiles(final double relativeAccuracy, final int maxBins) {
+    // Check parameters eagerly instead of on the first record
+    new QuantileSketch(relativeAccuracy, maxBins);
+    this.percentilesEnabled = true;
+    this.percentilesRelativeAccuracy = relativeAccuracy;
+    this.percentilesMaxBins = maxBins;
+  }
+
+  /**
+   * Record metrics of all subsequently added statistics in the passed {@link MetricsRegistry}.
+   */
+  public void enableMetrics(final MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+  }
+
+  /**
+   * Periodically log the event time latencies of all subsequently added statistics with the
+   * passed interval. Can be null for not logging latencies.
+   */
+  public void enableLatencyLogging(final Duration logInterval) {
+    this.latencyLogInterval = logInterval;
+  }
+
+  /**
+   * Register the event time watermarks of all subsequently added statistics with the passed
+   * {@link StreamsProgress}.
+   */
+  public void trackProgress(final StreamsProgress streamsProgress) {
+    this.streamsProgress = streamsProgress;
+  }
+
+  /**
+   * Split hot keys for all subsequently added time window based statistics. Records of hot
+   * sensors are distributed across the passed number of salted sub-keys, aggregated in parallel
+   * and merged in a second stage. Hot sensors are the passed ones and, if requested, all
+   * aggregated sensors.
+   */
+  public void enableHotKeySplitting(final Set<String> hotSensorIds,
+      final boolean aggregatedSensorsHot, final int salts) {
+    if (salts < 2) {
+      throw new IllegalArgumentException("Hot keys must be split into at least two salts.");
+    }
+    final Set<String> hotSensorIdsCopy = Set.copyOf(hotSensorIds);
+    final Predicate<String, ActivePowerRecord> isHot =
+        (key, value) -> hotSensorIdsCopy.contains(value.getIdentifier());
+    if (aggregatedSensorsHot) {
+      this.hotInputStream = this.aggrActivePowerStream
+          .merge(this.activePowerStream.filter(isHot));
+      this.coldInputStream = this.activePowerStream.filterNot(isHot);
     } else {
-      this.cassandraWriter = CassandraWriter
-          .builder(cassandraSession, new AvroDataAdapter())
-          .tableNameMapper(PredefinedTableNameMappers.SIMPLE_CLASS_NAME)
-          .primaryKeySelectionStrategy(this.cassandraKeySelector)
-          .build();
+      this.hotInputStream = this.inputStream.filter(isHot);
+      this.coldInputStream = this.inputStream.filterNot(isHot);
     }
+    this.hotKeySalts = salts;
+  }
 
-    // 2. Build Streams
-    this.inputStream = this.buildInputStream(activePowerTopic, aggregatedActivePowerTopic);
+  /**
+   * Seed the window state of all subsequently added time window based statistics from the
+   * stored statistics instead of restoring it from a changelog topic. Requires a
+   * {@link StatsStorage} and the storage policy {@link StatsStoragePolicy#ALL_WINDOWS}. Split hot
+   * keys (see {@link #enableHotKeySplitting(Set, boolean, int)}) are still restored from changelog
+   * topics.
+   */
+  public void enableStateSeeding() {
+    if (this.statsStorage == null) {
+      throw new IllegalStateException("Seeding state requires statistics to be stored.");
+    }
+    if (this.storagePolicy != StatsStoragePolicy.ALL_WINDOWS) {
+      throw new IllegalStateException(
+          "Seeding state requires the storage policy " + StatsStoragePolicy.ALL_WINDOWS.getName()
+              + '.');
+    }
+    this.stateSeedingEnabled = true;
+  }
+
+  /**
+   * Set the {@link StatsStoragePolicy} for all subsequently added time window based statistics.
+   * Defaults to {@link StatsStoragePolicy#ALL_WINDOWS}, which is the only policy supported with
+   * state seeding, as Cassandra only holds stale statistics of non-current windows otherwise.
+   */
+  public void setStoragePolicy(final StatsStoragePolicy storagePolicy) {
+    if (this.stateSeedingEnabled && storagePolicy != StatsStoragePolicy.ALL_WINDOWS) {
+      throw new IllegalStateException(
+          "Seeding state requires the storage policy " + StatsStoragePolicy.ALL_WINDOWS.getName()
+              + '.');
+    }
+    this.storagePolicy = storagePolicy;
+  }
+
+  /**
+   * Store all subsequently added statistics in the packed layout with one Cassandra row per
+   * identifier and period (see {@link PackedStatsTableWriter}). Has no effect if statistics are
+   * not stored in Cassandra.
+   */
+  public void enablePackedStorage() {
+    if (this.statsStorage instanceof CassandraStatsStorage) {
+      ((CassandraStatsStorage) this.statsStorage).enablePackedLayout();
+    }
+  }
+
+  /**
+   * Set the {@link StatsTableOptions} of the Cassandra tables of all subsequently added statistics.
+   * Has no effect if statistics are not stored in Cassandra.
+   */
+  public void setTableOptions(final StatsTableOptions tableOptions) {
+    if (this.statsStorage instanceof CassandraStatsStorage) {
+      ((CassandraStatsStorage) this.statsStorage).setTableOptions(tableOptions);
+    }
+  }
+
+  /**
+   * Buffer the writes of all subsequently added statistics per task in a {@link StatsWriteBuffer}
+   * while the passed {@link StatsWriteBatching} is enabled. Has no effect if statistics are not
+   * stored.
+   */
+  public void enableWriteBatching(final StatsWriteBatching writeBatching) {
+    this.writeBatching = writeBatching;
+  }
+
+  /**
+   * Reuse the {@link StatMetrics} in the passed map for all subsequently added statistics of the
+   * same name and add newly created ones to it. This allows to build several topologies one after
+   * another, which record the same metrics and register their watermarks only once.
+   */
+  void shareStatMetrics(final Map<String, StatMetrics> statMetrics) {
+    this.statMetrics = statMetrics;
   }
 
   public Topology build() {
     return this.builder.build();
   }
 
-  private KStream<String, ActivePowerRecord> buildInputStream(final String activePowerTopic,
-      final String aggrActivePowerTopic) {
-    final KStream<String, ActivePowerRecord> activePowerStream = this.builder
+  private KStream<String, ActivePowerRecord> buildActivePowerStream(
+      final String activePowerTopic) {
+    return this.builder
         .stream(
             activePowerTopic,
             Consumed.with(
                 this.serdes.string(),
                 this.serdes.activePowerRecordValues()));
+  }
 
-    final KStream<String, ActivePowerRecord> aggrActivePowerStream = this.builder
+  private KStream<String, ActivePowerRecord> buildAggrActivePowerStream(
+      final String aggrActivePowerTopic) {
+    return this.builder
         .stream(aggrActivePowerTopic,
             Consumed.with(
                 this.serdes.string(),
@@ -87,12 +269,11 @@ public class TopologyBuilder {
                 aggrAvro.getIdentifier(),
                 aggrAvro.getTimestamp(),
                 aggrAvro.getSumInW()));
-
-    return activePowerStream.merge(aggrActivePowerStream);
   }
 
   /**
-   * Add a new statistics calculation step.
+   * Add a new statistics calculation step, whose windows are retained for their size plus grace
+   * period.
    */
   public <K, R extends SpecificRecord> void addStat(
       final StatsKeyFactory<K> keyFactory,
@@ -101,78 +282,360 @@ public class TopologyBuilder {
       final RecordDatabaseAdapter<R> recordDatabaseAdapter,
       final TimeWindows timeWindows,
       final String statsTopic) {
+    this.addStat(
+        keyFactory,
+        keySerde,
+        statsRecordFactory,
+        recordDatabaseAdapter,
+        timeWindows,
+        Duration.ofMillis(timeWindows.size() + timeWindows.gracePeriodMs()),
+        statsTopic);
+  }
 
-    final var statStream = this.addStatCalculation(keyFactory, keySerde, timeWindows);
-    this.maybeAddStatStorage(
-        statStream,
+  /**
+   * Add a new statistics calculation step, whose windows are retained in state stores for the
+   * passed duration. The retention must not be smaller than the window size plus grace period.
+   */
+  public <K, R extends SpecificRecord> void addStat( // NOPMD many components
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final String statsTopic) {
+    if (retention.toMillis() < timeWindows.size() + timeWindows.gracePeriodMs()) {
+      throw new IllegalArgumentException(
+          "Retention must not be smaller than window size plus grace period.");
+    }
+
+    final StatMetrics metrics = this.createStatMetrics(recordDatabaseAdapter, statsTopic);
+    final var statStream = this.addStatCalculation(
         keyFactory,
+        keySerde,
         statsRecordFactory,
-        recordDatabaseAdapter);
-    this.addStatExpose(
-        statStream,
+        recordDatabaseAdapter,
+        timeWindows,
+        retention,
+        metrics);
+    this.addStatSink(
+        this.filterForStorage(statStream, keySerde, timeWindows, metrics),
         keyFactory,
         statsRecordFactory,
+        recordDatabaseAdapter,
         timeWindows,
-        statsTopic);
+        statsTopic,
+        metrics);
   }
 
-  private <K> KStream<Windowed<K>, SummaryStatistics> addStatCalculation(
+  /**
+   * Add a new statistics calculation step, which computes exponentially time-decayed statistics
+   * instead of statistics per time window. Results are associated with an
+   * {@link UnboundedWindow}.
+   */
+  public <K, R extends SpecificRecord> void addDecayingStat(
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final Duration halfLife,
+      final String statsTopic) {
+
+    final StatMetrics metrics = this.createStatMetrics(recordDatabaseAdapter, statsTopic);
+    final var statStream =
+        this.addDecayingStatCalculation(keyFactory, keySerde, halfLife, metrics);
+    this.addStatSink(
+        statStream,
+        keyFactory,
+        statsRecordFactory,
+        recordDatabaseAdapter,
+        null, // Forward all updates
+        statsTopic,
+        metrics);
+  }
+
+  private StatMetrics createStatMetrics(final RecordDatabaseAdapter<?> recordDatabaseAdapter,
+      final String statsTopic) {
+    // The database adapter is not required if statistics are not stored in Cassandra
+    final String stat = recordDatabaseAdapter == null
+        ? statsTopic
+        : recordDatabaseAdapter.getClazz().getSimpleName();
+    return this.statMetrics.computeIfAbsent(stat, s -> {
+      final StatMetrics metrics = new StatMetrics(this.metricsRegistry, s, this.latencyLogInterval);
+      if (this.streamsProgress != null) {
+        this.streamsProgress.addWatermark(s, metrics::getWatermark);
+      }
+      return metrics;
+    });
+  }
+
+  private <K> KStream<K, TimestampedActivePower> mapToStatsKey(
+      final KStream<String, ActivePowerRecord> inputStream,
+      final StatsKeyFactory<K> keyFactory,
+      final StatMetrics metrics) {
+
+    return inputStream
+        // Only the timestamp and the value are required after repartitioning
+        .map((key, value) -> {
+          metrics.getInputRecords().increment();
+          return KeyValue.pair(
+              this.createStatsKey(keyFactory, value),
+              TimestampedActivePower.of(value));
+        });
+  }
+
+  private <K> KGroupedStream<K, TimestampedActivePower> groupByStatsKey(
+      final KStream<String, ActivePowerRecord> inputStream,
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatMetrics metrics) {
+
+    return this.mapToStatsKey(inputStream, keyFactory, metrics)
+        .groupByKey(Grouped.with(keySerde, this.serdes.timestampedActivePowerValues()));
+  }
+
+  private <K> K createStatsKey(final StatsKeyFactory<K> keyFactory,
+      final ActivePowerRecord record) {
+    final Instant instant = Instant.ofEpochMilli(record.getTimestamp());
+    final LocalDateTime dateTime = LocalDateTime.ofInstant(instant, this.zone);
+    return keyFactory.createKey(record.getIdentifier(), dateTime);
+  }
+
+  private <K, R extends SpecificRecord> KStream<Windowed<K>, SummaryStatistics> addStatCalculation(
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final StatMetrics metrics) {
+
+    if (this.hotInputStream == null) {
+      return this.aggregateByStatsKey(this.inputStream, keyFactory, keySerde, statsRecordFactory,
+          recordDatabaseAdapter, timeWindows, retention, metrics);
+    }
+    final KStream<Windowed<K>, SummaryStatistics> coldStatStream = this.aggregateByStatsKey(
+        this.coldInputStream, keyFactory, keySerde, statsRecordFactory, recordDatabaseAdapter,
+        timeWindows, retention, metrics);
+    final KStream<Windowed<K>, SummaryStatistics> hotStatStream =
+        this.addSplitStatCalculation(keyFactory, keySerde, timeWindows, retention, metrics);
+    return coldStatStream.merge(hotStatStream);
+  }
+
+  private <K, R extends SpecificRecord> KStream<Windowed<K>, SummaryStatistics>
+      aggregateByStatsKey(
+      final KStream<String, ActivePowerRecord> inputStream,
+      final StatsKeyFactory<K> keyFactory,
+      final Serde<K> keySerde,
+      final StatsRecordFactory<K, R> statsRecordFactory,
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final StatMetrics metrics) {
+
+    if (!this.stateSeedingEnabled) {
+      return this.aggregateWindowed(
+          this.groupByStatsKey(inputStream, keyFactory, keySerde, metrics),
+          keySerde,
+          timeWindows,
+          retention,
+          metrics);
+    }
+
+    final String storeName = SEEDED_STATISTICS_STORE_PREFIX + metrics.getStat();
+    this.builder.addStateStore(Stores
+        .windowStoreBuilder(
+            Stores.persistentWindowStore(
+                storeName,
+                retention,
+                Duration.ofMillis(timeWindows.size()),
+                false),
+            keySerde,
+            this.serdes.summaryStatistics())
+        .withLoggingDisabled());
+    final Supplier<SummaryStatistics> initializer = this.createStatsInitializer();
+    final StatsStorage statsStorage = this.statsStorage;
+    return this.mapToStatsKey(inputStream, keyFactory, metrics)
+        .repartition(Repartitioned.with(keySerde, this.serdes.timestampedActivePowerValues()))
+        .flatTransform(
+            () -> new SeededWindowAggregator<>(
+                storeName,
+                timeWindows,
+                initializer,
+                statsRecordFactory,
+                recordDatabaseAdapter,
+                statsStorage,
+                metrics),
+            storeName);
+  }
+
+  /**
+   * Two-stage aggregation of hot keys. First, partial statistics are computed per salted key.
+   * Second, the partial statistics of all salts of a key and window are merged.
+   */
+  private <K> KStream<Windowed<K>, SummaryStatistics> addSplitStatCalculation(
       final StatsKeyFactory<K> keyFactory,
       final Serde<K> keySerde,
-      final TimeWindows timeWindows) {
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final StatMetrics metrics) {
 
-    return this.inputStream
-        .selectKey((key, value) -> {
-          final Instant instant = Instant.ofEpochMilli(value.getTimestamp());
-          final LocalDateTime dateTime = LocalDateTime.ofInstant(instant, this.zone);
-          return keyFactory.createKey(value.getIdentifier(), dateTime);
+    final int salts = this.hotKeySalts;
+    final Serde<SaltedKey<K>> saltedKeySerde = SaltedKeySerde.create(keySerde);
+    final Serde<Windowed<K>> windowedKeySerde = WindowedKeySerde.create(keySerde);
+    final KGroupedStream<SaltedKey<K>, TimestampedActivePower> groupedStream = this.hotInputStream
+        .map((key, value) -> {
+          metrics.getInputRecords().increment();
+          return KeyValue.pair(
+              new SaltedKey<>(
+                  this.createStatsKey(keyFactory, value),
+                  SaltedKey.salt(value.getTimestamp(), salts)),
+              TimestampedActivePower.of(value));
         })
-        .groupByKey(Grouped.with(keySerde, this.serdes.activePowerRecordValues()))
+        .groupByKey(Grouped.with(saltedKeySerde, this.serdes.timestampedActivePowerValues()));
+
+    final String storeName = PARTIAL_STATISTICS_STORE_PREFIX + metrics.getStat();
+    this.builder.addStateStore(Stores.keyValueStoreBuilder(
+        Stores.persistentKeyValueStore(storeName),
+        windowedKeySerde,
+        this.serdes.partialStatistics()));
+    // Stage one may still update a window after it has been closed in the stream time of stage
+    // two, as stream times of the stage one tasks differ. Hence, retain partials for longer.
+    final long retentionMs = retention.toMillis();
+    final Duration cleanupInterval = Duration.ofMillis(timeWindows.advanceMs);
+
+    return this.aggregateWindowed(groupedStream, saltedKeySerde, timeWindows, retention, metrics)
+        .map((saltedKey, stats) -> KeyValue.pair(
+            new Windowed<>(saltedKey.key().getKey(), saltedKey.window()),
+            PartialStatistics.of(saltedKey.key().getSalt(), salts, stats)))
+        // Named, so that the repartition topic keeps its name when the topology changes
+        .repartition(Repartitioned
+            .<Windowed<K>, PartialStatistics>as(
+                PARTIAL_STATISTICS_REPARTITION_PREFIX + metrics.getStat())
+            .withKeySerde(windowedKeySerde)
+            .withValueSerde(this.serdes.partialStatistics()))
+        .transform(
+            () -> new PartialStatisticsMerger<>(storeName, cleanupInterval, retentionMs),
+            storeName);
+  }
+
+  private <K> KStream<Windowed<K>, SummaryStatistics> aggregateWindowed(
+      final KGroupedStream<K, TimestampedActivePower> groupedStream,
+      final Serde<K> keySerde,
+      final TimeWindows timeWindows,
+      final Duration retention,
+      final StatMetrics metrics) {
+
+    final Supplier<SummaryStatistics> initializer = this.createStatsInitializer();
+    return groupedStream
         .windowedBy(timeWindows)
         .aggregate(
-            SummaryStatistics::new,
-            (k, record, stats) -> stats.add(record),
-            Materialized.with(keySerde, this.serdes.summaryStatistics()))
+            initializer::get,
+            (k, value, stats) -> {
+              metrics.recordAggregation(k, value.getTimestamp());
+              return stats.add(value);
+            },
+            Materialized
+                .<K, SummaryStatistics, WindowStore<Bytes, byte[]>>with(
+                    keySerde,
+                    this.serdes.summaryStatistics())
+                .withRetention(retention))
         .toStream();
   }
 
-  private <K, R extends SpecificRecord> void addStatExpose(
-      final KStream<Windowed<K>, SummaryStatistics> recordStream,
+  private Supplier<SummaryStatistics> createStatsInitializer() {
+    final boolean percentilesEnabled = this.percentilesEnabled;
+    final double relativeAccuracy = this.percentilesRelativeAccuracy;
+    final int maxBins = this.percentilesMaxBins;
+    return () -> new SummaryStatistics(
+        Stats.of(),
+        -1,
+        percentilesEnabled ? new QuantileSketch(relativeAccuracy, maxBins) : null);
+  }
+
+  private <K> KStream<Windowed<K>, SummaryStatistics> addDecayingStatCalculation(
       final StatsKeyFactory<K> keyFactory,
-      final StatsRecordFactory<K, R> statsRecordFactory,
+      final Serde<K> keySerde,
+      final Duration halfLife,
+      final StatMetrics metrics) {
+
+    return this.groupByStatsKey(this.inputStream, keyFactory, keySerde, metrics)
+        .aggregate(
+            DecayingStatistics::new,
+            (k, value, stats) -> {
+              metrics.recordAggregation(k, value.getTimestamp());
+              return stats.add(value, halfLife);
+            },
+            Materialized.with(keySerde, this.serdes.decayingStatistics()))
+        .toStream()
+        .map((key, stats) -> KeyValue.pair(
+            new Windowed<>(key, UnboundedWindow.INSTANCE),
+            stats.toSummaryStatistics()));
+  }
+
+  private <K> KStream<Windowed<K>, SummaryStatistics> filterForStorage(
+      final KStream<Windowed<K>, SummaryStatistics> recordStream,
+      final Serde<K> keySerde,
       final TimeWindows timeWindows,
-      final String statsTopic) {
-    recordStream
-        // Only forward updates to the most complete window, i.e. the earliest
-        .filter((k, v) -> v.getTimestamp() >= k.window().end() - timeWindows.advanceMs)
-        .map((key, value) -> KeyValue.pair(
-            keyFactory.getSensorId(key.key()),
-            statsRecordFactory.create(key, value.getStats())))
-        .to(
-            statsTopic,
-            Produced.with(
-                this.serdes.string(),
-                this.serdes.avroValues()));
+      final StatMetrics metrics) {
+    if (this.statsStorage == null || this.storagePolicy == StatsStoragePolicy.ALL_WINDOWS) {
+      return recordStream;
+    }
+
+    final String storeName = PENDING_STATISTICS_STORE_PREFIX + metrics.getStat();
+    this.builder.addStateStore(Stores
+        .keyValueStoreBuilder(
+            Stores.persistentKeyValueStore(storeName),
+            WindowedKeySerde.create(keySerde),
+            this.serdes.summaryStatistics())
+        // Repeated updates of a pending window only reach RocksDB and the changelog once per commit
+        .withCachingEnabled());
+    return recordStream.transform(
+        () -> new CurrentWindowFilter<>(storeName, timeWindows),
+        storeName);
   }
 
-  private <K, R extends SpecificRecord> void maybeAddStatStorage(
+  private <K, R extends SpecificRecord> void addStatSink( // NOPMD many components
       final KStream<Windowed<K>, SummaryStatistics> recordStream,
       final StatsKeyFactory<K> keyFactory,
       final StatsRecordFactory<K, R> statsRecordFactory,
-      final RecordDatabaseAdapter<R> recordDatabaseAdapter) {
-    if (this.cassandraWriter == null) {
-      return;
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final TimeWindows timeWindows,
+      final String statsTopic,
+      final StatMetrics metrics) {
+    if (this.statsStorage != null) {
+      this.statsStorage.register(recordDatabaseAdapter);
     }
 
-    this.cassandraKeySelector.addRecordDatabaseAdapter(recordDatabaseAdapter);
+    final String writeBufferName;
+    if (this.statsStorage != null && this.writeBatching != null) {
+      // Connected after the cached stores of the task, so that it is flushed after them on commit
+      writeBufferName = WRITE_BUFFER_STORE_PREFIX + metrics.getStat();
+      this.builder.addStateStore(
+          StatsWriteBuffer.builder(writeBufferName, this.statsStorage, this.writeBatching));
+    } else {
+      writeBufferName = null;
+    }
 
+    final StatsStorage statsStorage = this.statsStorage;
+    // Only forward updates to the most complete window, i.e. the earliest
+    final long exposedAdvanceMs = timeWindows == null ? -1 : timeWindows.advanceMs;
     recordStream
-        .map((key, value) -> KeyValue.pair(
-            keyFactory.getSensorId(key.key()),
-            statsRecordFactory.create(key, value.getStats())))
-        // .peek((k, v) -> LOGGER.info("{}: {}", k, v)) // TODO Temp logging
-        .foreach((k, record) -> this.cassandraWriter.write(record));
-
+        .transform(
+            () -> new StatsRecordSink<>(
+                keyFactory,
+                statsRecordFactory,
+                recordDatabaseAdapter,
+                statsStorage,
+                writeBufferName,
+                exposedAdvanceMs,
+                metrics),
+            writeBufferName == null ? new String[0] : new String[] {writeBufferName})
+        .to(
+            statsTopic,
+            Produced.with(
+                this.serdes.string(),
+                this.serdes.avroValues()));
   }
 
 }
@@ -0,0 +1,22 @@
+package titan.ccp.stats.streamprocessing;
+
+import org.apache.kafka.streams.kstream.Window;
+
+/**
+ * A {@link Window} covering the entire time, which is used for statistics that are not computed
+ * per time window such as {@link DecayingStatistics}.
+ */
+public final class UnboundedWindow extends Window {
+
+  public static final UnboundedWindow INSTANCE = new UnboundedWindow();
+
+  private UnboundedWindow() {
+    super(0, Long.MAX_VALUE);
+  }
+
+  @Override
+  public boolean overlap(final Window other) {
+    return true;
+  }
+
+}
@@ -0,0 +1,45 @@
+package titan.ccp.stats.streamprocessing;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.TimeWindow;
+import titan.ccp.common.kafka.simpleserdes.BufferSerde;
+import titan.ccp.common.kafka.simpleserdes.ReadBuffer;
+import titan.ccp.common.kafka.simpleserdes.SimpleSerdes;
+import titan.ccp.common.kafka.simpleserdes.WriteBuffer;
+
+/**
+ * {@link BufferSerde} for a {@link Windowed} key of a time window, which stores the window's start
+ * and end alongside the key. Use the {@link #create(Serde)} method to create a new Kafka
+ * {@link Serde}.
+ *
+ * @param <K> Type of the key.
+ */
+public class WindowedKeySerde<K> implements BufferSerde<Windowed<K>> {
+
+  private final Serde<K> keySerde;
+
+  public WindowedKeySerde(final Serde<K> keySerde) {
+    this.keySerde = keySerde;
+  }
+
+  @Override
+  public void serialize(final WriteBuffer buffer, final Windowed<K> data) {
+    buffer.putLong(data.window().start());
+    buffer.putLong(data.window().end());
+    buffer.putBytes(this.keySerde.serializer().serialize(null, data.key()));
+  }
+
+  @Override
+  public Windowed<K> deserialize(final ReadBuffer buffer) {
+    final long start = buffer.getLong();
+    final long end = buffer.getLong();
+    final K key = this.keySerde.deserializer().deserialize(null, buffer.getBytes());
+    return new Windowed<>(key, new TimeWindow(start, end));
+  }
+
+  public static <K> Serde<Windowed<K>> create(final Serde<K> keySerde) {
+    return SimpleSerdes.create(new WindowedKeySerde<>(keySerde));
+  }
+
+}
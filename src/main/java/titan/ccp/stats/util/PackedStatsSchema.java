@@ -0,0 +1,99 @@
+package titan.ccp.stats.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes the Cassandra tables storing statistics in the packed layout. Instead of one row per
+ * time unit (e.g., 168 rows per hour of week statistics), a packed table has one row per
+ * identifier and period, whose {@link #BINS_COLUMN} maps the key of each time unit (see
+ * {@link #getBinKey(int...)}) to a blob of the statistics of this time unit (see
+ * {@link #encode(long, double, double, double, double)}).
+ */
+public final class PackedStatsSchema {
+
+  public static final String TABLE_NAME_SUFFIX = "Packed";
+
+  public static final String BINS_COLUMN = "bins";
+
+  /**
+   * Size of a bin's blob: count, mean, population variance, minimum and maximum.
+   */
+  public static final int BIN_BYTES = Long.BYTES + 4 * Double.BYTES; // NOCS
+
+  private static final int TIME_UNIT_BITS = 8;
+  private static final int TIME_UNIT_MASK = (1 << TIME_UNIT_BITS) - 1;
+  private static final int MAX_TIME_UNITS = Integer.SIZE / TIME_UNIT_BITS - 1;
+
+  private static final int MEAN_OFFSET = Long.BYTES;
+  private static final int POPULATION_VARIANCE_OFFSET = MEAN_OFFSET + Double.BYTES;
+  private static final int MIN_OFFSET = POPULATION_VARIANCE_OFFSET + Double.BYTES;
+  private static final int MAX_OFFSET = MIN_OFFSET + Double.BYTES;
+
+  private PackedStatsSchema() {}
+
+  public static String getTableName(final String statsTableName) {
+    return statsTableName + TABLE_NAME_SUFFIX;
+  }
+
+  /**
+   * Returns the key of the bin with the passed time unit values (e.g., day of week and hour of
+   * day), which packs each value into 8 bits. Keys order like the time unit values.
+   */
+  public static int getBinKey(final int... timeUnits) {
+    if (timeUnits.length > MAX_TIME_UNITS) {
+      throw new IllegalArgumentException(
+          "At most " + MAX_TIME_UNITS + " time units are supported.");
+    }
+    int key = 0;
+    for (final int timeUnit : timeUnits) {
+      if (timeUnit < 0 || timeUnit > TIME_UNIT_MASK) {
+        throw new IllegalArgumentException("Time unit " + timeUnit + " is out of range.");
+      }
+      key = (key << TIME_UNIT_BITS) | timeUnit;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the time unit value at the passed index of a bin key created from the passed number of
+   * time units.
+   */
+  public static int getTimeUnit(final int binKey, final int index, final int numberOfTimeUnits) {
+    return (binKey >>> ((numberOfTimeUnits - 1 - index) * TIME_UNIT_BITS)) & TIME_UNIT_MASK;
+  }
+
+  /**
+   * Encodes the statistics of a bin.
+   */
+  public static ByteBuffer encode(final long count, final double mean,
+      final double populationVariance, final double min, final double max) {
+    return ByteBuffer.allocate(BIN_BYTES)
+        .putLong(count)
+        .putDouble(mean)
+        .putDouble(populationVariance)
+        .putDouble(min)
+        .putDouble(max)
+        .flip();
+  }
+
+  public static long getCount(final ByteBuffer bin) {
+    return bin.getLong(bin.position());
+  }
+
+  public static double getMean(final ByteBuffer bin) {
+    return bin.getDouble(bin.position() + MEAN_OFFSET);
+  }
+
+  public static double getPopulationVariance(final ByteBuffer bin) {
+    return bin.getDouble(bin.position() + POPULATION_VARIANCE_OFFSET);
+  }
+
+  public static double getMin(final ByteBuffer bin) {
+    return bin.getDouble(bin.position() + MIN_OFFSET);
+  }
+
+  public static double getMax(final ByteBuffer bin) {
+    return bin.getDouble(bin.position() + MAX_OFFSET);
+  }
+
+}
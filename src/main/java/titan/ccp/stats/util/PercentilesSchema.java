@@ -0,0 +1,24 @@
+package titan.ccp.stats.util;
+
+import java.util.List;
+
+/**
+ * Describes the Cassandra tables storing approximated percentiles. For each statistics table, a
+ * corresponding percentiles table exists, which has the same primary key but the percentile
+ * columns instead of the statistics columns.
+ */
+public final class PercentilesSchema {
+
+  public static final String TABLE_NAME_SUFFIX = "Percentiles";
+
+  public static final List<Double> QUANTILES = List.of(0.5, 0.95, 0.99); // NOCS
+
+  public static final List<String> COLUMNS = List.of("p50", "p95", "p99");
+
+  private PercentilesSchema() {}
+
+  public static String getTableName(final String statsTableName) {
+    return statsTableName + TABLE_NAME_SUFFIX;
+  }
+
+}
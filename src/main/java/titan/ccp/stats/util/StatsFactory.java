@@ -0,0 +1,35 @@
+package titan.ccp.stats.util;
+
+import com.google.common.math.Stats;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Factory for creating Guava {@link Stats} objects from already aggregated values such as count,
+ * mean and variance instead of from individual values.
+ */
+public final class StatsFactory {
+
+  private static final int STATS_BYTES = Long.BYTES + 4 * Double.BYTES; // NOCS
+
+  private StatsFactory() {}
+
+  /**
+   * Create a new {@link Stats} object from its count, mean, population variance, min and max.
+   */
+  public static Stats create(final long count, final double mean, final double populationVariance,
+      final double min, final double max) {
+    // Stats does not provide a public constructor, but its serialized form consists of the count,
+    // the mean, the sum of squares of deltas, the min and the max in little-endian order.
+    final byte[] bytes = ByteBuffer.allocate(STATS_BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putLong(count)
+        .putDouble(mean)
+        .putDouble(populationVariance * count)
+        .putDouble(min)
+        .putDouble(max)
+        .array();
+    return Stats.fromByteArray(bytes);
+  }
+
+}
@@ -0,0 +1,98 @@
+package titan.ccp.stats.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.math.Stats;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.DayOfWeekActivePowerRecord;
+import titan.ccp.model.records.HourOfWeekActivePowerRecord;
+import titan.ccp.stats.api.util.Interval;
+
+public class DerivedDayOfWeekRepositoryTest {
+
+  private static final double DELTA = 1e-9;
+  private static final Interval INTERVAL =
+      Interval.of(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000));
+
+  private InMemoryStatsRepository<HourOfWeekActivePowerRecord> hourOfWeekRepository;
+  private DerivedDayOfWeekRepository repository;
+
+  @Before
+  public void setUp() {
+    this.hourOfWeekRepository = new InMemoryStatsRepository<>(
+        HourOfWeekMapping.create(),
+        Clock.fixed(Instant.ofEpochMilli(800), ZoneOffset.UTC));
+    this.repository = new DerivedDayOfWeekRepository(this.hourOfWeekRepository);
+  }
+
+  @Test
+  public void testEmpty() {
+    assertTrue(this.repository.get("sensor", INTERVAL).isEmpty());
+    assertTrue(this.repository.getIntervals().isEmpty());
+  }
+
+  @Test
+  public void testMergeEqualsStatsOfAllValues() {
+    final double[] firstHour = {10.0, 12.0, 20.0};
+    final double[] secondHour = {-5.0, 7.5};
+    final double[] thirdHour = {100.0};
+    this.hourOfWeekRepository.add(createRecord("sensor", 1, 0, Stats.of(firstHour)));
+    this.hourOfWeekRepository.add(createRecord("sensor", 1, 1, Stats.of(secondHour)));
+    this.hourOfWeekRepository.add(createRecord("sensor", 1, 23, Stats.of(thirdHour)));
+
+    final List<DayOfWeekActivePowerRecord> records = this.repository.get("sensor", INTERVAL);
+
+    assertEquals(1, records.size());
+    final Stats expected = Stats.of(10.0, 12.0, 20.0, -5.0, 7.5, 100.0);
+    final DayOfWeekActivePowerRecord record = records.get(0);
+    assertEquals("sensor", record.getIdentifier());
+    assertEquals(1, (int) record.getDayOfWeek());
+    assertEquals(INTERVAL.getStart().toEpochMilli(), (long) record.getPeriodStart());
+    assertEquals(INTERVAL.getEnd().toEpochMilli(), (long) record.getPeriodEnd());
+    assertEquals(expected.count(), (long) record.getCount());
+    assertEquals(expected.mean(), record.getMean(), DELTA);
+    assertEquals(expected.populationVariance(), record.getPopulationVariance(), DELTA);
+    assertEquals(expected.min(), record.getMin(), DELTA);
+    assertEquals(expected.max(), record.getMax(), DELTA);
+  }
+
+  @Test
+  public void testGroupByDayOfWeek() {
+    this.hourOfWeekRepository.add(createRecord("sensor", 3, 5, Stats.of(1.0)));
+    this.hourOfWeekRepository.add(createRecord("sensor", 1, 5, Stats.of(2.0)));
+    this.hourOfWeekRepository.add(createRecord("sensor", 1, 6, Stats.of(4.0)));
+    this.hourOfWeekRepository.add(createRecord("other", 2, 5, Stats.of(8.0)));
+
+    final List<DayOfWeekActivePowerRecord> records = this.repository.get("sensor", INTERVAL);
+
+    assertEquals(2, records.size());
+    assertEquals(1, (int) records.get(0).getDayOfWeek());
+    assertEquals(2, (long) records.get(0).getCount());
+    assertEquals(3.0, records.get(0).getMean(), DELTA);
+    assertEquals(3, (int) records.get(1).getDayOfWeek());
+    assertEquals(1, (long) records.get(1).getCount());
+    assertEquals(List.of(INTERVAL), this.repository.getIntervals());
+  }
+
+  private static HourOfWeekActivePowerRecord createRecord(final String identifier,
+      final int dayOfWeek, final int hourOfDay, final Stats stats) {
+    return new HourOfWeekActivePowerRecord(
+        identifier,
+        dayOfWeek,
+        hourOfDay,
+        INTERVAL.getStart().toEpochMilli(),
+        INTERVAL.getEnd().toEpochMilli(),
+        stats.count(),
+        stats.mean(),
+        stats.populationVariance(),
+        stats.min(),
+        stats.max());
+  }
+
+}
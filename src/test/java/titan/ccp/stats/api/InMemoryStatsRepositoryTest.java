@@ -0,0 +1,80 @@
+package titan.ccp.stats.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+import titan.ccp.stats.api.util.Interval;
+
+public class InMemoryStatsRepositoryTest {
+
+  private static final Interval FIRST_INTERVAL =
+      Interval.of(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000));
+  private static final Interval SECOND_INTERVAL =
+      Interval.of(Instant.ofEpochMilli(500), Instant.ofEpochMilli(1500));
+
+  private InMemoryStatsRepository<HourOfDayActivePowerRecord> repository;
+
+  @Before
+  public void setUp() {
+    this.repository = new InMemoryStatsRepository<>(
+        HourOfDayMapping.create(),
+        Clock.fixed(Instant.ofEpochMilli(800), ZoneOffset.UTC));
+  }
+
+  @Test
+  public void testEmpty() {
+    assertNull(this.repository.getCurrentInterval());
+    assertTrue(this.repository.get("sensor").isEmpty());
+    assertTrue(this.repository.getIntervals().isEmpty());
+  }
+
+  @Test
+  public void testGet() {
+    final HourOfDayActivePowerRecord first = createRecord("sensor", 1, FIRST_INTERVAL);
+    final HourOfDayActivePowerRecord second = createRecord("sensor", 2, FIRST_INTERVAL);
+    final HourOfDayActivePowerRecord other = createRecord("other", 1, FIRST_INTERVAL);
+    final HourOfDayActivePowerRecord later = createRecord("sensor", 1, SECOND_INTERVAL);
+    this.repository.add(first);
+    this.repository.add(second);
+    this.repository.add(other);
+    this.repository.add(later);
+
+    assertEquals(List.of(first, second), this.repository.get("sensor", FIRST_INTERVAL));
+    assertEquals(List.of(later), this.repository.get("sensor", SECOND_INTERVAL));
+    assertEquals(List.of(other), this.repository.get("other", FIRST_INTERVAL));
+    assertTrue(this.repository.get("other", SECOND_INTERVAL).isEmpty());
+  }
+
+  @Test
+  public void testCurrentInterval() {
+    this.repository.add(createRecord("sensor", 1, SECOND_INTERVAL));
+    this.repository.add(createRecord("sensor", 1, FIRST_INTERVAL));
+
+    assertEquals(List.of(FIRST_INTERVAL, SECOND_INTERVAL), this.repository.getIntervals());
+    assertEquals(FIRST_INTERVAL, this.repository.getCurrentInterval());
+    assertEquals(1, this.repository.get("sensor").size());
+  }
+
+  private static HourOfDayActivePowerRecord createRecord(final String identifier, final int hour,
+      final Interval interval) {
+    return new HourOfDayActivePowerRecord(
+        identifier,
+        hour,
+        interval.getStart().toEpochMilli(),
+        interval.getEnd().toEpochMilli(),
+        1L,
+        1.0,
+        0.0,
+        1.0,
+        1.0);
+  }
+
+}
@@ -0,0 +1,261 @@
+package titan.ccp.stats.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+
+public class LiveStatsPublisherTest {
+
+  private static final String HOUR_OF_DAY = "hour-of-day";
+  private static final String DAY_OF_WEEK = "day-of-week";
+  private static final int MAX_SUBSCRIBERS = 2;
+
+  private LiveStatsPublisher publisher;
+
+  @Before
+  public void setUp() {
+    this.publisher = new LiveStatsPublisher(
+        Map.of(
+            HOUR_OF_DAY, HourOfDayMapping.getTimeUnitColumns(),
+            DAY_OF_WEEK, DayOfWeekMapping.getTimeUnitColumns()),
+        record -> {
+          final HourOfDayActivePowerRecord hourOfDay = (HourOfDayActivePowerRecord) record;
+          return hourOfDay.getHourOfDay() + "=" + hourOfDay.getMean();
+        },
+        Duration.ofSeconds(1),
+        MAX_SUBSCRIBERS);
+  }
+
+  @Test
+  public void testUpdatesOfSameRecordAreCoalesced() throws IOException {
+    final StubConnection connection = this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 1.0));
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 2, 2.0));
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 3.0));
+    this.publisher.flushAll();
+
+    assertEquals("event: hour-of-day\ndata: [1=3.0,2=2.0]\n\n", connection.output.getWritten());
+  }
+
+  @Test
+  public void testUpdatesAreRoutedPerSensor() throws IOException {
+    final StubConnection first = this.subscribe(Set.of("first"), Set.of(HOUR_OF_DAY));
+    final StubConnection second = this.subscribe(Set.of("second"), Set.of(HOUR_OF_DAY));
+
+    this.publisher.publish(HOUR_OF_DAY, "first", createRecord("first", 1, 1.0));
+    this.publisher.publish(HOUR_OF_DAY, "other", createRecord("other", 1, 2.0));
+    this.publisher.flushAll();
+
+    assertEquals("event: hour-of-day\ndata: [1=1.0]\n\n", first.output.getWritten());
+    assertEquals("", second.output.getWritten());
+  }
+
+  @Test
+  public void testUpdatesAreRoutedPerStats() throws IOException {
+    final StubConnection connection = this.subscribe(Set.of("sensor"), Set.of(DAY_OF_WEEK));
+
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 1.0));
+    this.publisher.flushAll();
+
+    assertEquals("", connection.output.getWritten());
+  }
+
+  @Test
+  public void testUpdatesOfUnpublishedStatsAreIgnored() throws IOException {
+    final StubConnection connection = this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+
+    this.publisher.publish("hour-of-week", "sensor", createRecord("sensor", 1, 1.0));
+    this.publisher.flushAll();
+
+    assertFalse(this.publisher.isPublished("hour-of-week"));
+    assertEquals("", connection.output.getWritten());
+  }
+
+  @Test
+  public void testPendingWriteDefersUpdates() throws IOException {
+    final StubConnection connection = this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+    connection.output.ready = false;
+
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 1.0));
+    this.publisher.flushAll();
+    assertEquals("", connection.output.getWritten());
+
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 2.0));
+    connection.output.ready = true;
+    this.publisher.flushAll();
+    assertEquals("event: hour-of-day\ndata: [1=2.0]\n\n", connection.output.getWritten());
+  }
+
+  @Test
+  public void testStalledSubscriberIsClosed() throws IOException {
+    final StubConnection connection = new StubConnection();
+    final LiveStatsSubscriber subscriber =
+        new LiveStatsSubscriber(connection.asyncContext, Set.of("sensor"), Set.of(HOUR_OF_DAY));
+    subscriber.start();
+    connection.output.ready = false;
+
+    try {
+      subscriber.flush(0, 0);
+      fail("Stalled subscriber was not closed.");
+    } catch (final IOException e) { // NOPMD expected
+    }
+
+    assertTrue(subscriber.isClosed());
+    assertTrue(connection.completed);
+  }
+
+  @Test
+  public void testClosedConnectionIsUnsubscribed() throws IOException {
+    final StubConnection closed = this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+    this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+    assertFalse(this.publisher.reserveSubscription());
+
+    // Closed by the client, as reported by the container
+    closed.complete();
+    this.publisher.flushAll();
+
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 1.0));
+    this.publisher.flushAll();
+    assertEquals("", closed.output.getWritten());
+    assertTrue(this.publisher.reserveSubscription());
+  }
+
+  @Test
+  public void testFailedWriteUnsubscribes() throws IOException {
+    final StubConnection failing = this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+    failing.output.failing = true;
+
+    this.publisher.publish(HOUR_OF_DAY, "sensor", createRecord("sensor", 1, 1.0));
+    this.publisher.flushAll();
+
+    assertTrue(failing.completed);
+    this.subscribe(Set.of("sensor"), Set.of(HOUR_OF_DAY));
+    assertTrue(this.publisher.reserveSubscription());
+  }
+
+  @Test
+  public void testSubscriptionsAreLimited() {
+    for (int i = 0; i < MAX_SUBSCRIBERS; i++) {
+      assertTrue(this.publisher.reserveSubscription());
+    }
+    assertFalse(this.publisher.reserveSubscription());
+
+    this.publisher.releaseSubscription();
+    assertTrue(this.publisher.reserveSubscription());
+  }
+
+  private StubConnection subscribe(final Set<String> sensorIds, final Set<String> stats)
+      throws IOException {
+    final StubConnection connection = new StubConnection();
+    final LiveStatsSubscriber subscriber =
+        new LiveStatsSubscriber(connection.asyncContext, sensorIds, stats);
+    subscriber.start();
+    assertTrue(this.publisher.reserveSubscription());
+    this.publisher.subscribe(subscriber);
+    return connection;
+  }
+
+  private static HourOfDayActivePowerRecord createRecord(final String identifier, final int hour,
+      final double mean) {
+    return new HourOfDayActivePowerRecord(identifier, hour, 0L, 1000L, 1L, mean, 0.0, mean, mean);
+  }
+
+  /**
+   * Asynchronous response to a subscriber, whose writes can be delayed or fail.
+   */
+  private static final class StubConnection {
+
+    private final StubOutputStream output = new StubOutputStream();
+    private final List<AsyncListener> listeners = new ArrayList<>();
+    private final AsyncContext asyncContext;
+    private boolean completed;
+
+    private StubConnection() {
+      final ServletResponse response = (ServletResponse) Proxy.newProxyInstance(
+          ServletResponse.class.getClassLoader(),
+          new Class<?>[] {ServletResponse.class},
+          (proxy, method, args) -> {
+            if ("getOutputStream".equals(method.getName())) {
+              return this.output;
+            }
+            throw new UnsupportedOperationException(method.getName());
+          });
+      this.asyncContext = (AsyncContext) Proxy.newProxyInstance(
+          AsyncContext.class.getClassLoader(),
+          new Class<?>[] {AsyncContext.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getResponse":
+                return response;
+              case "addListener":
+                this.listeners.add((AsyncListener) args[0]);
+                return null;
+              case "complete":
+                this.complete();
+                return null;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+
+    private void complete() throws IOException {
+      this.completed = true;
+      for (final AsyncListener listener : this.listeners) {
+        listener.onComplete(null);
+      }
+    }
+
+  }
+
+  private static final class StubOutputStream extends ServletOutputStream {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private boolean ready = true;
+    private boolean failing;
+
+    @Override
+    public boolean isReady() {
+      return this.ready;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      // Writes are completed immediately
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (this.failing) {
+        throw new IOException("Connection reset.");
+      }
+      this.written.write(b);
+    }
+
+    private String getWritten() {
+      return new String(this.written.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+  }
+
+}
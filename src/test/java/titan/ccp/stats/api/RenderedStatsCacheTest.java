@@ -0,0 +1,231 @@
+package titan.ccp.stats.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.zip.GZIPInputStream;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+import titan.ccp.stats.api.RenderedStatsCache.RenderedStats;
+import titan.ccp.stats.api.util.Interval;
+
+public class RenderedStatsCacheTest {
+
+  private static final Interval INTERVAL =
+      Interval.of(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000));
+
+  private final Gson gson = new Gson();
+  private final Queue<Runnable> renderings = new ArrayDeque<>();
+  private InMemoryStatsRepository<HourOfDayActivePowerRecord> repository;
+  private Runnable duringQuery;
+
+  @Before
+  public void setUp() {
+    this.duringQuery = () -> {
+    };
+    this.repository = new InMemoryStatsRepository<>(
+        HourOfDayMapping.create(),
+        Clock.fixed(Instant.ofEpochMilli(800), ZoneOffset.UTC)) {
+      @Override
+      public List<HourOfDayActivePowerRecord> get(final String identifier,
+          final Interval interval) {
+        final List<HourOfDayActivePowerRecord> records = super.get(identifier, interval);
+        RenderedStatsCacheTest.this.duringQuery.run();
+        return records;
+      }
+    };
+  }
+
+  @Test
+  public void testNoCurrentInterval() {
+    assertNull(this.createCache(Duration.ofHours(1)).get("sensor"));
+  }
+
+  @Test
+  public void testMissIsRenderedInBackground() {
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ofHours(1));
+
+    assertNull(cache.get("sensor", INTERVAL));
+    assertNull(cache.get("sensor", INTERVAL));
+    // Rendering is scheduled only once
+    assertEquals(1, this.renderings.size());
+
+    this.runRenderings();
+    assertNotNull(cache.get("sensor", INTERVAL));
+    assertTrue(this.renderings.isEmpty());
+  }
+
+  @Test
+  public void testRenderings() throws IOException {
+    final List<HourOfDayActivePowerRecord> records = List.of(
+        createRecord("sensor", 1, 2.0),
+        createRecord("sensor", 2, 3.0));
+    records.forEach(this.repository::add);
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ofHours(1));
+
+    final RenderedStats rendered = this.render(cache);
+
+    assertEquals(this.gson.toJson(records), gunzip(rendered.getGzipJson()));
+    assertEquals(records, decodeAvro(rendered.getAvroBinary()));
+  }
+
+  @Test
+  public void testEmptyRenderings() throws IOException {
+    final RenderedStats rendered = this.render(this.createCache(Duration.ofHours(1)));
+
+    assertEquals("[]", gunzip(rendered.getGzipJson()));
+    assertEquals(List.of(), decodeAvro(rendered.getAvroBinary()));
+  }
+
+  @Test
+  public void testNoRefreshBeforeInterval() {
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ofHours(1));
+    final RenderedStats first = this.render(cache);
+    this.repository.add(createRecord("sensor", 1, 2.0));
+
+    assertSame(first, cache.get("sensor", INTERVAL));
+    assertTrue(this.renderings.isEmpty());
+  }
+
+  @Test
+  public void testRefreshServesPreviousRendering() throws IOException {
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ZERO);
+    final RenderedStats first = this.render(cache);
+    final HourOfDayActivePowerRecord record = createRecord("sensor", 1, 2.0);
+    this.repository.add(record);
+
+    // Refresh is triggered, but the previous rendering is returned
+    assertSame(first, cache.get("sensor", INTERVAL));
+    this.runRenderings();
+    assertEquals(List.of(record), decodeAvro(cache.get("sensor", INTERVAL).getAvroBinary()));
+  }
+
+  @Test
+  public void testInvalidatedEntryIsNotServed() throws IOException {
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ofHours(1));
+    this.render(cache);
+    final HourOfDayActivePowerRecord record = createRecord("sensor", 1, 2.0);
+    this.repository.add(record);
+    cache.invalidate("sensor");
+
+    assertNull(cache.get("sensor", INTERVAL));
+    this.runRenderings();
+    assertEquals(List.of(record), decodeAvro(cache.get("sensor", INTERVAL).getAvroBinary()));
+  }
+
+  @Test
+  public void testInvalidationAffectsOnlyItsSensor() {
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ofHours(1));
+    assertNull(cache.get("other", INTERVAL));
+    this.runRenderings();
+    final RenderedStats other = cache.get("other", INTERVAL);
+    this.render(cache);
+
+    cache.invalidate("sensor");
+
+    assertNull(cache.get("sensor", INTERVAL));
+    assertSame(other, cache.get("other", INTERVAL));
+  }
+
+  @Test
+  public void testInvalidationDuringRendering() throws IOException {
+    final RenderedStatsCache<HourOfDayActivePowerRecord> cache =
+        this.createCache(Duration.ofHours(1));
+    final HourOfDayActivePowerRecord record = createRecord("sensor", 1, 2.0);
+    // The update is written and reported after the repository was queried
+    this.duringQuery = () -> {
+      this.repository.add(record);
+      cache.invalidate("sensor");
+    };
+    assertNull(cache.get("sensor", INTERVAL));
+    this.runRenderings();
+    this.duringQuery = () -> {
+    };
+
+    assertNull(cache.get("sensor", INTERVAL));
+    this.runRenderings();
+    assertEquals(List.of(record), decodeAvro(cache.get("sensor", INTERVAL).getAvroBinary()));
+  }
+
+  private RenderedStatsCache<HourOfDayActivePowerRecord> createCache(
+      final Duration refreshInterval) {
+    return new RenderedStatsCache<>(this.repository, this.gson::toJson, refreshInterval, 10,
+        this.renderings::add);
+  }
+
+  /**
+   * Request the entry of {@code sensor} and {@link #INTERVAL} and return it after rendering.
+   */
+  private RenderedStats render(final RenderedStatsCache<HourOfDayActivePowerRecord> cache) {
+    assertNull(cache.get("sensor", INTERVAL));
+    this.runRenderings();
+    return cache.get("sensor", INTERVAL);
+  }
+
+  private void runRenderings() {
+    while (!this.renderings.isEmpty()) {
+      this.renderings.poll().run();
+    }
+  }
+
+  private static String gunzip(final byte[] bytes) throws IOException {
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static List<HourOfDayActivePowerRecord> decodeAvro(final byte[] bytes)
+      throws IOException {
+    final SpecificDatumReader<HourOfDayActivePowerRecord> reader =
+        new SpecificDatumReader<>(HourOfDayActivePowerRecord.class);
+    final BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    final List<HourOfDayActivePowerRecord> records = new ArrayList<>();
+    for (long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext()) {
+      for (long i = 0; i < count; i++) {
+        records.add(reader.read(null, decoder));
+      }
+    }
+    return records;
+  }
+
+  private static HourOfDayActivePowerRecord createRecord(final String identifier, final int hour,
+      final double mean) {
+    return new HourOfDayActivePowerRecord(
+        identifier,
+        hour,
+        INTERVAL.getStart().toEpochMilli(),
+        INTERVAL.getEnd().toEpochMilli(),
+        1L,
+        mean,
+        0.0,
+        mean,
+        mean);
+  }
+
+}
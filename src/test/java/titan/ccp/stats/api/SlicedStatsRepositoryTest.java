@@ -0,0 +1,157 @@
+package titan.ccp.stats.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.math.Stats;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+import titan.ccp.stats.api.util.Interval;
+
+public class SlicedStatsRepositoryTest {
+
+  private static final double DELTA = 1e-9;
+  private static final Duration SLICE_SIZE = Duration.ofMillis(100);
+  private static final Duration DEFAULT_RANGE = Duration.ofMillis(300);
+  private static final int MAX_SLICES = 10;
+
+  private InMemoryStatsRepository<HourOfDayActivePowerRecord> sliceRepository;
+  private SlicedStatsRepository<HourOfDayActivePowerRecord> repository;
+
+  @Before
+  public void setUp() {
+    this.sliceRepository = new InMemoryStatsRepository<>(
+        HourOfDayMapping.create(),
+        Clock.fixed(Instant.ofEpochMilli(250), ZoneOffset.UTC));
+    this.repository = new SlicedStatsRepository<>(
+        this.sliceRepository,
+        HourOfDayMapping.create(),
+        HourOfDayMapping.getTimeUnitColumns(),
+        SLICE_SIZE,
+        DEFAULT_RANGE,
+        MAX_SLICES,
+        Runnable::run);
+  }
+
+  @Test
+  public void testEmpty() {
+    assertNull(this.repository.getCurrentInterval());
+    assertTrue(this.repository.get("sensor", interval(0, 1000)).isEmpty());
+  }
+
+  @Test
+  public void testMergeSlices() {
+    this.sliceRepository.add(createRecord("sensor", 1, 0, Stats.of(1.0, 2.0)));
+    this.sliceRepository.add(createRecord("sensor", 1, 100, Stats.of(10.0)));
+    this.sliceRepository.add(createRecord("sensor", 1, 200, Stats.of(-4.0, 3.0, 5.0)));
+    this.sliceRepository.add(createRecord("sensor", 1, 300, Stats.of(1000.0)));
+
+    final List<HourOfDayActivePowerRecord> records =
+        this.repository.get("sensor", interval(0, 300));
+
+    assertEquals(1, records.size());
+    final Stats expected = Stats.of(1.0, 2.0, 10.0, -4.0, 3.0, 5.0);
+    final HourOfDayActivePowerRecord record = records.get(0);
+    assertEquals(0, (long) record.getPeriodStart());
+    assertEquals(300, (long) record.getPeriodEnd());
+    assertEquals(expected.count(), (long) record.getCount());
+    assertEquals(expected.mean(), record.getMean(), DELTA);
+    assertEquals(expected.populationVariance(), record.getPopulationVariance(), DELTA);
+    assertEquals(expected.min(), record.getMin(), DELTA);
+    assertEquals(expected.max(), record.getMax(), DELTA);
+  }
+
+  @Test
+  public void testExtendToCoveringSlices() {
+    this.sliceRepository.add(createRecord("sensor", 1, 100, Stats.of(1.0)));
+    this.sliceRepository.add(createRecord("sensor", 1, 200, Stats.of(3.0)));
+
+    final List<HourOfDayActivePowerRecord> records =
+        this.repository.get("sensor", interval(150, 210));
+
+    assertEquals(1, records.size());
+    assertEquals(100, (long) records.get(0).getPeriodStart());
+    assertEquals(300, (long) records.get(0).getPeriodEnd());
+    assertEquals(2, (long) records.get(0).getCount());
+    assertEquals(2.0, records.get(0).getMean(), DELTA);
+  }
+
+  @Test
+  public void testGroupByTimeUnit() {
+    this.sliceRepository.add(createRecord("sensor", 1, 0, Stats.of(1.0)));
+    this.sliceRepository.add(createRecord("sensor", 2, 0, Stats.of(2.0)));
+    this.sliceRepository.add(createRecord("sensor", 2, 100, Stats.of(4.0)));
+    this.sliceRepository.add(createRecord("other", 1, 100, Stats.of(8.0)));
+
+    final List<HourOfDayActivePowerRecord> records =
+        this.repository.get("sensor", interval(0, 200));
+
+    assertEquals(2, records.size());
+    assertEquals(1, (int) records.get(0).getHourOfDay());
+    assertEquals(1, (long) records.get(0).getCount());
+    assertEquals(2, (int) records.get(1).getHourOfDay());
+    assertEquals(3.0, records.get(1).getMean(), DELTA);
+  }
+
+  @Test
+  public void testMaxSlicesAreQueried() {
+    this.sliceRepository.add(createRecord("sensor", 1, 900, Stats.of(1.0)));
+
+    final List<HourOfDayActivePowerRecord> records =
+        this.repository.get("sensor", interval(50, 1000));
+
+    assertEquals(1, records.size());
+    assertEquals(0, (long) records.get(0).getPeriodStart());
+    assertEquals(1000, (long) records.get(0).getPeriodEnd());
+  }
+
+  @Test(expected = IntervalTooLargeException.class)
+  public void testRejectTooManySlices() {
+    this.repository.get("sensor", interval(50, 1010));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectDefaultRangeBeyondMaxSlices() {
+    new SlicedStatsRepository<>(
+        this.sliceRepository,
+        HourOfDayMapping.create(),
+        HourOfDayMapping.getTimeUnitColumns(),
+        SLICE_SIZE,
+        SLICE_SIZE.multipliedBy(MAX_SLICES + 1),
+        MAX_SLICES,
+        Runnable::run);
+  }
+
+  @Test
+  public void testCurrentIntervalIsDefaultRange() {
+    this.sliceRepository.add(createRecord("sensor", 1, 200, Stats.of(1.0)));
+
+    assertEquals(interval(0, 300), this.repository.getCurrentInterval());
+  }
+
+  private static Interval interval(final long start, final long end) {
+    return Interval.of(Instant.ofEpochMilli(start), Instant.ofEpochMilli(end));
+  }
+
+  private static HourOfDayActivePowerRecord createRecord(final String identifier, final int hour,
+      final long sliceStart, final Stats stats) {
+    return new HourOfDayActivePowerRecord(
+        identifier,
+        hour,
+        sliceStart,
+        sliceStart + SLICE_SIZE.toMillis(),
+        stats.count(),
+        stats.mean(),
+        stats.populationVariance(),
+        stats.min(),
+        stats.max());
+  }
+
+}
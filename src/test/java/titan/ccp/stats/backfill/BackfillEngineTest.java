@@ -0,0 +1,114 @@
+package titan.ccp.stats.backfill;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.avro.specific.SpecificRecord;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+import titan.ccp.stats.streamprocessing.QuantileSketch;
+import titan.ccp.stats.streamprocessing.RecordDatabaseAdapter;
+import titan.ccp.stats.streamprocessing.StatsDefinition;
+import titan.ccp.stats.streamprocessing.StatsType;
+
+public class BackfillEngineTest {
+
+  private static final Instant DAY = Instant.parse("2020-01-01T00:00:00Z");
+  private static final long DAY_MS = Duration.ofDays(1).toMillis();
+
+  private Path directory;
+  private BackfillEngine engine;
+  private final List<SpecificRecord> records = Collections.synchronizedList(new ArrayList<>());
+  private final StatsSink sink = new StatsSink() {
+
+    @Override
+    public void register(final RecordDatabaseAdapter<?> recordDatabaseAdapter) {
+      // Nothing to register
+    }
+
+    @Override
+    public <R extends SpecificRecord> void write(
+        final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+        final R record,
+        final QuantileSketch sketch) {
+      BackfillEngineTest.this.records.add(record);
+    }
+  };
+
+  @Before
+  public void setup() throws IOException {
+    this.directory = Files.createTempDirectory("backfill");
+    this.engine = new BackfillEngine(
+        List.of(new StatsDefinition(StatsType.HOUR_OF_DAY, Duration.ofDays(2), Duration.ofDays(1))),
+        ZoneOffset.UTC,
+        2);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (var files = Files.list(this.directory)) {
+      for (final Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(this.directory);
+  }
+
+  @Test
+  public void testHoppingWindows() throws IOException, InterruptedException {
+    final long time = DAY.plus(Duration.ofMinutes(5 * 60 + 10)).toEpochMilli(); // NOCS
+    final Path first = this.writeCsv("first.csv",
+        "identifier,timestamp,valueInW",
+        "machine," + time + ",50.0",
+        "machine," + (time + 600_000) + ",100.0");
+    final Path second = this.writeCsv("second.csv",
+        "machine," + (time + DAY_MS) + ",30.0");
+
+    final long written = this.engine.run(List.of(first, second), this.sink);
+
+    Assert.assertEquals(3, written);
+    final List<HourOfDayActivePowerRecord> results = new ArrayList<>();
+    for (final SpecificRecord record : this.records) {
+      results.add((HourOfDayActivePowerRecord) record);
+    }
+    results.sort(Comparator.comparingLong(HourOfDayActivePowerRecord::getPeriodStart));
+
+    this.assertWindow(results.get(0), DAY.toEpochMilli() - DAY_MS, 2, 75.0);
+    this.assertWindow(results.get(1), DAY.toEpochMilli(), 3, 60.0);
+    this.assertWindow(results.get(2), DAY.toEpochMilli() + DAY_MS, 1, 30.0);
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidLine() throws IOException, InterruptedException {
+    final Path file = this.writeCsv("invalid.csv",
+        "machine," + DAY.toEpochMilli() + ",50.0",
+        "machine,yesterday,50.0");
+    this.engine.run(List.of(file), this.sink);
+  }
+
+  private void assertWindow(final HourOfDayActivePowerRecord record, final long periodStart,
+      final long count, final double mean) {
+    Assert.assertEquals("machine", record.getIdentifier());
+    Assert.assertEquals(5, record.getHourOfDay());
+    Assert.assertEquals(periodStart, record.getPeriodStart());
+    Assert.assertEquals(periodStart + 2 * DAY_MS, record.getPeriodEnd());
+    Assert.assertEquals(count, record.getCount());
+    Assert.assertEquals(mean, record.getMean(), 0.001);
+  }
+
+  private Path writeCsv(final String fileName, final String... lines) throws IOException {
+    return Files.write(this.directory.resolve(fileName), List.of(lines), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,98 @@
+package titan.ccp.stats.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+  private MetricsRegistry registry;
+
+  @Before
+  public void setUp() {
+    this.registry = new MetricsRegistry();
+  }
+
+  @Test
+  public void testCounter() {
+    final Counter counter = this.registry.counter("records_total", "Number of records.", "stat",
+        "HourOfDay");
+    counter.increment();
+    counter.add(2);
+
+    assertSame(counter, this.registry.counter("records_total", "", "stat", "HourOfDay"));
+    assertEquals(3, counter.get());
+    assertEquals(
+        "# HELP records_total Number of records.\n"
+            + "# TYPE records_total counter\n"
+            + "records_total{stat=\"HourOfDay\"} 3\n",
+        this.registry.scrape());
+  }
+
+  @Test
+  public void testHistogram() {
+    final Histogram histogram = this.registry.durationHistogram("latency_seconds", "Latency.");
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(20));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    histogram.record(TimeUnit.SECONDS.toNanos(20));
+
+    final String scrape = this.registry.scrape();
+    assertEquals(3, histogram.getCount());
+    assertTrue(scrape.contains("# TYPE latency_seconds histogram\n"));
+    assertTrue(scrape.contains("latency_seconds_bucket{le=\"1.0E-5\"} 0\n"));
+    assertTrue(scrape.contains("latency_seconds_bucket{le=\"2.5E-5\"} 1\n"));
+    assertTrue(scrape.contains("latency_seconds_bucket{le=\"0.001\"} 2\n"));
+    assertTrue(scrape.contains("latency_seconds_bucket{le=\"10\"} 2\n"));
+    assertTrue(scrape.contains("latency_seconds_bucket{le=\"+Inf\"} 3\n"));
+    assertTrue(scrape.contains("latency_seconds_count 3\n"));
+    assertTrue(scrape.contains("latency_seconds_sum 20.00102\n"));
+  }
+
+  @Test
+  public void testEventTimeLatencySnapshot() {
+    final Histogram histogram =
+        this.registry.eventTimeLatencyHistogram("event_time_latency_seconds", "Latency.");
+    final HistogramSnapshot empty = histogram.snapshot();
+    for (int i = 0; i < 98; i++) {
+      histogram.record(40);
+    }
+    histogram.record(TimeUnit.SECONDS.toMillis(2));
+    histogram.record(TimeUnit.DAYS.toMillis(2));
+    final HistogramSnapshot snapshot = histogram.snapshot();
+
+    assertTrue(Double.isNaN(empty.quantile(0.5)));
+    assertEquals(100, snapshot.minus(empty).getCount());
+    assertEquals(0.05, snapshot.quantile(0.5), 0.0);
+    assertEquals(2.5, snapshot.quantile(0.99), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, snapshot.quantile(1.0), 0.0);
+    assertTrue(this.registry.scrape()
+        .contains("event_time_latency_seconds_bucket{le=\"86400\"} 99\n"));
+  }
+
+  @Test
+  public void testGaugeAndLabelEscaping() {
+    this.registry.gauge("size", "Size.", () -> 1.5, "name", "a\"b");
+
+    assertEquals(
+        "# HELP size Size.\n"
+            + "# TYPE size gauge\n"
+            + "size{name=\"a\\\"b\"} 1.5\n",
+        this.registry.scrape());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConflictingType() {
+    this.registry.counter("metric", "");
+    this.registry.durationHistogram("metric", "");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOddLabels() {
+    this.registry.counter("metric", "", "key");
+  }
+
+}
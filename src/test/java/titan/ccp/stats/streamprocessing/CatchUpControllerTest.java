@@ -0,0 +1,102 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.util.Properties;
+import org.apache.kafka.streams.StreamsConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CatchUpControllerTest {
+
+  private static final long ENTER_LAG = 1000;
+  private static final long EXIT_LAG = 100;
+
+  @Test
+  public void testEnterAtEnterLag() {
+    Assert.assertFalse(isSwitchRequired(false, ENTER_LAG - 1));
+    Assert.assertTrue(isSwitchRequired(false, ENTER_LAG));
+    Assert.assertTrue(isSwitchRequired(false, ENTER_LAG + 1));
+  }
+
+  @Test
+  public void testLeaveAtExitLag() {
+    Assert.assertFalse(isSwitchRequired(true, EXIT_LAG + 1));
+    Assert.assertTrue(isSwitchRequired(true, EXIT_LAG));
+    Assert.assertTrue(isSwitchRequired(true, 0));
+  }
+
+  @Test
+  public void testKeepModeBetweenThresholds() {
+    for (long lag = EXIT_LAG + 1; lag < ENTER_LAG; lag++) {
+      Assert.assertFalse(isSwitchRequired(false, lag));
+      Assert.assertFalse(isSwitchRequired(true, lag));
+    }
+  }
+
+  @Test
+  public void testSwitchBothDirectionsWithoutFlapping() {
+    // A backlog builds up, is worked off and builds up again, with noise around both thresholds
+    final long[] lags = {0, 500, 999, 1000, 990, 1010, 500, 101, 150, 100, 99, 150, 999, 2000};
+    final boolean[] expectedModes =
+        {false, false, false, true, true, true, true, true, true, false, false, false, false, true};
+    boolean catchingUp = false;
+    int switches = 0;
+    for (int i = 0; i < lags.length; i++) {
+      if (isSwitchRequired(catchingUp, lags[i])) {
+        catchingUp = !catchingUp;
+        switches++;
+      }
+      Assert.assertEquals("Mode at lag " + lags[i], expectedModes[i], catchingUp);
+    }
+    Assert.assertEquals(3, switches); // NOCS
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectExitLagNotBelowEnterLag() {
+    new CatchUpController(new KafkaStreamsBuilder(), null, ENTER_LAG, ENTER_LAG, Duration.ZERO);
+  }
+
+  @Test
+  public void testBuildCatchUpAndNormalProperties() {
+    final KafkaStreamsBuilder builder = new KafkaStreamsBuilder()
+        .bootstrapServers("dummy:1234")
+        .commitIntervalMs(100)
+        .cacheMaxBytesBuffering(0)
+        .catchUpSettings(30_000, 1_000_000); // NOCS
+
+    final Properties catchUp = builder.buildProperties(true);
+    Assert.assertEquals("30000", getProperty(catchUp, StreamsConfig.COMMIT_INTERVAL_MS_CONFIG));
+    Assert.assertEquals("1000000",
+        getProperty(catchUp, StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+
+    final Properties normal = builder.buildProperties(false);
+    Assert.assertEquals("100", getProperty(normal, StreamsConfig.COMMIT_INTERVAL_MS_CONFIG));
+    Assert.assertEquals("0", getProperty(normal, StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+    Assert.assertEquals(
+        getProperty(normal, StreamsConfig.APPLICATION_ID_CONFIG),
+        getProperty(catchUp, StreamsConfig.APPLICATION_ID_CONFIG));
+  }
+
+  @Test
+  public void testCatchUpFallsBackToNormalProperties() {
+    final KafkaStreamsBuilder builder = new KafkaStreamsBuilder()
+        .bootstrapServers("dummy:1234")
+        .commitIntervalMs(100)
+        .cacheMaxBytesBuffering(0)
+        .catchUpSettings(-1, 1_000_000); // NOCS
+
+    final Properties catchUp = builder.buildProperties(true);
+    Assert.assertEquals("100", getProperty(catchUp, StreamsConfig.COMMIT_INTERVAL_MS_CONFIG));
+    Assert.assertEquals("1000000",
+        getProperty(catchUp, StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+  }
+
+  private static boolean isSwitchRequired(final boolean catchingUp, final long lag) {
+    return CatchUpController.isSwitchRequired(catchingUp, lag, ENTER_LAG, EXIT_LAG);
+  }
+
+  private static String getProperty(final Properties properties, final String key) {
+    return String.valueOf(properties.get(key));
+  }
+
+}
@@ -0,0 +1,122 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.TimeWindow;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CurrentWindowFilterTest {
+
+  private static final String INPUT_TOPIC = "input";
+  private static final String OUTPUT_TOPIC = "output";
+  private static final String STORE_NAME = "pending";
+  private static final String SENSOR = "machine";
+  private static final String OTHER_SENSOR = "other-machine";
+  private static final long DAY = Duration.ofDays(1).toMillis();
+
+  private TopologyTestDriver testDriver;
+  private TestInputTopic<Windowed<String>, SummaryStatistics> inputTopic;
+  private TestOutputTopic<Windowed<String>, SummaryStatistics> outputTopic;
+
+  @Before
+  public void setUp() {
+    final Serdes serdes = new MockedSchemaRegistrySerdes();
+    final Serde<Windowed<String>> keySerde =
+        WindowedKeySerde.create(org.apache.kafka.common.serialization.Serdes.String());
+    final TimeWindows timeWindows = TimeWindows
+        .of(Duration.ofDays(3))
+        .advanceBy(Duration.ofDays(1))
+        .grace(Duration.ZERO);
+
+    final StreamsBuilder builder = new StreamsBuilder();
+    builder.addStateStore(Stores.keyValueStoreBuilder(
+        Stores.inMemoryKeyValueStore(STORE_NAME),
+        keySerde,
+        serdes.summaryStatistics()));
+    builder
+        .stream(INPUT_TOPIC, Consumed.with(keySerde, serdes.summaryStatistics()))
+        .transform(() -> new CurrentWindowFilter<String>(STORE_NAME, timeWindows), STORE_NAME)
+        .to(OUTPUT_TOPIC, Produced.with(keySerde, serdes.summaryStatistics()));
+
+    final Properties props = new Properties();
+    props.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "dummy-filter");
+    props.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    this.testDriver = new TopologyTestDriver(builder.build(), props);
+    this.inputTopic = this.testDriver.createInputTopic(
+        INPUT_TOPIC,
+        keySerde.serializer(),
+        serdes.summaryStatistics().serializer());
+    this.outputTopic = this.testDriver.createOutputTopic(
+        OUTPUT_TOPIC,
+        keySerde.deserializer(),
+        serdes.summaryStatistics().deserializer());
+  }
+
+  @After
+  public void tearDown() {
+    this.testDriver.close();
+  }
+
+  @Test
+  public void testMostCompleteWindowIsForwarded() {
+    this.pipe(SENSOR, 0, 2 * DAY + DAY / 2);
+
+    Assert.assertEquals(List.of(0L), this.readWindowStarts());
+  }
+
+  @Test
+  public void testOtherWindowIsForwardedWhenClosed() {
+    this.pipe(SENSOR, 2 * DAY, 2 * DAY + DAY / 2);
+    Assert.assertTrue(this.outputTopic.isEmpty());
+
+    this.pipe(OTHER_SENSOR, 3 * DAY, 5 * DAY + DAY / 2);
+
+    final List<KeyValue<Windowed<String>, SummaryStatistics>> output =
+        this.outputTopic.readKeyValuesToList();
+    Assert.assertEquals(2, output.size());
+    Assert.assertEquals(OTHER_SENSOR, output.get(0).key.key());
+    Assert.assertEquals(SENSOR, output.get(1).key.key());
+    Assert.assertEquals(2 * DAY, output.get(1).key.window().start());
+  }
+
+  @Test
+  public void testOtherWindowIsNotForwardedAgainWhenCurrent() {
+    this.pipe(SENSOR, 2 * DAY, 2 * DAY + DAY / 2);
+    this.pipe(SENSOR, 2 * DAY, 4 * DAY + DAY / 2);
+    this.pipe(OTHER_SENSOR, 9 * DAY, 11 * DAY + DAY / 2);
+
+    Assert.assertEquals(List.of(2 * DAY, 9 * DAY), this.readWindowStarts());
+  }
+
+  private void pipe(final String sensor, final long windowStart, final long timestamp) {
+    this.inputTopic.pipeInput(
+        new Windowed<>(sensor, new TimeWindow(windowStart, windowStart + 3 * DAY)),
+        new SummaryStatistics(Stats.of(1.0), timestamp, null),
+        timestamp);
+  }
+
+  private List<Long> readWindowStarts() {
+    return this.outputTopic.readKeysToList().stream()
+        .map(key -> key.window().start())
+        .collect(Collectors.toList());
+  }
+
+}
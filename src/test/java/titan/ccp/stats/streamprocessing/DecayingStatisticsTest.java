@@ -0,0 +1,91 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DecayingStatisticsTest {
+
+  private static final Duration HALF_LIFE = Duration.ofDays(1);
+  private static final double DELTA = 0.00001;
+
+  @Test
+  public void testSingleValue() {
+    final DecayingStatistics stats = new DecayingStatistics()
+        .add(new TimestampedActivePower(0, 10.0), HALF_LIFE);
+
+    Assert.assertEquals(1.0, stats.getWeight(), DELTA);
+    Assert.assertEquals(10.0, stats.getMean(), DELTA);
+    Assert.assertEquals(0.0, stats.getPopulationVariance(), DELTA);
+    Assert.assertEquals(10.0, stats.getMin(), DELTA);
+    Assert.assertEquals(10.0, stats.getMax(), DELTA);
+  }
+
+  @Test
+  public void testValuesOneHalfLifeApart() {
+    final DecayingStatistics stats = new DecayingStatistics()
+        .add(new TimestampedActivePower(0, 0.0), HALF_LIFE)
+        .add(new TimestampedActivePower(HALF_LIFE.toMillis(), 3.0), HALF_LIFE);
+
+    // First value has weight 0.5, second value has weight 1
+    Assert.assertEquals(1.5, stats.getWeight(), DELTA);
+    Assert.assertEquals(2.0, stats.getMean(), DELTA);
+    Assert.assertEquals(2.0, stats.getPopulationVariance(), DELTA);
+    Assert.assertEquals(HALF_LIFE.toMillis(), stats.getTimestamp());
+  }
+
+  @Test
+  public void testLateValueIsDecayedByItsAge() {
+    final DecayingStatistics stats = new DecayingStatistics()
+        .add(new TimestampedActivePower(HALF_LIFE.toMillis(), 3.0), HALF_LIFE)
+        .add(new TimestampedActivePower(0, 0.0), HALF_LIFE);
+
+    Assert.assertEquals(1.5, stats.getWeight(), DELTA);
+    Assert.assertEquals(2.0, stats.getMean(), DELTA);
+    Assert.assertEquals(2.0, stats.getPopulationVariance(), DELTA);
+    Assert.assertEquals(HALF_LIFE.toMillis(), stats.getTimestamp());
+  }
+
+  @Test
+  public void testExtremesRelaxTowardsMean() {
+    final DecayingStatistics stats = new DecayingStatistics()
+        .add(new TimestampedActivePower(0, 100.0), HALF_LIFE)
+        .add(new TimestampedActivePower(HALF_LIFE.toMillis() * 10, 10.0), HALF_LIFE);
+
+    Assert.assertTrue(stats.getMax() < 15.0);
+    Assert.assertEquals(10.0, stats.getMin(), DELTA);
+  }
+
+  @Test
+  public void testToStats() {
+    final Stats stats = new DecayingStatistics()
+        .add(new TimestampedActivePower(0, 0.0), HALF_LIFE)
+        .add(new TimestampedActivePower(HALF_LIFE.toMillis(), 3.0), HALF_LIFE)
+        .toStats();
+
+    Assert.assertEquals(2, stats.count());
+    Assert.assertEquals(2.0, stats.mean(), DELTA);
+    Assert.assertEquals(2.0, stats.populationVariance(), DELTA);
+    // First value's min is relaxed towards the mean by half
+    Assert.assertEquals(1.0, stats.min(), DELTA);
+    Assert.assertEquals(3.0, stats.max(), DELTA);
+  }
+
+  @Test
+  public void testSerialization() {
+    final DecayingStatistics stats = new DecayingStatistics()
+        .add(new TimestampedActivePower(0, 0.0), HALF_LIFE)
+        .add(new TimestampedActivePower(HALF_LIFE.toMillis(), 3.0), HALF_LIFE);
+
+    final DecayingStatistics result = DecayingStatistics.fromByteArray(stats.toByteArray());
+
+    Assert.assertEquals(stats.getWeight(), result.getWeight(), 0.0);
+    Assert.assertEquals(stats.getMean(), result.getMean(), 0.0);
+    Assert.assertEquals(stats.getPopulationVariance(), result.getPopulationVariance(), 0.0);
+    Assert.assertEquals(stats.getMin(), result.getMin(), 0.0);
+    Assert.assertEquals(stats.getMax(), result.getMax(), 0.0);
+    Assert.assertEquals(stats.getTimestamp(), result.getTimestamp());
+  }
+
+}
@@ -0,0 +1,160 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.avro.Schema;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.junit.Assert;
+import org.junit.Test;
+import titan.ccp.model.records.ActivePowerRecord;
+import titan.ccp.model.records.AggregatedActivePowerRecord;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+
+public class HotKeySplittingTest {
+
+  private static final String POWER_TOPIC = "input";
+  private static final String AGGREGATED_POWER_TOPIC = "output";
+  private static final String STATS_TOPIC = "hour-of-day";
+  private static final String HOT_SENSOR = "machine-hot";
+  private static final String COLD_SENSOR = "machine-cold";
+  private static final String SITE = "site";
+  private static final Instant START = Instant.parse("2020-01-01T05:00:00Z");
+  private static final double DELTA = 0.000_001;
+
+  @Test
+  public void testSplitConfiguredSensorsLikeUnsplit() {
+    final List<HourOfDayActivePowerRecord> unsplit = this.computeStats(false, false);
+    final List<HourOfDayActivePowerRecord> split = this.computeStats(true, false);
+    assertSameStats(unsplit, split);
+  }
+
+  @Test
+  public void testSplitAggregatedSensorsLikeUnsplit() {
+    final List<HourOfDayActivePowerRecord> unsplit = this.computeStats(false, false);
+    final List<HourOfDayActivePowerRecord> split = this.computeStats(false, true);
+    assertSameStats(unsplit, split);
+  }
+
+  @Test
+  public void testSaltsAreSpread() {
+    final int salts = 4;
+    final int[] counts = new int[salts];
+    for (int i = 0; i < 1000; i++) { // NOCS
+      counts[SaltedKey.salt(START.toEpochMilli() + i * 1000L, salts)]++;
+    }
+    for (final int count : counts) {
+      Assert.assertTrue(count > 200); // NOCS
+    }
+  }
+
+  private List<HourOfDayActivePowerRecord> computeStats(final boolean splitConfiguredSensors,
+      final boolean splitAggregatedSensors) {
+    final Serdes serdes = new MockedSchemaRegistrySerdes();
+    final TopologyBuilder topologyBuilder = new TopologyBuilder(
+        serdes,
+        null, // Do not store to Cassandra
+        POWER_TOPIC,
+        AGGREGATED_POWER_TOPIC);
+    if (splitConfiguredSensors || splitAggregatedSensors) {
+      topologyBuilder.enableHotKeySplitting(
+          splitConfiguredSensors ? Set.of(HOT_SENSOR) : Set.of(),
+          splitAggregatedSensors,
+          4);
+    }
+    topologyBuilder.addStat(
+        new HourOfDayKeyFactory(),
+        HourOfDayKeySerde.create(),
+        new HourOfDayRecordFactory(),
+        null, // Do not store to Cassandra
+        TimeWindows.of(Duration.ofDays(30)).advanceBy(Duration.ofDays(1)),
+        STATS_TOPIC);
+
+    final Properties props = new Properties();
+    props.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "dummy-aggregation");
+    props.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    try (TopologyTestDriver testDriver = new TopologyTestDriver(topologyBuilder.build(), props)) {
+      final TestInputTopic<String, ActivePowerRecord> powerTopic = testDriver.createInputTopic(
+          POWER_TOPIC,
+          serdes.string().serializer(),
+          serdes.activePowerRecordValues().serializer());
+      final TestInputTopic<String, AggregatedActivePowerRecord> aggregatedPowerTopic =
+          testDriver.createInputTopic(
+              AGGREGATED_POWER_TOPIC,
+              serdes.string().serializer(),
+              serdes.aggregatedActivePowerRecordValues().serializer());
+      final TestOutputTopic<String, HourOfDayActivePowerRecord> statsTopic =
+          testDriver.createOutputTopic(
+              STATS_TOPIC,
+              serdes.string().deserializer(),
+              serdes.<HourOfDayActivePowerRecord>avroValues().deserializer());
+
+      for (int i = 0; i < 100; i++) { // NOCS
+        final Instant timestamp = START.plusSeconds(i * 60L); // NOCS
+        final double value = 10.0 + i % 7; // NOCS
+        powerTopic.pipeInput(HOT_SENSOR,
+            new ActivePowerRecord(HOT_SENSOR, timestamp.toEpochMilli(), value), timestamp);
+        powerTopic.pipeInput(COLD_SENSOR,
+            new ActivePowerRecord(COLD_SENSOR, timestamp.toEpochMilli(), value * 2), timestamp);
+        aggregatedPowerTopic.pipeInput(SITE,
+            createAggregatedRecord(SITE, timestamp.toEpochMilli(), value * 3), // NOCS
+            timestamp);
+      }
+      return statsTopic.readValuesToList();
+    }
+  }
+
+  /**
+   * Create an {@link AggregatedActivePowerRecord} with the passed identifier, timestamp and sum,
+   * while further fields are set to type-based defaults.
+   */
+  private static AggregatedActivePowerRecord createAggregatedRecord(final String identifier,
+      final long timestamp, final double sumInW) {
+    final AggregatedActivePowerRecord record = new AggregatedActivePowerRecord();
+    for (final Schema.Field field : record.getSchema().getFields()) {
+      switch (field.schema().getType()) {
+        case LONG:
+          record.put(field.pos(), 1L);
+          break;
+        case INT:
+          record.put(field.pos(), 1);
+          break;
+        case DOUBLE:
+          record.put(field.pos(), 0.0);
+          break;
+        default:
+          break;
+      }
+    }
+    record.put("identifier", identifier);
+    record.put("timestamp", timestamp);
+    record.put("sumInW", sumInW);
+    return record;
+  }
+
+  private static void assertSameStats(final List<HourOfDayActivePowerRecord> expected,
+      final List<HourOfDayActivePowerRecord> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final HourOfDayActivePowerRecord expectedRecord = expected.get(i);
+      final HourOfDayActivePowerRecord actualRecord = actual.get(i);
+      Assert.assertEquals(expectedRecord.getIdentifier(), actualRecord.getIdentifier());
+      Assert.assertEquals(expectedRecord.getHourOfDay(), actualRecord.getHourOfDay());
+      Assert.assertEquals(expectedRecord.getPeriodStart(), actualRecord.getPeriodStart());
+      Assert.assertEquals(expectedRecord.getPeriodEnd(), actualRecord.getPeriodEnd());
+      Assert.assertEquals(expectedRecord.getCount(), actualRecord.getCount());
+      Assert.assertEquals(expectedRecord.getMean(), actualRecord.getMean(), DELTA);
+      Assert.assertEquals(expectedRecord.getPopulationVariance(),
+          actualRecord.getPopulationVariance(), DELTA);
+      Assert.assertEquals(expectedRecord.getMin(), actualRecord.getMin(), DELTA);
+      Assert.assertEquals(expectedRecord.getMax(), actualRecord.getMax(), DELTA);
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+
+/**
+ * {@link StatsStorage} for tests, which keeps written records in memory and serves loaded
+ * statistics from explicitly stored {@link Stats}.
+ */
+class InMemoryStatsStorage implements StatsStorage {
+
+  private final Map<List<Object>, Stats> stored = new HashMap<>();
+  private final List<SpecificRecord> writtenRecords =
+      Collections.synchronizedList(new ArrayList<>());
+  private final List<SpecificRecord> writtenPercentiles =
+      Collections.synchronizedList(new ArrayList<>());
+  private final List<List<Object>> loadedKeys = new ArrayList<>();
+
+  /**
+   * Store {@link Stats}, which are loaded for records having the passed primary key values in the
+   * order identifier, time units, period start and period end.
+   */
+  public void store(final List<Object> primaryKey, final Stats stats) {
+    this.stored.put(primaryKey, stats);
+  }
+
+  /**
+   * Get copies of all written records in the order they were written.
+   */
+  public List<SpecificRecord> getWrittenRecords() {
+    return this.writtenRecords;
+  }
+
+  /**
+   * Get copies of all records, whose percentiles were written, in the order they were written.
+   */
+  public List<SpecificRecord> getWrittenPercentiles() {
+    return this.writtenPercentiles;
+  }
+
+  /**
+   * Get the primary keys of all loaded statistics in the order they were loaded.
+   */
+  public List<List<Object>> getLoadedKeys() {
+    return this.loadedKeys;
+  }
+
+  @Override
+  public void register(final RecordDatabaseAdapter<?> recordDatabaseAdapter) {
+    // Nothing to register
+  }
+
+  @Override
+  public void writeStats(final SpecificRecord record) {
+    // Copy as callers may modify the record after returning
+    this.writtenRecords.add(SpecificData.get().deepCopy(record.getSchema(), record));
+  }
+
+  @Override
+  public <R extends SpecificRecord> Stats loadStats(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R keyRecord) {
+    final List<Object> primaryKey = getPrimaryKey(recordDatabaseAdapter, keyRecord);
+    this.loadedKeys.add(primaryKey);
+    return this.stored.get(primaryKey);
+  }
+
+  @Override
+  public <R extends SpecificRecord> void writePercentiles(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R record,
+      final QuantileSketch sketch) {
+    // Percentiles themselves are not stored
+    this.writtenPercentiles.add(SpecificData.get().deepCopy(record.getSchema(), record));
+  }
+
+  private static <R extends SpecificRecord> List<Object> getPrimaryKey(
+      final RecordDatabaseAdapter<R> recordDatabaseAdapter,
+      final R record) {
+    final List<Object> primaryKey = new ArrayList<>();
+    primaryKey.add(get(record, recordDatabaseAdapter.getIdentifierField()).toString());
+    for (final String timeUnitField : recordDatabaseAdapter.getTimeUnitFields()) {
+      primaryKey.add(get(record, timeUnitField));
+    }
+    primaryKey.add(get(record, recordDatabaseAdapter.getPeriodStartField()));
+    primaryKey.add(get(record, recordDatabaseAdapter.getPeriodEndField()));
+    return primaryKey;
+  }
+
+  private static Object get(final SpecificRecord record, final String field) {
+    return record.get(record.getSchema().getField(field).pos());
+  }
+
+}
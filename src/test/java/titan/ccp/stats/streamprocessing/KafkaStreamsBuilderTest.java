@@ -0,0 +1,71 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.internals.WrappedStateStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KafkaStreamsBuilderTest {
+
+  private static final int CATCH_UP_CACHE_BYTES = 10_000_000;
+
+  @Test
+  public void testCatchUpStoresAreCachedAfterUncachedNormalMode() {
+    final KafkaStreamsBuilder builder = createBuilder()
+        .cacheMaxBytesBuffering(0)
+        .catchUpSettings(-1, CATCH_UP_CACHE_BYTES);
+
+    // Like Kafka Streams, the test driver disables caching in the topology if the cache is 0
+    try (TopologyTestDriver normal =
+        new TopologyTestDriver(builder.buildTopology(), builder.buildProperties(false))) {
+      final List<StateStore> windowStores = getWindowStores(normal);
+      Assert.assertFalse(windowStores.isEmpty());
+      for (final StateStore store : windowStores) {
+        Assert.assertFalse(store.name() + " is cached", isCached(store));
+      }
+    }
+    try (TopologyTestDriver catchUp =
+        new TopologyTestDriver(builder.buildTopology(), builder.buildProperties(true))) {
+      final List<StateStore> windowStores = getWindowStores(catchUp);
+      Assert.assertFalse(windowStores.isEmpty());
+      for (final StateStore store : windowStores) {
+        Assert.assertTrue(store.name() + " is not cached", isCached(store));
+      }
+    }
+  }
+
+  private static KafkaStreamsBuilder createBuilder() {
+    return new KafkaStreamsBuilder()
+        .bootstrapServers("dummy:1234")
+        .schemaRegistry("http://dummy")
+        .activePowerTopic("input")
+        .aggrActivePowerTopic("aggregated-input")
+        .dayOfWeekTopic("day-of-week")
+        .hourOfDayTopic("hour-of-day")
+        .hourOfWeekTopic("hour-of-week")
+        .statsStorage(new InMemoryStatsStorage());
+  }
+
+  private static List<StateStore> getWindowStores(final TopologyTestDriver testDriver) {
+    return testDriver.getAllStateStores().values().stream()
+        .filter(store -> store instanceof WindowStore)
+        .collect(Collectors.toList());
+  }
+
+  private static boolean isCached(final StateStore store) {
+    StateStore layer = store;
+    while (layer instanceof WrappedStateStore) {
+      // Caching layers are internal classes of Kafka Streams
+      if (layer.getClass().getSimpleName().startsWith("Caching")) {
+        return true;
+      }
+      layer = ((WrappedStateStore<?, ?, ?>) layer).wrapped();
+    }
+    return false;
+  }
+
+}
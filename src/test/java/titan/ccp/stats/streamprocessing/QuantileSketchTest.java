@@ -0,0 +1,112 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+  private static final double RELATIVE_ACCURACY = 0.01;
+  private static final int MAX_BINS = 1024;
+  private static final int NUMBER_OF_VALUES = 10_000;
+
+  @Test
+  public void testEmptySketch() {
+    final QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY, MAX_BINS);
+    Assert.assertTrue(Double.isNaN(sketch.quantile(0.5)));
+  }
+
+  @Test
+  public void testQuantilesWithinRelativeAccuracy() {
+    final QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY, MAX_BINS);
+    final double[] values = this.generateValues();
+    for (final double value : values) {
+      sketch.add(value);
+    }
+    Arrays.sort(values);
+
+    Assert.assertEquals(NUMBER_OF_VALUES, sketch.getCount());
+    for (final double q : new double[] {0.0, 0.5, 0.95, 0.99, 1.0}) {
+      final double expected = values[(int) (q * (values.length - 1))];
+      Assert.assertEquals(expected, sketch.quantile(q), Math.abs(expected) * RELATIVE_ACCURACY);
+    }
+  }
+
+  @Test
+  public void testMergeEqualsSingleSketch() {
+    final QuantileSketch single = new QuantileSketch(RELATIVE_ACCURACY, MAX_BINS);
+    final QuantileSketch first = new QuantileSketch(RELATIVE_ACCURACY, MAX_BINS);
+    final QuantileSketch second = new QuantileSketch(RELATIVE_ACCURACY, MAX_BINS);
+    final double[] values = this.generateValues();
+    for (int i = 0; i < values.length; i++) {
+      single.add(values[i]);
+      (i % 2 == 0 ? first : second).add(values[i]);
+    }
+    first.merge(second);
+
+    Assert.assertEquals(single.getCount(), first.getCount());
+    Assert.assertEquals(single.quantile(0.5), first.quantile(0.5), 0.0);
+    Assert.assertEquals(single.quantile(0.99), first.quantile(0.99), 0.0);
+  }
+
+  @Test
+  public void testSerialization() {
+    final QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY, MAX_BINS);
+    for (final double value : this.generateValues()) {
+      sketch.add(value);
+    }
+    sketch.add(0.0);
+    sketch.add(-5.0);
+
+    final QuantileSketch result = QuantileSketch.fromByteArray(sketch.toByteArray());
+
+    Assert.assertEquals(sketch.getCount(), result.getCount());
+    Assert.assertEquals(sketch.getRelativeAccuracy(), result.getRelativeAccuracy(), 0.0);
+    Assert.assertEquals(sketch.getMaxBins(), result.getMaxBins());
+    Assert.assertEquals(sketch.quantile(0.0), result.quantile(0.0), 0.0);
+    Assert.assertEquals(sketch.quantile(0.5), result.quantile(0.5), 0.0);
+    Assert.assertEquals(sketch.quantile(0.99), result.quantile(0.99), 0.0);
+  }
+
+  @Test
+  public void testNumberOfBinsIsBounded() {
+    final QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY, 16);
+    for (final double value : this.generateValues()) {
+      sketch.add(value);
+    }
+
+    Assert.assertEquals(NUMBER_OF_VALUES, sketch.getCount());
+    Assert.assertTrue(sketch.toByteArray().length < 16 * 3 + 32);
+  }
+
+  @Test
+  public void testLargestNegativeValuesAreCollapsed() {
+    final QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY, 16);
+    final double[] values = this.generateValues();
+    for (int i = 0; i < values.length; i += 2) {
+      values[i] = -values[i];
+    }
+    for (final double value : values) {
+      sketch.add(value);
+    }
+    Arrays.sort(values);
+
+    // Negative values closest to zero and the largest positive values are kept accurately
+    for (final double q : new double[] {0.49, 1.0}) {
+      final double expected = values[(int) (q * (values.length - 1))];
+      Assert.assertEquals(expected, sketch.quantile(q), Math.abs(expected) * RELATIVE_ACCURACY);
+    }
+    Assert.assertTrue(sketch.quantile(0.0) > values[0] * (1 - RELATIVE_ACCURACY));
+  }
+
+  private double[] generateValues() {
+    final Random random = new Random(42); // NOPMD
+    final double[] values = new double[NUMBER_OF_VALUES];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 100 + random.nextDouble() * 1000;
+    }
+    return values;
+  }
+
+}
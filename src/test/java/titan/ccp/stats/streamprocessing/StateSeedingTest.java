@@ -0,0 +1,151 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.ActivePowerRecord;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+
+public class StateSeedingTest {
+
+  private static final String POWER_TOPIC = "input";
+  private static final String AGGREGATED_POWER_TOPIC = "output";
+  private static final String STATS_TOPIC = "hour-of-day";
+  private static final String SEEDED_SENSOR = "machine-seeded";
+  private static final String UNSEEDED_SENSOR = "machine-unseeded";
+  // 06:00 in the default zone
+  private static final Instant START = Instant.parse("2020-01-01T05:00:00Z");
+  private static final int HOUR_OF_DAY = 6;
+  private static final long WINDOW_START = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+  private static final long WINDOW_END = Instant.parse("2020-01-02T00:00:00Z").toEpochMilli();
+  private static final double DELTA = 0.000_001;
+
+  private final Serdes serdes = new MockedSchemaRegistrySerdes();
+  private InMemoryStatsStorage statsStorage;
+  private TopologyTestDriver testDriver;
+  private TestInputTopic<String, ActivePowerRecord> powerTopic;
+  private TestOutputTopic<String, HourOfDayActivePowerRecord> statsTopic;
+
+  @Before
+  public void setUp() {
+    this.statsStorage = new InMemoryStatsStorage();
+    this.statsStorage.store(
+        List.of(SEEDED_SENSOR, HOUR_OF_DAY, WINDOW_START, WINDOW_END),
+        Stats.of(10.0, 20.0)); // NOCS
+
+    final TopologyBuilder topologyBuilder = new TopologyBuilder(
+        this.serdes,
+        POWER_TOPIC,
+        AGGREGATED_POWER_TOPIC,
+        this.statsStorage);
+    topologyBuilder.enableStateSeeding();
+    topologyBuilder.addStat(
+        new HourOfDayKeyFactory(),
+        HourOfDayKeySerde.create(),
+        new HourOfDayRecordFactory(),
+        new RecordDatabaseAdapter<>(HourOfDayActivePowerRecord.class, "hourOfDay"),
+        TimeWindows.of(Duration.ofDays(1)),
+        STATS_TOPIC);
+
+    final Properties props = new Properties();
+    props.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "dummy-aggregation");
+    props.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    this.testDriver = new TopologyTestDriver(topologyBuilder.build(), props);
+    this.powerTopic = this.testDriver.createInputTopic(
+        POWER_TOPIC,
+        this.serdes.string().serializer(),
+        this.serdes.activePowerRecordValues().serializer());
+    this.statsTopic = this.testDriver.createOutputTopic(
+        STATS_TOPIC,
+        this.serdes.string().deserializer(),
+        this.serdes.<HourOfDayActivePowerRecord>avroValues().deserializer());
+  }
+
+  @After
+  public void tearDown() {
+    this.testDriver.close();
+  }
+
+  @Test
+  public void testSeededWindowContinuesStoredStats() {
+    this.pipe(SEEDED_SENSOR, START, 30.0); // NOCS
+    this.pipe(SEEDED_SENSOR, START.plusSeconds(60), 40.0); // NOCS
+
+    final HourOfDayActivePowerRecord record = this.readLatest().get(SEEDED_SENSOR);
+    Assert.assertNotNull(record);
+    Assert.assertEquals(HOUR_OF_DAY, (int) record.getHourOfDay());
+    Assert.assertEquals(WINDOW_START, (long) record.getPeriodStart());
+    Assert.assertEquals(WINDOW_END, (long) record.getPeriodEnd());
+    Assert.assertEquals(4, (long) record.getCount()); // NOCS
+    Assert.assertEquals(25.0, record.getMean(), DELTA); // NOCS
+    Assert.assertEquals(10.0, record.getMin(), DELTA); // NOCS
+    Assert.assertEquals(40.0, record.getMax(), DELTA); // NOCS
+  }
+
+  @Test
+  public void testUnseededWindowStartsEmpty() {
+    this.pipe(UNSEEDED_SENSOR, START, 30.0); // NOCS
+    this.pipe(UNSEEDED_SENSOR, START.plusSeconds(60), 40.0); // NOCS
+
+    final HourOfDayActivePowerRecord record = this.readLatest().get(UNSEEDED_SENSOR);
+    Assert.assertNotNull(record);
+    Assert.assertEquals(2, (long) record.getCount());
+    Assert.assertEquals(35.0, record.getMean(), DELTA); // NOCS
+    Assert.assertEquals(30.0, record.getMin(), DELTA); // NOCS
+    Assert.assertEquals(40.0, record.getMax(), DELTA); // NOCS
+  }
+
+  @Test
+  public void testStatsAreLoadedOncePerWindow() {
+    this.pipe(SEEDED_SENSOR, START, 30.0); // NOCS
+    this.pipe(SEEDED_SENSOR, START.plusSeconds(60), 40.0); // NOCS
+    this.pipe(UNSEEDED_SENSOR, START, 30.0); // NOCS
+    this.pipe(UNSEEDED_SENSOR, START.plusSeconds(60), 40.0); // NOCS
+
+    Assert.assertEquals(
+        List.of(
+            List.of(SEEDED_SENSOR, HOUR_OF_DAY, WINDOW_START, WINDOW_END),
+            List.of(UNSEEDED_SENSOR, HOUR_OF_DAY, WINDOW_START, WINDOW_END)),
+        this.statsStorage.getLoadedKeys());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSeedingRejectsCurrentWindowPolicy() {
+    final TopologyBuilder topologyBuilder = new TopologyBuilder(
+        this.serdes,
+        POWER_TOPIC,
+        AGGREGATED_POWER_TOPIC,
+        new InMemoryStatsStorage());
+    topologyBuilder.enableStateSeeding();
+    topologyBuilder.setStoragePolicy(StatsStoragePolicy.CURRENT_WINDOW);
+  }
+
+  private void pipe(final String sensorId, final Instant timestamp, final double value) {
+    this.powerTopic.pipeInput(
+        sensorId,
+        new ActivePowerRecord(sensorId, timestamp.toEpochMilli(), value),
+        timestamp);
+  }
+
+  private Map<String, HourOfDayActivePowerRecord> readLatest() {
+    final Map<String, HourOfDayActivePowerRecord> latest = new HashMap<>();
+    for (final HourOfDayActivePowerRecord record : this.statsTopic.readValuesToList()) {
+      latest.put(record.getIdentifier().toString(), record);
+    }
+    return latest;
+  }
+
+}
@@ -0,0 +1,52 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StatsDefinitionTest {
+
+  @Test
+  public void testTypeFromName() {
+    Assert.assertEquals(StatsType.HOUR_OF_WEEK, StatsType.fromName(" Hour-Of-Week "));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeFromUnknownName() {
+    StatsType.fromName("minute-of-hour");
+  }
+
+  @Test
+  public void testTimeWindows() {
+    final TimeWindows timeWindows = new StatsDefinition(
+        StatsType.HOUR_OF_DAY, Duration.ofDays(7), Duration.ofDays(1)).toTimeWindows();
+    Assert.assertEquals(Duration.ofDays(7).toMillis(), timeWindows.sizeMs);
+    Assert.assertEquals(Duration.ofDays(1).toMillis(), timeWindows.advanceMs);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdvanceLargerThanSize() {
+    new StatsDefinition(StatsType.HOUR_OF_DAY, Duration.ofDays(1), Duration.ofDays(7));
+  }
+
+  @Test
+  public void testGracePeriodAndRetention() {
+    final StatsDefinition definition = new StatsDefinition(
+        StatsType.HOUR_OF_DAY, Duration.ofDays(7), Duration.ofDays(1), Duration.ofHours(2), null);
+    Assert.assertEquals(Duration.ofHours(2).toMillis(), definition.toTimeWindows().gracePeriodMs());
+    Assert.assertEquals(Duration.ofDays(7).plusHours(2), definition.getRetention());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRetentionSmallerThanSizeAndGrace() {
+    new StatsDefinition(StatsType.HOUR_OF_DAY, Duration.ofDays(7), Duration.ofDays(1),
+        Duration.ofHours(2), Duration.ofDays(7));
+  }
+
+  @Test
+  public void testAllWithDefaults() {
+    Assert.assertEquals(StatsType.values().length, StatsDefinition.allWithDefaults().size());
+  }
+
+}
@@ -0,0 +1,125 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.ActivePowerRecord;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+
+public class StatsRecordSinkTest {
+
+  private static final String POWER_TOPIC = "input";
+  private static final String AGGREGATED_POWER_TOPIC = "output";
+  private static final String STATS_TOPIC = "hour-of-day";
+  private static final String SENSOR = "machine";
+  private static final Instant START = Instant.parse("2020-01-01T05:00:00Z");
+  private static final long DAY = Duration.ofDays(1).toMillis();
+  private static final long FIRST_WINDOW_START =
+      Instant.parse("2019-12-30T00:00:00Z").toEpochMilli();
+  private static final double DELTA = 0.000_001;
+
+  private final Serdes serdes = new MockedSchemaRegistrySerdes();
+  private InMemoryStatsStorage statsStorage;
+  private TopologyTestDriver testDriver;
+  private TestInputTopic<String, ActivePowerRecord> powerTopic;
+  private TestOutputTopic<String, HourOfDayActivePowerRecord> statsTopic;
+
+  @Before
+  public void setUp() {
+    this.statsStorage = new InMemoryStatsStorage();
+    final TopologyBuilder topologyBuilder = new TopologyBuilder(
+        this.serdes,
+        POWER_TOPIC,
+        AGGREGATED_POWER_TOPIC,
+        this.statsStorage);
+    // Each record belongs to three overlapping windows
+    topologyBuilder.addStat(
+        new HourOfDayKeyFactory(),
+        HourOfDayKeySerde.create(),
+        new HourOfDayRecordFactory(),
+        new RecordDatabaseAdapter<>(HourOfDayActivePowerRecord.class, "hourOfDay"),
+        TimeWindows.of(Duration.ofDays(3)).advanceBy(Duration.ofDays(1)),
+        STATS_TOPIC);
+
+    final Properties props = new Properties();
+    props.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "dummy-aggregation");
+    props.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+    // Forward each update instead of only the latest per commit
+    props.setProperty(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, "0");
+    this.testDriver = new TopologyTestDriver(topologyBuilder.build(), props);
+    this.powerTopic = this.testDriver.createInputTopic(
+        POWER_TOPIC,
+        this.serdes.string().serializer(),
+        this.serdes.activePowerRecordValues().serializer());
+    this.statsTopic = this.testDriver.createOutputTopic(
+        STATS_TOPIC,
+        this.serdes.string().deserializer(),
+        this.serdes.<HourOfDayActivePowerRecord>avroValues().deserializer());
+  }
+
+  @After
+  public void tearDown() {
+    this.testDriver.close();
+  }
+
+  @Test
+  public void testAllUpdatesAreStored() {
+    this.pipe(START, 10.0); // NOCS
+    this.pipe(START.plusSeconds(60), 20.0); // NOCS
+
+    final List<SpecificRecord> written = this.statsStorage.getWrittenRecords();
+    Assert.assertEquals(6, written.size()); // NOCS
+    final Map<Long, List<Long>> countsPerWindow = written.stream()
+        .map(HourOfDayActivePowerRecord.class::cast)
+        .collect(Collectors.groupingBy(
+            HourOfDayActivePowerRecord::getPeriodStart,
+            TreeMap::new,
+            Collectors.mapping(HourOfDayActivePowerRecord::getCount, Collectors.toList())));
+    Assert.assertEquals(
+        List.of(FIRST_WINDOW_START, FIRST_WINDOW_START + DAY, FIRST_WINDOW_START + 2 * DAY),
+        List.copyOf(countsPerWindow.keySet()));
+    for (final List<Long> counts : countsPerWindow.values()) {
+      Assert.assertEquals(List.of(1L, 2L), counts);
+    }
+  }
+
+  @Test
+  public void testOnlyMostCompleteWindowIsForwarded() {
+    this.pipe(START, 10.0); // NOCS
+    this.pipe(START.plusSeconds(60), 20.0); // NOCS
+
+    // Records are serialized when forwarded, so that reusing the record instance is not visible
+    final List<HourOfDayActivePowerRecord> forwarded = this.statsTopic.readValuesToList();
+    Assert.assertEquals(2, forwarded.size());
+    for (final HourOfDayActivePowerRecord record : forwarded) {
+      Assert.assertEquals(FIRST_WINDOW_START, (long) record.getPeriodStart());
+      Assert.assertEquals(FIRST_WINDOW_START + 3 * DAY, (long) record.getPeriodEnd()); // NOCS
+    }
+    Assert.assertEquals(1, (long) forwarded.get(0).getCount());
+    Assert.assertEquals(10.0, forwarded.get(0).getMean(), DELTA); // NOCS
+    Assert.assertEquals(2, (long) forwarded.get(1).getCount());
+    Assert.assertEquals(15.0, forwarded.get(1).getMean(), DELTA); // NOCS
+  }
+
+  private void pipe(final Instant timestamp, final double value) {
+    this.powerTopic.pipeInput(
+        SENSOR,
+        new ActivePowerRecord(SENSOR, timestamp.toEpochMilli(), value),
+        timestamp);
+  }
+
+}
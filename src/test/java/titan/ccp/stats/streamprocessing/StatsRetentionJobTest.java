@@ -0,0 +1,56 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StatsRetentionJobTest {
+
+  private static final long DAY = Duration.ofDays(1).toMillis();
+  private static final long SIZE = 365 * DAY;
+  private static final long ADVANCE = 30 * DAY;
+
+  @Test
+  public void testEveryNthWindowIsCanonical() {
+    for (int i = 0; i < 36; i++) { // NOCS
+      final long start = i * ADVANCE;
+      Assert.assertEquals(i % 12 == 0, // NOCS
+          StatsRetentionJob.isCanonical(start, start + SIZE, SIZE, ADVANCE));
+    }
+  }
+
+  @Test
+  public void testNegativeStartsAreAligned() {
+    final long start = -12 * ADVANCE;
+    Assert.assertTrue(StatsRetentionJob.isCanonical(start, start + SIZE, SIZE, ADVANCE));
+    Assert.assertFalse(
+        StatsRetentionJob.isCanonical(start + ADVANCE, start + ADVANCE + SIZE, SIZE, ADVANCE));
+  }
+
+  @Test
+  public void testWindowsOfOtherSizesAreKept() {
+    Assert.assertTrue(StatsRetentionJob.isCanonical(ADVANCE, ADVANCE + DAY, SIZE, ADVANCE));
+  }
+
+  @Test
+  public void testTumblingWindowsAreCanonical() {
+    Assert.assertTrue(StatsRetentionJob.isCanonical(5 * DAY, 6 * DAY, DAY, DAY));
+  }
+
+  @Test
+  public void testTableOptionsStatement() {
+    final StatsTableOptions options = new StatsTableOptions(
+        "{'class': 'TimeWindowCompactionStrategy'}",
+        Duration.ofDays(1));
+    Assert.assertEquals(
+        "ALTER TABLE HourOfDayActivePowerRecord WITH compaction = "
+            + "{'class': 'TimeWindowCompactionStrategy'} AND default_time_to_live = 86400",
+        options.toAlterStatement("HourOfDayActivePowerRecord"));
+  }
+
+  @Test
+  public void testDefaultTableOptionsHaveNoStatement() {
+    Assert.assertNull(new StatsTableOptions(" ", null).toAlterStatement("table"));
+  }
+
+}
@@ -0,0 +1,119 @@
+package titan.ccp.stats.streamprocessing;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.avro.specific.SpecificRecord;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import titan.ccp.model.records.HourOfDayActivePowerRecord;
+
+public class StatsWriteBufferTest {
+
+  private static final RecordDatabaseAdapter<HourOfDayActivePowerRecord> ADAPTER =
+      new RecordDatabaseAdapter<>(HourOfDayActivePowerRecord.class, "hourOfDay");
+  private static final int MAX_BUFFERED_WRITES = 3;
+
+  private InMemoryStatsStorage statsStorage;
+  private StatsWriteBatching batching;
+  private StatsWriteBuffer buffer;
+
+  @Before
+  public void setUp() {
+    this.statsStorage = new InMemoryStatsStorage();
+    this.batching = new StatsWriteBatching(2, MAX_BUFFERED_WRITES);
+    this.batching.setEnabled(true);
+    this.buffer = new StatsWriteBuffer("buffer", this.statsStorage, this.batching);
+  }
+
+  @Test
+  public void testBatchingFollowsSwitch() {
+    Assert.assertTrue(this.buffer.isBatching());
+    this.batching.setEnabled(false);
+    Assert.assertFalse(this.buffer.isBatching());
+  }
+
+  @Test
+  public void testWritesAreBufferedUntilFlush() {
+    this.buffer.write(ADAPTER, createRecord("sensor", 1, 1), null);
+    this.buffer.write(ADAPTER, createRecord("sensor", 2, 1), null);
+
+    Assert.assertEquals(2, this.buffer.size());
+    Assert.assertTrue(this.statsStorage.getWrittenRecords().isEmpty());
+
+    this.buffer.flush();
+
+    Assert.assertEquals(0, this.buffer.size());
+    Assert.assertEquals(2, this.statsStorage.getWrittenRecords().size());
+  }
+
+  @Test
+  public void testWritesOfSameRecordAreCoalesced() {
+    this.buffer.write(ADAPTER, createRecord("sensor", 1, 1), null);
+    this.buffer.write(ADAPTER, createRecord("other", 1, 1), null);
+    this.buffer.write(ADAPTER, createRecord("sensor", 1, 2), null);
+
+    Assert.assertEquals(2, this.buffer.size());
+    this.buffer.flush();
+
+    final List<Long> sensorCounts = this.statsStorage.getWrittenRecords().stream()
+        .map(HourOfDayActivePowerRecord.class::cast)
+        .filter(r -> "sensor".equals(r.getIdentifier().toString()))
+        .map(HourOfDayActivePowerRecord::getCount)
+        .collect(Collectors.toList());
+    Assert.assertEquals(List.of(2L), sensorCounts);
+  }
+
+  @Test
+  public void testRecordsAreCopied() {
+    final HourOfDayActivePowerRecord record = createRecord("sensor", 1, 1);
+    this.buffer.write(ADAPTER, record, null);
+    record.setCount(42L); // NOCS
+    this.buffer.flush();
+
+    final SpecificRecord written = this.statsStorage.getWrittenRecords().get(0);
+    Assert.assertEquals(1L, (long) ((HourOfDayActivePowerRecord) written).getCount());
+  }
+
+  @Test
+  public void testFlushAtMaxBufferedWrites() {
+    for (int hour = 0; hour < MAX_BUFFERED_WRITES; hour++) {
+      this.buffer.write(ADAPTER, createRecord("sensor", hour, 1), null);
+    }
+
+    Assert.assertEquals(0, this.buffer.size());
+    Assert.assertEquals(MAX_BUFFERED_WRITES, this.statsStorage.getWrittenRecords().size());
+  }
+
+  @Test
+  public void testPercentilesAreWrittenWithStats() {
+    final QuantileSketch sketch = new QuantileSketch(0.01, 100).add(1.0); // NOCS
+    this.buffer.write(ADAPTER, createRecord("sensor", 1, 1), sketch);
+    this.buffer.write(ADAPTER, createRecord("sensor", 2, 1), null);
+    this.buffer.flush();
+
+    Assert.assertEquals(2, this.statsStorage.getWrittenRecords().size());
+    Assert.assertEquals(1, this.statsStorage.getWrittenPercentiles().size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFailedWritesAreRethrown() {
+    final StatsWriteBuffer failingBuffer = new StatsWriteBuffer(
+        "failing",
+        new InMemoryStatsStorage() {
+          @Override
+          public void writeStats(final SpecificRecord record) {
+            throw new IllegalStateException("Cassandra unavailable.");
+          }
+        },
+        this.batching);
+    failingBuffer.write(ADAPTER, createRecord("sensor", 1, 1), null);
+    failingBuffer.flush();
+  }
+
+  private static HourOfDayActivePowerRecord createRecord(final String identifier, final int hour,
+      final long count) {
+    return new HourOfDayActivePowerRecord(identifier, hour, 0L, 1000L, count, 1.0, 0.0, 1.0, 1.0);
+  }
+
+}
@@ -0,0 +1,82 @@
+package titan.ccp.stats.streamprocessing;
+
+import com.google.common.math.Stats;
+import org.apache.kafka.common.serialization.Serde;
+import org.junit.Assert;
+import org.junit.Test;
+import titan.ccp.common.kafka.simpleserdes.BufferSerde;
+import titan.ccp.common.kafka.simpleserdes.ReadBuffer;
+import titan.ccp.common.kafka.simpleserdes.SimpleSerdes;
+import titan.ccp.common.kafka.simpleserdes.WriteBuffer;
+
+public class SummaryStatisticsSerdeTest {
+
+  private static final String TOPIC = "topic";
+  private static final long TIMESTAMP = 1_000L;
+
+  private final Serde<SummaryStatistics> serde = SimpleSerdes.create(new SummaryStatisticsSerde());
+
+  @Test
+  public void testRoundTripWithSketch() {
+    final QuantileSketch sketch = new QuantileSketch(0.01, 100).add(1.0).add(2.0).add(-3.0); // NOCS
+    final SummaryStatistics statistics =
+        new SummaryStatistics(Stats.of(1.0, 2.0, -3.0), TIMESTAMP, sketch);
+
+    final SummaryStatistics result = this.roundTrip(statistics);
+
+    Assert.assertEquals(statistics.getStats(), result.getStats());
+    Assert.assertEquals(TIMESTAMP, result.getTimestamp());
+    Assert.assertEquals(sketch.getCount(), result.getSketch().getCount());
+    Assert.assertEquals(sketch.quantile(0.0), result.getSketch().quantile(0.0), 0.0);
+    Assert.assertEquals(sketch.quantile(0.5), result.getSketch().quantile(0.5), 0.0);
+  }
+
+  @Test
+  public void testRoundTripWithoutSketch() {
+    final SummaryStatistics statistics = new SummaryStatistics(Stats.of(1.0, 2.0), TIMESTAMP);
+
+    final SummaryStatistics result = this.roundTrip(statistics);
+
+    Assert.assertEquals(statistics.getStats(), result.getStats());
+    Assert.assertEquals(TIMESTAMP, result.getTimestamp());
+    Assert.assertNull(result.getSketch());
+  }
+
+  @Test
+  public void testDeserializeFormatWithoutSketch() {
+    final Stats stats = Stats.of(1.0, 2.0, 3.0); // NOCS
+    final byte[] bytes = SimpleSerdes.create(new FormatWithoutSketchSerde())
+        .serializer()
+        .serialize(TOPIC, new SummaryStatistics(stats, TIMESTAMP));
+
+    final SummaryStatistics result = this.serde.deserializer().deserialize(TOPIC, bytes);
+
+    Assert.assertEquals(stats, result.getStats());
+    Assert.assertEquals(TIMESTAMP, result.getTimestamp());
+    Assert.assertNull(result.getSketch());
+  }
+
+  private SummaryStatistics roundTrip(final SummaryStatistics statistics) {
+    final byte[] bytes = this.serde.serializer().serialize(TOPIC, statistics);
+    return this.serde.deserializer().deserialize(TOPIC, bytes);
+  }
+
+  /**
+   * Serializes {@link SummaryStatistics} in the format used before percentiles were introduced.
+   */
+  private static final class FormatWithoutSketchSerde implements BufferSerde<SummaryStatistics> {
+
+    @Override
+    public void serialize(final WriteBuffer buffer, final SummaryStatistics data) {
+      buffer.putBytes(data.getStats().toByteArray());
+      buffer.putLong(data.getTimestamp());
+    }
+
+    @Override
+    public SummaryStatistics deserialize(final ReadBuffer buffer) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
@@ -0,0 +1,38 @@
+package titan.ccp.stats.streamprocessing;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.junit.Assert;
+import org.junit.Test;
+import titan.ccp.model.records.ActivePowerRecord;
+
+public class TimestampedActivePowerTest {
+
+  private static final String TOPIC = "dummy-topic";
+
+  @Test
+  public void testSerdeRoundTrip() {
+    final Serde<TimestampedActivePower> serde =
+        new MockedSchemaRegistrySerdes().timestampedActivePowerValues();
+    final TimestampedActivePower value = new TimestampedActivePower(1_577_854_200_000L, 42.5);
+
+    final byte[] bytes = serde.serializer().serialize(TOPIC, value);
+    final TimestampedActivePower result = serde.deserializer().deserialize(TOPIC, bytes);
+
+    Assert.assertEquals(TimestampedActivePower.BYTES, bytes.length);
+    Assert.assertEquals(value, result);
+  }
+
+  @Test
+  public void testSmallerThanAvroRecord() {
+    final Serdes serdes = new MockedSchemaRegistrySerdes();
+    final ActivePowerRecord record = new ActivePowerRecord("machine-42", 1_577_854_200_000L, 42.5);
+
+    final byte[] avroBytes =
+        serdes.activePowerRecordValues().serializer().serialize(TOPIC, record);
+    final byte[] leanBytes = serdes.timestampedActivePowerValues().serializer()
+        .serialize(TOPIC, TimestampedActivePower.of(record));
+
+    Assert.assertTrue(leanBytes.length < avroBytes.length);
+  }
+
+}
@@ -0,0 +1,40 @@
+package titan.ccp.stats.util;
+
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackedStatsSchemaTest {
+
+  private static final double DELTA = 0.0;
+
+  @Test
+  public void testBinKeyRoundTrip() {
+    final int binKey = PackedStatsSchema.getBinKey(7, 23);
+    Assert.assertEquals(7, PackedStatsSchema.getTimeUnit(binKey, 0, 2));
+    Assert.assertEquals(23, PackedStatsSchema.getTimeUnit(binKey, 1, 2));
+  }
+
+  @Test
+  public void testBinKeysOrderLikeTimeUnits() {
+    Assert.assertTrue(PackedStatsSchema.getBinKey(1, 23) < PackedStatsSchema.getBinKey(2, 0));
+    Assert.assertEquals(5, PackedStatsSchema.getBinKey(5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTimeUnitOutOfRange() {
+    PackedStatsSchema.getBinKey(256);
+  }
+
+  @Test
+  public void testEncodeDecode() {
+    final ByteBuffer bin = PackedStatsSchema.encode(42, 1.5, 0.25, -3.0, 8.0);
+    Assert.assertEquals(PackedStatsSchema.BIN_BYTES, bin.remaining());
+    Assert.assertEquals(42, PackedStatsSchema.getCount(bin));
+    Assert.assertEquals(1.5, PackedStatsSchema.getMean(bin), DELTA);
+    Assert.assertEquals(0.25, PackedStatsSchema.getPopulationVariance(bin), DELTA);
+    Assert.assertEquals(-3.0, PackedStatsSchema.getMin(bin), DELTA);
+    Assert.assertEquals(8.0, PackedStatsSchema.getMax(bin), DELTA);
+  }
+
+}